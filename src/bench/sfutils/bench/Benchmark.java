@@ -0,0 +1,166 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A single operation measured by the {@link Harness}.  A {@link Benchmark}
+ * is {@linkplain #setUp() set up} once per JVM, asked to {@linkplain
+ * #run(int) run} its operation repeatedly in batches, and then {@linkplain
+ * #tearDown() torn down}.  Each batch returns a value derived from the
+ * results of its operations, which the {@link Harness} consumes so that the
+ * work cannot be optimized away.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public abstract class Benchmark {
+
+  /**
+   * The name of this {@link Benchmark}, by which it is reported and
+   * selected.  This field is never <code>null</code>.
+   */
+  private final String name;
+
+  /**
+   * The temporary directory holding the {@link File}s {@linkplain
+   * #createFile(String) created} by this {@link Benchmark}, or
+   * <code>null</code> if none have been.
+   */
+  private File directory;
+
+  /**
+   * Creates a new {@link Benchmark}.
+   *
+   * @param      name
+   *               the name of the {@link Benchmark}; must not be
+   *               <code>null</code>
+   */
+  protected Benchmark(final String name) {
+    super();
+    if (name == null) {
+      throw new IllegalArgumentException("null name");
+    }
+    this.name = name;
+  }
+
+  /**
+   * Returns the name of this {@link Benchmark}.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     the name; never <code>null</code>
+   */
+  public final String getName() {
+    return this.name;
+  }
+
+  /**
+   * Prepares the state that {@link #run(int)} works on.  This
+   * implementation does nothing.
+   *
+   * @exception  Exception
+   *               if the state could not be prepared
+   */
+  protected void setUp() throws Exception {
+  }
+
+  /**
+   * Performs the measured operation the supplied number of times and returns
+   * a value derived from the results.
+   *
+   * @param      operations
+   *               the number of operations to perform; greater than
+   *               <code>0</code>
+   * @return     a value derived from the results of the operations
+   * @exception  Exception
+   *               if an operation fails
+   */
+  protected abstract int run(final int operations) throws Exception;
+
+  /**
+   * Releases what {@link #setUp()} prepared, and deletes any {@link File}s
+   * {@linkplain #createFile(String) created}.  Subclasses that override this
+   * method must call it.
+   */
+  protected void tearDown() {
+    if (this.directory != null) {
+      final File[] files = this.directory.listFiles();
+      for (int i = 0; files != null && i < files.length; i++) {
+        files[i].delete();
+      }
+      this.directory.delete();
+      this.directory = null;
+    }
+  }
+
+  /**
+   * Creates a small, readable {@link File} with the supplied name in a
+   * temporary directory that {@link #tearDown()} deletes.  Several of the
+   * measured operations insist on {@link File}s that exist.  This method
+   * never returns <code>null</code>.
+   *
+   * @param      name
+   *               the name of the {@link File}; must not be
+   *               <code>null</code>
+   * @return     the {@link File}; never <code>null</code>
+   * @exception  IOException
+   *               if the {@link File} could not be written
+   */
+  protected final File createFile(final String name) throws IOException {
+    if (this.directory == null) {
+      final File directory = File.createTempFile("bench", "");
+      if (!directory.delete() || !directory.mkdir()) {
+        throw new IOException("Could not create " + directory);
+      }
+      this.directory = directory;
+    }
+    final File file = new File(this.directory, name);
+    final FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(name.getBytes());
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  /**
+   * Returns a {@link String} representation of this {@link Benchmark}: its
+   * {@linkplain #getName() name}.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     the name; never <code>null</code>
+   */
+  public String toString() {
+    return this.name;
+  }
+
+}
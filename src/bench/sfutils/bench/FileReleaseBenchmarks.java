@@ -0,0 +1,304 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.bench;
+
+import java.util.SortedSet;
+
+import sfutils.frs.FileRelease;
+import sfutils.frs.FileSpecification;
+import sfutils.frs.PublishingException;
+
+import sfutils.frs.web.HttpUnitPublisher;
+
+/**
+ * {@link Benchmark}s of the views a {@link FileRelease} offers of its files:
+ * {@link FileRelease#getFiles()}, {@link FileRelease#getShortFileNames()},
+ * and {@link HttpUnitPublisher#extractShortFileNames(FileRelease)}, which
+ * the publisher consults when reconciling.  Each is measured on a small and a
+ * large release, and {@link FileRelease#getShortFileNames()} also right after
+ * a {@link FileSpecification} changes, when whatever the {@link FileRelease}
+ * has derived from its files must be worked out again.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+final class FileReleaseBenchmarks {
+
+  /**
+   * The number of files in a small release.
+   */
+  private static final int SMALL = 4;
+
+  /**
+   * The number of files in a large release.
+   */
+  private static final int LARGE = 64;
+
+  /**
+   * Creates a new {@link FileReleaseBenchmarks}.  This constructor is private
+   * because this class only hands out {@link Benchmark}s.
+   */
+  private FileReleaseBenchmarks() {
+    super();
+  }
+
+  /**
+   * Returns new {@link Benchmark}s of {@link FileRelease} file views.  This
+   * method never returns <code>null</code>.
+   *
+   * @return     the {@link Benchmark}s; never <code>null</code>
+   */
+  static Benchmark[] create() {
+    return new Benchmark[] {
+      new GetFiles(SMALL),
+      new GetFiles(LARGE),
+      new GetShortFileNames(SMALL, false),
+      new GetShortFileNames(LARGE, false),
+      new GetShortFileNames(LARGE, true),
+      new ExtractShortFileNames(SMALL),
+      new ExtractShortFileNames(LARGE)
+    };
+  }
+
+  /**
+   * A {@link Benchmark} that works on a {@link FileRelease} of a given
+   * number of files.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private abstract static class ReleaseBenchmark extends Benchmark {
+
+    /**
+     * The number of files in the {@link FileRelease}.
+     */
+    private final int size;
+
+    /**
+     * The {@link FileRelease} worked on, once {@linkplain #setUp() set up}.
+     */
+    protected FileRelease release;
+
+    /**
+     * Creates a new {@link ReleaseBenchmark}.
+     *
+     * @param      name
+     *               the name of the operation; must not be <code>null</code>
+     * @param      size
+     *               the number of files in the {@link FileRelease}
+     */
+    protected ReleaseBenchmark(final String name, final int size) {
+      super(name + "[" + size + "]");
+      this.size = size;
+    }
+
+    /**
+     * Creates the {@link FileRelease} and its files.
+     *
+     * @exception  Exception
+     *               if the files could not be created
+     */
+    protected void setUp() throws Exception {
+      final FileSpecification[] specs = new FileSpecification[this.size];
+      for (int i = 0; i < specs.length; i++) {
+        specs[i] = new FileSpecification(this.createFile("sfutils-" + i + ".zip"));
+      }
+      this.release =
+        new FileRelease(ModelBenchmarks.newPackage("core"), "core-1.0");
+      this.release.setFileSpecifications(specs);
+    }
+
+  }
+
+  /**
+   * Measures {@link FileRelease#getFiles()}.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private static final class GetFiles extends ReleaseBenchmark {
+
+    /**
+     * Creates a new {@link GetFiles}.
+     *
+     * @param      size
+     *               the number of files in the {@link FileRelease}
+     */
+    private GetFiles(final int size) {
+      super("FileRelease.getFiles", size);
+    }
+
+    /**
+     * Calls {@link FileRelease#getFiles()}.
+     *
+     * @param      operations
+     *               the number of calls to make
+     * @return     the total number of {@link java.io.File}s returned
+     */
+    protected int run(final int operations) {
+      int result = 0;
+      for (int i = 0; i < operations; i++) {
+        result += this.release.getFiles().length;
+      }
+      return result;
+    }
+
+  }
+
+  /**
+   * Measures {@link FileRelease#getShortFileNames()}, optionally right after
+   * one of the {@link FileRelease}'s {@link FileSpecification}s changes.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private static final class GetShortFileNames extends ReleaseBenchmark {
+
+    /**
+     * Whether a {@link FileSpecification} changes before every call.
+     */
+    private final boolean changing;
+
+    /**
+     * Creates a new {@link GetShortFileNames}.
+     *
+     * @param      size
+     *               the number of files in the {@link FileRelease}
+     * @param      changing
+     *               whether a {@link FileSpecification} should change before
+     *               every call
+     */
+    private GetShortFileNames(final int size, final boolean changing) {
+      super(changing ?
+            "FileRelease.getShortFileNames.afterChange" :
+            "FileRelease.getShortFileNames",
+            size);
+      this.changing = changing;
+    }
+
+    /**
+     * Calls {@link FileRelease#getShortFileNames()}.
+     *
+     * @param      operations
+     *               the number of calls to make
+     * @return     the total length of the first names returned
+     */
+    protected int run(final int operations) {
+      final FileSpecification first =
+        (FileSpecification)this.release.getFileSpecificationList().get(0);
+      int result = 0;
+      for (int i = 0; i < operations; i++) {
+        if (this.changing) {
+          first.setProcessorType((i & 1) == 0 ?
+                                 FileSpecification.ANY_PROCESSOR :
+                                 FileSpecification.PLATFORM_INDEPENDENT_PROCESSOR);
+        }
+        result += this.release.getShortFileNames()[0].length();
+      }
+      return result;
+    }
+
+  }
+
+  /**
+   * Measures {@link HttpUnitPublisher#extractShortFileNames(FileRelease)}.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private static final class ExtractShortFileNames extends ReleaseBenchmark {
+
+    /**
+     * The {@link Extractor} whose method is measured.
+     */
+    private final Extractor extractor;
+
+    /**
+     * Creates a new {@link ExtractShortFileNames}.
+     *
+     * @param      size
+     *               the number of files in the {@link FileRelease}
+     */
+    private ExtractShortFileNames(final int size) {
+      super("HttpUnitPublisher.extractShortFileNames", size);
+      this.extractor = new Extractor();
+    }
+
+    /**
+     * Calls {@link HttpUnitPublisher#extractShortFileNames(FileRelease)}.
+     *
+     * @param      operations
+     *               the number of calls to make
+     * @return     the total number of names returned
+     * @exception  PublishingException
+     *               if the names could not be extracted
+     */
+    protected int run(final int operations) throws PublishingException {
+      int result = 0;
+      for (int i = 0; i < operations; i++) {
+        result += this.extractor.extract(this.release).size();
+      }
+      return result;
+    }
+
+  }
+
+  /**
+   * Exposes {@link HttpUnitPublisher}'s protected {@link
+   * HttpUnitPublisher#extractShortFileNames(FileRelease)} method.  Creating
+   * one creates no web conversation.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private static final class Extractor extends HttpUnitPublisher {
+
+    /**
+     * Creates a new {@link Extractor}.
+     */
+    private Extractor() {
+      super();
+    }
+
+    /**
+     * Calls {@link #extractShortFileNames(FileRelease)}.
+     *
+     * @param      release
+     *               the {@link FileRelease}; must not be <code>null</code>
+     * @return     the short names of its files; never <code>null</code>
+     * @exception  PublishingException
+     *               if the names could not be extracted
+     */
+    private SortedSet extract(final FileRelease release)
+      throws PublishingException {
+      return this.extractShortFileNames(release);
+    }
+
+  }
+
+}
@@ -0,0 +1,216 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.bench;
+
+import java.lang.reflect.Field;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.tools.ant.taskdefs.optional.sourceforge.FileSpec;
+
+import sfutils.frs.FileSpecification;
+import sfutils.frs.TypeRegistry;
+
+/**
+ * {@link Benchmark}s of how the <code>filespec</code> Ant element resolves
+ * its <code>filetype</code> and <code>processortype</code> attributes, and
+ * of how filename suffixes resolve to file types, each through the {@link
+ * TypeRegistry} and, as a baseline, the way {@link FileSpecification} did
+ * before it consulted the {@link TypeRegistry}: by reflection on its
+ * constants, and through a synchronized suffix {@link Map}.  The baselines
+ * are named after the {@link Benchmark} they compare with.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+final class FileSpecBenchmarks {
+
+  /**
+   * The file type names resolved, in the forms build files use.
+   */
+  private static final String[] FILE_TYPES = {
+    "binary zip", "source gzip", "OTHER", "jar", "TEXT_FILE", "Debian Package"
+  };
+
+  /**
+   * The processor type names resolved.
+   */
+  private static final String[] PROCESSOR_TYPES = {
+    "i386", "any", "Platform Independent", "PPC"
+  };
+
+  /**
+   * The filenames whose suffixes are resolved.
+   */
+  private static final String[] FILE_NAMES = {
+    "sfutils-1.0.zip", "sfutils-1.0-src.tgz", "README.txt", "index.html",
+    "sfutils.jar", "NOTICE"
+  };
+
+  /**
+   * Creates a new {@link FileSpecBenchmarks}.  This constructor is private
+   * because this class only hands out {@link Benchmark}s.
+   */
+  private FileSpecBenchmarks() {
+    super();
+  }
+
+  /**
+   * Returns new {@link Benchmark}s of <code>filespec</code> attribute and
+   * filename suffix resolution.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     the {@link Benchmark}s; never <code>null</code>
+   */
+  static Benchmark[] create() {
+    return new Benchmark[] {
+      new Benchmark("FileSpec.setTypes") {
+        private final FileSpec spec = new FileSpec();
+        protected int run(final int operations) {
+          int result = 0;
+          for (int i = 0; i < operations; i++) {
+            this.spec.setFileType(FILE_TYPES[i % FILE_TYPES.length]);
+            this.spec.setProcessorType(PROCESSOR_TYPES[i % PROCESSOR_TYPES.length]);
+            result += this.spec.getFileSpecification().getFileType();
+          }
+          return result;
+        }
+      },
+      new Benchmark("FileSpec.setTypes.reflection") {
+        protected int run(final int operations) {
+          int result = 0;
+          for (int i = 0; i < operations; i++) {
+            result += reflectiveLookUp(FILE_TYPES[i % FILE_TYPES.length],
+                                       "_FILE");
+            result += reflectiveLookUp(PROCESSOR_TYPES[i % PROCESSOR_TYPES.length],
+                                       "_PROCESSOR");
+          }
+          return result;
+        }
+      },
+      new Benchmark("TypeRegistry.getFileTypeForName") {
+        protected int run(final int operations) {
+          int result = 0;
+          for (int i = 0; i < operations; i++) {
+            result +=
+              TypeRegistry.getFileTypeForName(FILE_NAMES[i % FILE_NAMES.length]);
+          }
+          return result;
+        }
+      },
+      new Benchmark("TypeRegistry.getFileTypeForName.synchronizedMap") {
+        private final Map suffixes =
+          Collections.synchronizedMap(FileSpecificationAccess.suffixMap());
+        protected int run(final int operations) {
+          int result = 0;
+          for (int i = 0; i < operations; i++) {
+            result += suffixLookUp(this.suffixes,
+                                   FILE_NAMES[i % FILE_NAMES.length]);
+          }
+          return result;
+        }
+      }
+    };
+  }
+
+  /**
+   * Resolves a type name the way {@link FileSpecification} did before it
+   * consulted the {@link TypeRegistry}.
+   *
+   * @param      type
+   *               the type name; must not be <code>null</code>
+   * @param      suffix
+   *               "<code>_FILE</code>" or "<code>_PROCESSOR</code>"
+   * @return     the code
+   */
+  private static int reflectiveLookUp(final String type, final String suffix) {
+    String workingType = type.trim().replace(' ', '_');
+    if (!workingType.endsWith(suffix)) {
+      workingType = workingType + suffix;
+    }
+    workingType = workingType.toUpperCase();
+    try {
+      final Field f = FileSpecification.class.getField(workingType);
+      return f.getInt(null);
+    } catch (final Exception kaboom) {
+      throw new IllegalStateException(kaboom.toString());
+    }
+  }
+
+  /**
+   * Resolves a filename suffix the way {@link FileSpecification} did before
+   * it consulted the {@link TypeRegistry}.
+   *
+   * @param      suffixes
+   *               the synchronized suffix table; must not be
+   *               <code>null</code>
+   * @param      name
+   *               the filename; must not be <code>null</code>
+   * @return     the code
+   */
+  private static int suffixLookUp(final Map suffixes, final String name) {
+    final int lastPeriodIndex = name.lastIndexOf('.');
+    if (lastPeriodIndex >= 0 && lastPeriodIndex != name.length() - 1) {
+      final Integer type = (Integer)
+        suffixes.get(name.substring(lastPeriodIndex).toLowerCase());
+      if (type != null) {
+        return type.intValue();
+      }
+    }
+    return FileSpecification.OTHER_FILE;
+  }
+
+  /**
+   * Exposes {@link FileSpecification}'s protected suffix table.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private static final class FileSpecificationAccess
+    extends FileSpecification {
+
+    /**
+     * Creates a new {@link FileSpecificationAccess}; never called.
+     */
+    private FileSpecificationAccess() {
+      super();
+    }
+
+    /**
+     * Returns {@link FileSpecification#SUFFIX_TO_FILE_TYPE_MAP}.
+     *
+     * @return     the suffix table; never <code>null</code>
+     */
+    private static Map suffixMap() {
+      return SUFFIX_TO_FILE_TYPE_MAP;
+    }
+
+  }
+
+}
@@ -0,0 +1,129 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.bench;
+
+import java.io.File;
+
+import sfutils.frs.FileSpecification;
+
+/**
+ * {@link Benchmark}s of how {@link FileSpecification} works out types: from
+ * a {@link File}'s name, by {@link FileSpecification#computeFileType(File)},
+ * and from the names build files and manifests use, by {@link
+ * FileSpecification#setFileTypeString(String)} and {@link
+ * FileSpecification#setProcessorTypeString(String)}.  Each cycles through a
+ * mix of names so that no single lookup path dominates.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+final class FileSpecificationBenchmarks {
+
+  /**
+   * The names of the {@link File}s whose types are computed.
+   */
+  private static final String[] FILE_NAMES = {
+    "sfutils-1.0.zip", "sfutils-1.0-src.tar.gz", "sfutils-1.0.tar.bz2",
+    "README.txt", "index.html", "sfutils-1.0.jar", "sfutils_1.0_all.deb",
+    "NOTICE"
+  };
+
+  /**
+   * The file type names resolved, in the forms build files use.
+   */
+  private static final String[] FILE_TYPES = {
+    "BINARY_ZIP_FILE", "source gzip", "OTHER", "jar", "TEXT_FILE",
+    "Debian Package"
+  };
+
+  /**
+   * The processor type names resolved.
+   */
+  private static final String[] PROCESSOR_TYPES = {
+    "I386_PROCESSOR", "any", "Platform Independent", "PPC"
+  };
+
+  /**
+   * Creates a new {@link FileSpecificationBenchmarks}.  This constructor is
+   * private because this class only hands out {@link Benchmark}s.
+   */
+  private FileSpecificationBenchmarks() {
+    super();
+  }
+
+  /**
+   * Returns new {@link Benchmark}s of {@link FileSpecification} type
+   * resolution.  This method never returns <code>null</code>.
+   *
+   * @return     the {@link Benchmark}s; never <code>null</code>
+   */
+  static Benchmark[] create() {
+    return new Benchmark[] {
+      new Benchmark("FileSpecification.computeFileType") {
+        private File[] files;
+        protected void setUp() throws Exception {
+          this.files = new File[FILE_NAMES.length];
+          for (int i = 0; i < this.files.length; i++) {
+            this.files[i] = this.createFile(FILE_NAMES[i]);
+          }
+        }
+        protected int run(final int operations) {
+          final File[] files = this.files;
+          int result = 0;
+          for (int i = 0; i < operations; i++) {
+            result += FileSpecification.computeFileType(files[i % files.length]);
+          }
+          return result;
+        }
+      },
+      new Benchmark("FileSpecification.setFileTypeString") {
+        private final FileSpecification spec = new FileSpecification();
+        protected int run(final int operations) {
+          int result = 0;
+          for (int i = 0; i < operations; i++) {
+            this.spec.setFileTypeString(FILE_TYPES[i % FILE_TYPES.length]);
+            result += this.spec.getFileType();
+          }
+          return result;
+        }
+      },
+      new Benchmark("FileSpecification.setProcessorTypeString") {
+        private final FileSpecification spec = new FileSpecification();
+        protected int run(final int operations) {
+          int result = 0;
+          for (int i = 0; i < operations; i++) {
+            this.spec.setProcessorTypeString(PROCESSOR_TYPES[i % PROCESSOR_TYPES.length]);
+            result += this.spec.getProcessorType();
+          }
+          return result;
+        }
+      }
+    };
+  }
+
+}
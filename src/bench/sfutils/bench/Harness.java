@@ -0,0 +1,629 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Runs {@link Benchmark}s and reports the mean time each takes per
+ * operation, in the manner of <a
+ * href="http://openjdk.java.net/projects/code-tools/jmh/">JMH</a>.  Each
+ * {@link Benchmark} runs in its own, freshly started JVM, so that the
+ * profile one leaves behind cannot slow another down.  There it is
+ * {@linkplain Benchmark#setUp() set up}, its batch size is grown until a
+ * batch takes at least a millisecond, and it is then run for a number of
+ * warm-up iterations, whose times are discarded, followed by a number of
+ * measured iterations of a fixed length.  The score is the mean of the
+ * measured iterations from every JVM, and the error is the half-width of its
+ * 99.9% confidence interval.  Run it with no arguments to run every {@link
+ * Benchmark}:
+ *
+ * <pre>java sfutils.bench.Harness [-w WARMUPS] [-i ITERATIONS] [-t MILLIS]
+ *     [-f FORKS] [-o RESULTS] [-b BASELINE] [-l] [-h] [NAME...]</pre>
+ *
+ * <p>Only {@link Benchmark}s whose names contain one of the supplied
+ * <code>NAME</code>s are run.  <code>-o</code> writes the scores to a file
+ * that a later run can be compared against with <code>-b</code>, which is
+ * how an optimization's effect is measured: record a baseline before the
+ * change, and compare against it after.  <code>-f 0</code> runs every {@link
+ * Benchmark} in this JVM instead, <code>-l</code> lists the {@link
+ * Benchmark}s without running them, and <code>-h</code> summarizes the
+ * options.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public final class Harness {
+
+  /**
+   * The exit status of a run in which every {@link Benchmark} ran.
+   */
+  public static final int EXIT_OK = 0;
+
+  /**
+   * The exit status of a run in which a {@link Benchmark} failed.
+   */
+  public static final int EXIT_FAILED = 1;
+
+  /**
+   * The exit status of a run given arguments it could not understand.
+   */
+  public static final int EXIT_USAGE = 2;
+
+  /**
+   * The usage message.
+   */
+  private static final String USAGE =
+    "Usage: java sfutils.bench.Harness [options] [NAME...]\n" +
+    "  -w WARMUPS      warm-up iterations per JVM (default 5)\n" +
+    "  -i ITERATIONS   measured iterations per JVM (default 10)\n" +
+    "  -t MILLIS       length of an iteration (default 200)\n" +
+    "  -f FORKS        JVMs per benchmark; 0 runs in this JVM (default 1)\n" +
+    "  -o RESULTS      write the scores to RESULTS\n" +
+    "  -b BASELINE     compare the scores with those in BASELINE\n" +
+    "  -l              list the benchmarks and exit\n" +
+    "  -h              print this message and exit\n";
+
+  /**
+   * The option that makes a forked JVM run a single {@link Benchmark} and
+   * print its iterations' scores.
+   */
+  private static final String CHILD_OPTION = "--child";
+
+  /**
+   * The options that take a value.
+   */
+  private static final List VALUE_OPTIONS =
+    Arrays.asList(new String[] {
+      "-w", "-i", "-t", "-f", "-o", "-b", CHILD_OPTION
+    });
+
+  /**
+   * The prefix of the lines on which a forked JVM prints its iterations'
+   * scores.
+   */
+  private static final String ITERATION_PREFIX = "iteration ";
+
+  /**
+   * The shortest time a batch is allowed to take, in nanoseconds, so that
+   * reading the clock costs next to nothing.
+   */
+  private static final long MINIMUM_BATCH_NANOS = 1000000L;
+
+  /**
+   * The quantile of the standard normal distribution for a two-sided 99.9%
+   * confidence interval.
+   */
+  private static final double Z_99_9 = 3.291;
+
+  /**
+   * Accumulates the values returned by {@link Benchmark#run(int)}, so that
+   * the work that produced them cannot be optimized away.
+   */
+  private static volatile int sink;
+
+  /**
+   * The number of warm-up iterations per JVM.
+   */
+  private int warmups = 5;
+
+  /**
+   * The number of measured iterations per JVM.
+   */
+  private int iterations = 10;
+
+  /**
+   * The length of an iteration, in milliseconds.
+   */
+  private long iterationMillis = 200L;
+
+  /**
+   * The number of JVMs each {@link Benchmark} runs in; <code>0</code> to
+   * run in this one.
+   */
+  private int forks = 1;
+
+  /**
+   * Creates a new {@link Harness}.  This constructor is private because
+   * this class is run only through its {@link #main(String[])} method.
+   */
+  private Harness() {
+    super();
+  }
+
+  /**
+   * Runs the {@link Benchmark}s selected by the supplied arguments and exits
+   * with {@link #EXIT_OK}, {@link #EXIT_FAILED} or {@link #EXIT_USAGE}.
+   *
+   * @param      args
+   *               the arguments; see the class documentation
+   */
+  public static void main(final String[] args) {
+    System.exit(new Harness().run(args));
+  }
+
+  /**
+   * Returns new instances of every {@link Benchmark}.  This method never
+   * returns <code>null</code>.
+   *
+   * @return     every {@link Benchmark}; never <code>null</code>
+   */
+  static List createBenchmarks() {
+    final List benchmarks = new ArrayList();
+    benchmarks.addAll(Arrays.asList(FileSpecificationBenchmarks.create()));
+    benchmarks.addAll(Arrays.asList(FileSpecBenchmarks.create()));
+    benchmarks.addAll(Arrays.asList(FileReleaseBenchmarks.create()));
+    benchmarks.addAll(Arrays.asList(ModelBenchmarks.create()));
+    return benchmarks;
+  }
+
+  /**
+   * Runs the {@link Benchmark}s selected by the supplied arguments.
+   *
+   * @param      args
+   *               the arguments; must not be <code>null</code>
+   * @return     the exit status
+   */
+  private int run(final String[] args) {
+    String results = null;
+    String baseline = null;
+    String child = null;
+    boolean list = false;
+    final List names = new ArrayList();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        final String arg = args[i];
+        if ("-h".equals(arg)) {
+          System.out.print(USAGE);
+          return EXIT_OK;
+        } else if ("-l".equals(arg)) {
+          list = true;
+        } else if (!arg.startsWith("-")) {
+          names.add(arg);
+        } else if (!VALUE_OPTIONS.contains(arg)) {
+          System.err.println("Unknown option " + arg);
+          System.err.print(USAGE);
+          return EXIT_USAGE;
+        } else if (i + 1 >= args.length) {
+          System.err.println("Missing value for " + arg);
+          System.err.print(USAGE);
+          return EXIT_USAGE;
+        } else if ("-w".equals(arg)) {
+          this.warmups = Integer.parseInt(args[++i]);
+        } else if ("-i".equals(arg)) {
+          this.iterations = Integer.parseInt(args[++i]);
+        } else if ("-t".equals(arg)) {
+          this.iterationMillis = Long.parseLong(args[++i]);
+        } else if ("-f".equals(arg)) {
+          this.forks = Integer.parseInt(args[++i]);
+        } else if ("-o".equals(arg)) {
+          results = args[++i];
+        } else if ("-b".equals(arg)) {
+          baseline = args[++i];
+        } else {
+          child = args[++i];
+        }
+      }
+    } catch (final NumberFormatException kaboom) {
+      System.err.println("Not a number: " + kaboom.getMessage());
+      System.err.print(USAGE);
+      return EXIT_USAGE;
+    }
+    if (this.warmups < 0 || this.iterations < 1 || this.iterationMillis < 1L ||
+        this.forks < 0) {
+      System.err.print(USAGE);
+      return EXIT_USAGE;
+    }
+
+    final List selected = new ArrayList();
+    final Iterator iterator = createBenchmarks().iterator();
+    while (iterator.hasNext()) {
+      final Benchmark benchmark = (Benchmark)iterator.next();
+      if (child != null) {
+        if (benchmark.getName().equals(child)) {
+          selected.add(benchmark);
+        }
+      } else if (names.isEmpty() || matches(benchmark.getName(), names)) {
+        selected.add(benchmark);
+      }
+    }
+    if (selected.isEmpty()) {
+      System.err.println("No benchmarks match " + (child == null ? names : (Object)child));
+      return EXIT_USAGE;
+    }
+    if (list) {
+      for (int i = 0; i < selected.size(); i++) {
+        System.out.println(selected.get(i));
+      }
+      return EXIT_OK;
+    }
+    if (child != null) {
+      return this.runChild((Benchmark)selected.get(0));
+    }
+    return this.runAll(selected, results, baseline);
+  }
+
+  /**
+   * Returns whether the supplied name contains one of the supplied
+   * {@link String}s.
+   *
+   * @param      name
+   *               the name; must not be <code>null</code>
+   * @param      names
+   *               a {@link List} of {@link String}s; must not be
+   *               <code>null</code>
+   * @return     <code>true</code> if the name contains one of them
+   */
+  private static boolean matches(final String name, final List names) {
+    for (int i = 0; i < names.size(); i++) {
+      if (name.indexOf((String)names.get(i)) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Runs every supplied {@link Benchmark} and prints a table of their
+   * scores.
+   *
+   * @param      benchmarks
+   *               the {@link Benchmark}s; must not be <code>null</code>
+   * @param      results
+   *               the name of the file to write the scores to, or
+   *               <code>null</code>
+   * @param      baseline
+   *               the name of the file holding scores to compare with, or
+   *               <code>null</code>
+   * @return     the exit status
+   */
+  private int runAll(final List benchmarks,
+                     final String results,
+                     final String baseline) {
+    final Properties baselineScores = new Properties();
+    final Properties scores = new Properties();
+    try {
+      if (baseline != null) {
+        load(baselineScores, baseline);
+      }
+    } catch (final IOException kaboom) {
+      System.err.println("Could not read " + baseline + ": " + kaboom);
+      return EXIT_USAGE;
+    }
+    System.out.println(pad("Benchmark", -48) + pad("Cnt", 5) +
+                       pad("Score", 12) + pad("Error", 12) + "  Units" +
+                       (baseline == null ? "" : pad("Baseline", 12) + pad("Change", 10)));
+    int status = EXIT_OK;
+    for (int i = 0; i < benchmarks.size(); i++) {
+      final Benchmark benchmark = (Benchmark)benchmarks.get(i);
+      final List samples = new ArrayList();
+      try {
+        if (this.forks == 0) {
+          this.measure(benchmark, samples);
+        } else {
+          for (int fork = 0; fork < this.forks; fork++) {
+            this.fork(benchmark, samples);
+          }
+        }
+      } catch (final Exception kaboom) {
+        System.out.println(pad(benchmark.getName(), -48) + "  FAILED: " + kaboom);
+        status = EXIT_FAILED;
+        continue;
+      }
+      final double mean = mean(samples);
+      final double error = error(samples, mean);
+      scores.setProperty(benchmark.getName(), mean + " " + error);
+      final StringBuffer line = new StringBuffer();
+      line.append(pad(benchmark.getName(), -48));
+      line.append(pad(String.valueOf(samples.size()), 5));
+      line.append(pad(format(mean), 12));
+      line.append(" +-");
+      line.append(pad(format(error), 10));
+      line.append("  ns/op");
+      final String before = baselineScores.getProperty(benchmark.getName());
+      if (before != null) {
+        final double beforeMean =
+          Double.parseDouble(before.trim().split("\\s+")[0]);
+        line.append(pad(format(beforeMean), 12));
+        line.append(pad(String.format("%+.1f%%", new Object[] {
+          new Double((mean - beforeMean) * 100.0 / beforeMean)
+        }), 10));
+      }
+      System.out.println(line);
+    }
+    if (results != null) {
+      try {
+        store(scores, results);
+      } catch (final IOException kaboom) {
+        System.err.println("Could not write " + results + ": " + kaboom);
+        status = EXIT_FAILED;
+      }
+    }
+    return status;
+  }
+
+  /**
+   * Runs the supplied {@link Benchmark} in a new JVM, started with this
+   * JVM's options and class path, and adds its iterations' scores to the
+   * supplied {@link List}.
+   *
+   * @param      benchmark
+   *               the {@link Benchmark}; must not be <code>null</code>
+   * @param      samples
+   *               the {@link List} of {@link Double} scores to add to; must
+   *               not be <code>null</code>
+   * @exception  IOException
+   *               if the JVM could not be started or failed
+   * @exception  InterruptedException
+   *               if interrupted while waiting for the JVM
+   */
+  private void fork(final Benchmark benchmark, final List samples)
+    throws IOException, InterruptedException {
+    final List command = new ArrayList();
+    command.add(new File(new File(System.getProperty("java.home"), "bin"),
+                         "java").getPath());
+    command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(Harness.class.getName());
+    command.add("-w");
+    command.add(String.valueOf(this.warmups));
+    command.add("-i");
+    command.add(String.valueOf(this.iterations));
+    command.add("-t");
+    command.add(String.valueOf(this.iterationMillis));
+    command.add(CHILD_OPTION);
+    command.add(benchmark.getName());
+    final ProcessBuilder builder = new ProcessBuilder(command);
+    builder.redirectErrorStream(true);
+    final Process process = builder.start();
+    process.getOutputStream().close();
+    final StringBuffer output = new StringBuffer();
+    final List forked = new ArrayList();
+    final BufferedReader reader =
+      new BufferedReader(new InputStreamReader(process.getInputStream()));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith(ITERATION_PREFIX)) {
+          forked.add(Double.valueOf(line.substring(ITERATION_PREFIX.length())));
+        } else {
+          output.append(line).append('\n');
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    if (process.waitFor() != EXIT_OK || forked.isEmpty()) {
+      System.err.print(output);
+      throw new IOException("Forked JVM exited with status " +
+                            process.exitValue());
+    }
+    samples.addAll(forked);
+  }
+
+  /**
+   * Runs the supplied {@link Benchmark} in this JVM, as a forked JVM does,
+   * and prints its iterations' scores for the JVM that forked it.
+   *
+   * @param      benchmark
+   *               the {@link Benchmark}; must not be <code>null</code>
+   * @return     the exit status
+   */
+  private int runChild(final Benchmark benchmark) {
+    final List samples = new ArrayList();
+    try {
+      this.measure(benchmark, samples);
+    } catch (final Exception kaboom) {
+      kaboom.printStackTrace();
+      return EXIT_FAILED;
+    }
+    for (int i = 0; i < samples.size(); i++) {
+      System.out.println(ITERATION_PREFIX + samples.get(i));
+    }
+    return EXIT_OK;
+  }
+
+  /**
+   * Sets up, warms up, measures and tears down the supplied {@link
+   * Benchmark} in this JVM, and adds its measured iterations' scores to the
+   * supplied {@link List}.
+   *
+   * @param      benchmark
+   *               the {@link Benchmark}; must not be <code>null</code>
+   * @param      samples
+   *               the {@link List} of {@link Double} scores, in nanoseconds
+   *               per operation, to add to; must not be <code>null</code>
+   * @exception  Exception
+   *               if the {@link Benchmark} fails
+   */
+  private void measure(final Benchmark benchmark, final List samples)
+    throws Exception {
+    benchmark.setUp();
+    try {
+      int batch = 1;
+      while (true) {
+        final long start = System.nanoTime();
+        sink += benchmark.run(batch);
+        if (System.nanoTime() - start >= MINIMUM_BATCH_NANOS ||
+            batch >= (1 << 30)) {
+          break;
+        }
+        batch <<= 1;
+      }
+      final long iterationNanos = this.iterationMillis * 1000000L;
+      for (int i = 0; i < this.warmups + this.iterations; i++) {
+        long operations = 0L;
+        final long start = System.nanoTime();
+        long elapsed;
+        do {
+          sink += benchmark.run(batch);
+          operations += batch;
+          elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        if (i >= this.warmups) {
+          samples.add(new Double((double)elapsed / operations));
+        }
+      }
+    } finally {
+      benchmark.tearDown();
+    }
+  }
+
+  /**
+   * Returns the mean of the supplied scores.
+   *
+   * @param      samples
+   *               a non-empty {@link List} of {@link Double}s; must not be
+   *               <code>null</code>
+   * @return     the mean
+   */
+  private static double mean(final List samples) {
+    double sum = 0.0;
+    for (int i = 0; i < samples.size(); i++) {
+      sum += ((Double)samples.get(i)).doubleValue();
+    }
+    return sum / samples.size();
+  }
+
+  /**
+   * Returns the half-width of the 99.9% confidence interval of the mean of
+   * the supplied scores, or <code>0</code> if there is only one.
+   *
+   * @param      samples
+   *               a non-empty {@link List} of {@link Double}s; must not be
+   *               <code>null</code>
+   * @param      mean
+   *               their mean
+   * @return     the error
+   */
+  private static double error(final List samples, final double mean) {
+    final int count = samples.size();
+    if (count < 2) {
+      return 0.0;
+    }
+    double squares = 0.0;
+    for (int i = 0; i < count; i++) {
+      final double deviation = ((Double)samples.get(i)).doubleValue() - mean;
+      squares += deviation * deviation;
+    }
+    return Z_99_9 * Math.sqrt(squares / (count - 1)) / Math.sqrt(count);
+  }
+
+  /**
+   * Formats the supplied number with three decimal places.  This method
+   * never returns <code>null</code>.
+   *
+   * @param      value
+   *               the number
+   * @return     the formatted number; never <code>null</code>
+   */
+  private static String format(final double value) {
+    return String.format("%.3f", new Object[] { new Double(value) });
+  }
+
+  /**
+   * Pads the supplied {@link String} with spaces to the supplied width, on
+   * the left if the width is positive and on the right if it is negative.
+   * This method never returns <code>null</code>.
+   *
+   * @param      text
+   *               the {@link String}; must not be <code>null</code>
+   * @param      width
+   *               the width
+   * @return     the padded {@link String}; never <code>null</code>
+   */
+  private static String pad(final String text, final int width) {
+    final StringBuffer buffer = new StringBuffer();
+    for (int i = text.length(); i < Math.abs(width); i++) {
+      buffer.append(' ');
+    }
+    if (width < 0) {
+      return text + buffer;
+    }
+    return buffer + text;
+  }
+
+  /**
+   * Loads scores written by an earlier run.
+   *
+   * @param      scores
+   *               the {@link Properties} to load into; must not be
+   *               <code>null</code>
+   * @param      fileName
+   *               the name of the file; must not be <code>null</code>
+   * @exception  IOException
+   *               if the file could not be read
+   */
+  private static void load(final Properties scores, final String fileName)
+    throws IOException {
+    final InputStream in = new FileInputStream(fileName);
+    try {
+      scores.load(in);
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Writes scores for a later run to compare with.
+   *
+   * @param      scores
+   *               the {@link Properties} to write; must not be
+   *               <code>null</code>
+   * @param      fileName
+   *               the name of the file; must not be <code>null</code>
+   * @exception  IOException
+   *               if the file could not be written
+   */
+  private static void store(final Properties scores, final String fileName)
+    throws IOException {
+    final OutputStream out = new FileOutputStream(fileName);
+    try {
+      scores.store(out, "sfutils benchmark scores, in ns/op: mean error");
+    } finally {
+      out.close();
+    }
+  }
+
+}
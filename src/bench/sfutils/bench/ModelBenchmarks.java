@@ -0,0 +1,246 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.bench;
+
+import sfutils.Administrator;
+import sfutils.NamedObject;
+import sfutils.Project;
+
+import sfutils.frs.Package;
+
+/**
+ * {@link Benchmark}s of {@link Project} and {@link Package} {@linkplain
+ * Object#equals(Object) equality} and {@linkplain Object#hashCode()
+ * hashcodes}, which every map keyed by model objects pays for.  Hashcodes are
+ * measured on both mutable and {@linkplain NamedObject#freeze() frozen}
+ * objects; equality is measured between equal but distinct objects, which
+ * must compare every attribute, and between objects that differ only in an
+ * attribute compared late.  Each cycles through several objects, so that
+ * the compiler cannot work out the answer once and reuse it.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+final class ModelBenchmarks {
+
+  /**
+   * The number of objects each {@link Benchmark} cycles through; a power of
+   * two.
+   */
+  private static final int COUNT = 4;
+
+  /**
+   * Creates a new {@link ModelBenchmarks}.  This constructor is private
+   * because this class only hands out {@link Benchmark}s.
+   */
+  private ModelBenchmarks() {
+    super();
+  }
+
+  /**
+   * Returns new {@link Benchmark}s of {@link Project} and {@link Package}
+   * equality and hashcodes.  This method never returns <code>null</code>.
+   *
+   * @return     the {@link Benchmark}s; never <code>null</code>
+   */
+  static Benchmark[] create() {
+    final Project[] projects = new Project[COUNT];
+    final Project[] equalProjects = new Project[COUNT];
+    final Project[] otherProjects = new Project[COUNT];
+    final Project[] frozenProjects = new Project[COUNT];
+    final Package[] packages = new Package[COUNT];
+    final Package[] equalPackages = new Package[COUNT];
+    final Package[] otherPackages = new Package[COUNT];
+    final Package[] frozenPackages = new Package[COUNT];
+    for (int i = 0; i < COUNT; i++) {
+      projects[i] = newProject("proj" + i, "Project " + i);
+      equalProjects[i] = newProject("proj" + i, "Project " + i);
+      otherProjects[i] = newProject("proj" + i, "Other project " + i);
+      frozenProjects[i] = newProject("proj" + i, "Project " + i);
+      frozenProjects[i].freeze();
+      packages[i] = newPackage("core" + i);
+      equalPackages[i] = newPackage("core" + i);
+      otherPackages[i] =
+        new Package(newProject("other" + i, "Project 0"), "core" + i);
+      otherPackages[i].setID(packages[i].getID());
+      frozenPackages[i] = newPackage("core" + i);
+      frozenPackages[i].freeze();
+    }
+    return new Benchmark[] {
+      new HashCode("Project.hashCode", projects),
+      new HashCode("Project.hashCode.frozen", frozenProjects),
+      new Equals("Project.equals.same", projects, equalProjects),
+      new Equals("Project.equals.different", projects, otherProjects),
+      new HashCode("Package.hashCode", packages),
+      new HashCode("Package.hashCode.frozen", frozenPackages),
+      new Equals("Package.equals.same", packages, equalPackages),
+      new Equals("Package.equals.different", packages, otherPackages)
+    };
+  }
+
+  /**
+   * Returns a new, fully populated {@link Project}.  This method never
+   * returns <code>null</code>.
+   *
+   * @param      shortName
+   *               the {@link Project}'s short name
+   * @param      longName
+   *               the {@link Project}'s long name
+   * @return     a new {@link Project}; never <code>null</code>
+   */
+  static Project newProject(final String shortName, final String longName) {
+    final Project project =
+      new Project(longName, shortName, new Administrator("username", "password"));
+    project.setID("12345");
+    return project;
+  }
+
+  /**
+   * Returns a new, fully populated {@link Package} belonging to a new
+   * {@linkplain #newProject(String, String) project}.  This method never
+   * returns <code>null</code>.
+   *
+   * @param      name
+   *               the {@link Package}'s name
+   * @return     a new {@link Package}; never <code>null</code>
+   */
+  static Package newPackage(final String name) {
+    final Package pkg = new Package(newProject("myproj", "My Project"), name);
+    pkg.setID("4567");
+    return pkg;
+  }
+
+  /**
+   * Measures {@link Object#hashCode()}.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private static final class HashCode extends Benchmark {
+
+    /**
+     * The objects whose hashcodes are computed; {@link #COUNT} of them.
+     */
+    private final Object[] objects;
+
+    /**
+     * Creates a new {@link HashCode}.
+     *
+     * @param      name
+     *               the name of the {@link Benchmark}; must not be
+     *               <code>null</code>
+     * @param      objects
+     *               the objects whose hashcodes are computed; must not be
+     *               <code>null</code>
+     */
+    private HashCode(final String name, final Object[] objects) {
+      super(name);
+      this.objects = objects;
+    }
+
+    /**
+     * Computes hashcodes.
+     *
+     * @param      operations
+     *               the number of hashcodes to compute
+     * @return     their sum
+     */
+    protected int run(final int operations) {
+      final Object[] objects = this.objects;
+      int result = 0;
+      for (int i = 0; i < operations; i++) {
+        result += objects[i & (COUNT - 1)].hashCode();
+      }
+      return result;
+    }
+
+  }
+
+  /**
+   * Measures {@link Object#equals(Object)}.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private static final class Equals extends Benchmark {
+
+    /**
+     * The objects whose {@link Object#equals(Object)} method is called;
+     * {@link #COUNT} of them.
+     */
+    private final Object[] objects;
+
+    /**
+     * The objects they are compared with; {@link #COUNT} of them.
+     */
+    private final Object[] others;
+
+    /**
+     * Creates a new {@link Equals}.
+     *
+     * @param      name
+     *               the name of the {@link Benchmark}; must not be
+     *               <code>null</code>
+     * @param      objects
+     *               the objects whose {@link Object#equals(Object)} method is
+     *               called; must not be <code>null</code>
+     * @param      others
+     *               the objects they are compared with, in the same order;
+     *               must not be <code>null</code>
+     */
+    private Equals(final String name,
+                   final Object[] objects,
+                   final Object[] others) {
+      super(name);
+      this.objects = objects;
+      this.others = others;
+    }
+
+    /**
+     * Compares objects.
+     *
+     * @param      operations
+     *               the number of comparisons to make
+     * @return     the number of comparisons that found equal objects
+     */
+    protected int run(final int operations) {
+      final Object[] objects = this.objects;
+      final Object[] others = this.others;
+      int result = 0;
+      for (int i = 0; i < operations; i++) {
+        final int index = i & (COUNT - 1);
+        if (objects[index].equals(others[index])) {
+          result++;
+        }
+      }
+      return result;
+    }
+
+  }
+
+}
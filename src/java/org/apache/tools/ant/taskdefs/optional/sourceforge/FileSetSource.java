@@ -0,0 +1,278 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package org.apache.tools.ant.taskdefs.optional.sourceforge;
+
+import java.io.File;
+import java.io.Serializable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Vector;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Project;
+
+import org.apache.tools.ant.types.FileSet;
+
+import sfutils.frs.FileRelease;
+import sfutils.frs.FileSpecification;
+
+/**
+ * The nested <code>fileset</code> and <code>typemapping</code> elements of a
+ * {@link SourceForgePublish} {@link org.apache.tools.ant.Task} or of one of
+ * its {@link Release}s.  Nothing is scanned until the {@link FileRelease}
+ * they contribute to is about to be published, and then each {@link
+ * FileSet} is scanned only when the previous one has been turned into
+ * {@link FileSpecification}s, so that no intermediate {@link FileSpec}s are
+ * created and releases published concurrently are scanned concurrently.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        TypeMapping
+ */
+final class FileSetSource implements Serializable {
+
+  /**
+   * The {@link FileSet}s.  This field is never <code>null</code>.
+   */
+  private final Vector fileSets;
+
+  /**
+   * The {@link TypeMapping}s, in the order they are consulted.  This field
+   * is never <code>null</code>.
+   */
+  private final Vector typeMappings;
+
+  /**
+   * Creates a new, empty {@link FileSetSource}.
+   */
+  FileSetSource() {
+    super();
+    this.fileSets = new Vector();
+    this.typeMappings = new Vector();
+  }
+
+  /**
+   * Adds a {@link FileSet}.
+   *
+   * @param      fileSet
+   *               the {@link FileSet}; must not be <code>null</code>
+   */
+  void addFileSet(final FileSet fileSet) {
+    assert fileSet != null;
+    this.fileSets.addElement(fileSet);
+  }
+
+  /**
+   * Creates and adds a new, unconfigured {@link TypeMapping}.  This method
+   * never returns <code>null</code>.
+   *
+   * @return     a new {@link TypeMapping}; never <code>null</code>
+   */
+  TypeMapping createTypeMapping() {
+    final TypeMapping mapping = new TypeMapping();
+    this.typeMappings.addElement(mapping);
+    return mapping;
+  }
+
+  /**
+   * Returns whether this {@link FileSetSource} holds no {@link FileSet}s.
+   *
+   * @return     <code>true</code> if there is nothing to scan
+   */
+  boolean isEmpty() {
+    return this.fileSets.isEmpty();
+  }
+
+  /**
+   * Returns an {@link Iterator} over {@link FileSpecification}s for the
+   * files the {@link FileSet}s include, each {@link FileSet} being scanned
+   * only when the {@link Iterator} reaches it.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      antProject
+   *               the Ant {@link Project} against which the {@link
+   *               FileSet}s are resolved; must not be <code>null</code>
+   * @param      fallback
+   *               a {@link FileSetSource} whose {@link TypeMapping}s are
+   *               consulted after this one's; may be <code>null</code>
+   * @return     an {@link Iterator} over {@link FileSpecification}s; never
+   *               <code>null</code>
+   */
+  Iterator iterator(final Project antProject, final FileSetSource fallback) {
+    assert antProject != null;
+    return new Iterator() {
+
+        /**
+         * The index of the next {@link FileSet} to scan.
+         */
+        private int nextFileSet;
+
+        /**
+         * The directory of the {@link FileSet} last scanned.
+         */
+        private File baseDirectory;
+
+        /**
+         * The paths the {@link FileSet} last scanned includes.
+         */
+        private String[] paths = new String[0];
+
+        /**
+         * The index of the next path to return.
+         */
+        private int nextPath;
+
+        public boolean hasNext() {
+          while (this.nextPath >= this.paths.length) {
+            if (this.nextFileSet >= fileSets.size()) {
+              return false;
+            }
+            final DirectoryScanner scanner =
+              ((FileSet)fileSets.elementAt(this.nextFileSet++)).
+              getDirectoryScanner(antProject);
+            this.baseDirectory = scanner.getBasedir();
+            this.paths = scanner.getIncludedFiles();
+            this.nextPath = 0;
+          }
+          return true;
+        }
+
+        public Object next() {
+          if (!this.hasNext()) {
+            throw new NoSuchElementException();
+          }
+          final String path = this.paths[this.nextPath++];
+          return toFileSpecification(new File(this.baseDirectory, path),
+                                     path,
+                                     fallback);
+        }
+
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+
+      };
+  }
+
+  /**
+   * Scans the {@link FileSet}s and {@linkplain
+   * FileRelease#addFileSpecifications(java.util.Collection) adds} {@link
+   * FileSpecification}s for the files they include to the supplied {@link
+   * FileRelease}.
+   *
+   * @param      release
+   *               the {@link FileRelease}; must not be <code>null</code>
+   * @param      antProject
+   *               the Ant {@link Project} against which the {@link
+   *               FileSet}s are resolved; must not be <code>null</code>
+   * @param      fallback
+   *               a {@link FileSetSource} whose {@link TypeMapping}s are
+   *               consulted after this one's; may be <code>null</code>
+   * @return     the number of {@link FileSpecification}s added
+   * @exception  BuildException
+   *               if a {@link FileSet} could not be scanned or included an
+   *               unacceptable file
+   */
+  int addTo(final FileRelease release,
+            final Project antProject,
+            final FileSetSource fallback)
+    throws BuildException {
+    assert release != null;
+    if (this.isEmpty()) {
+      return 0;
+    }
+    final List specs = new ArrayList();
+    final Iterator iterator = this.iterator(antProject, fallback);
+    while (iterator.hasNext()) {
+      specs.add(iterator.next());
+    }
+    release.addFileSpecifications(specs);
+    return specs.size();
+  }
+
+  /**
+   * Returns a new {@link FileSpecification} for the supplied {@link File},
+   * typed by the first {@link TypeMapping} that matches it.  This method
+   * never returns <code>null</code>.
+   *
+   * @param      file
+   *               the {@link File}; must not be <code>null</code>
+   * @param      path
+   *               the {@link File}'s path relative to its {@link FileSet}'s
+   *               directory; must not be <code>null</code>
+   * @param      fallback
+   *               a {@link FileSetSource} whose {@link TypeMapping}s are
+   *               consulted after this one's; may be <code>null</code>
+   * @return     a new {@link FileSpecification}; never <code>null</code>
+   * @exception  BuildException
+   *               if the {@link File} is unacceptable
+   */
+  private FileSpecification toFileSpecification(final File file,
+                                                final String path,
+                                                final FileSetSource fallback)
+    throws BuildException {
+    TypeMapping mapping = this.findTypeMapping(path, file.getName());
+    if (mapping == null && fallback != null) {
+      mapping = fallback.findTypeMapping(path, file.getName());
+    }
+    try {
+      if (mapping == null) {
+        return new FileSpecification(file);
+      }
+      return mapping.toFileSpecification(file);
+    } catch (final IllegalArgumentException kaboom) {
+      throw new BuildException(file + ": " + kaboom.getMessage(), kaboom);
+    }
+  }
+
+  /**
+   * Returns the first of this {@link FileSetSource}'s {@link TypeMapping}s
+   * that matches the supplied path.
+   *
+   * @param      path
+   *               the path; must not be <code>null</code>
+   * @param      name
+   *               the file's name; must not be <code>null</code>
+   * @return     the {@link TypeMapping}, or <code>null</code>
+   */
+  private TypeMapping findTypeMapping(final String path, final String name) {
+    final int size = this.typeMappings.size();
+    for (int i = 0; i < size; i++) {
+      final TypeMapping mapping = (TypeMapping)this.typeMappings.elementAt(i);
+      if (mapping.matches(path, name)) {
+        return mapping;
+      }
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,311 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package org.apache.tools.ant.taskdefs.optional.sourceforge;
+
+import java.io.File;
+import java.io.Serializable;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Vector;
+
+import org.apache.tools.ant.BuildException;
+
+import org.apache.tools.ant.types.FileSet;
+
+import sfutils.Project;
+
+import sfutils.frs.FileRelease;
+import sfutils.frs.Package;
+
+/**
+ * A simple adapter class that allows <a href="http://ant.apache.org/">Ant</a>
+ * to describe one of several {@link FileRelease}s published by a single
+ * {@link SourceForgePublish} {@link org.apache.tools.ant.Task}, as a nested
+ * <code>release</code> element.  Its attributes are those of the task that
+ * describe a release and its package; the project and the credentials are
+ * the task's.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        SourceForgePublish#createRelease()
+ */
+public final class Release implements Serializable {
+
+  /**
+   * The {@link FileRelease} being adapted.  Its {@link Package} is assigned
+   * by {@link #toFileRelease(Project, Map, String, boolean)}.  This field is
+   * never <code>null</code>.
+   */
+  private final FileRelease release;
+
+  /**
+   * The {@link FileSpec}s contained by this {@link Release}.  This field is
+   * never <code>null</code>.
+   */
+  private final Vector fileSpecs;
+
+  /**
+   * The nested <code>fileset</code>s and <code>typemapping</code>s of this
+   * {@link Release}.  This field is never <code>null</code>.
+   */
+  private final FileSetSource fileSets;
+
+  /**
+   * The name of the {@link Package} to which the {@link FileRelease} belongs,
+   * or <code>null</code> to use the task's.
+   */
+  private String packageName;
+
+  /**
+   * Whether the {@link Package} is hidden, or <code>null</code> to use the
+   * task's setting.
+   */
+  private Boolean packageHidden;
+
+  /**
+   * Creates a new {@link Release}.
+   */
+  public Release() {
+    super();
+    this.release = new FileRelease();
+    this.fileSpecs = new Vector();
+    this.fileSets = new FileSetSource();
+  }
+
+  /**
+   * Called when the <code>releasename</code> XML attribute is encountered.
+   * Sets the {@link FileRelease}'s {@linkplain FileRelease#setName(String)
+   * name}.
+   *
+   * @param      releaseName
+   *               the name for the {@link FileRelease}; may be
+   *               <code>null</code>
+   */
+  public void setReleaseName(final String releaseName) {
+    this.release.setName(releaseName);
+  }
+
+  /**
+   * Called when the <code>hidden</code> XML attribute is encountered.  Sets
+   * whether the {@link FileRelease} will be active or hidden.
+   *
+   * @param      hidden
+   *               if <code>true</code>, then the {@link FileRelease} will not
+   *               be visible
+   */
+  public void setHidden(final boolean hidden) {
+    this.release.setHidden(hidden);
+  }
+
+  /**
+   * Called when the <code>packagename</code> XML attribute is encountered.
+   * Sets the name of the {@link Package} to which the {@link FileRelease}
+   * belongs.  Releases naming the same package share one {@link Package}.
+   *
+   * @param      packageName
+   *               the {@link Package} name; if <code>null</code>, the task's
+   *               is used
+   */
+  public void setPackageName(final String packageName) {
+    this.packageName = packageName;
+  }
+
+  /**
+   * Called when the <code>packagehidden</code> XML attribute is encountered.
+   * Sets the visibility of the {@link Package} to which the {@link
+   * FileRelease} belongs.
+   *
+   * @param      hidden
+   *               if <code>true</code>, then the {@link Package} will be
+   *               marked as invisible
+   */
+  public void setPackageHidden(final boolean hidden) {
+    this.packageHidden = Boolean.valueOf(hidden);
+  }
+
+  /**
+   * Called when the <code>releasedate</code> XML attribute is encountered.
+   * Sets the {@linkplain FileRelease#setReleaseDate(Date) release date}.
+   *
+   * @param      date
+   *               the new release {@link Date}; may be <code>null</code> in
+   *               which case the current {@link Date} will be used instead
+   */
+  public void setReleaseDate(final Date date) {
+    if (date == null) {
+      this.release.setReleaseDate(new Date());
+    } else {
+      this.release.setReleaseDate(date);
+    }
+  }
+
+  /**
+   * Called when the <code>notify</code> XML attribute is encountered.  Sets
+   * whether <a href="http://sourceforge.net/">SourceForge</a> users are
+   * notified when the {@link FileRelease} is published.
+   *
+   * @param      notify
+   *               if <code>true</code>, then users will be notified
+   */
+  public void setNotify(final boolean notify) {
+    this.release.setNotifyOthers(notify);
+  }
+
+  /**
+   * Called when the <code>changelog</code> XML attribute is encountered.  Sets
+   * the changelog {@link File} associated with the {@link FileRelease}.
+   *
+   * @param      changeLogFile
+   *               the changelog {@link File}; may be <code>null</code>
+   */
+  public void setChangeLog(final File changeLogFile) {
+    this.release.setChangeLogFile(changeLogFile);
+  }
+
+  /**
+   * Called when the <code>releasenotes</code> XML attribute is encountered.
+   * Sets the release notes {@link File} associated with the {@link
+   * FileRelease}.
+   *
+   * @param      releaseNotesFile
+   *               the release notes {@link File}; may be <code>null</code>
+   */
+  public void setReleaseNotes(final File releaseNotesFile) {
+    this.release.setReleaseNotesFile(releaseNotesFile);
+  }
+
+  /**
+   * Called when a nested <code>filespec</code> XML element is encountered.
+   * Creates a new, unconfigured {@link FileSpec} object.  This method never
+   * returns <code>null</code>.
+   *
+   * @return     a new {@link FileSpec} object; never <code>null</code>
+   */
+  public FileSpec createFilespec() {
+    final FileSpec spec = new FileSpec();
+    this.fileSpecs.addElement(spec);
+    return spec;
+  }
+
+  /**
+   * Called when a nested <code>fileset</code> XML element is encountered.
+   * Adds a {@link FileSet} whose files will be released, typed by the
+   * nested <code>typemapping</code>s and then by the task's.
+   *
+   * @param      fileSet
+   *               the {@link FileSet}; must not be <code>null</code>
+   */
+  public void addFileset(final FileSet fileSet) {
+    this.fileSets.addFileSet(fileSet);
+  }
+
+  /**
+   * Called when a nested <code>typemapping</code> XML element is
+   * encountered.  Creates a new, unconfigured {@link TypeMapping} object.
+   * This method never returns <code>null</code>.
+   *
+   * @return     a new {@link TypeMapping} object; never <code>null</code>
+   */
+  public TypeMapping createTypemapping() {
+    return this.fileSets.createTypeMapping();
+  }
+
+  /**
+   * Returns the nested <code>fileset</code>s and <code>typemapping</code>s
+   * of this {@link Release}, which {@link
+   * #toFileRelease(Project, Map, String, boolean)} leaves unscanned.  This
+   * method never returns <code>null</code>.
+   *
+   * @return     the {@link FileSetSource}; never <code>null</code>
+   */
+  FileSetSource getFileSetSource() {
+    return this.fileSets;
+  }
+
+  /**
+   * Completes and returns the {@link FileRelease} this {@link Release}
+   * describes, placing it in the {@link Package} of the right name,
+   * creating that {@link Package} if the supplied {@link Map} holds none.
+   * This method never returns <code>null</code>.
+   *
+   * @param      project
+   *               the {@link Project} to which new {@link Package}s belong;
+   *               must not be <code>null</code>
+   * @param      packages
+   *               a {@link Map} of {@link Package}s indexed by name, to
+   *               which any new {@link Package} is added; must not be
+   *               <code>null</code>
+   * @param      defaultPackageName
+   *               the name of the {@link Package} used if this {@link
+   *               Release} names none; may be <code>null</code>
+   * @param      defaultPackageHidden
+   *               whether a new {@link Package} is hidden if this {@link
+   *               Release} does not say
+   * @return     the {@link FileRelease}; never <code>null</code>
+   * @exception  BuildException
+   *               if this {@link Release} has no name or no {@link Package}
+   *               name can be found
+   */
+  FileRelease toFileRelease(final Project project,
+                            final Map packages,
+                            final String defaultPackageName,
+                            final boolean defaultPackageHidden)
+    throws BuildException {
+    if (this.release.getName() == null) {
+      throw new BuildException("A nested release needs a releasename");
+    }
+    final String name;
+    if (this.packageName == null) {
+      name = defaultPackageName;
+    } else {
+      name = this.packageName;
+    }
+    if (name == null) {
+      throw new BuildException("Release " + this.release.getName() +
+                               " needs a packagename");
+    }
+    Package pkg = (Package)packages.get(name);
+    if (pkg == null) {
+      pkg = new Package(project, name);
+      if (this.packageHidden == null) {
+        pkg.setHidden(defaultPackageHidden);
+      } else {
+        pkg.setHidden(this.packageHidden.booleanValue());
+      }
+      packages.put(name, pkg);
+    } else if (this.packageHidden != null) {
+      pkg.setHidden(this.packageHidden.booleanValue());
+    }
+    this.release.setPackage(pkg);
+    this.release.setFileSpecifications(SourceForgePublish.
+                                       toFileSpecifications(this.fileSpecs));
+    return this.release;
+  }
+
+}
@@ -31,25 +31,59 @@ import java.io.File;
 
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Vector;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
 
+import org.apache.tools.ant.types.FileSet;
+
 import sfutils.Administrator;
+import sfutils.MetadataStore;
 import sfutils.Project;
 
 import sfutils.frs.FileRelease;
 import sfutils.frs.FileSpecification;
 import sfutils.frs.Package;
+import sfutils.frs.Publisher;
+import sfutils.frs.PublishingCoordinator;
+import sfutils.frs.PublishingException;
 
 import sfutils.frs.web.HttpUnitPublisher;
+import sfutils.frs.web.IncrementalPublisher;
+import sfutils.frs.web.SharedSessions;
 
 /**
  * An <a href="http://ant.apache.org/">Ant</a> {@link Task} that makes a file
  * release available on <a href="http://sourceforge.net/">SourceForge</a>.
  *
+ * <p>Further releases of the same project, in the same or other packages, may
+ * be described by nested <code>release</code> elements; the release described
+ * by the task's own attributes is then published too if it has a
+ * <code>releasename</code>.  Up to <code>threads</code> releases are published
+ * at once, all sharing one login and a pool of SFTP sessions, and the outcome
+ * of each is logged separately; the task fails once all have finished if any
+ * of them failed.</p>
+ *
+ * <p>A release that has not changed since it was last published by this
+ * task is skipped, and one that has only gained or changed files has only
+ * those uploaded, unless <code>force</code> is set; see {@link
+ * IncrementalPublisher}.  The fingerprints that record what was published
+ * are kept in <code>fingerprintfile</code>, or in the {@linkplain
+ * MetadataStore#getDefault() default metadata store}.</p>
+ *
+ * <p>Besides nested <code>filespec</code> elements, the task and each
+ * nested <code>release</code> accept standard <code>fileset</code>s, whose
+ * files are typed by nested <code>typemapping</code> elements (see {@link
+ * TypeMapping}).  A release's filesets are scanned only when it is about to
+ * be published, on the thread that publishes it, so the first releases are
+ * being uploaded while later ones are still being scanned.</p>
+ *
  * @author     <a href="mailto:ljnelson94@alumni.amherst.edu">Laird Nelson</a>
  * @version    $Revision: 1.10 $ $Date: 2003/07/12 16:13:24 $
  * @since      July 1, 2003
@@ -68,12 +102,65 @@ public class SourceForgePublish extends Task {
    */
   private final Vector fileSpecs;
 
+  /**
+   * The {@link Release}s nested within this {@link SourceForgePublish} {@link
+   * Task}.  This field will never be <code>null</code>.
+   */
+  private final Vector releases;
+
+  /**
+   * The nested <code>fileset</code>s and <code>typemapping</code>s of this
+   * {@link SourceForgePublish} {@link Task}.  This field will never be
+   * <code>null</code>.
+   */
+  private final FileSetSource fileSets;
+
+  /**
+   * The {@link FileSetSource}s still to be scanned into each {@link
+   * FileRelease} returned by {@link #getFileReleases()}, indexed by
+   * identity.  This field will never be <code>null</code>.
+   */
+  private final Map unscanned;
+
+  /**
+   * The maximum number of releases published at once.
+   */
+  private int threads;
+
+  /**
+   * Whether this {@link SourceForgePublish} {@link Task} only reports what it
+   * would do instead of publishing.
+   */
+  private boolean plan;
+
+  /**
+   * Whether this {@link SourceForgePublish} {@link Task} drives the file
+   * release web pages as well as uploading files.
+   */
+  private boolean webSteps;
+
+  /**
+   * Whether this {@link SourceForgePublish} {@link Task} publishes every
+   * release in full even if it has not changed.
+   */
+  private boolean force;
+
+  /**
+   * The file in which fingerprints of published releases are kept; may be
+   * <code>null</code>.
+   */
+  private File fingerprintFile;
+
   /**
    * Creates a new {@link SourceForgePublish} {@link Task}.
    */
   public SourceForgePublish() {
     super();
     this.fileSpecs = new Vector();
+    this.releases = new Vector();
+    this.fileSets = new FileSetSource();
+    this.unscanned = Collections.synchronizedMap(new IdentityHashMap());
+    this.threads = 1;
     this.release = createFileReleaseShell();
     assertNotNull(this.release);
   }
@@ -339,6 +426,69 @@ public class SourceForgePublish extends Task {
     this.release.setReleaseNotesFile(releaseNotesFile);
   }
 
+  /**
+   * Called when the <code>plan</code> XML attribute is encountered.  Sets
+   * whether this {@link SourceForgePublish} {@link Task} performs a dry run,
+   * logging the changes it would make and an estimate of their cost instead
+   * of making them.
+   *
+   * @param      plan
+   *               if <code>true</code>, then nothing will be changed on <a
+   *               href="http://sourceforge.net/">SourceForge</a>
+   * @see        HttpUnitPublisher#plan(FileRelease)
+   */
+  public void setPlan(final boolean plan) {
+    this.log("Setting plan: " + plan);
+    this.plan = plan;
+  }
+
+  /**
+   * Called when the <code>websteps</code> XML attribute is encountered.
+   * Sets whether this {@link SourceForgePublish} {@link Task} drives the
+   * file release web pages as well as uploading the files via SFTP.  The
+   * setting applies to dry runs too, so that a <code>plan</code> lists what
+   * a publish with the same setting would do.
+   *
+   * @param      webSteps
+   *               if <code>true</code>, then the web pages will be driven
+   *               too
+   * @see        HttpUnitPublisher#setWebStepsEnabled(boolean)
+   */
+  public void setWebsteps(final boolean webSteps) {
+    this.log("Setting websteps: " + webSteps);
+    this.webSteps = webSteps;
+  }
+
+  /**
+   * Called when the <code>force</code> XML attribute is encountered.  Sets
+   * whether this {@link SourceForgePublish} {@link Task} publishes every
+   * release in full, even those that have not changed since they were last
+   * published.
+   *
+   * @param      force
+   *               if <code>true</code>, then unchanged releases will be
+   *               published too
+   */
+  public void setForce(final boolean force) {
+    this.log("Setting force: " + force);
+    this.force = force;
+  }
+
+  /**
+   * Called when the <code>fingerprintfile</code> XML attribute is
+   * encountered.  Sets the file in which the fingerprints of published
+   * releases are kept.
+   *
+   * @param      fingerprintFile
+   *               the file; may be <code>null</code>, in which case the
+   *               {@linkplain MetadataStore#getDefault() default metadata
+   *               store} is used
+   */
+  public void setFingerprintfile(final File fingerprintFile) {
+    this.log("Setting fingerprintfile: " + fingerprintFile);
+    this.fingerprintFile = fingerprintFile;
+  }
+
   /**
    * Called when a nested <code>filespec</code> XML element is encountered.
    * Creates a new, unconfigured {@link FileSpec} object.  This method never
@@ -352,6 +502,62 @@ public class SourceForgePublish extends Task {
     return spec;
   }
 
+  /**
+   * Called when a nested <code>fileset</code> XML element is encountered.
+   * Adds a {@link FileSet} whose files will be released, typed by the
+   * nested <code>typemapping</code>s.
+   *
+   * @param      fileSet
+   *               the {@link FileSet}; must not be <code>null</code>
+   */
+  public void addFileset(final FileSet fileSet) {
+    this.fileSets.addFileSet(fileSet);
+  }
+
+  /**
+   * Called when a nested <code>typemapping</code> XML element is
+   * encountered.  Creates a new, unconfigured {@link TypeMapping} object,
+   * which also applies to the filesets of nested <code>release</code>s.
+   * This method never returns <code>null</code>.
+   *
+   * @return     a new {@link TypeMapping} object; never <code>null</code>
+   */
+  public TypeMapping createTypemapping() {
+    return this.fileSets.createTypeMapping();
+  }
+
+  /**
+   * Called when a nested <code>release</code> XML element is encountered.
+   * Creates a new, unconfigured {@link Release} object.  This method never
+   * returns <code>null</code>.
+   *
+   * @return     a new {@link Release} object; never <code>null</code>
+   */
+  public Release createRelease() {
+    final Release nested = new Release();
+    this.releases.addElement(nested);
+    return nested;
+  }
+
+  /**
+   * Called when the <code>threads</code> XML attribute is encountered.  Sets
+   * the maximum number of releases this {@link SourceForgePublish} {@link
+   * Task} publishes at once.
+   *
+   * @param      threads
+   *               the maximum number of concurrent publishes; must be
+   *               positive
+   * @exception  BuildException
+   *               if <code>threads</code> is not positive
+   */
+  public void setThreads(final int threads) throws BuildException {
+    if (threads <= 0) {
+      throw new BuildException("threads must be positive: " + threads);
+    }
+    this.log("Setting threads: " + threads);
+    this.threads = threads;
+  }
+
   /**
    * Ensures that the supplied {@link Administrator} is not <code>null</code>.
    *
@@ -417,20 +623,22 @@ public class SourceForgePublish extends Task {
   }
 
   /**
-   * Called by the <a href="http://ant.apache.org/">Ant</a> framework to execute
-   * this {@link SourceForgePublish} {@link Task}.  {@linkplain
-   * FileRelease#publish() Publishes} the {@link FileRelease} that has been
-   * configured behind the scenes by this task.
+   * Converts the supplied {@link FileSpec}s into {@link FileSpecification}s,
+   * skipping any that are <code>null</code>.  This method never returns
+   * <code>null</code>.
    *
-   * @exception  BuildException
-   *               if an error occurs
+   * @param      fileSpecs
+   *               a {@link Vector} of {@link FileSpec}s; must not be
+   *               <code>null</code>
+   * @return     an array of {@link FileSpecification}s; never
+   *               <code>null</code>
    */
-  public void execute() throws BuildException {
+  static FileSpecification[] toFileSpecifications(final Vector fileSpecs) {
     // We use Vectors and Enumerations here instead of ArrayLists and Iterators
     // because Ant 1.5 and earlier require only JDK 1.1, which didn't have the
     // collections classes.
     final Vector specs = new Vector();
-    final Enumeration e = this.fileSpecs.elements();
+    final Enumeration e = fileSpecs.elements();
     if (e != null) {
       FileSpec fileSpec;
       FileSpecification spec;
@@ -450,16 +658,224 @@ public class SourceForgePublish extends Task {
           specs.addElement(spec);
         }
       }
-      final FileSpecification[] specsArray = 
-        new FileSpecification[specs.size()];
-      specs.copyInto(specsArray);
-      this.release.setFileSpecifications(specsArray);
-      this.release.setPublisher(new HttpUnitPublisher());
-      try {
-        this.release.publish();
-      } catch (final Exception everything) {
-        throw new BuildException(everything);
+    }
+    final FileSpecification[] specsArray = new FileSpecification[specs.size()];
+    specs.copyInto(specsArray);
+    return specsArray;
+  }
+
+  /**
+   * Returns the {@link FileRelease}s this {@link SourceForgePublish} {@link
+   * Task} will publish: the one described by its own attributes, unless
+   * there are nested {@link Release}s and it has no name, followed by those
+   * the nested {@link Release}s describe.  Releases naming the same package
+   * share one {@link Package}.  Their filesets are left to {@link
+   * #scan(FileRelease)}.  This method never returns <code>null</code>.
+   *
+   * @return     an array of {@link FileRelease}s; never <code>null</code>
+   * @exception  BuildException
+   *               if a nested {@link Release} is incomplete
+   */
+  FileRelease[] getFileReleases() throws BuildException {
+    assertNotNull(this.release);
+    final Package pkg = this.release.getPackage();
+    assertNotNull(pkg);
+    final Project project = pkg.getProject();
+    assertNotNull(project);
+    final Vector fileReleases = new Vector();
+    if (this.releases.isEmpty() || this.release.getName() != null) {
+      this.release.setFileSpecifications(toFileSpecifications(this.fileSpecs));
+      fileReleases.addElement(this.release);
+      this.unscanned.put(this.release, this.fileSets);
+    }
+    final Map packages = new HashMap();
+    if (pkg.getName() != null) {
+      packages.put(pkg.getName(), pkg);
+    }
+    final Enumeration e = this.releases.elements();
+    while (e.hasMoreElements()) {
+      final Release nested = (Release)e.nextElement();
+      final FileRelease fileRelease =
+        nested.toFileRelease(project, packages, pkg.getName(), pkg.isHidden());
+      fileReleases.addElement(fileRelease);
+      this.unscanned.put(fileRelease, nested.getFileSetSource());
+    }
+    final FileRelease[] array = new FileRelease[fileReleases.size()];
+    fileReleases.copyInto(array);
+    return array;
+  }
+
+  /**
+   * Adds the files included by the filesets of the supplied {@link
+   * FileRelease}, which {@link #getFileReleases()} returned, unless that has
+   * already been done.
+   *
+   * @param      fileRelease
+   *               the {@link FileRelease}; must not be <code>null</code>
+   * @exception  BuildException
+   *               if a fileset could not be scanned or included an
+   *               unacceptable file
+   */
+  void scan(final FileRelease fileRelease) throws BuildException {
+    final FileSetSource source = (FileSetSource)this.unscanned.remove(fileRelease);
+    if (source != null && !source.isEmpty()) {
+      final int count =
+        source.addTo(fileRelease, this.getProject(),
+                     source == this.fileSets ? null : this.fileSets);
+      this.log("Scanned " + count + " files for " + describe(fileRelease),
+               org.apache.tools.ant.Project.MSG_VERBOSE);
+    }
+  }
+
+  /**
+   * Called by the <a href="http://ant.apache.org/">Ant</a> framework to execute
+   * this {@link SourceForgePublish} {@link Task}.  {@linkplain
+   * FileRelease#publish() Publishes} the {@link FileRelease}s that have been
+   * configured behind the scenes by this task, several at once if
+   * <code>threads</code> allows, logging the outcome of each.
+   *
+   * @exception  BuildException
+   *               if an error occurs, or any {@link FileRelease} could not be
+   *               published
+   */
+  public void execute() throws BuildException {
+    final FileRelease[] fileReleases = this.getFileReleases();
+    final HttpUnitPublisher publisher = new HttpUnitPublisher();
+    publisher.setWebStepsEnabled(this.webSteps);
+    final SharedSessions sessions = new SharedSessions();
+    publisher.setSharedSessions(sessions);
+    try {
+      if (this.plan) {
+        for (int i = 0; i < fileReleases.length; i++) {
+          this.scan(fileReleases[i]);
+          this.log(publisher.plan(fileReleases[i]).toString());
+        }
+      } else {
+        final MetadataStore fingerprints;
+        if (this.fingerprintFile == null) {
+          fingerprints = null;
+        } else {
+          fingerprints = new MetadataStore(this.fingerprintFile);
+        }
+        final IncrementalPublisher incrementalPublisher =
+          new IncrementalPublisher(publisher, fingerprints, this.force);
+        if (fileReleases.length == 1) {
+          this.scan(fileReleases[0]);
+          this.log(describe(incrementalPublisher.publishIfChanged(fileReleases[0]),
+                            fileReleases[0]));
+        } else {
+          this.publishAll(incrementalPublisher, fileReleases);
+        }
+      }
+    } catch (final BuildException kaboom) {
+      throw kaboom;
+    } catch (final Exception everything) {
+      throw new BuildException(everything);
+    } finally {
+      sessions.close();
+      this.log("Sessions: " + sessions, org.apache.tools.ant.Project.MSG_VERBOSE);
+    }
+  }
+
+  /**
+   * Publishes the supplied {@link FileRelease}s through the supplied {@link
+   * IncrementalPublisher}, up to <code>threads</code> at once, and logs the
+   * outcome of each.  Releases of the same project run concurrently unless
+   * the underlying {@link HttpUnitPublisher}'s {@linkplain
+   * HttpUnitPublisher#isWebStepsEnabled() web steps are enabled}, since only
+   * those touch state that releases share.
+   *
+   * @param      publisher
+   *               the {@link IncrementalPublisher}; must not be
+   *               <code>null</code>
+   * @param      fileReleases
+   *               the {@link FileRelease}s; must not be <code>null</code>
+   * @exception  BuildException
+   *               if any {@link FileRelease} could not be published
+   * @exception  InterruptedException
+   *               if the calling thread is interrupted while waiting
+   */
+  private void publishAll(final IncrementalPublisher publisher,
+                          final FileRelease[] fileReleases)
+    throws BuildException, InterruptedException {
+    final Map outcomes = Collections.synchronizedMap(new IdentityHashMap());
+    final Publisher recorder = new Publisher() {
+        public void publish(final FileRelease release)
+          throws PublishingException {
+          try {
+            scan(release);
+          } catch (final BuildException kaboom) {
+            throw new PublishingException(kaboom);
+          }
+          outcomes.put(release,
+                       new Integer(publisher.publishIfChanged(release)));
+        }
+      };
+    final PublishingCoordinator coordinator =
+      new PublishingCoordinator(recorder,
+                                Math.min(this.threads, fileReleases.length),
+                                PublishingCoordinator.DEFAULT_STRIPE_COUNT,
+                                publisher.getPublisher().isWebStepsEnabled());
+    final PublishingException[] failures;
+    try {
+      failures = coordinator.publishAll(fileReleases);
+    } finally {
+      coordinator.shutDown(0L);
+    }
+    int failureCount = 0;
+    for (int i = 0; i < failures.length; i++) {
+      if (failures[i] == null) {
+        final Integer outcome = (Integer)outcomes.get(fileReleases[i]);
+        assert outcome != null;
+        this.log(describe(outcome.intValue(), fileReleases[i]));
+      } else {
+        failureCount++;
+        this.log("Failed to publish " + describe(fileReleases[i]) + ": " +
+                 failures[i],
+                 org.apache.tools.ant.Project.MSG_ERR);
       }
     }
+    if (failureCount > 0) {
+      throw new BuildException(failureCount + " of " + fileReleases.length +
+                               " releases could not be published");
+    }
+  }
+
+  /**
+   * Returns a message describing the supplied {@linkplain
+   * IncrementalPublisher#publishIfChanged(FileRelease) outcome} of
+   * publishing the supplied {@link FileRelease}.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      outcome
+   *               the outcome
+   * @param      fileRelease
+   *               the {@link FileRelease}; must not be <code>null</code>
+   * @return     a message; never <code>null</code>
+   */
+  private static String describe(final int outcome,
+                                 final FileRelease fileRelease) {
+    switch (outcome) {
+    case IncrementalPublisher.UP_TO_DATE:
+      return describe(fileRelease) + " is up to date";
+    case IncrementalPublisher.PARTIAL:
+      return "Uploaded changed files of " + describe(fileRelease);
+    default:
+      return "Published " + describe(fileRelease);
+    }
+  }
+
+  /**
+   * Returns a short description of the supplied {@link FileRelease}: its
+   * name and its package's name.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      fileRelease
+   *               the {@link FileRelease}; must not be <code>null</code>
+   * @return     a description; never <code>null</code>
+   */
+  private static String describe(final FileRelease fileRelease) {
+    return fileRelease.getName() + " (package " +
+      fileRelease.getPackage().getName() + ")";
   }
 }
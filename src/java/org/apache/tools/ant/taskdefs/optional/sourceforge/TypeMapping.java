@@ -0,0 +1,199 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package org.apache.tools.ant.taskdefs.optional.sourceforge;
+
+import java.io.File;
+import java.io.Serializable;
+
+import org.apache.tools.ant.BuildException;
+
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+
+import sfutils.frs.FileSpecification;
+import sfutils.frs.TypeRegistry;
+
+/**
+ * A simple adapter class that allows <a href="http://ant.apache.org/">Ant</a>
+ * to describe, as a nested <code>typemapping</code> element, the {@linkplain
+ * FileSpecification#setFileType(int) file type} and {@linkplain
+ * FileSpecification#setProcessorType(int) processor type} given to the files
+ * of nested <code>fileset</code>s whose paths match a pattern.  The first
+ * matching mapping wins; files no mapping matches have their file type
+ * inferred as usual and {@link FileSpecification#ANY_PROCESSOR} as their
+ * processor type.
+ *
+ * <p>Patterns use the syntax of Ant's own <code>include</code> patterns and
+ * are matched against paths relative to the fileset's directory.  A pattern
+ * without a directory separator, such as <code>*.jar</code>, is matched
+ * against the file's name alone, wherever it lies.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        SourceForgePublish#createTypemapping()
+ */
+public final class TypeMapping implements Serializable {
+
+  /**
+   * The pattern, with separators in the platform's form, or
+   * <code>null</code> if none has been set.
+   */
+  private String pattern;
+
+  /**
+   * Whether the pattern is matched against file names alone.
+   */
+  private boolean nameOnly;
+
+  /**
+   * The file type, or {@link TypeRegistry#UNKNOWN} to infer it.
+   */
+  private int fileType;
+
+  /**
+   * The processor type, or {@link TypeRegistry#UNKNOWN} for {@link
+   * FileSpecification#ANY_PROCESSOR}.
+   */
+  private int processorType;
+
+  /**
+   * Creates a new {@link TypeMapping}.
+   */
+  public TypeMapping() {
+    super();
+    this.fileType = TypeRegistry.UNKNOWN;
+    this.processorType = TypeRegistry.UNKNOWN;
+  }
+
+  /**
+   * Called when the <code>pattern</code> XML attribute is encountered.  Sets
+   * the pattern that paths must match.
+   *
+   * @param      pattern
+   *               the pattern; must not be <code>null</code>
+   * @exception  BuildException
+   *               if <code>pattern</code> is <code>null</code>
+   */
+  public void setPattern(final String pattern) throws BuildException {
+    if (pattern == null) {
+      throw new BuildException("null pattern");
+    }
+    final String normalized =
+      pattern.replace('/', File.separatorChar).replace('\\', File.separatorChar);
+    this.nameOnly = normalized.indexOf(File.separatorChar) < 0;
+    this.pattern = normalized;
+  }
+
+  /**
+   * Called when the <code>filetype</code> XML attribute is encountered.  Sets
+   * the file type, by the name of its {@link FileSpecification} constant.
+   *
+   * @param      type
+   *               the file type name, such as <code>JAR_FILE</code>; must not
+   *               be <code>null</code>
+   * @exception  BuildException
+   *               if <code>type</code> names no file type
+   */
+  public void setFileType(final String type) throws BuildException {
+    final int fileType = TypeRegistry.getFileType(type);
+    if (fileType == TypeRegistry.UNKNOWN) {
+      throw new BuildException("Unknown file type: " + type);
+    }
+    this.fileType = fileType;
+  }
+
+  /**
+   * Called when the <code>processortype</code> XML attribute is encountered.
+   * Sets the processor type, by the name of its {@link FileSpecification}
+   * constant.
+   *
+   * @param      type
+   *               the processor type name, such as
+   *               <code>PLATFORM_INDEPENDENT_PROCESSOR</code>; must not be
+   *               <code>null</code>
+   * @exception  BuildException
+   *               if <code>type</code> names no processor type
+   */
+  public void setProcessorType(final String type) throws BuildException {
+    final int processorType = TypeRegistry.getProcessorType(type);
+    if (processorType == TypeRegistry.UNKNOWN) {
+      throw new BuildException("Unknown processor type: " + type);
+    }
+    this.processorType = processorType;
+  }
+
+  /**
+   * Returns whether the supplied relative path matches this {@link
+   * TypeMapping}'s pattern.
+   *
+   * @param      path
+   *               the path, relative to a fileset's directory, with
+   *               separators in the platform's form; must not be
+   *               <code>null</code>
+   * @param      name
+   *               the file's name, the last element of <code>path</code>;
+   *               must not be <code>null</code>
+   * @return     <code>true</code> if the path matches
+   * @exception  BuildException
+   *               if no pattern has been set
+   */
+  boolean matches(final String path, final String name)
+    throws BuildException {
+    if (this.pattern == null) {
+      throw new BuildException("A typemapping needs a pattern");
+    }
+    return SelectorUtils.matchPath(this.pattern,
+                                   this.nameOnly ? name : path);
+  }
+
+  /**
+   * Returns a new {@link FileSpecification} for the supplied {@link File},
+   * with the types this {@link TypeMapping} gives it.  This method never
+   * returns <code>null</code>.
+   *
+   * @param      file
+   *               the {@link File}; must not be <code>null</code>
+   * @return     a new {@link FileSpecification}; never <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if the {@link File} does not meet the requirements of
+   *               {@link FileSpecification#setFile(File)}
+   */
+  FileSpecification toFileSpecification(final File file)
+    throws IllegalArgumentException {
+    final FileSpecification spec = new FileSpecification();
+    if (this.fileType == TypeRegistry.UNKNOWN) {
+      spec.setFile(file);
+    } else {
+      spec.setFile(file, this.fileType);
+    }
+    if (this.processorType != TypeRegistry.UNKNOWN) {
+      spec.setProcessorType(this.processorType);
+    }
+    return spec;
+  }
+
+}
@@ -0,0 +1,482 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.ObjectName;
+
+/**
+ * A client-side governor that limits how many requests may be outstanding
+ * against <a href="http://sourceforge.net/">SourceForge</a> at once, and
+ * adapts that limit to how SourceForge is coping.  The limit grows additively
+ * (by one per limit's worth of successful requests) while response latency
+ * stays close to its baseline, shrinks gently when latency climbs well above
+ * the baseline, and is cut in half on every error or <code>5xx</code>
+ * response.
+ *
+ * <p>Latency is judged over a {@linkplain #LATENCY_WINDOW window} of requests
+ * at a time rather than request by request: the mean latency of each window
+ * is compared with the baseline, which is itself a slowly moving average of
+ * past windows.  A publish mixes quick page fetches with slow form
+ * submissions, and a slow request is no sign of congestion so long as the
+ * mix, and so the mean, stays the same.</p>
+ *
+ * <p>Callers {@linkplain #acquire() acquire} a permit before a request, and
+ * {@linkplain #release(long, boolean) release} it afterwards with the
+ * request's latency and outcome.  Long-lived work such as an SSH session,
+ * whose duration says nothing about congestion, is released with {@link
+ * #release(boolean)} instead, so that only its outcome counts.</p>
+ *
+ * <p>The {@linkplain #getShared() shared instance} is used by every {@link
+ * LimitedWebConversation} this library opens unless told otherwise, and is
+ * registered with the platform MBean server as
+ * <code>sfutils:type=AdaptiveLimiter</code> so that its {@linkplain
+ * #getLimit() current limit} can be watched.  Its bounds may be set with the
+ * <code>sfutils.limiter.initial</code>, <code>sfutils.limiter.min</code> and
+ * <code>sfutils.limiter.max</code> system properties.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class AdaptiveLimiter implements AdaptiveLimiterMBean {
+
+  /**
+   * The limit a new {@link AdaptiveLimiter} starts with by default.
+   */
+  public static final int DEFAULT_INITIAL_LIMIT = 4;
+
+  /**
+   * The smallest limit by default.
+   */
+  public static final int DEFAULT_MIN_LIMIT = 1;
+
+  /**
+   * The largest limit by default.
+   */
+  public static final int DEFAULT_MAX_LIMIT = 32;
+
+  /**
+   * The factor the limit is multiplied by on an error.
+   */
+  static final double BACKOFF_RATIO = 0.5;
+
+  /**
+   * The factor the limit is multiplied by when latency is too high.
+   */
+  static final double LATENCY_BACKOFF_RATIO = 0.9;
+
+  /**
+   * How many times the baseline latency the mean latency of a window may be
+   * before it counts as a sign of congestion.
+   */
+  static final double LATENCY_TOLERANCE = 2.0;
+
+  /**
+   * The number of successful requests whose mean latency is compared with
+   * the baseline at a time.
+   */
+  static final int LATENCY_WINDOW = 8;
+
+  /**
+   * How quickly the baseline latency drifts towards the mean latency of each
+   * window.
+   */
+  static final double BASELINE_DRIFT = 0.1;
+
+  /**
+   * The name under which the {@linkplain #getShared() shared instance} is
+   * registered with the platform MBean server.
+   */
+  public static final String OBJECT_NAME = "sfutils:type=AdaptiveLimiter";
+
+  /**
+   * The {@link Logger} used by this class.  This field is never
+   * <code>null</code>.
+   */
+  private static final Logger LOGGER =
+    Logger.getLogger(AdaptiveLimiter.class.getName());
+
+  /**
+   * The {@link AdaptiveLimiter} shared by default.  This field is never
+   * <code>null</code>.
+   */
+  private static final AdaptiveLimiter SHARED;
+
+  /**
+   * Static initializer; creates and registers the {@linkplain #getShared()
+   * shared instance}.
+   */
+  static {
+    SHARED =
+      new AdaptiveLimiter(Integer.getInteger("sfutils.limiter.initial",
+                                             DEFAULT_INITIAL_LIMIT).intValue(),
+                          Integer.getInteger("sfutils.limiter.min",
+                                             DEFAULT_MIN_LIMIT).intValue(),
+                          Integer.getInteger("sfutils.limiter.max",
+                                             DEFAULT_MAX_LIMIT).intValue());
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(SHARED,
+                                                               new ObjectName(OBJECT_NAME));
+    } catch (final Exception cannotRegister) {
+      LOGGER.log(Level.FINE, "Could not register " + OBJECT_NAME,
+                 cannotRegister);
+    }
+  }
+
+  /**
+   * The smallest the limit may become.
+   */
+  private final int minLimit;
+
+  /**
+   * The largest the limit may become.
+   */
+  private final int maxLimit;
+
+  /**
+   * Guards all mutable state.  This field is never <code>null</code>.
+   */
+  private final ReentrantLock lock;
+
+  /**
+   * Signalled when a permit is released or the limit grows.  This field is
+   * never <code>null</code>.
+   */
+  private final Condition available;
+
+  /**
+   * The current limit, kept fractional so that it can grow by less than one
+   * per request.  Guarded by {@link #lock}.
+   */
+  private double limit;
+
+  /**
+   * The number of permits held.  Guarded by {@link #lock}.
+   */
+  private int inFlight;
+
+  /**
+   * The baseline latency in nanoseconds, or <code>0</code> before the first
+   * window is complete.  Guarded by {@link #lock}.
+   */
+  private double baselineNanos;
+
+  /**
+   * The sum of the latencies, in nanoseconds, sampled in the current
+   * window.  Guarded by {@link #lock}.
+   */
+  private long windowNanos;
+
+  /**
+   * The number of latencies sampled in the current window.  Guarded by
+   * {@link #lock}.
+   */
+  private int windowCount;
+
+  /**
+   * The number of successful releases.  Guarded by {@link #lock}.
+   */
+  private long successCount;
+
+  /**
+   * The number of failed releases.  Guarded by {@link #lock}.
+   */
+  private long errorCount;
+
+  /**
+   * Creates a new {@link AdaptiveLimiter} with the default bounds.
+   */
+  public AdaptiveLimiter() {
+    this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT);
+  }
+
+  /**
+   * Creates a new {@link AdaptiveLimiter}.
+   *
+   * @param      initialLimit
+   *               the limit to start with; clamped to the bounds
+   * @param      minLimit
+   *               the smallest the limit may become; must be positive
+   * @param      maxLimit
+   *               the largest the limit may become; must not be less than
+   *               <code>minLimit</code>
+   * @exception  IllegalArgumentException
+   *               if the bounds are invalid
+   */
+  public AdaptiveLimiter(final int initialLimit,
+                         final int minLimit,
+                         final int maxLimit) {
+    super();
+    if (minLimit < 1) {
+      throw new IllegalArgumentException("minLimit < 1: " + minLimit);
+    }
+    if (maxLimit < minLimit) {
+      throw new IllegalArgumentException("maxLimit < minLimit: " + maxLimit);
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    this.lock = new ReentrantLock();
+    this.available = this.lock.newCondition();
+  }
+
+  /**
+   * Returns the {@link AdaptiveLimiter} shared by default by everything this
+   * library opens.  This method never returns <code>null</code>.
+   *
+   * @return     the shared {@link AdaptiveLimiter}; never <code>null</code>
+   */
+  public static AdaptiveLimiter getShared() {
+    return SHARED;
+  }
+
+  /**
+   * Waits until fewer permits are held than the current limit allows, then
+   * takes one.  Every successful call must be followed by exactly one call to
+   * {@link #release(long, boolean)} or {@link #release(boolean)}.
+   *
+   * @exception  InterruptedException
+   *               if the calling thread is interrupted while waiting
+   */
+  public void acquire() throws InterruptedException {
+    this.lock.lockInterruptibly();
+    try {
+      while (this.inFlight >= (int)this.limit) {
+        this.available.await();
+      }
+      this.inFlight++;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns a permit taken by {@link #acquire()}, and adjusts the limit
+   * according to the supplied latency and outcome.
+   *
+   * @param      latencyNanos
+   *               how long the request took, in nanoseconds
+   * @param      success
+   *               <code>false</code> if the request failed or was answered
+   *               with a server error
+   */
+  public void release(final long latencyNanos, final boolean success) {
+    this.lock.lock();
+    try {
+      this.inFlight--;
+      if (!success) {
+        this.backOff(BACKOFF_RATIO);
+      } else {
+        this.successCount++;
+        this.grow();
+        this.windowNanos += latencyNanos;
+        if (++this.windowCount >= LATENCY_WINDOW) {
+          this.closeWindow();
+        }
+      }
+      this.available.signalAll();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns a permit taken by {@link #acquire()}, and adjusts the limit
+   * according to the supplied outcome only.
+   *
+   * @param      success
+   *               <code>false</code> if the work failed
+   */
+  public void release(final boolean success) {
+    this.lock.lock();
+    try {
+      this.inFlight--;
+      if (success) {
+        this.successCount++;
+        this.grow();
+      } else {
+        this.backOff(BACKOFF_RATIO);
+      }
+      this.available.signalAll();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Grows the limit by one per limit's worth of calls, but only while the
+   * limit is actually being used, so that an idle limiter does not drift to
+   * its maximum.  Must be called with {@link #lock} held.
+   */
+  private void grow() {
+    if (this.inFlight + 1 >= this.limit / 2.0) {
+      this.limit = Math.min(this.maxLimit, this.limit + 1.0 / this.limit);
+    }
+  }
+
+  /**
+   * Compares the mean latency of the window just completed with the
+   * baseline, shrinking the limit if it is well above it, then moves the
+   * baseline towards it and starts a new window.  The limit shrinks at most
+   * once per window, so a few slow requests cannot drive it down on their
+   * own.  Must be called with {@link #lock} held.
+   */
+  private void closeWindow() {
+    final double meanNanos = (double)this.windowNanos / this.windowCount;
+    if (this.baselineNanos <= 0.0) {
+      this.baselineNanos = meanNanos;
+    } else {
+      if (meanNanos > this.baselineNanos * LATENCY_TOLERANCE) {
+        this.limit =
+          Math.max(this.minLimit, this.limit * LATENCY_BACKOFF_RATIO);
+      }
+      this.baselineNanos += (meanNanos - this.baselineNanos) * BASELINE_DRIFT;
+    }
+    this.windowNanos = 0L;
+    this.windowCount = 0;
+  }
+
+  /**
+   * Shrinks the limit by the supplied factor.  Must be called with {@link
+   * #lock} held.
+   */
+  private void backOff(final double ratio) {
+    this.errorCount++;
+    this.limit = Math.max(this.minLimit, this.limit * ratio);
+  }
+
+  /**
+   * Returns the current limit: the number of permits that may be held at
+   * once.
+   *
+   * @return     the current limit
+   */
+  public int getLimit() {
+    this.lock.lock();
+    try {
+      return (int)this.limit;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the smallest the limit may become.
+   *
+   * @return     the minimum limit
+   */
+  public int getMinLimit() {
+    return this.minLimit;
+  }
+
+  /**
+   * Returns the largest the limit may become.
+   *
+   * @return     the maximum limit
+   */
+  public int getMaxLimit() {
+    return this.maxLimit;
+  }
+
+  /**
+   * Returns the number of permits held at this moment.
+   *
+   * @return     the number of outstanding requests
+   */
+  public int getInFlight() {
+    this.lock.lock();
+    try {
+      return this.inFlight;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the baseline latency in milliseconds, or <code>0</code> if not
+   * enough latencies have been sampled yet.
+   *
+   * @return     the baseline latency in milliseconds
+   */
+  public double getBaselineLatencyMillis() {
+    this.lock.lock();
+    try {
+      return this.baselineNanos / 1000000.0;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of successful releases so far.
+   *
+   * @return     the number of successes
+   */
+  public long getSuccessCount() {
+    this.lock.lock();
+    try {
+      return this.successCount;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of failed releases so far.
+   *
+   * @return     the number of errors
+   */
+  public long getErrorCount() {
+    this.lock.lock();
+    try {
+      return this.errorCount;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns a {@link String} representation of this {@link AdaptiveLimiter}.
+   * This method never returns <code>null</code>.
+   *
+   * @return     a {@link String} representation of this {@link
+   *               AdaptiveLimiter}; never <code>null</code>
+   */
+  public String toString() {
+    return "limit " + this.getLimit() + " [" + this.minLimit + ", " +
+      this.maxLimit + "], in flight " + this.getInFlight();
+  }
+
+}
@@ -0,0 +1,88 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils;
+
+/**
+ * The management interface of an {@link AdaptiveLimiter}, through which its
+ * current state may be read as metrics.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public interface AdaptiveLimiterMBean {
+
+  /**
+   * Returns the current limit.
+   *
+   * @return     the current limit
+   */
+  public int getLimit();
+
+  /**
+   * Returns the smallest the limit may become.
+   *
+   * @return     the minimum limit
+   */
+  public int getMinLimit();
+
+  /**
+   * Returns the largest the limit may become.
+   *
+   * @return     the maximum limit
+   */
+  public int getMaxLimit();
+
+  /**
+   * Returns the number of outstanding requests.
+   *
+   * @return     the number of outstanding requests
+   */
+  public int getInFlight();
+
+  /**
+   * Returns the baseline latency in milliseconds.
+   *
+   * @return     the baseline latency in milliseconds
+   */
+  public double getBaselineLatencyMillis();
+
+  /**
+   * Returns the number of successful requests so far.
+   *
+   * @return     the number of successes
+   */
+  public long getSuccessCount();
+
+  /**
+   * Returns the number of failed requests so far.
+   *
+   * @return     the number of errors
+   */
+  public long getErrorCount();
+
+}
@@ -159,41 +159,28 @@ public class Administrator extends NamedObject {
     if (password == null || password.length() <= 0) {
       throw new IllegalArgumentException("Password cannot be null or empty");
     }
+    this.checkNotFrozen();
     this.password = password;
   }
   
   /**
-   * Returns a hashcode for this {@link Administrator} based off its {@linkplain
-   * #getName() username} and {@linkplain #getPassword() password}.
+   * Computes a hashcode for this {@link Administrator} based off its
+   * {@linkplain #getName() username} and {@linkplain #getPassword()
+   * password}, consistently with {@link #equals(Object)}.
    *
    * @return     a hashcode for this {@link Administrator}
    */
-  public int hashCode() {
-    String userName = null;
-    try {
-      userName = this.getName();
-    } catch (final IllegalStateException ignore) {
-      userName = null;
+  protected int computeHashCode() {
+    final String userName = super.getName();
+    final String password = this.password;
+    int hashCode = 0;
+    if (userName != null) {
+      hashCode = userName.hashCode();
     }
-    String password = null;
-    try {
-      password = this.getPassword();
-    } catch (final IllegalStateException oops) {
-      password = null;
-    }
-    if (userName == null) {
-      if (password == null) {
-        return 0;
-      } else {
-        return password.hashCode();
-      }
-    } else if (password == null) {
-      return userName.hashCode();
-    } else {
-      final StringBuffer buffer = new StringBuffer(userName);
-      buffer.append(password);
-      return buffer.hashCode();
+    if (password != null) {
+      hashCode = 31 * hashCode + password.hashCode();
     }
+    return hashCode;
   }
 
   /**
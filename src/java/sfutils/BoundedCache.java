@@ -0,0 +1,497 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe, size-bounded cache whose entries expire a fixed time after
+ * they are stored.  Keys are spread over a number of independently locked
+ * segments, each of which evicts its least recently used entry when full, so
+ * that lookups of different keys rarely contend.  Hits, misses, evictions and
+ * loads are counted and may be read as {@link CacheStatistics}.
+ *
+ * <p>Values are usually obtained with {@link #get(Object, Loader)}, which
+ * calls a {@link Loader} on a miss and stores what it returns.
+ * <code>null</code> values are never stored.  Concurrent misses for the same
+ * key are {@linkplain SingleFlight coalesced}: one thread loads, and the
+ * others wait for and share its result or exception.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        SourceForge#getProjectID(String)
+ */
+public class BoundedCache {
+
+  /**
+   * The largest number of segments used by default.
+   */
+  public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+  /**
+   * Something that produces the value for a key that is not in a {@link
+   * BoundedCache}.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  public static interface Loader {
+
+    /**
+     * Returns the value for the supplied key.  This method may return
+     * <code>null</code>, in which case nothing is cached.
+     *
+     * @param      key
+     *               the key; never <code>null</code>
+     * @return     the value, or <code>null</code>
+     * @exception  SourceForgeException
+     *               if the value could not be produced
+     */
+    public Object load(final Object key) throws SourceForgeException;
+
+  }
+
+  /**
+   * The segments.  The length of this array is a power of two.  This field is
+   * never <code>null</code>.
+   */
+  private final Segment[] segments;
+
+  /**
+   * The number of milliseconds an entry lives; <code>0</code> or less if
+   * entries never expire.
+   */
+  private final long timeToLiveMillis;
+
+  /**
+   * The greatest number of entries held.
+   */
+  private final int maxSize;
+
+  /**
+   * The number of lookups that found a live entry.
+   */
+  private final AtomicLong hitCount = new AtomicLong();
+
+  /**
+   * The number of lookups that did not find a live entry.
+   */
+  private final AtomicLong missCount = new AtomicLong();
+
+  /**
+   * The number of entries evicted to respect the size bound.
+   */
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  /**
+   * The number of entries dropped because they had expired.
+   */
+  private final AtomicLong expirationCount = new AtomicLong();
+
+  /**
+   * The number of {@link Loader} calls that returned normally.
+   */
+  private final AtomicLong loadSuccessCount = new AtomicLong();
+
+  /**
+   * The number of {@link Loader} calls that threw.
+   */
+  private final AtomicLong loadFailureCount = new AtomicLong();
+
+  /**
+   * The total time spent in {@link Loader} calls, in nanoseconds.
+   */
+  private final AtomicLong totalLoadNanos = new AtomicLong();
+
+  /**
+   * The {@link SingleFlight} that coalesces concurrent loads of the same
+   * key.  This field is never <code>null</code>.
+   */
+  private final SingleFlight loads = new SingleFlight();
+
+  /**
+   * Creates a new {@link BoundedCache} with up to the {@linkplain
+   * #DEFAULT_CONCURRENCY_LEVEL default number} of segments.
+   *
+   * @param      maxSize
+   *               the greatest number of entries to hold; must be positive
+   * @param      timeToLiveMillis
+   *               the number of milliseconds an entry lives; <code>0</code>
+   *               or less if entries never expire
+   */
+  public BoundedCache(final int maxSize, final long timeToLiveMillis) {
+    this(maxSize, timeToLiveMillis,
+         Math.min(DEFAULT_CONCURRENCY_LEVEL, Math.max(1, maxSize / 16)));
+  }
+
+  /**
+   * Creates a new {@link BoundedCache}.  Each segment holds an equal share of
+   * <code>maxSize</code> entries, so least-recently-used order is kept per
+   * segment rather than across the whole cache.
+   *
+   * @param      maxSize
+   *               the greatest number of entries to hold; must be positive
+   * @param      timeToLiveMillis
+   *               the number of milliseconds an entry lives; <code>0</code>
+   *               or less if entries never expire
+   * @param      concurrencyLevel
+   *               the minimum number of segments; must be positive and not
+   *               more than <code>maxSize</code>; rounded up to a power of
+   *               two
+   * @exception  IllegalArgumentException
+   *               if an argument is out of range
+   */
+  public BoundedCache(final int maxSize,
+                      final long timeToLiveMillis,
+                      final int concurrencyLevel) {
+    super();
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize <= 0: " + maxSize);
+    }
+    if (concurrencyLevel <= 0 || concurrencyLevel > maxSize) {
+      throw new IllegalArgumentException("concurrencyLevel: " +
+                                         concurrencyLevel);
+    }
+    int segmentCount = 1;
+    while (segmentCount < concurrencyLevel) {
+      segmentCount <<= 1;
+    }
+    this.maxSize = maxSize;
+    this.timeToLiveMillis = timeToLiveMillis;
+    this.segments = new Segment[segmentCount];
+    final int segmentSize = (maxSize + segmentCount - 1) / segmentCount;
+    for (int i = 0; i < segmentCount; i++) {
+      this.segments[i] = new Segment(segmentSize);
+    }
+  }
+
+  /**
+   * Returns the greatest number of entries this {@link BoundedCache} holds.
+   *
+   * @return     the size bound
+   */
+  public int getMaxSize() {
+    return this.maxSize;
+  }
+
+  /**
+   * Returns the number of milliseconds an entry lives.
+   *
+   * @return     the time to live; <code>0</code> or less if entries never
+   *               expire
+   */
+  public long getTimeToLiveMillis() {
+    return this.timeToLiveMillis;
+  }
+
+  /**
+   * Returns the value stored for the supplied key, or <code>null</code> if
+   * there is none or it has expired.  The lookup counts as a hit or a miss.
+   *
+   * @param      key
+   *               the key; may be <code>null</code>, in which case
+   *               <code>null</code> is returned
+   * @return     the value, or <code>null</code>
+   */
+  public Object get(final Object key) {
+    if (key == null) {
+      return null;
+    }
+    final Object value = this.segmentFor(key).get(key, this.now());
+    if (value == null) {
+      this.missCount.incrementAndGet();
+    } else {
+      this.hitCount.incrementAndGet();
+    }
+    return value;
+  }
+
+  /**
+   * Returns the value for the supplied key, calling the supplied {@link
+   * Loader} and storing its result if there is no live entry.  If another
+   * thread is already loading the same key, this method waits for and returns
+   * its result, or throws its exception, instead.  The time the {@link
+   * Loader} takes is recorded.
+   *
+   * @param      key
+   *               the key; must not be <code>null</code>
+   * @param      loader
+   *               the {@link Loader} to call on a miss; must not be
+   *               <code>null</code>
+   * @return     the value, or <code>null</code> if the {@link Loader}
+   *               returned <code>null</code>
+   * @exception  SourceForgeException
+   *               if the {@link Loader} failed
+   */
+  public Object get(final Object key, final Loader loader)
+    throws SourceForgeException {
+    if (key == null) {
+      throw new IllegalArgumentException("null key");
+    }
+    if (loader == null) {
+      throw new IllegalArgumentException("null loader");
+    }
+    final Object value = this.get(key);
+    if (value != null) {
+      return value;
+    }
+    return this.loads.execute(key, new Loader() {
+        public Object load(final Object key) throws SourceForgeException {
+          // Another thread's load may have completed since the miss.
+          final Object loaded = segmentFor(key).get(key, now());
+          if (loaded != null) {
+            return loaded;
+          }
+          return BoundedCache.this.load(key, loader);
+        }
+      });
+  }
+
+  /**
+   * Calls the supplied {@link Loader}, records how long it took, and stores
+   * its result.
+   *
+   * @param      key
+   *               the key; must not be <code>null</code>
+   * @param      loader
+   *               the {@link Loader}; must not be <code>null</code>
+   * @return     the loaded value, or <code>null</code>
+   * @exception  SourceForgeException
+   *               if the {@link Loader} failed
+   */
+  protected Object load(final Object key, final Loader loader)
+    throws SourceForgeException {
+    final long start = System.nanoTime();
+    boolean success = false;
+    try {
+      final Object value = loader.load(key);
+      success = true;
+      if (value != null) {
+        this.put(key, value);
+      }
+      return value;
+    } finally {
+      this.totalLoadNanos.addAndGet(System.nanoTime() - start);
+      if (success) {
+        this.loadSuccessCount.incrementAndGet();
+      } else {
+        this.loadFailureCount.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Stores the supplied value for the supplied key, replacing any previous
+   * value and evicting the segment's least recently used entry if it is
+   * full.
+   *
+   * @param      key
+   *               the key; must not be <code>null</code>
+   * @param      value
+   *               the value; must not be <code>null</code>
+   */
+  public void put(final Object key, final Object value) {
+    if (key == null) {
+      throw new IllegalArgumentException("null key");
+    }
+    if (value == null) {
+      throw new IllegalArgumentException("null value");
+    }
+    final long now = this.now();
+    final long expiresAt;
+    if (this.timeToLiveMillis > 0L) {
+      expiresAt = now + this.timeToLiveMillis;
+    } else {
+      expiresAt = Long.MAX_VALUE;
+    }
+    this.segmentFor(key).put(key, value, expiresAt);
+  }
+
+  /**
+   * Returns <code>true</code> if a live value is stored for the supplied
+   * key.  Unlike {@link #get(Object)}, this does not count as a hit or a
+   * miss.
+   *
+   * @param      key
+   *               the key; may be <code>null</code>, in which case
+   *               <code>false</code> is returned
+   * @return     <code>true</code> if a live value is stored
+   */
+  public boolean containsKey(final Object key) {
+    return key != null && this.segmentFor(key).get(key, this.now()) != null;
+  }
+
+  /**
+   * Removes the entry for the supplied key, if any.
+   *
+   * @param      key
+   *               the key; may be <code>null</code>
+   */
+  public void remove(final Object key) {
+    if (key != null) {
+      this.segmentFor(key).remove(key);
+    }
+  }
+
+  /**
+   * Removes every entry.  Statistics are kept.
+   */
+  public void clear() {
+    for (int i = 0; i < this.segments.length; i++) {
+      this.segments[i].clear();
+    }
+  }
+
+  /**
+   * Returns the number of entries held, including any that have expired but
+   * have not yet been noticed.
+   *
+   * @return     the number of entries
+   */
+  public int size() {
+    int size = 0;
+    for (int i = 0; i < this.segments.length; i++) {
+      size += this.segments[i].size();
+    }
+    return size;
+  }
+
+  /**
+   * Returns a snapshot of the statistics gathered so far.  This method never
+   * returns <code>null</code>.
+   *
+   * @return     a new {@link CacheStatistics}; never <code>null</code>
+   */
+  public CacheStatistics getStatistics() {
+    return new CacheStatistics(this.hitCount.get(),
+                               this.missCount.get(),
+                               this.evictionCount.get(),
+                               this.expirationCount.get(),
+                               this.loadSuccessCount.get(),
+                               this.loadFailureCount.get(),
+                               this.totalLoadNanos.get(),
+                               this.loads.getSharedCount(),
+                               this.size());
+  }
+
+  /**
+   * Returns the current time in milliseconds.  Overridable so that expiry
+   * can be tested without waiting.
+   *
+   * @return     the current time in milliseconds
+   */
+  protected long now() {
+    return System.currentTimeMillis();
+  }
+
+  private Segment segmentFor(final Object key) {
+    int hash = key.hashCode();
+    hash ^= (hash >>> 20) ^ (hash >>> 12);
+    hash ^= (hash >>> 7) ^ (hash >>> 4);
+    return this.segments[hash & (this.segments.length - 1)];
+  }
+
+  /**
+   * A stored value and the time at which it expires.
+   */
+  private static final class Entry {
+
+    final Object value;
+
+    final long expiresAt;
+
+    Entry(final Object value, final long expiresAt) {
+      super();
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+
+  }
+
+  /**
+   * One independently locked, access-ordered part of a {@link BoundedCache}.
+   */
+  private final class Segment {
+
+    /**
+     * The entries, least recently used first.  Guarded by this {@link
+     * Segment}.
+     */
+    private final LinkedHashMap map;
+
+    Segment(final int capacity) {
+      super();
+      this.map = new LinkedHashMap(Math.min(capacity, 64) * 4 / 3 + 1,
+                                   0.75f, true) {
+          protected boolean removeEldestEntry(final Map.Entry eldest) {
+            if (this.size() > capacity) {
+              evictionCount.incrementAndGet();
+              return true;
+            }
+            return false;
+          }
+        };
+    }
+
+    synchronized Object get(final Object key, final long now) {
+      final Entry entry = (Entry)this.map.get(key);
+      if (entry == null) {
+        return null;
+      }
+      if (entry.expiresAt <= now) {
+        this.map.remove(key);
+        expirationCount.incrementAndGet();
+        return null;
+      }
+      return entry.value;
+    }
+
+    synchronized void put(final Object key,
+                          final Object value,
+                          final long expiresAt) {
+      this.map.put(key, new Entry(value, expiresAt));
+    }
+
+    synchronized void remove(final Object key) {
+      this.map.remove(key);
+    }
+
+    synchronized void clear() {
+      this.map.clear();
+    }
+
+    synchronized int size() {
+      return this.map.size();
+    }
+
+  }
+
+}
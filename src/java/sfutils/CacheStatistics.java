@@ -0,0 +1,269 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils;
+
+import java.io.Serializable;
+
+/**
+ * An immutable snapshot of the statistics gathered by a {@link
+ * BoundedCache}.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        BoundedCache#getStatistics()
+ */
+public final class CacheStatistics implements Serializable {
+
+  /**
+   * The number of lookups that found a live entry.
+   */
+  private final long hitCount;
+
+  /**
+   * The number of lookups that did not find a live entry.
+   */
+  private final long missCount;
+
+  /**
+   * The number of entries evicted to respect the size bound.
+   */
+  private final long evictionCount;
+
+  /**
+   * The number of entries dropped because they had expired.
+   */
+  private final long expirationCount;
+
+  /**
+   * The number of loads that succeeded.
+   */
+  private final long loadSuccessCount;
+
+  /**
+   * The number of loads that failed.
+   */
+  private final long loadFailureCount;
+
+  /**
+   * The total time spent loading, in nanoseconds.
+   */
+  private final long totalLoadNanos;
+
+  /**
+   * The number of misses that shared another thread's load.
+   */
+  private final long coalescedCount;
+
+  /**
+   * The number of entries held when the snapshot was taken.
+   */
+  private final int size;
+
+  /**
+   * Creates a new {@link CacheStatistics}.
+   *
+   * @param      hitCount
+   *               the number of lookups that found a live entry
+   * @param      missCount
+   *               the number of lookups that did not find a live entry
+   * @param      evictionCount
+   *               the number of entries evicted to respect the size bound
+   * @param      expirationCount
+   *               the number of entries dropped because they had expired
+   * @param      loadSuccessCount
+   *               the number of loads that succeeded
+   * @param      loadFailureCount
+   *               the number of loads that failed
+   * @param      totalLoadNanos
+   *               the total time spent loading, in nanoseconds
+   * @param      coalescedCount
+   *               the number of misses that shared another thread's load
+   * @param      size
+   *               the number of entries held
+   */
+  public CacheStatistics(final long hitCount,
+                         final long missCount,
+                         final long evictionCount,
+                         final long expirationCount,
+                         final long loadSuccessCount,
+                         final long loadFailureCount,
+                         final long totalLoadNanos,
+                         final long coalescedCount,
+                         final int size) {
+    super();
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.expirationCount = expirationCount;
+    this.loadSuccessCount = loadSuccessCount;
+    this.loadFailureCount = loadFailureCount;
+    this.totalLoadNanos = totalLoadNanos;
+    this.coalescedCount = coalescedCount;
+    this.size = size;
+  }
+
+  /**
+   * Returns the number of lookups that found a live entry.
+   *
+   * @return     the hit count
+   */
+  public long getHitCount() {
+    return this.hitCount;
+  }
+
+  /**
+   * Returns the number of lookups that did not find a live entry.
+   *
+   * @return     the miss count
+   */
+  public long getMissCount() {
+    return this.missCount;
+  }
+
+  /**
+   * Returns the fraction of lookups that were hits, or <code>0</code> if
+   * there have been none.
+   *
+   * @return     the hit rate, between <code>0</code> and <code>1</code>
+   */
+  public double getHitRate() {
+    final long requests = this.hitCount + this.missCount;
+    if (requests == 0L) {
+      return 0.0;
+    }
+    return (double)this.hitCount / (double)requests;
+  }
+
+  /**
+   * Returns the number of entries evicted to respect the size bound.
+   *
+   * @return     the eviction count
+   */
+  public long getEvictionCount() {
+    return this.evictionCount;
+  }
+
+  /**
+   * Returns the number of entries dropped because they had expired.
+   *
+   * @return     the expiration count
+   */
+  public long getExpirationCount() {
+    return this.expirationCount;
+  }
+
+  /**
+   * Returns the number of loads that succeeded.
+   *
+   * @return     the load success count
+   */
+  public long getLoadSuccessCount() {
+    return this.loadSuccessCount;
+  }
+
+  /**
+   * Returns the number of loads that failed.
+   *
+   * @return     the load failure count
+   */
+  public long getLoadFailureCount() {
+    return this.loadFailureCount;
+  }
+
+  /**
+   * Returns the total time spent loading, in nanoseconds.
+   *
+   * @return     the total load time in nanoseconds
+   */
+  public long getTotalLoadNanos() {
+    return this.totalLoadNanos;
+  }
+
+  /**
+   * Returns the mean time a load took, in milliseconds, or <code>0</code> if
+   * there have been none.
+   *
+   * @return     the mean load time in milliseconds
+   */
+  public double getAverageLoadMillis() {
+    final long loads = this.loadSuccessCount + this.loadFailureCount;
+    if (loads == 0L) {
+      return 0.0;
+    }
+    return this.totalLoadNanos / 1000000.0 / loads;
+  }
+
+  /**
+   * Returns the number of misses that, rather than loading, waited for and
+   * shared another thread's load of the same key.
+   *
+   * @return     the coalesced count
+   */
+  public long getCoalescedCount() {
+    return this.coalescedCount;
+  }
+
+  /**
+   * Returns the number of entries held when this snapshot was taken.
+   *
+   * @return     the size
+   */
+  public int getSize() {
+    return this.size;
+  }
+
+  /**
+   * Returns a {@link String} representation of this {@link CacheStatistics}.
+   * This method never returns <code>null</code>.
+   *
+   * @return     a {@link String} representation of this {@link
+   *               CacheStatistics}; never <code>null</code>
+   */
+  public String toString() {
+    final StringBuffer buffer = new StringBuffer("hits ");
+    buffer.append(this.hitCount);
+    buffer.append(", misses ");
+    buffer.append(this.missCount);
+    buffer.append(", evictions ");
+    buffer.append(this.evictionCount);
+    buffer.append(", expirations ");
+    buffer.append(this.expirationCount);
+    buffer.append(", loads ");
+    buffer.append(this.loadSuccessCount);
+    buffer.append(" (");
+    buffer.append(this.loadFailureCount);
+    buffer.append(" failed, ");
+    buffer.append(this.getAverageLoadMillis());
+    buffer.append(" ms average), coalesced ");
+    buffer.append(this.coalescedCount);
+    buffer.append(", size ");
+    buffer.append(this.size);
+    return buffer.toString();
+  }
+
+}
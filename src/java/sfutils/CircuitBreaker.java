@@ -0,0 +1,234 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils;
+
+/**
+ * A circuit breaker that stops calls to something that keeps failing.  It
+ * starts {@linkplain #CLOSED closed}, letting every call through.  After
+ * <code>threshold</code> consecutive {@linkplain #recordFailure() failures}
+ * it {@linkplain #OPEN opens}, and {@link #allowRequest()} refuses calls for
+ * <code>cooldown</code> milliseconds.  After that it is {@linkplain
+ * #HALF_OPEN half open}: one trial call is let through, and its outcome
+ * either closes the breaker again or reopens it for another cooldown.
+ *
+ * <p>A {@link CircuitBreaker} is thread-safe.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class CircuitBreaker {
+
+  /**
+   * The state in which every call is let through.
+   */
+  public static final int CLOSED = 0;
+
+  /**
+   * The state in which every call is refused.
+   */
+  public static final int OPEN = 1;
+
+  /**
+   * The state in which one trial call is let through.
+   */
+  public static final int HALF_OPEN = 2;
+
+  /**
+   * The number of consecutive failures that opens this {@link
+   * CircuitBreaker}.
+   */
+  private final int threshold;
+
+  /**
+   * The number of milliseconds this {@link CircuitBreaker} stays open.
+   */
+  private final long cooldownMillis;
+
+  /**
+   * The current state.  Guarded by this {@link CircuitBreaker}.
+   */
+  private int state;
+
+  /**
+   * The number of consecutive failures so far.  Guarded by this {@link
+   * CircuitBreaker}.
+   */
+  private int failureCount;
+
+  /**
+   * The time at which this {@link CircuitBreaker} last opened.  Guarded by
+   * this {@link CircuitBreaker}.
+   */
+  private long openedAt;
+
+  /**
+   * Whether the trial call of the half-open state is outstanding.  Guarded
+   * by this {@link CircuitBreaker}.
+   */
+  private boolean trialInFlight;
+
+  /**
+   * The number of calls refused so far.  Guarded by this {@link
+   * CircuitBreaker}.
+   */
+  private long rejectionCount;
+
+  /**
+   * Creates a new, closed {@link CircuitBreaker}.
+   *
+   * @param      threshold
+   *               the number of consecutive failures that opens it; must be
+   *               positive
+   * @param      cooldownMillis
+   *               the number of milliseconds it stays open; must not be
+   *               negative
+   */
+  public CircuitBreaker(final int threshold, final long cooldownMillis) {
+    super();
+    if (threshold <= 0) {
+      throw new IllegalArgumentException("threshold <= 0: " + threshold);
+    }
+    if (cooldownMillis < 0L) {
+      throw new IllegalArgumentException("cooldownMillis < 0: " +
+                                         cooldownMillis);
+    }
+    this.threshold = threshold;
+    this.cooldownMillis = cooldownMillis;
+    this.state = CLOSED;
+  }
+
+  /**
+   * Returns <code>true</code> if a call may be made now.  A caller that is
+   * allowed to proceed must report the outcome with {@link #recordSuccess()}
+   * or {@link #recordFailure()}.
+   *
+   * @return     <code>true</code> if a call may be made
+   */
+  public synchronized boolean allowRequest() {
+    if (this.state == OPEN &&
+        this.now() - this.openedAt >= this.cooldownMillis) {
+      this.state = HALF_OPEN;
+      this.trialInFlight = false;
+    }
+    switch (this.state) {
+    case CLOSED:
+      return true;
+    case HALF_OPEN:
+      if (!this.trialInFlight) {
+        this.trialInFlight = true;
+        return true;
+      }
+      break;
+    default:
+      break;
+    }
+    this.rejectionCount++;
+    return false;
+  }
+
+  /**
+   * Records that a call succeeded, closing this {@link CircuitBreaker}.
+   */
+  public synchronized void recordSuccess() {
+    this.failureCount = 0;
+    this.trialInFlight = false;
+    this.state = CLOSED;
+  }
+
+  /**
+   * Records that a call failed, opening this {@link CircuitBreaker} if it was
+   * the trial call or the failures have reached the threshold.
+   */
+  public synchronized void recordFailure() {
+    this.failureCount++;
+    this.trialInFlight = false;
+    if (this.state == HALF_OPEN || this.failureCount >= this.threshold) {
+      this.state = OPEN;
+      this.openedAt = this.now();
+    }
+  }
+
+  /**
+   * Records that a call ended without a verdict, for example because of a
+   * network error, so that a half-open breaker lets another trial through.
+   */
+  public synchronized void recordIgnored() {
+    this.trialInFlight = false;
+  }
+
+  /**
+   * Closes this {@link CircuitBreaker} and forgets its failures.
+   */
+  public synchronized void reset() {
+    this.recordSuccess();
+  }
+
+  /**
+   * Returns the current state: {@link #CLOSED}, {@link #OPEN} or {@link
+   * #HALF_OPEN}.  An open breaker whose cooldown has passed is reported as
+   * half open.
+   *
+   * @return     the current state
+   */
+  public synchronized int getState() {
+    if (this.state == OPEN &&
+        this.now() - this.openedAt >= this.cooldownMillis) {
+      return HALF_OPEN;
+    }
+    return this.state;
+  }
+
+  /**
+   * Returns the number of consecutive failures so far.
+   *
+   * @return     the failure count
+   */
+  public synchronized int getFailureCount() {
+    return this.failureCount;
+  }
+
+  /**
+   * Returns the number of calls refused so far.
+   *
+   * @return     the rejection count
+   */
+  public synchronized long getRejectionCount() {
+    return this.rejectionCount;
+  }
+
+  /**
+   * Returns the current time in milliseconds.  Overridable so that the
+   * cooldown can be tested without waiting.
+   *
+   * @return     the current time in milliseconds
+   */
+  protected long now() {
+    return System.currentTimeMillis();
+  }
+
+}
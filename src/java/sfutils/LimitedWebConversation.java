@@ -0,0 +1,182 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import java.net.MalformedURLException;
+
+import com.meterware.httpunit.HttpUnitOptions;
+import com.meterware.httpunit.WebConversation;
+import com.meterware.httpunit.WebRequest;
+import com.meterware.httpunit.WebResponse;
+
+/**
+ * A {@link WebConversation} whose every request is governed by an {@link
+ * AdaptiveLimiter}: a permit is {@linkplain AdaptiveLimiter#acquire()
+ * acquired} before the request is sent and {@linkplain
+ * AdaptiveLimiter#release(long, boolean) released} with its latency once the
+ * response has been read.  Responses with a <code>5xx</code> status and
+ * requests that fail with an {@link IOException} count as errors.
+ *
+ * <p>Every {@link WebConversation} this library creates is a {@link
+ * LimitedWebConversation}, so the global {@link HttpUnitOptions} are set up
+ * when this class is initialized, and not before.  Code that only validates
+ * the model or uploads by SFTP never initializes this class, and so never
+ * loads HttpUnit's HTML parser or its JavaScript engine.  JavaScript can also
+ * be {@linkplain #setScriptingEnabled(boolean) turned off}, in which case no
+ * page's scripts are compiled or run.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class LimitedWebConversation extends WebConversation {
+
+  /**
+   * The name of the system property that, when it is <code>false</code>,
+   * turns JavaScript off in every {@link WebConversation} in the VM.
+   *
+   * @see        #setScriptingEnabled(boolean)
+   */
+  public static final String SCRIPTING_PROPERTY = "sfutils.scripting";
+
+  /**
+   * Static initializer; ensures that the {@link
+   * HttpUnitOptions#setExceptionsThrownOnScriptError(boolean)} method is
+   * called with <code>false</code> as its parameter to work around the fact
+   * that <a href="http://sourceforge.net/">SourceForge</a> pages have
+   * JavaScript errors in them, and turns scripting off if the {@link
+   * #SCRIPTING_PROPERTY} system property is <code>false</code>.
+   */
+  static {
+    HttpUnitOptions.setExceptionsThrownOnScriptError(false);
+    if ("false".equalsIgnoreCase(System.getProperty(SCRIPTING_PROPERTY))) {
+      HttpUnitOptions.setScriptingEnabled(false);
+    }
+  }
+
+  /**
+   * The {@link AdaptiveLimiter} governing this {@link
+   * LimitedWebConversation}.  This field is never <code>null</code>.
+   */
+  private final AdaptiveLimiter limiter;
+
+  /**
+   * Creates a new {@link LimitedWebConversation} governed by the {@linkplain
+   * AdaptiveLimiter#getShared() shared} {@link AdaptiveLimiter}.
+   */
+  public LimitedWebConversation() {
+    this(AdaptiveLimiter.getShared());
+  }
+
+  /**
+   * Creates a new {@link LimitedWebConversation}.
+   *
+   * @param      limiter
+   *               the {@link AdaptiveLimiter} to use; must not be
+   *               <code>null</code>
+   */
+  public LimitedWebConversation(final AdaptiveLimiter limiter) {
+    super();
+    if (limiter == null) {
+      throw new IllegalArgumentException("null limiter");
+    }
+    this.limiter = limiter;
+  }
+
+  /**
+   * Returns whether JavaScript runs in the pages that {@link WebConversation}s
+   * retrieve.  The setting is global to the VM.
+   *
+   * @return     <code>true</code> if scripting is enabled
+   */
+  public static boolean isScriptingEnabled() {
+    return HttpUnitOptions.isScriptingEnabled();
+  }
+
+  /**
+   * Turns JavaScript on or off in the pages that every {@link
+   * WebConversation} in the VM retrieves.  Nothing this library does on <a
+   * href="http://sourceforge.net/">SourceForge</a> needs scripts to run, and
+   * with scripting off no JavaScript context is ever created for a page;
+   * scripting is on by default for compatibility.
+   *
+   * @param      enabled
+   *               whether scripts should run
+   * @see        #SCRIPTING_PROPERTY
+   */
+  public static void setScriptingEnabled(final boolean enabled) {
+    HttpUnitOptions.setScriptingEnabled(enabled);
+  }
+
+  /**
+   * Returns the {@link AdaptiveLimiter} governing this {@link
+   * LimitedWebConversation}.  This method never returns <code>null</code>.
+   *
+   * @return     the {@link AdaptiveLimiter}; never <code>null</code>
+   */
+  public AdaptiveLimiter getLimiter() {
+    return this.limiter;
+  }
+
+  /**
+   * Sends the supplied {@link WebRequest} once a permit is available.
+   *
+   * @param      request
+   *               the {@link WebRequest} to send
+   * @param      frameName
+   *               the name of the target frame
+   * @return     the {@link WebResponse}
+   * @exception  MalformedURLException
+   *               if the request's URL is malformed
+   * @exception  IOException
+   *               if the request fails, or the calling thread is interrupted
+   *               while waiting for a permit
+   */
+  protected WebResponse newResponse(final WebRequest request,
+                                    final String frameName)
+    throws MalformedURLException, IOException {
+    try {
+      this.limiter.acquire();
+    } catch (final InterruptedException kaboom) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for a permit");
+    }
+    final long start = System.nanoTime();
+    boolean success = false;
+    try {
+      final WebResponse response = super.newResponse(request, frameName);
+      success = response == null || response.getResponseCode() < 500;
+      return response;
+    } finally {
+      this.limiter.release(System.nanoTime() - start, success);
+    }
+  }
+
+}
@@ -0,0 +1,549 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import java.util.zip.CRC32;
+
+/**
+ * A small, file-based store of identifiers learned from <a
+ * href="http://sourceforge.net/">SourceForge</a>, so that they survive from
+ * one run to the next: project identifiers indexed by project short name,
+ * package identifiers indexed by project identifier and package name, and
+ * the fingerprints of published releases.
+ *
+ * <p>The store is a {@linkplain Properties properties} file carrying a
+ * format version and a checksum of its entries.  A file with another version
+ * or a bad checksum is ignored, as if empty, and is replaced by the next
+ * write.  Every write takes an exclusive lock on a companion
+ * <code>.lock</code> file, re-reads the file so that entries written
+ * meanwhile by other processes are kept, writes a temporary file beside it
+ * and renames that over the original, so that readers never see a partly
+ * written file.  Since a file lock is held on behalf of the whole VM,
+ * {@link MetadataStore}s in one VM that share a file also take turns on a
+ * monitor kept per canonical path before locking it.</p>
+ *
+ * <p>Stored identifiers are hints: they may be stale if a project or package
+ * has been deleted or renamed.  Callers are expected to check an identifier
+ * against what <a href="http://sourceforge.net/">SourceForge</a> shows when
+ * they use it, and to {@linkplain #removeProjectID(String) remove} it if it
+ * turns out to be wrong.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class MetadataStore {
+
+  /**
+   * The version of the file format written by this class.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  /**
+   * The key under which the format version is stored.
+   */
+  static final String VERSION_KEY = "sfutils.metadata.version";
+
+  /**
+   * The key under which the checksum of the entries is stored.
+   */
+  static final String CHECKSUM_KEY = "sfutils.metadata.checksum";
+
+  /**
+   * The prefix of project identifier keys.
+   */
+  private static final String PROJECT_PREFIX = "project.";
+
+  /**
+   * The prefix of package identifier keys.
+   */
+  private static final String PACKAGE_PREFIX = "package.";
+
+  /**
+   * The prefix of release fingerprint keys.
+   */
+  private static final String FINGERPRINT_PREFIX = "fingerprint.";
+
+  /**
+   * The {@link Logger} used by this class.  This field is never
+   * <code>null</code>.
+   */
+  private static final Logger LOGGER =
+    Logger.getLogger(MetadataStore.class.getName());
+
+  /**
+   * The monitors on which writers in this VM serialize before locking a
+   * file, indexed by canonical path.  Guarded by itself.  This field is
+   * never <code>null</code>.
+   */
+  private static final Map PATH_MONITORS = new HashMap();
+
+  /**
+   * The {@link MetadataStore} returned by {@link #getDefault()}.  Created on
+   * first use.  Guarded by the {@link MetadataStore} class.
+   */
+  private static MetadataStore defaultStore;
+
+  /**
+   * The file backing this {@link MetadataStore}, or <code>null</code> if it
+   * is kept in memory only.
+   */
+  private final File file;
+
+  /**
+   * The entries, sorted by key, or <code>null</code> until first loaded.
+   * Guarded by this {@link MetadataStore}.
+   */
+  private Map entries;
+
+  /**
+   * Creates a new {@link MetadataStore}.
+   *
+   * @param      file
+   *               the file to keep the entries in; may be <code>null</code>,
+   *               in which case they are kept in memory only
+   */
+  public MetadataStore(final File file) {
+    super();
+    this.file = file;
+  }
+
+  /**
+   * Returns the {@link MetadataStore} shared by {@link SourceForge} and the
+   * publishers.  Its file is named by the <code>sfutils.metadata.file</code>
+   * system property, and is <code>.sfutils/metadata.properties</code> in the
+   * user's home directory by default; if the property is set to the empty
+   * string, nothing is persisted.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     the default {@link MetadataStore}; never <code>null</code>
+   */
+  public static synchronized MetadataStore getDefault() {
+    if (defaultStore == null) {
+      final String fileName = System.getProperty("sfutils.metadata.file");
+      final File file;
+      if (fileName == null) {
+        file = new File(new File(System.getProperty("user.home"), ".sfutils"),
+                        "metadata.properties");
+      } else if (fileName.trim().length() == 0) {
+        file = null;
+      } else {
+        file = new File(fileName);
+      }
+      defaultStore = new MetadataStore(file);
+    }
+    return defaultStore;
+  }
+
+  /**
+   * Returns the file backing this {@link MetadataStore}.
+   *
+   * @return     the file, or <code>null</code> if entries are kept in memory
+   *               only
+   */
+  public File getFile() {
+    return this.file;
+  }
+
+  /**
+   * Returns the stored identifier of the project with the supplied short
+   * name.
+   *
+   * @param      projectShortName
+   *               the project short name; may be <code>null</code>
+   * @return     the project identifier, or <code>null</code>
+   */
+  public String getProjectID(final String projectShortName) {
+    if (projectShortName == null) {
+      return null;
+    }
+    return this.get(projectKey(projectShortName));
+  }
+
+  /**
+   * Stores the identifier of the project with the supplied short name.
+   *
+   * @param      projectShortName
+   *               the project short name; must not be <code>null</code>
+   * @param      projectID
+   *               the project identifier; must not be <code>null</code>
+   */
+  public void putProjectID(final String projectShortName,
+                           final String projectID) {
+    this.put(projectKey(projectShortName), projectID);
+  }
+
+  /**
+   * Forgets the identifier of the project with the supplied short name.
+   *
+   * @param      projectShortName
+   *               the project short name; may be <code>null</code>
+   */
+  public void removeProjectID(final String projectShortName) {
+    if (projectShortName != null) {
+      this.put(projectKey(projectShortName), null);
+    }
+  }
+
+  /**
+   * Returns the stored identifier of the named package of the project with
+   * the supplied identifier.
+   *
+   * @param      projectID
+   *               the project identifier; may be <code>null</code>
+   * @param      packageName
+   *               the package name; may be <code>null</code>
+   * @return     the package identifier, or <code>null</code>
+   */
+  public String getPackageID(final String projectID,
+                             final String packageName) {
+    if (projectID == null || packageName == null) {
+      return null;
+    }
+    return this.get(packageKey(projectID, packageName));
+  }
+
+  /**
+   * Stores the identifier of the named package of the project with the
+   * supplied identifier.
+   *
+   * @param      projectID
+   *               the project identifier; must not be <code>null</code>
+   * @param      packageName
+   *               the package name; must not be <code>null</code>
+   * @param      packageID
+   *               the package identifier; must not be <code>null</code>
+   */
+  public void putPackageID(final String projectID,
+                           final String packageName,
+                           final String packageID) {
+    this.put(packageKey(projectID, packageName), packageID);
+  }
+
+  /**
+   * Forgets the identifier of the named package of the project with the
+   * supplied identifier.
+   *
+   * @param      projectID
+   *               the project identifier; may be <code>null</code>
+   * @param      packageName
+   *               the package name; may be <code>null</code>
+   */
+  public void removePackageID(final String projectID,
+                              final String packageName) {
+    if (projectID != null && packageName != null) {
+      this.put(packageKey(projectID, packageName), null);
+    }
+  }
+
+  /**
+   * Returns the fingerprint stored under the supplied key, such as the one
+   * an incremental publisher records for a release it has published.
+   *
+   * @param      key
+   *               the key; may be <code>null</code>
+   * @return     the fingerprint, or <code>null</code>
+   */
+  public String getFingerprint(final String key) {
+    if (key == null) {
+      return null;
+    }
+    return this.get(FINGERPRINT_PREFIX + key);
+  }
+
+  /**
+   * Stores a fingerprint under the supplied key.
+   *
+   * @param      key
+   *               the key; must not be <code>null</code>
+   * @param      fingerprint
+   *               the fingerprint; must not be <code>null</code>
+   */
+  public void putFingerprint(final String key, final String fingerprint) {
+    if (key == null) {
+      throw new IllegalArgumentException("null key");
+    }
+    if (fingerprint == null) {
+      throw new IllegalArgumentException("null fingerprint");
+    }
+    this.put(FINGERPRINT_PREFIX + key, fingerprint);
+  }
+
+  /**
+   * Forgets the fingerprint stored under the supplied key.
+   *
+   * @param      key
+   *               the key; may be <code>null</code>
+   */
+  public void removeFingerprint(final String key) {
+    if (key != null) {
+      this.put(FINGERPRINT_PREFIX + key, null);
+    }
+  }
+
+  private static String projectKey(final String projectShortName) {
+    if (projectShortName == null) {
+      throw new IllegalArgumentException("null projectShortName");
+    }
+    return PROJECT_PREFIX + projectShortName.trim().toLowerCase();
+  }
+
+  private static String packageKey(final String projectID,
+                                   final String packageName) {
+    if (projectID == null) {
+      throw new IllegalArgumentException("null projectID");
+    }
+    if (packageName == null) {
+      throw new IllegalArgumentException("null packageName");
+    }
+    return PACKAGE_PREFIX + projectID + "." + packageName;
+  }
+
+  private synchronized String get(final String key) {
+    if (this.entries == null) {
+      this.entries = this.read();
+    }
+    return (String)this.entries.get(key);
+  }
+
+  /**
+   * Stores or, if <code>value</code> is <code>null</code>, removes the
+   * supplied entry, and writes the file if anything changed.
+   */
+  private synchronized void put(final String key, final String value) {
+    if (value == null && this.get(key) == null) {
+      return;
+    }
+    if (value != null && value.equals(this.get(key))) {
+      return;
+    }
+    if (this.file == null) {
+      this.putInMemory(key, value);
+      return;
+    }
+    try {
+      final File directory = this.file.getAbsoluteFile().getParentFile();
+      if (directory != null && !directory.isDirectory()) {
+        directory.mkdirs();
+      }
+      synchronized (getPathMonitor(this.file)) {
+        final RandomAccessFile lockFile =
+          new RandomAccessFile(new File(this.file.getPath() + ".lock"), "rw");
+        try {
+          final FileLock lock = lockFile.getChannel().lock();
+          try {
+            final Map merged = this.read();
+            if (value == null) {
+              merged.remove(key);
+            } else {
+              merged.put(key, value);
+            }
+            this.write(merged);
+            this.entries = merged;
+          } finally {
+            lock.release();
+          }
+        } finally {
+          lockFile.close();
+        }
+      }
+    } catch (final IOException kaboom) {
+      // The store is only an optimization; carry on in memory.
+      LOGGER.log(Level.WARNING, "Could not update " + this.file, kaboom);
+      this.putInMemory(key, value);
+    } catch (final OverlappingFileLockException kaboom) {
+      // Another class loader's copy of this class holds the lock.
+      LOGGER.log(Level.WARNING, "Could not update " + this.file, kaboom);
+      this.putInMemory(key, value);
+    }
+  }
+
+  /**
+   * Stores or, if <code>value</code> is <code>null</code>, removes the
+   * supplied entry in memory only.  This method is called when there is no
+   * file or it could not be written.
+   */
+  private void putInMemory(final String key, final String value) {
+    if (value == null) {
+      this.entries.remove(key);
+    } else {
+      this.entries.put(key, value);
+    }
+  }
+
+  /**
+   * Returns the monitor on which writers of the supplied file in this VM
+   * serialize, so that no two of them try to lock the file at once.  This
+   * method never returns <code>null</code>.
+   */
+  private static Object getPathMonitor(final File file) {
+    String path;
+    try {
+      path = file.getCanonicalPath();
+    } catch (final IOException kaboom) {
+      path = file.getAbsolutePath();
+    }
+    synchronized (PATH_MONITORS) {
+      Object monitor = PATH_MONITORS.get(path);
+      if (monitor == null) {
+        monitor = new Object();
+        PATH_MONITORS.put(path, monitor);
+      }
+      return monitor;
+    }
+  }
+
+  /**
+   * Reads and validates the file, returning its entries, or an empty {@link
+   * Map} if it is missing, unreadable, of another version or fails its
+   * checksum.  This method never returns <code>null</code>.
+   */
+  private Map read() {
+    final Map result = new TreeMap();
+    if (this.file == null || !this.file.isFile()) {
+      return result;
+    }
+    final Properties properties = new Properties();
+    try {
+      final InputStream stream =
+        new BufferedInputStream(new FileInputStream(this.file));
+      try {
+        properties.load(stream);
+      } finally {
+        stream.close();
+      }
+    } catch (final IOException kaboom) {
+      LOGGER.log(Level.WARNING, "Could not read " + this.file, kaboom);
+      return result;
+    } catch (final IllegalArgumentException kaboom) {
+      LOGGER.log(Level.WARNING, "Ignoring malformed " + this.file, kaboom);
+      return result;
+    }
+    final String version = properties.getProperty(VERSION_KEY);
+    final String checksum = properties.getProperty(CHECKSUM_KEY);
+    properties.remove(VERSION_KEY);
+    properties.remove(CHECKSUM_KEY);
+    result.putAll(properties);
+    if (!String.valueOf(FORMAT_VERSION).equals(version)) {
+      LOGGER.info("Ignoring " + this.file + " with format version " +
+                  version);
+      result.clear();
+    } else if (!checksum(result).equals(checksum)) {
+      LOGGER.warning("Ignoring " + this.file + " with a bad checksum");
+      result.clear();
+    }
+    return result;
+  }
+
+  /**
+   * Writes the supplied entries to a temporary file and renames it over the
+   * file.
+   */
+  private void write(final Map newEntries) throws IOException {
+    final Properties properties = new Properties();
+    properties.putAll(newEntries);
+    properties.setProperty(VERSION_KEY, String.valueOf(FORMAT_VERSION));
+    properties.setProperty(CHECKSUM_KEY, checksum(newEntries));
+    final File temporary =
+      File.createTempFile(this.file.getName(), ".tmp",
+                          this.file.getAbsoluteFile().getParentFile());
+    boolean renamed = false;
+    try {
+      final FileOutputStream fileStream = new FileOutputStream(temporary);
+      final OutputStream stream = new BufferedOutputStream(fileStream);
+      try {
+        properties.store(stream, "sfutils metadata; do not edit");
+        stream.flush();
+        fileStream.getFD().sync();
+      } finally {
+        stream.close();
+      }
+      renamed = temporary.renameTo(this.file);
+      if (!renamed) {
+        // Some platforms will not rename over an existing file.
+        this.file.delete();
+        renamed = temporary.renameTo(this.file);
+      }
+      if (!renamed) {
+        throw new IOException("Could not rename " + temporary + " to " +
+                              this.file);
+      }
+    } finally {
+      if (!renamed) {
+        temporary.delete();
+      }
+    }
+  }
+
+  /**
+   * Returns a checksum of the supplied entries, which must be sorted by key.
+   */
+  private static String checksum(final Map sortedEntries) {
+    final CRC32 crc = new CRC32();
+    final Iterator iterator = sortedEntries.entrySet().iterator();
+    Map.Entry entry;
+    while (iterator.hasNext()) {
+      entry = (Map.Entry)iterator.next();
+      update(crc, (String)entry.getKey());
+      crc.update('=');
+      update(crc, (String)entry.getValue());
+      crc.update('\n');
+    }
+    return Long.toHexString(crc.getValue());
+  }
+
+  private static void update(final CRC32 crc, final String text) {
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      crc.update(c >>> 8);
+      crc.update(c);
+    }
+  }
+
+}
@@ -32,6 +32,11 @@ import java.io.Serializable;
 /**
  * An {@link Object} that has a canonical name of some kind.
  *
+ * <p>A {@link NamedObject} may be {@linkplain #freeze() frozen}, after which
+ * it, and everything it refers to, can no longer be changed and its hashcode
+ * is computed only once.  A frozen {@link NamedObject} may safely be used as
+ * a {@link java.util.Map} key and shared among threads.</p>
+ *
  * @author     <a href="mailto:ljnelson94@alumni.amherst.edu">Laird Nelson</a>
  * @version    $Revision: 1.1 $ $Date: 2003/07/12 16:13:24 $
  * @since      May 21, 2003
@@ -43,6 +48,19 @@ public abstract class NamedObject implements Serializable {
    */
   private String name;
 
+  /**
+   * The hashcode computed when this {@link NamedObject} was {@linkplain
+   * #freeze() frozen}.  Meaningless until then.
+   */
+  private int frozenHashCode;
+
+  /**
+   * Whether this {@link NamedObject} has been {@linkplain #freeze() frozen}.
+   * Written last, so that a thread that sees it set also sees everything
+   * written before it.
+   */
+  private volatile boolean frozen;
+
   /**
    * Creates a new {@link NamedObject}.
    */
@@ -70,6 +88,7 @@ public abstract class NamedObject implements Serializable {
    *               the new name; may be <code>null</code>
    */
   public void setName(final String name) {
+    this.checkNotFrozen();
     this.name = name;
   }
 
@@ -84,13 +103,76 @@ public abstract class NamedObject implements Serializable {
   }
 
   /**
-   * Returns a hashcode for this {@link NamedObject} based off its {@linkplain
-   * #getName() name}.
+   * Makes this {@link NamedObject}, and the objects it refers to, immutable:
+   * from now on its setters throw an {@link IllegalStateException}, and its
+   * {@linkplain #hashCode() hashcode} is computed once, here.  Freezing an
+   * already frozen {@link NamedObject} does nothing.
+   *
+   * @see        #isFrozen()
+   */
+  public void freeze() {
+    if (!this.frozen) {
+      this.freezeReferences();
+      this.frozenHashCode = this.computeHashCode();
+      this.frozen = true;
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if this {@link NamedObject} has been
+   * {@linkplain #freeze() frozen}.
+   *
+   * @return     <code>true</code> if this {@link NamedObject} is frozen
+   */
+  public final boolean isFrozen() {
+    return this.frozen;
+  }
+
+  /**
+   * Freezes the objects this {@link NamedObject} refers to.  Called by {@link
+   * #freeze()} before the hashcode is computed.  This implementation does
+   * nothing; subclasses that refer to other mutable objects must override it.
+   */
+  protected void freezeReferences() {
+  }
+
+  /**
+   * Throws an {@link IllegalStateException} if this {@link NamedObject} has
+   * been {@linkplain #freeze() frozen}.  Setters call this method before
+   * changing anything.
+   *
+   * @exception  IllegalStateException
+   *               if this {@link NamedObject} is frozen
+   */
+  protected final void checkNotFrozen() throws IllegalStateException {
+    if (this.frozen) {
+      throw new IllegalStateException(this + " is frozen");
+    }
+  }
+
+  /**
+   * Returns a hashcode for this {@link NamedObject}: the one computed when it
+   * was {@linkplain #freeze() frozen}, if it has been, or a freshly
+   * {@linkplain #computeHashCode() computed} one otherwise.
    *
    * @return     a hashcode for this {@link NamedObject}
    */
   public int hashCode() {
-    final String name = this.getName();
+    if (this.frozen) {
+      return this.frozenHashCode;
+    }
+    return this.computeHashCode();
+  }
+
+  /**
+   * Computes a hashcode for this {@link NamedObject} based off its
+   * {@linkplain #getName() name}.  Subclasses that override {@link
+   * #equals(Object)} override this method rather than {@link #hashCode()}.
+   *
+   * @return     a hashcode for this {@link NamedObject}
+   */
+  protected int computeHashCode() {
+    final String name = this.name;
     if (name == null) {
       return 0;
     }
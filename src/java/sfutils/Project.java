@@ -148,6 +148,7 @@ public class Project extends NamedObject {
    * @see        #getID()
    */
   public void setID(final String id) {
+    this.checkNotFrozen();
     this.id = id;
   }
 
@@ -176,6 +177,7 @@ public class Project extends NamedObject {
    * @see        #getShortName()
    */
   public void setShortName(final String shortName) {
+    this.checkNotFrozen();
     this.shortName = shortName;
   }
 
@@ -211,15 +213,28 @@ public class Project extends NamedObject {
    * @see        #getAdministrator()
    */
   public void setAdministrator(final Administrator administrator) {
+    this.checkNotFrozen();
     this.administrator = administrator;
   }
 
   /**
-   * Returns a hashcode for this {@link Project} based on all of its attributes.
+   * Freezes this {@link Project}'s {@linkplain #getAdministrator()
+   * administrator}.
+   */
+  protected void freezeReferences() {
+    super.freezeReferences();
+    if (this.administrator != null) {
+      this.administrator.freeze();
+    }
+  }
+
+  /**
+   * Computes a hashcode for this {@link Project} based on all of its
+   * attributes.
    *
    * @return     a hashcode for this {@link Project}
    */
-  public int hashCode() {
+  protected int computeHashCode() {
     final String id = this.getID();
     final String shortName = this.getShortName();
     final String longName = this.getName();
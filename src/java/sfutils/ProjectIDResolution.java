@@ -0,0 +1,165 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils;
+
+import java.io.Serializable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The immutable outcome of {@linkplain SourceForge#getProjectIDs(Collection,
+ * int) resolving} several project short names at once: the identifiers of
+ * those that resolved, and the {@link SourceForgeException} that each of the
+ * others failed with, typically a {@link NoSuchProjectException} or a {@link
+ * SourceForgeUIChangeException}.  Both are indexed by the short names as
+ * supplied.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        SourceForge#getProjectIDs(Collection, int)
+ */
+public final class ProjectIDResolution implements Serializable {
+
+  /**
+   * The project identifiers, indexed by short name.  This field is never
+   * <code>null</code>.
+   */
+  private final Map projectIDs;
+
+  /**
+   * The {@link SourceForgeException}s, indexed by short name.  This field
+   * is never <code>null</code>.
+   */
+  private final Map failures;
+
+  /**
+   * Creates a new {@link ProjectIDResolution}.  The supplied {@link Map}s
+   * are copied.
+   *
+   * @param      projectIDs
+   *               the project identifiers, indexed by short name; must not
+   *               be <code>null</code>
+   * @param      failures
+   *               the {@link SourceForgeException}s, indexed by short name;
+   *               must not be <code>null</code>
+   */
+  public ProjectIDResolution(final Map projectIDs, final Map failures) {
+    super();
+    if (projectIDs == null) {
+      throw new IllegalArgumentException("null projectIDs");
+    }
+    if (failures == null) {
+      throw new IllegalArgumentException("null failures");
+    }
+    this.projectIDs = Collections.unmodifiableMap(new TreeMap(projectIDs));
+    this.failures = Collections.unmodifiableMap(new TreeMap(failures));
+  }
+
+  /**
+   * Returns an unmodifiable {@link Map} of project identifiers indexed by
+   * the short names that resolved.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     the project identifiers; never <code>null</code>
+   */
+  public Map getProjectIDs() {
+    return this.projectIDs;
+  }
+
+  /**
+   * Returns the identifier of the project with the supplied short name, or
+   * <code>null</code> if it did not resolve.
+   *
+   * @param      projectShortName
+   *               the short name as supplied; may be <code>null</code>
+   * @return     the project identifier, or <code>null</code>
+   */
+  public String getProjectID(final String projectShortName) {
+    if (projectShortName == null) {
+      return null;
+    }
+    return (String)this.projectIDs.get(projectShortName);
+  }
+
+  /**
+   * Returns an unmodifiable {@link Map} of the {@link SourceForgeException}s
+   * indexed by the short names that did not resolve.  This method never
+   * returns <code>null</code>.
+   *
+   * @return     the failures; never <code>null</code>
+   */
+  public Map getFailures() {
+    return this.failures;
+  }
+
+  /**
+   * Returns the {@link SourceForgeException} that resolving the project with
+   * the supplied short name failed with, or <code>null</code> if it did not
+   * fail.
+   *
+   * @param      projectShortName
+   *               the short name as supplied; may be <code>null</code>
+   * @return     the failure, or <code>null</code>
+   */
+  public SourceForgeException getFailure(final String projectShortName) {
+    if (projectShortName == null) {
+      return null;
+    }
+    return (SourceForgeException)this.failures.get(projectShortName);
+  }
+
+  /**
+   * Returns <code>true</code> if every short name resolved.
+   *
+   * @return     <code>true</code> if there were no failures
+   */
+  public boolean isComplete() {
+    return this.failures.isEmpty();
+  }
+
+  /**
+   * Returns a {@link String} representation of this {@link
+   * ProjectIDResolution}.  This method never returns <code>null</code>.
+   *
+   * @return     a {@link String} representation of this {@link
+   *               ProjectIDResolution}; never <code>null</code>
+   */
+  public String toString() {
+    final StringBuffer buffer = new StringBuffer();
+    buffer.append(this.projectIDs.size());
+    buffer.append(" resolved, ");
+    buffer.append(this.failures.size());
+    buffer.append(" failed ");
+    buffer.append(this.failures.keySet());
+    return buffer.toString();
+  }
+
+}
@@ -0,0 +1,151 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent calls for the same key so that only one of them does
+ * the work.  The first thread to {@linkplain #execute(Object,
+ * BoundedCache.Loader) execute} a key runs its {@link BoundedCache.Loader};
+ * any thread that asks for the same key while that call is in flight waits
+ * for it and receives the same result, or the same exception, instead of
+ * running its own.  Once a call completes it is forgotten, so a later call
+ * for the same key runs afresh; results are not cached.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        BoundedCache#get(Object, BoundedCache.Loader)
+ */
+public class SingleFlight {
+
+  /**
+   * The calls in flight, indexed by key.  This field is never
+   * <code>null</code>.
+   */
+  private final ConcurrentMap calls = new ConcurrentHashMap();
+
+  /**
+   * The number of calls that were satisfied by another thread's call.
+   */
+  private final AtomicLong sharedCount = new AtomicLong();
+
+  /**
+   * Creates a new {@link SingleFlight}.
+   */
+  public SingleFlight() {
+    super();
+  }
+
+  /**
+   * Returns the result of calling the supplied {@link BoundedCache.Loader}
+   * with the supplied key, or of the call for that key already in flight if
+   * there is one.
+   *
+   * @param      key
+   *               the key; must not be <code>null</code>
+   * @param      loader
+   *               the {@link BoundedCache.Loader} to call if no call for the
+   *               key is in flight; must not be <code>null</code>
+   * @return     the result, which may be <code>null</code>
+   * @exception  SourceForgeException
+   *               if the call failed, or the calling thread was interrupted
+   *               while waiting for another thread's call
+   */
+  public Object execute(final Object key, final BoundedCache.Loader loader)
+    throws SourceForgeException {
+    if (key == null) {
+      throw new IllegalArgumentException("null key");
+    }
+    if (loader == null) {
+      throw new IllegalArgumentException("null loader");
+    }
+    final FutureTask task = new FutureTask(new Callable() {
+        public Object call() throws Exception {
+          return loader.load(key);
+        }
+      });
+    final FutureTask existing = (FutureTask)this.calls.putIfAbsent(key, task);
+    if (existing != null) {
+      this.sharedCount.incrementAndGet();
+      return result(existing);
+    }
+    try {
+      task.run();
+    } finally {
+      this.calls.remove(key, task);
+    }
+    return result(task);
+  }
+
+  /**
+   * Returns the number of calls currently in flight.
+   *
+   * @return     the number of calls in flight
+   */
+  public int getInFlightCount() {
+    return this.calls.size();
+  }
+
+  /**
+   * Returns the number of calls so far that were satisfied by another
+   * thread's call rather than by running their own.
+   *
+   * @return     the number of shared calls
+   */
+  public long getSharedCount() {
+    return this.sharedCount.get();
+  }
+
+  private static Object result(final FutureTask task)
+    throws SourceForgeException {
+    try {
+      return task.get();
+    } catch (final InterruptedException kaboom) {
+      Thread.currentThread().interrupt();
+      throw new SourceForgeException(kaboom);
+    } catch (final ExecutionException kaboom) {
+      final Throwable cause = kaboom.getCause();
+      if (cause instanceof SourceForgeException) {
+        throw (SourceForgeException)cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      } else if (cause instanceof Error) {
+        throw (Error)cause;
+      }
+      throw new SourceForgeException(kaboom);
+    }
+  }
+
+}
@@ -29,12 +29,22 @@ package sfutils;
 
 import java.io.IOException;
 
-import java.util.Collections;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.Queue;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.meterware.httpunit.GetMethodWebRequest;
-import com.meterware.httpunit.HttpUnitOptions;
 import com.meterware.httpunit.WebConversation;
 import com.meterware.httpunit.WebLink;
 import com.meterware.httpunit.WebResponse;
@@ -59,22 +69,96 @@ public final class SourceForge {
     "http://sourceforge.net/projects/";
 
   /**
-   * A {@link Map} of project IDs indexed by project short names.  This field is
-   * thread-safe.
+   * The number of project identifiers cached by default.
    */
-  private static final Map PROJECT_ID_MAP = 
-    Collections.synchronizedMap(new WeakHashMap());
+  public static final int DEFAULT_PROJECT_ID_CACHE_SIZE = 1024;
 
   /**
-   * Static initializer; ensures that the {@link
-   * HttpUnitOptions#setExceptionsThrownOnScriptError(boolean)} method is called
-   * with <code>false</code> as its parameter to work around the fact that <a
-   * href="http://sourceforge.net/">SourceForge</a> pages have JavaScript errors
-   * in them.
+   * The number of milliseconds a project identifier is cached for by
+   * default: one day.  Identifiers never change, but a day bounds how long a
+   * mistaken scrape can linger.
    */
-  static {
-    HttpUnitOptions.setExceptionsThrownOnScriptError(false);
-  }
+  public static final long DEFAULT_PROJECT_ID_TIME_TO_LIVE = 24L * 60L * 60L * 1000L;
+
+  /**
+   * A {@link BoundedCache} of project IDs indexed by lowercased project short
+   * names.  Its size and time to live may be set with the
+   * <code>sfutils.projectIDCache.size</code> and
+   * <code>sfutils.projectIDCache.ttl</code> (milliseconds) system
+   * properties.  This field is never <code>null</code> and is thread-safe.
+   */
+  private static final BoundedCache PROJECT_ID_CACHE =
+    new BoundedCache(Integer.getInteger("sfutils.projectIDCache.size",
+                                        DEFAULT_PROJECT_ID_CACHE_SIZE).intValue(),
+                     Long.getLong("sfutils.projectIDCache.ttl",
+                                  DEFAULT_PROJECT_ID_TIME_TO_LIVE).longValue());
+
+  /**
+   * The number of milliseconds a project is remembered not to exist by
+   * default: ten minutes, short enough that a newly registered project is
+   * soon found.
+   */
+  public static final long DEFAULT_NO_SUCH_PROJECT_TIME_TO_LIVE = 10L * 60L * 1000L;
+
+  /**
+   * A {@link BoundedCache} of the lowercased short names of projects found
+   * not to exist, so that repeated lookups fail without fetching a page.
+   * Its time to live may be set with the
+   * <code>sfutils.projectIDCache.negativeTtl</code> (milliseconds) system
+   * property.  This field is never <code>null</code> and is thread-safe.
+   */
+  private static final BoundedCache NO_SUCH_PROJECT_CACHE =
+    new BoundedCache(Integer.getInteger("sfutils.projectIDCache.size",
+                                        DEFAULT_PROJECT_ID_CACHE_SIZE).intValue(),
+                     Long.getLong("sfutils.projectIDCache.negativeTtl",
+                                  DEFAULT_NO_SUCH_PROJECT_TIME_TO_LIVE).longValue());
+
+  /**
+   * The number of consecutive {@link SourceForgeUIChangeException}s after
+   * which project lookups fail fast by default.
+   */
+  public static final int DEFAULT_UI_CHANGE_THRESHOLD = 3;
+
+  /**
+   * The number of milliseconds project lookups fail fast for by default once
+   * the {@linkplain #getUIChangeCircuitBreaker() circuit breaker} has
+   * tripped: five minutes.
+   */
+  public static final long DEFAULT_UI_CHANGE_COOLDOWN = 5L * 60L * 1000L;
+
+  /**
+   * The {@link CircuitBreaker} that trips when summary pages keep failing to
+   * look as expected.  Its threshold and cooldown may be set with the
+   * <code>sfutils.uiChangeBreaker.threshold</code> and
+   * <code>sfutils.uiChangeBreaker.cooldown</code> (milliseconds) system
+   * properties.  This field is never <code>null</code>.
+   */
+  private static final CircuitBreaker UI_CHANGE_BREAKER =
+    new CircuitBreaker(Integer.getInteger("sfutils.uiChangeBreaker.threshold",
+                                          DEFAULT_UI_CHANGE_THRESHOLD).intValue(),
+                       Long.getLong("sfutils.uiChangeBreaker.cooldown",
+                                    DEFAULT_UI_CHANGE_COOLDOWN).longValue());
+
+  /**
+   * The {@link ProjectIDLoader} used by {@link #getProjectID(String)}, which
+   * starts a new {@link WebConversation} for each project it scrapes.  This
+   * field is never <code>null</code>.
+   */
+  private static final BoundedCache.Loader PROJECT_ID_LOADER =
+    new ProjectIDLoader(null);
+
+  /**
+   * The number of projects {@link #getProjectIDs(Collection)} resolves at
+   * once.
+   */
+  public static final int DEFAULT_RESOLUTION_PARALLELISM = 8;
+
+  /**
+   * The number used to name threads started by {@link
+   * #getProjectIDs(Collection, int)}.
+   */
+  private static final AtomicInteger RESOLVER_THREAD_NUMBER =
+    new AtomicInteger();
 
   /**
    * Throws an {@link UnsupportedOperationException} when invoked.
@@ -89,7 +173,10 @@ public final class SourceForge {
 
   /**
    * Returns the <a href="http://sourceforge.net/">SourceForge</a> project
-   * identifier given a project short name.  This method may return
+   * identifier given a project short name.  Concurrent calls for the same
+   * uncached project share a single lookup and its outcome.  A project found
+   * not to exist is remembered for a while, and lookups fail fast while
+   * summary pages keep not looking as expected.  This method may return
    * <code>null</code>.
    *
    * @param      projectShortName
@@ -107,12 +194,218 @@ public final class SourceForge {
     if (projectShortName == null) {
       return null;
     }
-    String projectID = (String)PROJECT_ID_MAP.get(projectShortName);
-    if (projectID != null) {
-      return projectID;
+    return (String)PROJECT_ID_CACHE.get(projectShortName.trim().toLowerCase(),
+                                        PROJECT_ID_LOADER);
+  }
+
+  /**
+   * Resolves the identifiers of all the projects with the supplied short
+   * names, up to {@link #DEFAULT_RESOLUTION_PARALLELISM} at a time.  This
+   * method never returns <code>null</code>.
+   *
+   * @param      projectShortNames
+   *               the short names of the projects whose identifiers should be
+   *               returned; must not be <code>null</code>
+   * @return     the {@link ProjectIDResolution}; never <code>null</code>
+   * @exception  SourceForgeException
+   *               if the calling thread is interrupted
+   * @see        #getProjectIDs(Collection, int)
+   */
+  public static final ProjectIDResolution getProjectIDs(final Collection projectShortNames)
+    throws SourceForgeException {
+    return getProjectIDs(projectShortNames, DEFAULT_RESOLUTION_PARALLELISM);
+  }
+
+  /**
+   * Resolves the identifiers of all the projects with the supplied short
+   * names, up to <code>parallelism</code> at a time.  Each worker thread
+   * keeps one {@link WebConversation} for all the projects it scrapes, and
+   * every request is still governed by the {@linkplain
+   * AdaptiveLimiter#getShared() shared} {@link AdaptiveLimiter}.  Lookups go
+   * through the same cache and {@link MetadataStore} as {@link
+   * #getProjectID(String)}, so known projects cost nothing and duplicate
+   * names are resolved once.  A project that cannot be resolved does not
+   * stop the others; its exception is reported in the result instead.  This
+   * method never returns <code>null</code>.
+   *
+   * @param      projectShortNames
+   *               the short names of the projects whose identifiers should be
+   *               returned; must not be <code>null</code>; <code>null</code>
+   *               elements are ignored
+   * @param      parallelism
+   *               the greatest number of projects to resolve at once; must be
+   *               positive
+   * @return     the {@link ProjectIDResolution}; never <code>null</code>
+   * @exception  SourceForgeException
+   *               if the calling thread is interrupted
+   */
+  public static final ProjectIDResolution getProjectIDs(final Collection projectShortNames,
+                                                        final int parallelism)
+    throws SourceForgeException {
+    if (projectShortNames == null) {
+      throw new IllegalArgumentException("null projectShortNames");
+    }
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("parallelism <= 0: " + parallelism);
+    }
+    final Queue pending = new ConcurrentLinkedQueue();
+    final Iterator iterator = new LinkedHashSet(projectShortNames).iterator();
+    Object name;
+    while (iterator.hasNext()) {
+      name = iterator.next();
+      if (name != null) {
+        pending.add(name);
+      }
+    }
+    final Map projectIDs = new ConcurrentHashMap();
+    final Map failures = new ConcurrentHashMap();
+    final int workerCount = Math.min(parallelism, pending.size());
+    if (workerCount == 0) {
+      return new ProjectIDResolution(projectIDs, failures);
     }
+    final ExecutorService executor =
+      Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+          public Thread newThread(final Runnable runnable) {
+            final Thread thread =
+              new Thread(runnable, "sfutils-resolver-" +
+                         RESOLVER_THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    try {
+      for (int i = 0; i < workerCount; i++) {
+        executor.execute(new Runnable() {
+            public void run() {
+              final BoundedCache.Loader loader =
+                new ProjectIDLoader(new LimitedWebConversation());
+              String projectShortName;
+              while ((projectShortName = (String)pending.poll()) != null) {
+                try {
+                  final Object projectID =
+                    PROJECT_ID_CACHE.get(projectShortName.trim().toLowerCase(),
+                                         loader);
+                  if (projectID != null) {
+                    projectIDs.put(projectShortName, projectID);
+                  }
+                } catch (final SourceForgeException kaboom) {
+                  failures.put(projectShortName, kaboom);
+                } catch (final RuntimeException kaboom) {
+                  failures.put(projectShortName,
+                               new SourceForgeException(kaboom));
+                }
+              }
+            }
+          });
+      }
+      executor.shutdown();
+      while (!executor.awaitTermination(1L, TimeUnit.SECONDS)) {
+        // keep waiting
+      }
+    } catch (final InterruptedException kaboom) {
+      Thread.currentThread().interrupt();
+      throw new SourceForgeException(kaboom);
+    } finally {
+      executor.shutdownNow();
+    }
+    return new ProjectIDResolution(projectIDs, failures);
+  }
+
+  /**
+   * Returns <code>true</code> if {@link #getProjectID(String)} would answer
+   * for the project with the supplied short name without scraping its
+   * summary page: that is, if its identifier is cached in memory or stored
+   * in the {@linkplain MetadataStore#getDefault() default} {@link
+   * MetadataStore}.
+   *
+   * @param      projectShortName
+   *               the short name of the project; may be <code>null</code>,
+   *               in which case <code>true</code> is returned
+   * @return     <code>true</code> if no summary page need be fetched
+   */
+  public static final boolean isProjectIDKnown(final String projectShortName) {
+    if (projectShortName == null) {
+      return true;
+    }
+    final String key = projectShortName.trim().toLowerCase();
+    return PROJECT_ID_CACHE.containsKey(key) ||
+      MetadataStore.getDefault().getProjectID(key) != null;
+  }
+
+  /**
+   * Forgets the identifier of the project with the supplied short name, or
+   * that it does not exist, both in memory and in the {@linkplain
+   * MetadataStore#getDefault() default} {@link MetadataStore}, so that the next call to {@link
+   * #getProjectID(String)} scrapes it afresh.  Callers that find an
+   * identifier to be wrong when they use it should call this method.
+   *
+   * @param      projectShortName
+   *               the short name of the project; may be <code>null</code>
+   */
+  public static final void invalidateProjectID(final String projectShortName) {
+    if (projectShortName != null) {
+      final String key = projectShortName.trim().toLowerCase();
+      PROJECT_ID_CACHE.remove(key);
+      NO_SUCH_PROJECT_CACHE.remove(key);
+      MetadataStore.getDefault().removeProjectID(key);
+    }
+  }
+
+  /**
+   * Returns a snapshot of the statistics of the cache consulted by {@link
+   * #getProjectID(String)}.  This method never returns <code>null</code>.
+   *
+   * @return     the project identifier cache's {@link CacheStatistics}; never
+   *               <code>null</code>
+   */
+  public static final CacheStatistics getProjectIDCacheStatistics() {
+    return PROJECT_ID_CACHE.getStatistics();
+  }
+
+  /**
+   * Empties the caches of known and unknown projects consulted by {@link
+   * #getProjectID(String)}, so that the next lookup of each project goes to <a
+   * href="http://sourceforge.net/">SourceForge</a> again.
+   */
+  public static final void clearProjectIDCache() {
+    PROJECT_ID_CACHE.clear();
+    NO_SUCH_PROJECT_CACHE.clear();
+  }
+
+  /**
+   * Returns the {@link CircuitBreaker} that makes project lookups fail fast,
+   * with a {@link SourceForgeUIChangeException}, once several summary pages
+   * in a row have not looked as expected.  Callers that know the site is
+   * back to normal may {@linkplain CircuitBreaker#reset() reset} it.  This
+   * method never returns <code>null</code>.
+   *
+   * @return     the {@link CircuitBreaker}; never <code>null</code>
+   */
+  public static final CircuitBreaker getUIChangeCircuitBreaker() {
+    return UI_CHANGE_BREAKER;
+  }
+
+  /**
+   * Scrapes the identifier of the project with the supplied short name from
+   * its summary page.  This method is called on a cache miss and never
+   * returns <code>null</code>.
+   *
+   * @param      webConversation
+   *               the {@link WebConversation} to use; must not be
+   *               <code>null</code>
+   * @param      projectShortName
+   *               the short name of the project; must not be
+   *               <code>null</code>
+   * @return     the project identifier; never <code>null</code>
+   * @exception  NoSuchProjectException
+   *               if there is no such project
+   * @exception  SourceForgeException
+   *               if an error occurs
+   */
+  private static final String fetchProjectID(final WebConversation webConversation,
+                                             final String projectShortName)
+    throws SourceForgeException {
     try {
-      final WebConversation webConversation = new WebConversation();
       final WebResponse summaryPage = 
         webConversation.getResponse(new GetMethodWebRequest(PROJECT_PREFIX +
                                                             projectShortName));
@@ -134,9 +427,7 @@ public final class SourceForge {
       if (groupIDIndex < 0) {
         throw new SourceForgeUIChangeException();
       }
-      projectID = linkText.substring(groupIDIndex + "?group_id=".length());
-      PROJECT_ID_MAP.put(projectShortName, projectID);
-      return projectID;
+      return linkText.substring(groupIDIndex + "?group_id=".length());
     } catch (final IOException kaboom) {
       throw new SourceForgeException(kaboom);
     } catch (final SAXException kaboom) {
@@ -144,4 +435,79 @@ public final class SourceForge {
     }
   }
 
+  /**
+   * The {@link BoundedCache.Loader} that fills the project identifier cache:
+   * from the {@linkplain MetadataStore#getDefault() default} {@link
+   * MetadataStore} if it knows the project, and otherwise by scraping the
+   * project's summary page and recording the result there.  Projects
+   * recently found not to exist, and every project while the {@linkplain
+   * #getUIChangeCircuitBreaker() circuit breaker} is open, fail without a
+   * fetch.
+   */
+  private static final class ProjectIDLoader implements BoundedCache.Loader {
+
+    /**
+     * The {@link WebConversation} to scrape with, or <code>null</code> to
+     * start a new one for each project.  Since a {@link WebConversation} is
+     * not thread-safe, a {@link ProjectIDLoader} that has one must be used
+     * by one thread only.
+     */
+    private final WebConversation webConversation;
+
+    /**
+     * Creates a new {@link ProjectIDLoader}.
+     *
+     * @param      webConversation
+     *               the {@link WebConversation} to scrape with; may be
+     *               <code>null</code>
+     */
+    ProjectIDLoader(final WebConversation webConversation) {
+      super();
+      this.webConversation = webConversation;
+    }
+
+    public Object load(final Object key) throws SourceForgeException {
+      final String projectShortName = (String)key;
+      final MetadataStore store = MetadataStore.getDefault();
+      String projectID = store.getProjectID(projectShortName);
+      if (projectID != null) {
+        return projectID;
+      }
+      if (NO_SUCH_PROJECT_CACHE.get(projectShortName) != null) {
+        throw new NoSuchProjectException(projectShortName);
+      }
+      if (!UI_CHANGE_BREAKER.allowRequest()) {
+        throw new SourceForgeUIChangeException("Not looking up " +
+                                               projectShortName +
+                                               "; recent summary pages were " +
+                                               "not as expected");
+      }
+      WebConversation conversation = this.webConversation;
+      if (conversation == null) {
+        conversation = new LimitedWebConversation();
+      }
+      try {
+        projectID = fetchProjectID(conversation, projectShortName);
+      } catch (final NoSuchProjectException kaboom) {
+        // The page was understood; the project just is not there.
+        UI_CHANGE_BREAKER.recordSuccess();
+        NO_SUCH_PROJECT_CACHE.put(projectShortName, Boolean.TRUE);
+        throw kaboom;
+      } catch (final SourceForgeUIChangeException kaboom) {
+        UI_CHANGE_BREAKER.recordFailure();
+        throw kaboom;
+      } catch (final SourceForgeException kaboom) {
+        UI_CHANGE_BREAKER.recordIgnored();
+        throw kaboom;
+      } catch (final RuntimeException kaboom) {
+        UI_CHANGE_BREAKER.recordIgnored();
+        throw kaboom;
+      }
+      UI_CHANGE_BREAKER.recordSuccess();
+      store.putProjectID(projectShortName, projectID);
+      return projectID;
+    }
+
+  }
+
 }
@@ -44,4 +44,14 @@ public class SourceForgeUIChangeException extends SourceForgeException {
     super();
   }
 
+  /**
+   * Creates a new {@link SourceForgeUIChangeException}.
+   *
+   * @param      message
+   *               a message describing the problem; may be <code>null</code>
+   */
+  public SourceForgeUIChangeException(final String message) {
+    super(message);
+  }
+
 }
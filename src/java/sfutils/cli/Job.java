@@ -0,0 +1,646 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import sfutils.AdaptiveLimiter;
+import sfutils.Administrator;
+import sfutils.MetadataStore;
+import sfutils.Project;
+
+import sfutils.frs.FileRelease;
+import sfutils.frs.FileSpecification;
+import sfutils.frs.Package;
+import sfutils.frs.Publisher;
+import sfutils.frs.PublishingCoordinator;
+import sfutils.frs.PublishingException;
+import sfutils.frs.ReleaseManifest;
+
+import sfutils.frs.web.HttpUnitPublisher;
+import sfutils.frs.web.IncrementalPublisher;
+import sfutils.frs.web.SharedSessions;
+
+/**
+ * One invocation of the command line publisher: the {@link FileRelease}s to
+ * publish, read from {@linkplain ReleaseManifest manifests} or described by
+ * arguments, and the options that govern publishing them.  A {@link Job} is
+ * {@linkplain #parse(String[]) parsed} from the same arguments whether it
+ * comes from the command line or from a line read by a resident {@link
+ * Main}.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        Main
+ */
+final class Job {
+
+  /**
+   * The name of the environment variable consulted for a password when no
+   * other source is given.
+   */
+  static final String PASSWORD_VARIABLE = "SFUTILS_PASSWORD";
+
+  /**
+   * The options that take a value.
+   */
+  private static final List VALUE_OPTIONS =
+    Arrays.asList(new String[] {
+      "--manifest", "--project", "--project-name", "--package", "--release",
+      "--user", "--password-env", "--password-file", "--fingerprints",
+      "--site", "--upload-host", "--threads"
+    });
+
+  /**
+   * The manifest {@link File}s.  This field is never <code>null</code>.
+   */
+  private final List manifests;
+
+  /**
+   * The {@link File}s of the release described by arguments.  This field is
+   * never <code>null</code>.
+   */
+  private final List files;
+
+  /**
+   * The short name of the project of the release described by arguments.
+   */
+  private String projectShortName;
+
+  /**
+   * The name of the project of the release described by arguments.
+   */
+  private String projectName;
+
+  /**
+   * The name of the package of the release described by arguments.
+   */
+  private String packageName;
+
+  /**
+   * The name of the release described by arguments.
+   */
+  private String releaseName;
+
+  /**
+   * Whether the release described by arguments is hidden.
+   */
+  private boolean hidden;
+
+  /**
+   * The user name given to projects whose manifests name no administrator.
+   */
+  private String userName;
+
+  /**
+   * The name of the environment variable holding the password.
+   */
+  private String passwordVariable;
+
+  /**
+   * The {@link File} whose first line is the password.
+   */
+  private File passwordFile;
+
+  /**
+   * The maximum number of releases published at once.
+   */
+  private int threads;
+
+  /**
+   * Whether unchanged releases are published too.
+   */
+  private boolean force;
+
+  /**
+   * The {@link File} in which fingerprints are kept, or <code>null</code>
+   * for the default {@link MetadataStore}.
+   */
+  private File fingerprintFile;
+
+  /**
+   * Whether only a {@linkplain HttpUnitPublisher#plan(FileRelease) plan} is
+   * reported.
+   */
+  private boolean plan;
+
+  /**
+   * Whether the releases are only loaded and checked, without any network
+   * access.
+   */
+  private boolean check;
+
+  /**
+   * Whether web steps are enabled.
+   */
+  private boolean webSteps;
+
+  /**
+   * The site URL, or <code>null</code> for the default.
+   */
+  private String siteURL;
+
+  /**
+   * The upload host, or <code>null</code> for the default.
+   */
+  private String uploadHost;
+
+  /**
+   * Whether startup timings are reported.
+   */
+  private boolean timing;
+
+  /**
+   * The time at which this {@link Job} was about to make its first request,
+   * in milliseconds since the epoch, or <code>0</code> if it has not.
+   * Guarded by <code>this</code>.
+   */
+  private long firstRequestMillis;
+
+  /**
+   * Creates a new {@link Job} with default options.
+   */
+  private Job() {
+    super();
+    this.manifests = new ArrayList();
+    this.files = new ArrayList();
+    this.threads = 1;
+  }
+
+  /**
+   * Parses a {@link Job} from the supplied arguments.  See {@link
+   * Main#USAGE} for their syntax.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      args
+   *               the arguments; must not be <code>null</code>
+   * @return     a new {@link Job}; never <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if the arguments are malformed
+   */
+  static Job parse(final String[] args) throws IllegalArgumentException {
+    if (args == null) {
+      throw new IllegalArgumentException("null args");
+    }
+    final Job job = new Job();
+    for (int i = 0; i < args.length; i++) {
+      final String arg = args[i];
+      if (!arg.startsWith("--")) {
+        if (job.releaseName == null) {
+          job.manifests.add(new File(arg));
+        } else {
+          job.files.add(new File(arg));
+        }
+      } else if ("--check".equals(arg)) {
+        job.check = true;
+      } else if ("--plan".equals(arg)) {
+        job.plan = true;
+      } else if ("--force".equals(arg)) {
+        job.force = true;
+      } else if ("--web-steps".equals(arg)) {
+        job.webSteps = true;
+      } else if ("--timing".equals(arg)) {
+        job.timing = true;
+      } else if ("--hidden".equals(arg)) {
+        job.hidden = true;
+      } else if (!VALUE_OPTIONS.contains(arg)) {
+        throw new IllegalArgumentException("Unknown option: " + arg);
+      } else if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("Missing value for " + arg);
+      } else {
+        final String value = args[++i];
+        if ("--manifest".equals(arg)) {
+          job.manifests.add(new File(value));
+        } else if ("--project".equals(arg)) {
+          job.projectShortName = value;
+        } else if ("--project-name".equals(arg)) {
+          job.projectName = value;
+        } else if ("--package".equals(arg)) {
+          job.packageName = value;
+        } else if ("--release".equals(arg)) {
+          job.releaseName = value;
+        } else if ("--user".equals(arg)) {
+          job.userName = value;
+        } else if ("--password-env".equals(arg)) {
+          job.passwordVariable = value;
+        } else if ("--password-file".equals(arg)) {
+          job.passwordFile = new File(value);
+        } else if ("--fingerprints".equals(arg)) {
+          job.fingerprintFile = new File(value);
+        } else if ("--site".equals(arg)) {
+          job.siteURL = value;
+        } else if ("--upload-host".equals(arg)) {
+          job.uploadHost = value;
+        } else {
+          assert "--threads".equals(arg);
+          try {
+            job.threads = Integer.parseInt(value);
+          } catch (final NumberFormatException kaboom) {
+            throw new IllegalArgumentException("Not a number: " + value);
+          }
+          if (job.threads <= 0) {
+            throw new IllegalArgumentException("--threads must be positive: " +
+                                               value);
+          }
+        }
+      }
+    }
+    if (job.releaseName != null) {
+      if (job.projectShortName == null || job.packageName == null) {
+        throw new IllegalArgumentException("--release needs --project and --package");
+      }
+      if (job.files.isEmpty()) {
+        throw new IllegalArgumentException("--release needs at least one file");
+      }
+    } else if (job.manifests.isEmpty()) {
+      throw new IllegalArgumentException("Nothing to publish");
+    }
+    if (job.plan && job.check) {
+      throw new IllegalArgumentException("--plan and --check are exclusive");
+    }
+    return job;
+  }
+
+  /**
+   * Returns whether startup timings are reported for this {@link Job}.
+   *
+   * @return     <code>true</code> if timings are reported
+   */
+  boolean isTiming() {
+    return this.timing;
+  }
+
+  /**
+   * Returns the time at which this {@link Job} was about to make its first
+   * request, or, if it only {@linkplain #parse(String[]) checks} its
+   * releases, had finished checking them.
+   *
+   * @return     the time in milliseconds since the epoch, or <code>0</code>
+   *               if the {@link Job} never got that far
+   */
+  synchronized long getFirstRequestMillis() {
+    return this.firstRequestMillis;
+  }
+
+  /**
+   * Records the current time as the time of the first request, unless one
+   * has been recorded already.
+   */
+  private synchronized void markFirstRequest() {
+    if (this.firstRequestMillis == 0L) {
+      this.firstRequestMillis = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Returns a new {@link AdaptiveLimiter} that {@linkplain
+   * #getFirstRequestMillis() records} when the first permit is acquired.
+   * This method never returns <code>null</code>.
+   *
+   * @return     a new {@link AdaptiveLimiter}; never <code>null</code>
+   */
+  private AdaptiveLimiter createTimingLimiter() {
+    return new AdaptiveLimiter() {
+        public void acquire() throws InterruptedException {
+          markFirstRequest();
+          super.acquire();
+        }
+      };
+  }
+
+  /**
+   * Runs this {@link Job}, writing one line per {@link FileRelease} to the
+   * supplied {@link PrintWriter}.
+   *
+   * @param      main
+   *               the {@link Main} running this {@link Job}, whose
+   *               metadata stores, and sessions for the same credentials,
+   *               it shares; must not be <code>null</code>
+   * @param      out
+   *               the {@link PrintWriter} to report to; must not be
+   *               <code>null</code>
+   * @return     {@link Main#EXIT_OK} or {@link Main#EXIT_FAILED}
+   * @exception  PublishingException
+   *               if the {@link FileRelease}s could not be loaded
+   * @exception  IOException
+   *               if a manifest or password file could not be read
+   * @exception  InterruptedException
+   *               if the calling thread is interrupted while publishing
+   */
+  int run(final Main main, final PrintWriter out)
+    throws PublishingException, IOException, InterruptedException {
+    final FileRelease[] releases = this.load();
+    if (this.check) {
+      int fileCount = 0;
+      for (int i = 0; i < releases.length; i++) {
+        fileCount += releases[i].getFileSpecificationCount();
+        out.println("Checked " + describe(releases[i]) + ": " +
+                    releases[i].getFileSpecificationCount() + " files");
+      }
+      out.println("Checked " + releases.length + " releases, " + fileCount +
+                  " files");
+      this.markFirstRequest();
+      return Main.EXIT_OK;
+    }
+
+    final HttpUnitPublisher publisher = new HttpUnitPublisher();
+    publisher.setSharedSessions(main.getSharedSessions(getCredentials(releases)));
+    publisher.setWebStepsEnabled(this.webSteps);
+    if (this.siteURL != null) {
+      publisher.setSiteURL(this.siteURL);
+    }
+    if (this.uploadHost != null) {
+      publisher.setUploadHost(this.uploadHost);
+    }
+    if (this.timing) {
+      // Limiters of its own notice the first request, whether it is made
+      // over HTTP or SFTP.
+      publisher.setLimiter(this.createTimingLimiter());
+      publisher.setSftpLimiter(this.createTimingLimiter());
+    }
+    if (this.plan) {
+      for (int i = 0; i < releases.length; i++) {
+        out.println(publisher.plan(releases[i]));
+      }
+      return Main.EXIT_OK;
+    }
+
+    final MetadataStore fingerprints;
+    if (this.fingerprintFile == null) {
+      fingerprints = null;
+    } else {
+      fingerprints = main.getMetadataStore(this.fingerprintFile);
+    }
+    final IncrementalPublisher incrementalPublisher =
+      new IncrementalPublisher(publisher, fingerprints, this.force);
+    if (releases.length == 1) {
+      out.println(describe(incrementalPublisher.publishIfChanged(releases[0]),
+                           releases[0]));
+      return Main.EXIT_OK;
+    }
+
+    final Map outcomes = Collections.synchronizedMap(new IdentityHashMap());
+    final Publisher recorder = new Publisher() {
+        public void publish(final FileRelease release)
+          throws PublishingException {
+          outcomes.put(release,
+                       new Integer(incrementalPublisher.publishIfChanged(release)));
+        }
+      };
+    final PublishingCoordinator coordinator =
+      new PublishingCoordinator(recorder,
+                                Math.min(this.threads, releases.length),
+                                PublishingCoordinator.DEFAULT_STRIPE_COUNT,
+                                this.webSteps);
+    final PublishingException[] failures;
+    try {
+      failures = coordinator.publishAll(releases);
+    } finally {
+      coordinator.shutDown(0L);
+    }
+    int failureCount = 0;
+    for (int i = 0; i < failures.length; i++) {
+      if (failures[i] == null) {
+        out.println(describe(((Integer)outcomes.get(releases[i])).intValue(),
+                             releases[i]));
+      } else {
+        failureCount++;
+        out.println("Failed to publish " + describe(releases[i]) + ": " +
+                    failures[i]);
+      }
+    }
+    if (failureCount > 0) {
+      out.println(failureCount + " of " + releases.length +
+                  " releases could not be published");
+      return Main.EXIT_FAILED;
+    }
+    return Main.EXIT_OK;
+  }
+
+  /**
+   * Loads the {@link FileRelease}s this {@link Job} describes and supplies
+   * credentials to their {@link Project}s.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     the {@link FileRelease}s; never <code>null</code>
+   * @exception  PublishingException
+   *               if a manifest is malformed or a {@link FileRelease} is
+   *               incomplete
+   * @exception  IOException
+   *               if a manifest or password file could not be read
+   */
+  FileRelease[] load() throws PublishingException, IOException {
+    final List releases = new ArrayList();
+    final Iterator manifestFiles = this.manifests.iterator();
+    while (manifestFiles.hasNext()) {
+      final InputStream in = new FileInputStream((File)manifestFiles.next());
+      try {
+        releases.addAll(ReleaseManifest.readAll(in));
+      } finally {
+        in.close();
+      }
+    }
+    if (this.releaseName != null) {
+      final Project project = new Project();
+      project.setShortName(this.projectShortName);
+      project.setName(this.projectName == null ?
+                      this.projectShortName : this.projectName);
+      final Package pkg = new Package(project, this.packageName);
+      final FileRelease release = new FileRelease(pkg, this.releaseName);
+      release.setHidden(this.hidden);
+      final FileSpecification[] specs = new FileSpecification[this.files.size()];
+      try {
+        for (int i = 0; i < specs.length; i++) {
+          specs[i] = new FileSpecification((File)this.files.get(i));
+        }
+      } catch (final IllegalArgumentException kaboom) {
+        throw new PublishingException(kaboom.getMessage());
+      }
+      release.setFileSpecifications(specs);
+      releases.add(release);
+    }
+
+    String password = null;
+    for (int i = 0; i < releases.size(); i++) {
+      final FileRelease release = (FileRelease)releases.get(i);
+      final Package pkg = release.getPackage();
+      if (pkg == null || pkg.getProject() == null || release.getName() == null) {
+        throw new PublishingException("Incomplete release: " + release);
+      }
+      final Project project = pkg.getProject();
+      Administrator admin = project.getAdministrator();
+      if (admin == null) {
+        if (this.userName == null) {
+          throw new PublishingException("No user for project " +
+                                        project.getShortName() +
+                                        "; use --user");
+        }
+        admin = new Administrator();
+        admin.setName(this.userName);
+        project.setAdministrator(admin);
+      }
+      if (!this.check && !hasPassword(admin)) {
+        if (password == null) {
+          password = this.readPassword();
+        }
+        admin.setPassword(password);
+      }
+    }
+    return (FileRelease[])releases.toArray(new FileRelease[releases.size()]);
+  }
+
+  /**
+   * Returns the {@linkplain SharedSessions#credentialsKey(String, String)
+   * credentials keys} of the {@link Administrator}s of the supplied {@link
+   * FileRelease}s' {@link Project}s, in order and without duplicates, one
+   * per line.  Jobs with equal credentials share their sessions.  This
+   * method never returns <code>null</code>.
+   *
+   * @param      releases
+   *               the {@link FileRelease}s, as {@linkplain #load() loaded};
+   *               must not be <code>null</code>
+   * @return     the credentials; never <code>null</code>
+   */
+  static String getCredentials(final FileRelease[] releases) {
+    final SortedSet keys = new TreeSet();
+    for (int i = 0; i < releases.length; i++) {
+      final Administrator admin =
+        releases[i].getPackage().getProject().getAdministrator();
+      keys.add(SharedSessions.credentialsKey(admin.getName(),
+                                             admin.getPassword()));
+    }
+    final StringBuffer credentials = new StringBuffer();
+    final Iterator iterator = keys.iterator();
+    while (iterator.hasNext()) {
+      credentials.append(iterator.next()).append('\n');
+    }
+    return credentials.toString();
+  }
+
+  /**
+   * Returns whether the supplied {@link Administrator} has a password.
+   *
+   * @param      admin
+   *               the {@link Administrator}; must not be <code>null</code>
+   * @return     <code>true</code> if a password has been set
+   */
+  private static boolean hasPassword(final Administrator admin) {
+    try {
+      return admin.getPassword() != null;
+    } catch (final IllegalStateException noPassword) {
+      return false;
+    }
+  }
+
+  /**
+   * Reads the password from the file or environment variable named by the
+   * options, or else from the {@link #PASSWORD_VARIABLE} environment
+   * variable.  This method never returns <code>null</code>.
+   *
+   * @return     the password; never <code>null</code>
+   * @exception  PublishingException
+   *               if no password can be found
+   * @exception  IOException
+   *               if the password file could not be read
+   */
+  private String readPassword() throws PublishingException, IOException {
+    String password = null;
+    if (this.passwordFile != null) {
+      final BufferedReader reader =
+        new BufferedReader(new FileReader(this.passwordFile));
+      try {
+        password = reader.readLine();
+      } finally {
+        reader.close();
+      }
+    } else {
+      password = System.getenv(this.passwordVariable == null ?
+                               PASSWORD_VARIABLE : this.passwordVariable);
+    }
+    if (password == null) {
+      throw new PublishingException("No password; use --password-file, " +
+                                    "--password-env or " + PASSWORD_VARIABLE);
+    }
+    return password;
+  }
+
+  /**
+   * Returns a message describing the supplied {@linkplain
+   * IncrementalPublisher#publishIfChanged(FileRelease) outcome} of
+   * publishing the supplied {@link FileRelease}.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      outcome
+   *               the outcome
+   * @param      release
+   *               the {@link FileRelease}; must not be <code>null</code>
+   * @return     a message; never <code>null</code>
+   */
+  private static String describe(final int outcome,
+                                 final FileRelease release) {
+    switch (outcome) {
+    case IncrementalPublisher.UP_TO_DATE:
+      return describe(release) + " is up to date";
+    case IncrementalPublisher.PARTIAL:
+      return "Uploaded changed files of " + describe(release);
+    default:
+      return "Published " + describe(release);
+    }
+  }
+
+  /**
+   * Returns a short description of the supplied {@link FileRelease}: its
+   * name and its package's name.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      release
+   *               the {@link FileRelease}; must not be <code>null</code>
+   * @return     a description; never <code>null</code>
+   */
+  private static String describe(final FileRelease release) {
+    return release.getName() + " (package " +
+      release.getPackage().getName() + ")";
+  }
+
+}
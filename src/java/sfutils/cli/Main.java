@@ -0,0 +1,462 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+
+import java.lang.management.ManagementFactory;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import sfutils.MetadataStore;
+
+import sfutils.frs.PublishingException;
+
+import sfutils.frs.web.SharedSessions;
+
+/**
+ * Publishes {@link sfutils.frs.FileRelease}s from the command line, from
+ * {@linkplain sfutils.frs.ReleaseManifest manifests} or from arguments,
+ * either once or as a resident process that runs one job per line read
+ * from its standard input or from local socket connections.  A resident
+ * process pays for starting the JVM and loading the web classes once, and
+ * shares logins and SFTP sessions between jobs run with the same
+ * credentials.  Run it with no arguments
+ * for a summary of its options.
+ *
+ * <p>A resident process answers each job line with the job's output
+ * followed by a line reading <code>OK</code>, <code>FAILED</code> or
+ * <code>ERROR</code> and a reason.  A line reading <code>quit</code> ends
+ * the conversation.  Arguments on a job line are separated by whitespace
+ * and may be enclosed in double quotes.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public final class Main {
+
+  /**
+   * The exit status of a job that succeeded.
+   */
+  public static final int EXIT_OK = 0;
+
+  /**
+   * The exit status of a job some of whose releases could not be published.
+   */
+  public static final int EXIT_FAILED = 1;
+
+  /**
+   * The exit status of a job whose arguments were malformed.
+   */
+  public static final int EXIT_USAGE = 2;
+
+  /**
+   * A summary of the command line syntax.
+   */
+  static final String USAGE =
+    "usage: sfpublish [options] manifest...\n" +
+    "       sfpublish [options] --project NAME --package NAME --release NAME file...\n" +
+    "       sfpublish --resident | --listen PORT\n" +
+    "\n" +
+    "  --manifest FILE       a JSON or binary release manifest\n" +
+    "  --project NAME        the project short name of the release to publish\n" +
+    "  --project-name NAME   its long name (default: the short name)\n" +
+    "  --package NAME        its package\n" +
+    "  --release NAME        its name; later arguments are its files\n" +
+    "  --hidden              hide it\n" +
+    "  --user NAME           the user for projects whose manifest names none\n" +
+    "  --password-file FILE  read the password from the first line of FILE\n" +
+    "  --password-env VAR    read the password from VAR (default: " +
+    Job.PASSWORD_VARIABLE + ")\n" +
+    "  --threads N           publish up to N releases at once (default: 1)\n" +
+    "  --fingerprints FILE   where to record what was published\n" +
+    "  --force               publish even unchanged releases\n" +
+    "  --web-steps           drive the file release web pages too\n" +
+    "  --site URL            the site to publish to\n" +
+    "  --upload-host HOST    the host to upload to\n" +
+    "  --plan                report what publishing would do\n" +
+    "  --check               only load and check the releases\n" +
+    "  --timing              report the time taken to reach the first request\n" +
+    "                        (the job then gets a request limiter of its own)\n" +
+    "  --resident            run one job per line of standard input\n" +
+    "  --listen PORT         run one job per line of each local connection\n";
+
+  /**
+   * The {@link SharedSessions} opened so far, indexed by the credentials of
+   * the jobs that share them, so that a job never reuses a session opened
+   * for different credentials.  Guarded by itself.  This field is never
+   * <code>null</code>.
+   */
+  private final Map sessions;
+
+  /**
+   * The {@link MetadataStore}s opened so far, indexed by absolute path, so
+   * that concurrent jobs share one per file.  Guarded by itself.  This
+   * field is never <code>null</code>.
+   */
+  private final Map metadataStores;
+
+  /**
+   * Creates a new {@link Main}.
+   */
+  Main() {
+    super();
+    this.sessions = new HashMap();
+    this.metadataStores = new HashMap();
+  }
+
+  /**
+   * Runs the command line publisher and exits with the status of the job.
+   *
+   * @param      args
+   *               the command line arguments; must not be <code>null</code>
+   */
+  public static void main(final String[] args) {
+    final long mainMillis = System.currentTimeMillis();
+    final Main main = new Main();
+    final int status;
+    try {
+      status = main.run(args, mainMillis, System.in, System.out, System.err);
+    } finally {
+      main.close();
+    }
+    System.exit(status);
+  }
+
+  /**
+   * Returns the {@link SharedSessions} shared by the jobs run with the
+   * supplied credentials, creating them if no such job has run yet.  This
+   * method never returns <code>null</code>.
+   *
+   * @param      credentials
+   *               the {@linkplain SharedSessions#credentialsKey(String,
+   *               String) credentials keys} of a job's {@link
+   *               sfutils.Administrator}s; must not be <code>null</code>
+   * @return     the {@link SharedSessions}; never <code>null</code>
+   */
+  SharedSessions getSharedSessions(final String credentials) {
+    synchronized (this.sessions) {
+      SharedSessions shared = (SharedSessions)this.sessions.get(credentials);
+      if (shared == null) {
+        shared = new SharedSessions();
+        this.sessions.put(credentials, shared);
+      }
+      return shared;
+    }
+  }
+
+  /**
+   * Returns the {@link MetadataStore} kept in the supplied {@link File},
+   * opening it if no job has yet.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      file
+   *               the {@link File}; must not be <code>null</code>
+   * @return     the {@link MetadataStore}; never <code>null</code>
+   */
+  MetadataStore getMetadataStore(final File file) {
+    final String key = file.getAbsolutePath();
+    synchronized (this.metadataStores) {
+      MetadataStore store = (MetadataStore)this.metadataStores.get(key);
+      if (store == null) {
+        store = new MetadataStore(file);
+        this.metadataStores.put(key, store);
+      }
+      return store;
+    }
+  }
+
+  /**
+   * Closes the sessions held for jobs.
+   */
+  void close() {
+    synchronized (this.sessions) {
+      final Iterator iterator = this.sessions.values().iterator();
+      while (iterator.hasNext()) {
+        ((SharedSessions)iterator.next()).close();
+      }
+      this.sessions.clear();
+    }
+  }
+
+  /**
+   * Runs the job described by the supplied arguments, or, given
+   * <code>--resident</code> or <code>--listen</code>, serves jobs until
+   * told to stop.
+   *
+   * @param      args
+   *               the arguments; must not be <code>null</code>
+   * @param      mainMillis
+   *               the time at which {@link #main(String[])} was entered, in
+   *               milliseconds since the epoch
+   * @param      in
+   *               the standard input; must not be <code>null</code>
+   * @param      out
+   *               the standard output; must not be <code>null</code>
+   * @param      err
+   *               the standard error; must not be <code>null</code>
+   * @return     the exit status
+   */
+  int run(final String[] args,
+          final long mainMillis,
+          final InputStream in,
+          final PrintStream out,
+          final PrintStream err) {
+    if (args.length == 1 && "--resident".equals(args[0])) {
+      final PrintWriter writer = new PrintWriter(new OutputStreamWriter(out));
+      try {
+        this.serve(new InputStreamReader(in), writer);
+      } catch (final IOException kaboom) {
+        err.println(kaboom);
+        return EXIT_FAILED;
+      }
+      return EXIT_OK;
+    }
+    if (args.length == 2 && "--listen".equals(args[0])) {
+      try {
+        this.listen(Integer.parseInt(args[1]));
+      } catch (final NumberFormatException kaboom) {
+        err.println("Not a port: " + args[1]);
+        return EXIT_USAGE;
+      } catch (final IOException kaboom) {
+        err.println(kaboom);
+        return EXIT_FAILED;
+      }
+      return EXIT_OK;
+    }
+
+    final Job job;
+    try {
+      job = Job.parse(args);
+    } catch (final IllegalArgumentException kaboom) {
+      if (args.length > 0) {
+        err.println(kaboom.getMessage());
+      }
+      err.print(USAGE);
+      return EXIT_USAGE;
+    }
+    final PrintWriter writer = new PrintWriter(new OutputStreamWriter(out), true);
+    final int status = this.runJob(job, writer);
+    writer.flush();
+    if (job.isTiming() && job.getFirstRequestMillis() != 0L) {
+      final long startMillis =
+        ManagementFactory.getRuntimeMXBean().getStartTime();
+      err.println("Timing: JVM start to main " + (mainMillis - startMillis) +
+                  " ms, main to first request " +
+                  (job.getFirstRequestMillis() - mainMillis) +
+                  " ms, total " +
+                  (job.getFirstRequestMillis() - startMillis) + " ms");
+    }
+    return status;
+  }
+
+  /**
+   * Runs the supplied {@link Job}, reporting any error to the supplied
+   * {@link PrintWriter}.
+   *
+   * @param      job
+   *               the {@link Job}; must not be <code>null</code>
+   * @param      out
+   *               the {@link PrintWriter}; must not be <code>null</code>
+   * @return     the exit status
+   */
+  private int runJob(final Job job, final PrintWriter out) {
+    try {
+      return job.run(this, out);
+    } catch (final PublishingException kaboom) {
+      out.println("ERROR " + kaboom.getMessage());
+    } catch (final IOException kaboom) {
+      out.println("ERROR " + kaboom);
+    } catch (final InterruptedException kaboom) {
+      Thread.currentThread().interrupt();
+      out.println("ERROR interrupted");
+    } catch (final RuntimeException kaboom) {
+      out.println("ERROR " + kaboom);
+    } catch (final LinkageError kaboom) {
+      // A broken class path should not take a resident process down.
+      out.println("ERROR " + kaboom);
+    }
+    return EXIT_FAILED;
+  }
+
+  /**
+   * Runs one job per line read from the supplied {@link Reader}, answering
+   * each on the supplied {@link Writer}, until the {@link Reader} is
+   * exhausted or a line reading <code>quit</code> is read.
+   *
+   * @param      in
+   *               the {@link Reader}; must not be <code>null</code>
+   * @param      out
+   *               the {@link Writer}; must not be <code>null</code>
+   * @exception  IOException
+   *               if the {@link Reader} could not be read
+   */
+  void serve(final Reader in, final Writer out) throws IOException {
+    final BufferedReader reader = new BufferedReader(in);
+    final PrintWriter writer = new PrintWriter(out);
+    String line;
+    while ((line = reader.readLine()) != null) {
+      line = line.trim();
+      if (line.length() == 0) {
+        continue;
+      }
+      if ("quit".equals(line)) {
+        break;
+      }
+      final long receivedMillis = System.currentTimeMillis();
+      try {
+        final Job job = Job.parse(tokenize(line));
+        final int status = this.runJob(job, writer);
+        if (job.isTiming() && job.getFirstRequestMillis() != 0L) {
+          writer.println("Timing: job to first request " +
+                         (job.getFirstRequestMillis() - receivedMillis) +
+                         " ms");
+        }
+        writer.println(status == EXIT_OK ? "OK" : "FAILED");
+      } catch (final IllegalArgumentException kaboom) {
+        writer.println("ERROR " + kaboom.getMessage());
+      }
+      writer.flush();
+    }
+    writer.flush();
+  }
+
+  /**
+   * Accepts connections on the supplied port of the loopback interface,
+   * and {@linkplain #serve(Reader, Writer) serves} each on its own thread.
+   * This method does not return normally.
+   *
+   * @param      port
+   *               the port
+   * @exception  IOException
+   *               if the port could not be bound, or a connection could not
+   *               be accepted
+   */
+  private void listen(final int port) throws IOException {
+    final ServerSocket server =
+      new ServerSocket(port, 50, InetAddress.getByName("127.0.0.1"));
+    // A resident process is usually stopped by a signal.
+    Runtime.getRuntime().addShutdownHook(new Thread("sfpublish shutdown") {
+        public void run() {
+          close();
+        }
+      });
+    try {
+      while (true) {
+        final Socket socket = server.accept();
+        final Thread thread = new Thread("sfpublish " + socket.getPort()) {
+            public void run() {
+              try {
+                serve(new InputStreamReader(socket.getInputStream()),
+                      new OutputStreamWriter(socket.getOutputStream()));
+              } catch (final IOException ignore) {
+                // The client went away.
+              } finally {
+                try {
+                  socket.close();
+                } catch (final IOException ignore) {
+                  // Nothing more can be done.
+                }
+              }
+            }
+          };
+        thread.setDaemon(true);
+        thread.start();
+      }
+    } finally {
+      server.close();
+    }
+  }
+
+  /**
+   * Splits the supplied line into arguments at whitespace.  An argument may
+   * be enclosed in double quotes, within which a backslash escapes the
+   * following character.  This method never returns <code>null</code>.
+   *
+   * @param      line
+   *               the line; must not be <code>null</code>
+   * @return     the arguments; never <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if a quote is not closed
+   */
+  static String[] tokenize(final String line) throws IllegalArgumentException {
+    final List tokens = new ArrayList();
+    final StringBuffer token = new StringBuffer();
+    boolean inToken = false;
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      final char c = line.charAt(i);
+      if (quoted) {
+        if (c == '"') {
+          quoted = false;
+        } else if (c == '\\' && i + 1 < line.length()) {
+          token.append(line.charAt(++i));
+        } else {
+          token.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+        inToken = true;
+      } else if (Character.isWhitespace(c)) {
+        if (inToken) {
+          tokens.add(token.toString());
+          token.setLength(0);
+          inToken = false;
+        }
+      } else {
+        token.append(c);
+        inToken = true;
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("Unclosed quote");
+    }
+    if (inToken) {
+      tokens.add(token.toString());
+    }
+    return (String[])tokens.toArray(new String[tokens.size()]);
+  }
+
+}
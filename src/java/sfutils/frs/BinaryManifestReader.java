@@ -0,0 +1,394 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import sfutils.Administrator;
+import sfutils.Project;
+
+/**
+ * Reads {@linkplain ReleaseManifest#BINARY binary} manifests, in the form
+ * described by {@link BinaryManifestWriter}, handing each {@link
+ * FileRelease} to a {@link ReleaseManifest.Handler} as soon as it has been
+ * read.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        BinaryManifestWriter
+ */
+final class BinaryManifestReader {
+
+  /**
+   * The {@link InputStream} from which the manifest is read.  This field is
+   * never <code>null</code>.
+   */
+  private final InputStream in;
+
+  /**
+   * The {@link ReleaseManifest.Handler} to which {@link FileRelease}s are
+   * handed.  This field is never <code>null</code>.
+   */
+  private final ReleaseManifest.Handler handler;
+
+  /**
+   * The {@link String}s remembered so far, in the order in which they were
+   * read.  This field is never <code>null</code>.
+   */
+  private final List strings;
+
+  /**
+   * A scratch buffer for the bytes of {@link String}s being read.
+   */
+  private byte[] scratch;
+
+  /**
+   * Creates a new {@link BinaryManifestReader}.
+   *
+   * @param      in
+   *               the {@link InputStream}, which should be buffered; must
+   *               not be <code>null</code>
+   * @param      handler
+   *               the {@link ReleaseManifest.Handler}; must not be
+   *               <code>null</code>
+   */
+  BinaryManifestReader(final InputStream in,
+                       final ReleaseManifest.Handler handler) {
+    super();
+    assert in != null;
+    assert handler != null;
+    this.in = in;
+    this.handler = handler;
+    this.strings = new ArrayList();
+    this.scratch = new byte[256];
+  }
+
+  /**
+   * Reads the manifest.
+   *
+   * @return     the number of {@link FileRelease}s handed out
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed or the {@link
+   *               ReleaseManifest.Handler} throws one
+   */
+  int read() throws IOException, PublishingException {
+    for (int i = 0; i < ReleaseManifest.BINARY_MAGIC.length; i++) {
+      if (this.readByte() != ReleaseManifest.BINARY_MAGIC[i]) {
+        throw malformed("Not a binary manifest");
+      }
+    }
+    final int version = this.readByte();
+    if (version > ReleaseManifest.VERSION) {
+      throw malformed("Unsupported version " + version);
+    }
+    int count = 0;
+    Project project = null;
+    Package projectPackage = null;
+    while (true) {
+      final int tag = this.readByte();
+      switch (tag) {
+      case BinaryManifestWriter.END:
+        return count;
+      case BinaryManifestWriter.PROJECT:
+        project = this.readProject();
+        projectPackage = null;
+        break;
+      case BinaryManifestWriter.PACKAGE:
+        if (project == null) {
+          throw malformed("Package outside a project");
+        }
+        projectPackage = this.readPackage(project);
+        break;
+      case BinaryManifestWriter.RELEASE:
+        if (projectPackage == null) {
+          throw malformed("Release outside a package");
+        }
+        final FileRelease release = this.readRelease(projectPackage);
+        count++;
+        if (!this.handler.handle(release)) {
+          return count;
+        }
+        break;
+      default:
+        throw malformed("Unknown tag " + tag);
+      }
+    }
+  }
+
+  /**
+   * Reads a {@link Project} record.
+   *
+   * @return     the {@link Project}; never <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private Project readProject() throws IOException, PublishingException {
+    final Project project = new Project();
+    project.setName(this.readString());
+    project.setShortName(this.readString());
+    project.setID(this.readString());
+    final String administratorName = this.readString();
+    if (administratorName != null) {
+      final Administrator administrator = new Administrator();
+      try {
+        administrator.setName(administratorName);
+      } catch (final IllegalArgumentException kaboom) {
+        throw malformed(kaboom.getMessage());
+      }
+      project.setAdministrator(administrator);
+    }
+    return project;
+  }
+
+  /**
+   * Reads a {@link Package} record.
+   *
+   * @param      project
+   *               the {@link Project} to which the {@link Package} belongs;
+   *               must not be <code>null</code>
+   * @return     the {@link Package}; never <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private Package readPackage(final Project project)
+    throws IOException, PublishingException {
+    assert project != null;
+    final Package projectPackage = new Package(project);
+    projectPackage.setName(this.readString());
+    projectPackage.setID(this.readString());
+    projectPackage.setHidden((this.readByte() &
+                              BinaryManifestWriter.HIDDEN) != 0);
+    return projectPackage;
+  }
+
+  /**
+   * Reads a {@link FileRelease} record and its {@link
+   * FileSpecification}s.
+   *
+   * @param      projectPackage
+   *               the {@link Package} to which the {@link FileRelease}
+   *               belongs; must not be <code>null</code>
+   * @return     the {@link FileRelease}; never <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private FileRelease readRelease(final Package projectPackage)
+    throws IOException, PublishingException {
+    assert projectPackage != null;
+    final String name = this.readString();
+    final String id = this.readString();
+    final int flags = this.readByte();
+    Date releaseDate = null;
+    if ((flags & BinaryManifestWriter.RELEASE_DATE) != 0) {
+      releaseDate = this.readDate();
+    }
+    final String releaseNotes = this.readString();
+    final File releaseNotesFile = this.readFile();
+    final String changeLog = this.readString();
+    final File changeLogFile = this.readFile();
+    final long fileCount = this.readNumber();
+    if (fileCount < 0L || fileCount > Integer.MAX_VALUE) {
+      throw malformed("Bad file count " + fileCount);
+    }
+    final FileRelease release =
+      new FileRelease(projectPackage, name, (int)fileCount);
+    try {
+      release.setID(id);
+      release.setHidden((flags & BinaryManifestWriter.HIDDEN) != 0);
+      release.setNotifyOthers((flags &
+                               BinaryManifestWriter.NOTIFY_OTHERS) != 0);
+      release.setPreserveFormattedText((flags &
+                                        BinaryManifestWriter.
+                                        PRESERVE_FORMATTED_TEXT) != 0);
+      release.setReleaseDate(releaseDate);
+      release.setReleaseNotes(releaseNotes);
+      release.setReleaseNotesFile(releaseNotesFile);
+      release.setChangeLog(changeLog);
+      release.setChangeLogFile(changeLogFile);
+      final List specs = new ArrayList((int)fileCount);
+      for (int i = 0; i < fileCount; i++) {
+        final File file = this.readFile();
+        if (file == null) {
+          throw malformed("File specification has no file");
+        }
+        final int fileType = (int)this.readNumber();
+        final int processorType = (int)this.readNumber();
+        specs.add(ReleaseManifest.newFileSpecification(file,
+                                                       fileType,
+                                                       processorType,
+                                                       this.readDate()));
+      }
+      ReleaseManifest.setFileSpecifications(release, specs);
+    } catch (final IllegalArgumentException kaboom) {
+      throw malformed("Release " + name + ": " + kaboom.getMessage());
+    }
+    return release;
+  }
+
+  /**
+   * Reads a {@link File} written as its parent directory and name.
+   *
+   * @return     the {@link File}, or <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private File readFile() throws IOException, PublishingException {
+    final String parent = this.readString();
+    if (parent == null) {
+      return null;
+    }
+    final String name = this.readString();
+    if (name == null) {
+      throw malformed("File has no name");
+    }
+    return new File(parent.concat(name));
+  }
+
+  /**
+   * Reads a {@link String}, or <code>null</code>, as written by {@link
+   * BinaryManifestWriter}.
+   *
+   * @return     the {@link String}, or <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private String readString() throws IOException, PublishingException {
+    final long header = this.readNumber();
+    if (header == 0L) {
+      return null;
+    }
+    if ((header & 1L) != 0L) {
+      final long number = header >>> 1;
+      if (number >= this.strings.size()) {
+        throw malformed("Bad string reference " + number);
+      }
+      return (String)this.strings.get((int)number);
+    }
+    final long length = (header >>> 1) - 1L;
+    if (length > Integer.MAX_VALUE) {
+      throw malformed("Bad string length " + length);
+    }
+    if (length > this.scratch.length) {
+      this.scratch = new byte[Math.max((int)length, this.scratch.length * 2)];
+    }
+    int read = 0;
+    while (read < length) {
+      final int n = this.in.read(this.scratch, read, (int)length - read);
+      if (n < 0) {
+        throw new EOFException();
+      }
+      read += n;
+    }
+    final String value = new String(this.scratch, 0, read, "UTF-8");
+    if (length <= BinaryManifestWriter.MAX_SHARED_LENGTH) {
+      this.strings.add(value);
+    }
+    return value;
+  }
+
+  /**
+   * Reads a zigzag-encoded {@link Date}.
+   *
+   * @return     the {@link Date}; never <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private Date readDate() throws IOException, PublishingException {
+    final long encoded = this.readNumber();
+    return new Date((encoded >>> 1) ^ -(encoded & 1L));
+  }
+
+  /**
+   * Reads an unsigned variable-length quantity.
+   *
+   * @return     the number
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private long readNumber() throws IOException, PublishingException {
+    long value = 0L;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final int b = this.readByte();
+      value |= (long)(b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw malformed("Number too long");
+  }
+
+  /**
+   * Reads a byte.
+   *
+   * @return     the byte, between <code>0</code> and <code>255</code>
+   * @exception  IOException
+   *               if an error occurs reading, or the manifest ends here
+   */
+  private int readByte() throws IOException {
+    final int b = this.in.read();
+    if (b < 0) {
+      throw new EOFException("Unexpected end of manifest");
+    }
+    return b;
+  }
+
+  /**
+   * Returns a {@link PublishingException} reporting a malformed manifest.
+   *
+   * @param      message
+   *               what is wrong; may be <code>null</code>
+   * @return     a new {@link PublishingException}; never <code>null</code>
+   */
+  private static PublishingException malformed(final String message) {
+    return new PublishingException("Malformed manifest: " + message);
+  }
+
+}
@@ -0,0 +1,366 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import sfutils.Administrator;
+import sfutils.Project;
+
+/**
+ * A {@link ReleaseManifest.Writer} that writes {@linkplain
+ * ReleaseManifest#BINARY binary} manifests.
+ *
+ * <p>A binary manifest is the {@linkplain ReleaseManifest#BINARY_MAGIC
+ * magic bytes} and a version byte, followed by a sequence of records, each
+ * introduced by a tag byte: {@link #PROJECT}, {@link #PACKAGE} and {@link
+ * #RELEASE} records belong to the most recent record of the enclosing kind,
+ * and an {@link #END} tag ends the manifest.  Integers are written as
+ * unsigned variable-length quantities, seven bits to a byte, least
+ * significant first.  Short {@link String}s are written once and
+ * thereafter referred to by number, and {@link File}s are written as their
+ * parent directory and name, so that the directories shared by a release's
+ * files cost a byte or two apiece.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        BinaryManifestReader
+ */
+final class BinaryManifestWriter extends ReleaseManifest.Writer {
+
+  /**
+   * The tag ending a manifest.
+   */
+  static final int END = 0;
+
+  /**
+   * The tag introducing a {@link Project} record.
+   */
+  static final int PROJECT = 1;
+
+  /**
+   * The tag introducing a {@link Package} record.
+   */
+  static final int PACKAGE = 2;
+
+  /**
+   * The tag introducing a {@link FileRelease} record.
+   */
+  static final int RELEASE = 3;
+
+  /**
+   * The flag recording that a {@link HideableNamedObject} is hidden.
+   */
+  static final int HIDDEN = 0x01;
+
+  /**
+   * The flag recording {@link FileRelease#getNotifyOthers()}.
+   */
+  static final int NOTIFY_OTHERS = 0x02;
+
+  /**
+   * The flag recording {@link FileRelease#getPreserveFormattedText()}.
+   */
+  static final int PRESERVE_FORMATTED_TEXT = 0x04;
+
+  /**
+   * The flag recording that a release date follows.
+   */
+  static final int RELEASE_DATE = 0x08;
+
+  /**
+   * The length in bytes beyond which a {@link String} is not remembered
+   * for reference by number.
+   */
+  static final int MAX_SHARED_LENGTH = 255;
+
+  /**
+   * The {@link OutputStream} to which the manifest is written.  This field
+   * is never <code>null</code>.
+   */
+  private final OutputStream out;
+
+  /**
+   * The number assigned to each {@link String} written so far that is no
+   * longer than {@link #MAX_SHARED_LENGTH} bytes.  This field is never
+   * <code>null</code>.
+   */
+  private final Map strings;
+
+  /**
+   * Whether the manifest has been started.
+   */
+  private boolean started;
+
+  /**
+   * Creates a new {@link BinaryManifestWriter}.
+   *
+   * @param      out
+   *               the {@link OutputStream}; must not be <code>null</code>
+   */
+  BinaryManifestWriter(final OutputStream out) {
+    super();
+    assert out != null;
+    this.out = new BufferedOutputStream(out, 8192);
+    this.strings = new HashMap();
+  }
+
+  /**
+   * Writes the start of the manifest, if it has not been written.
+   *
+   * @exception  IOException
+   *               if an error occurs
+   */
+  private void startManifest() throws IOException {
+    if (!this.started) {
+      this.started = true;
+      this.out.write(ReleaseManifest.BINARY_MAGIC);
+      this.out.write(ReleaseManifest.VERSION);
+    }
+  }
+
+  /**
+   * Writes the supplied {@link Project}.
+   *
+   * @param      project
+   *               the {@link Project}; never <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  protected void startProject(final Project project) throws IOException {
+    assert project != null;
+    this.startManifest();
+    this.out.write(PROJECT);
+    this.writeString(project.getName());
+    this.writeString(project.getShortName());
+    this.writeString(project.getID());
+    String administratorName = null;
+    final Administrator administrator = project.getAdministrator();
+    if (administrator != null) {
+      try {
+        administratorName = administrator.getName();
+      } catch (final IllegalStateException noName) {
+        administratorName = null;
+      }
+    }
+    this.writeString(administratorName);
+  }
+
+  /**
+   * Does nothing; the next record's tag ends a {@link Project}.
+   */
+  protected void endProject() {
+    // Nothing to do.
+  }
+
+  /**
+   * Writes the supplied {@link Package}.
+   *
+   * @param      projectPackage
+   *               the {@link Package}; never <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  protected void startPackage(final Package projectPackage)
+    throws IOException {
+    assert projectPackage != null;
+    this.out.write(PACKAGE);
+    this.writeString(projectPackage.getName());
+    this.writeString(projectPackage.getID());
+    this.out.write(projectPackage.isHidden() ? HIDDEN : 0);
+  }
+
+  /**
+   * Does nothing; the next record's tag ends a {@link Package}.
+   */
+  protected void endPackage() {
+    // Nothing to do.
+  }
+
+  /**
+   * Writes the supplied {@link FileRelease} and its {@link
+   * FileSpecification}s.
+   *
+   * @param      release
+   *               the {@link FileRelease}; never <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  protected void writeRelease(final FileRelease release) throws IOException {
+    assert release != null;
+    this.out.write(RELEASE);
+    this.writeString(release.getName());
+    this.writeString(release.getID());
+    final Date releaseDate = release.getReleaseDate();
+    int flags = 0;
+    if (release.isHidden()) {
+      flags |= HIDDEN;
+    }
+    if (release.getNotifyOthers()) {
+      flags |= NOTIFY_OTHERS;
+    }
+    if (release.getPreserveFormattedText()) {
+      flags |= PRESERVE_FORMATTED_TEXT;
+    }
+    if (releaseDate != null) {
+      flags |= RELEASE_DATE;
+    }
+    this.out.write(flags);
+    if (releaseDate != null) {
+      this.writeDate(releaseDate);
+    }
+    this.writeString(release.getReleaseNotes());
+    this.writeFile(release.getReleaseNotesFile());
+    this.writeString(release.getChangeLog());
+    this.writeFile(release.getChangeLogFile());
+    this.writeNumber(release.getFileSpecificationCount());
+    final Iterator specs = release.getFileSpecificationList().iterator();
+    assert specs != null;
+    while (specs.hasNext()) {
+      final FileSpecification spec = (FileSpecification)specs.next();
+      this.writeFile(spec.getFile());
+      this.writeNumber(spec.getFileType() & 0xFFFFFFFFL);
+      this.writeNumber(spec.getProcessorType() & 0xFFFFFFFFL);
+      this.writeDate(spec.getReleaseDate());
+    }
+  }
+
+  /**
+   * Writes the {@link #END} tag and flushes the underlying {@link
+   * OutputStream}.
+   *
+   * @exception  IOException
+   *               if an error occurs
+   */
+  protected void endManifest() throws IOException {
+    this.startManifest();
+    this.out.write(END);
+    this.out.flush();
+  }
+
+  /**
+   * Closes the underlying {@link OutputStream}.
+   *
+   * @exception  IOException
+   *               if an error occurs
+   */
+  protected void closeStream() throws IOException {
+    this.out.close();
+  }
+
+  /**
+   * Writes a {@link File} as its parent directory and name, or
+   * <code>null</code>.
+   *
+   * @param      file
+   *               the {@link File}; may be <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  private void writeFile(final File file) throws IOException {
+    if (file == null) {
+      this.writeString(null);
+      return;
+    }
+    final String path = file.getPath();
+    final String name = file.getName();
+    assert path.endsWith(name);
+    this.writeString(path.substring(0, path.length() - name.length()));
+    this.writeString(name);
+  }
+
+  /**
+   * Writes a {@link String}, or <code>null</code>.  The {@link String} is
+   * preceded by a number <i>n</i>: zero for <code>null</code>; an odd
+   * number for a reference to the <code>(<i>n</i> &gt;&gt;&gt; 1)</code>th
+   * {@link String} remembered; and otherwise the {@link String}'s length in
+   * UTF-8 bytes, plus one, shifted left by one, followed by those bytes.
+   *
+   * @param      value
+   *               the {@link String}; may be <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  private void writeString(final String value) throws IOException {
+    if (value == null) {
+      this.writeNumber(0L);
+      return;
+    }
+    final Integer number = (Integer)this.strings.get(value);
+    if (number != null) {
+      this.writeNumber(((long)number.intValue() << 1) | 1L);
+      return;
+    }
+    final byte[] bytes = value.getBytes("UTF-8");
+    this.writeNumber((bytes.length + 1L) << 1);
+    this.out.write(bytes);
+    if (bytes.length <= MAX_SHARED_LENGTH) {
+      this.strings.put(value, new Integer(this.strings.size()));
+    }
+  }
+
+  /**
+   * Writes a {@link Date} as its time, zigzag-encoded so that dates before
+   * the epoch remain short.
+   *
+   * @param      date
+   *               the {@link Date}; must not be <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  private void writeDate(final Date date) throws IOException {
+    assert date != null;
+    final long time = date.getTime();
+    this.writeNumber((time << 1) ^ (time >> 63));
+  }
+
+  /**
+   * Writes a non-negative number as an unsigned variable-length quantity.
+   *
+   * @param      value
+   *               the number, taken as unsigned
+   * @exception  IOException
+   *               if an error occurs
+   */
+  private void writeNumber(long value) throws IOException {
+    while ((value & ~0x7FL) != 0L) {
+      this.out.write((int)(value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    this.out.write((int)value);
+  }
+
+}
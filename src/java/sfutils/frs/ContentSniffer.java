@@ -0,0 +1,647 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import java.nio.channels.FileChannel;
+
+import sfutils.BoundedCache;
+import sfutils.CacheStatistics;
+
+/**
+ * Infers the {@link File} type of a {@link File} from its contents rather
+ * than its name.  Only a few hundred bytes at the start of a {@link File}
+ * are read, plus, for larger {@link File}s, the few bytes where an ISO 9660
+ * volume descriptor or a disk image trailer would be.  Reads go through a
+ * small direct {@link ByteBuffer} kept per thread.
+ *
+ * <p>Zip and jar archives, gzip, bzip2 and <code>compress</code> streams,
+ * RPM (binary and source) and Debian packages, ISO 9660 images, PDF
+ * documents, JPEG images, Apple disk images, DOS, Windows and OS/2
+ * executables, HTML, diffs and plain text are recognized.</p>
+ *
+ * <p>Results are cached by absolute path, length and last-modified time,
+ * as reported by the {@linkplain FileAttributeCache#getShared() shared
+ * <code>FileAttributeCache</code>}, so a {@link File} whose contents have
+ * not changed is never read twice.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        FileSpecification#setContentSniffer(ContentSniffer)
+ */
+public class ContentSniffer {
+
+  /**
+   * The number of bytes read from the start of a {@link File}.
+   */
+  public static final int HEADER_SIZE = 512;
+
+  /**
+   * The number of results a {@link ContentSniffer} caches by default.
+   */
+  public static final int DEFAULT_CACHE_SIZE = 1024;
+
+  /**
+   * The offset of the first ISO 9660 volume descriptor's identifier.
+   */
+  private static final long ISO9660_OFFSET = 32769L;
+
+  /**
+   * The size of an Apple disk image's trailing <code>koly</code> block.
+   */
+  private static final long DMG_TRAILER_SIZE = 512L;
+
+  /**
+   * A direct {@link ByteBuffer} of {@link #HEADER_SIZE} bytes for each
+   * thread.
+   */
+  private static final ThreadLocal BUFFERS = new ThreadLocal() {
+      protected Object initialValue() {
+        return ByteBuffer.allocateDirect(HEADER_SIZE);
+      }
+    };
+
+  /**
+   * The cached results, as {@link Integer}s indexed by {@link Key}.  This
+   * field is never <code>null</code>.
+   */
+  private final BoundedCache cache;
+
+  /**
+   * Creates a new {@link ContentSniffer} that caches up to {@link
+   * #DEFAULT_CACHE_SIZE} results.
+   */
+  public ContentSniffer() {
+    this(DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Creates a new {@link ContentSniffer}.
+   *
+   * @param      cacheSize
+   *               the greatest number of results to cache; must be positive
+   * @exception  IllegalArgumentException
+   *               if <code>cacheSize</code> is not positive
+   */
+  public ContentSniffer(final int cacheSize) {
+    super();
+    this.cache = new BoundedCache(cacheSize, 0L);
+  }
+
+  /**
+   * Returns the {@link File} type of the supplied {@link File} judged by its
+   * contents, or {@link TypeRegistry#UNKNOWN} if its contents are not
+   * recognized or cannot be read.
+   *
+   * @param      file
+   *               the {@link File} to examine; may be <code>null</code>
+   * @return     the {@link File} type, or {@link TypeRegistry#UNKNOWN}
+   */
+  public int sniff(final File file) {
+    if (file == null) {
+      return TypeRegistry.UNKNOWN;
+    }
+    final FileAttributeCache.Attributes attributes =
+      FileAttributeCache.getShared().get(file);
+    assert attributes != null;
+    if (!attributes.isFile()) {
+      return TypeRegistry.UNKNOWN;
+    }
+    final Key key = new Key(file.getAbsolutePath(),
+                            attributes.getLength(),
+                            attributes.getLastModified());
+    final Integer cached = (Integer)this.cache.get(key);
+    if (cached != null) {
+      return cached.intValue();
+    }
+    int type;
+    FileInputStream stream = null;
+    try {
+      stream = new FileInputStream(file);
+      final FileChannel channel = stream.getChannel();
+      assert channel != null;
+      type = this.sniff(channel, channel.size());
+    } catch (final IOException unreadable) {
+      return TypeRegistry.UNKNOWN;
+    } finally {
+      if (stream != null) {
+        try {
+          stream.close();
+        } catch (final IOException ignore) {
+          // ignore
+        }
+      }
+    }
+    this.cache.put(key, new Integer(type));
+    return type;
+  }
+
+  /**
+   * Reconciles a {@link File} type inferred from a {@link File}'s name with
+   * its contents.  The name's type stands if the contents are not
+   * recognized, if they only look like text, or if they are of the same
+   * kind (a source gzip named so is still a gzip stream, for example);
+   * otherwise the contents win.
+   *
+   * @param      nameType
+   *               the {@link File} type inferred from the name, or {@link
+   *               TypeRegistry#UNKNOWN}
+   * @param      file
+   *               the {@link File}; may be <code>null</code>
+   * @return     the reconciled {@link File} type, or {@link
+   *               TypeRegistry#UNKNOWN}
+   */
+  public int refine(final int nameType, final File file) {
+    final int contentType = this.sniff(file);
+    if (contentType == TypeRegistry.UNKNOWN) {
+      return nameType;
+    }
+    if (nameType == TypeRegistry.UNKNOWN ||
+        nameType == FileSpecification.OTHER_FILE) {
+      return contentType;
+    }
+    if (isTextual(contentType) || kindOf(nameType) == kindOf(contentType)) {
+      return nameType;
+    }
+    return contentType;
+  }
+
+  /**
+   * Returns statistics about this {@link ContentSniffer}'s cache.  This
+   * method never returns <code>null</code>.
+   *
+   * @return     the {@link CacheStatistics}; never <code>null</code>
+   */
+  public CacheStatistics getStatistics() {
+    return this.cache.getStatistics();
+  }
+
+  /**
+   * Discards all cached results.
+   */
+  public void clear() {
+    this.cache.clear();
+  }
+
+  /**
+   * Returns the {@link File} type of the contents of the supplied {@link
+   * FileChannel}, or {@link TypeRegistry#UNKNOWN}.  This method reads
+   * without caching and does not close the {@link FileChannel}.
+   *
+   * @param      channel
+   *               the {@link FileChannel} to read; must not be
+   *               <code>null</code>
+   * @param      size
+   *               the size of the {@link FileChannel}'s file
+   * @return     the {@link File} type, or {@link TypeRegistry#UNKNOWN}
+   * @exception  IOException
+   *               if the {@link FileChannel} could not be read
+   */
+  protected int sniff(final FileChannel channel, final long size)
+    throws IOException {
+    if (channel == null) {
+      throw new IllegalArgumentException("null channel");
+    }
+    final ByteBuffer buffer = (ByteBuffer)BUFFERS.get();
+    assert buffer != null;
+    final int length = read(channel, buffer, 0L, HEADER_SIZE);
+    if (length <= 0) {
+      return TypeRegistry.UNKNOWN;
+    }
+    final int headerType = sniffHeader(buffer, length);
+    if (headerType != TypeRegistry.UNKNOWN && !isTextual(headerType)) {
+      return headerType;
+    }
+    if (size >= ISO9660_OFFSET + 5L &&
+        read(channel, buffer, ISO9660_OFFSET, 5) == 5 &&
+        startsWith(buffer, 5, 0, "CD001")) {
+      return FileSpecification.ISO_FILE;
+    }
+    if (size >= DMG_TRAILER_SIZE + 4L &&
+        read(channel, buffer, size - DMG_TRAILER_SIZE, 4) == 4 &&
+        startsWith(buffer, 4, 0, "koly")) {
+      return FileSpecification.DMG_FILE;
+    }
+    return headerType;
+  }
+
+  /**
+   * Reads up to <code>count</code> bytes at the supplied position of a
+   * {@link FileChannel} into the start of a {@link ByteBuffer}.
+   *
+   * @param      channel
+   *               the {@link FileChannel}; must not be <code>null</code>
+   * @param      buffer
+   *               the {@link ByteBuffer}; must not be <code>null</code>
+   * @param      position
+   *               the position to read from
+   * @param      count
+   *               the number of bytes wanted
+   * @return     the number of bytes read
+   * @exception  IOException
+   *               if the {@link FileChannel} could not be read
+   */
+  private static int read(final FileChannel channel,
+                          final ByteBuffer buffer,
+                          final long position,
+                          final int count)
+    throws IOException {
+    buffer.clear();
+    buffer.limit(count);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        break;
+      }
+    }
+    return buffer.position();
+  }
+
+  /**
+   * Recognizes the first bytes of a {@link File}.
+   *
+   * @param      header
+   *               the bytes, starting at index <code>0</code>; must not be
+   *               <code>null</code>
+   * @param      length
+   *               the number of bytes available
+   * @return     the {@link File} type, or {@link TypeRegistry#UNKNOWN}
+   */
+  private static int sniffHeader(final ByteBuffer header, final int length) {
+    final int b0 = byteAt(header, length, 0);
+    final int b1 = byteAt(header, length, 1);
+    if (b0 == 'P' && b1 == 'K' &&
+        ((byteAt(header, length, 2) == 3 && byteAt(header, length, 3) == 4) ||
+         (byteAt(header, length, 2) == 5 && byteAt(header, length, 3) == 6))) {
+      final int nameLength = shortAt(header, length, 26, ByteOrder.LITTLE_ENDIAN);
+      if (nameLength >= 9 && startsWith(header, length, 30, "META-INF/")) {
+        return FileSpecification.JAR_FILE;
+      }
+      return FileSpecification.BINARY_ZIP_FILE;
+    }
+    if (b0 == 0x1F && b1 == 0x8B) {
+      return FileSpecification.BINARY_GZIP_FILE;
+    }
+    if (b0 == 0x1F && b1 == 0x9D) {
+      return FileSpecification.SOURCE_Z_FILE;
+    }
+    if (startsWith(header, length, 0, "BZh")) {
+      return FileSpecification.BINARY_BZIP2_FILE;
+    }
+    if (b0 == 0xED && b1 == 0xAB &&
+        byteAt(header, length, 2) == 0xEE && byteAt(header, length, 3) == 0xDB) {
+      if (shortAt(header, length, 6, ByteOrder.BIG_ENDIAN) == 1) {
+        return FileSpecification.SOURCE_REDHAT_PACKAGE_FILE;
+      }
+      return FileSpecification.BINARY_REDHAT_PACKAGE_FILE;
+    }
+    if (startsWith(header, length, 0, "!<arch>\ndebian-binary")) {
+      return FileSpecification.DEBIAN_PACKAGE_FILE;
+    }
+    if (startsWith(header, length, 0, "%PDF-")) {
+      return FileSpecification.PDF_FILE;
+    }
+    if (b0 == 0xFF && b1 == 0xD8 && byteAt(header, length, 2) == 0xFF) {
+      return FileSpecification.JPEG_IMAGE_FILE;
+    }
+    if (b0 == 'M' && b1 == 'Z') {
+      return sniffExecutable(header, length);
+    }
+    return sniffText(header, length);
+  }
+
+  /**
+   * Tells DOS, 16-bit Windows, 32-bit Windows and OS/2 executables apart by
+   * the signature of the header that an <code>MZ</code> header points to.
+   *
+   * @param      header
+   *               the bytes, starting at index <code>0</code>; must not be
+   *               <code>null</code>
+   * @param      length
+   *               the number of bytes available
+   * @return     the {@link File} type
+   */
+  private static int sniffExecutable(final ByteBuffer header,
+                                     final int length) {
+    if (length >= 0x40) {
+      header.order(ByteOrder.LITTLE_ENDIAN);
+      final int offset = header.getInt(0x3C);
+      header.order(ByteOrder.BIG_ENDIAN);
+      if (offset > 0 && offset <= length - 4) {
+        if (startsWith(header, length, offset, "PE\0\0")) {
+          return FileSpecification.WINDOWS_32_BIT_EXE_FILE;
+        }
+        if (startsWith(header, length, offset, "NE")) {
+          return FileSpecification.WINDOWS_16_BIT_EXE_FILE;
+        }
+        if (startsWith(header, length, offset, "LX")) {
+          return FileSpecification.OS2_EXE_FILE;
+        }
+      }
+    }
+    return FileSpecification.DOS_EXE_FILE;
+  }
+
+  /**
+   * Recognizes text: HTML, a diff, or any other bytes free of
+   * <code>NUL</code>s and with few other control characters.
+   *
+   * @param      header
+   *               the bytes, starting at index <code>0</code>; must not be
+   *               <code>null</code>
+   * @param      length
+   *               the number of bytes available
+   * @return     the {@link File} type, or {@link TypeRegistry#UNKNOWN}
+   */
+  private static int sniffText(final ByteBuffer header, final int length) {
+    int controls = 0;
+    for (int i = 0; i < length; i++) {
+      final int b = byteAt(header, length, i);
+      if (b == 0) {
+        return TypeRegistry.UNKNOWN;
+      }
+      if (b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f' &&
+          b != 0x1B) {
+        controls++;
+      }
+    }
+    if (controls * 32 > length) {
+      return TypeRegistry.UNKNOWN;
+    }
+    int start = 0;
+    while (start < length && byteAt(header, length, start) <= ' ') {
+      start++;
+    }
+    if (startsWithIgnoreCase(header, length, start, "<!doctype html") ||
+        startsWithIgnoreCase(header, length, start, "<html")) {
+      return FileSpecification.HTML_FILE;
+    }
+    if (startsWith(header, length, 0, "diff ") ||
+        startsWith(header, length, 0, "Index: ") ||
+        startsWith(header, length, 0, "--- ")) {
+      return FileSpecification.SOURCE_PATCH_OR_DIFF_FILE;
+    }
+    return FileSpecification.TEXT_FILE;
+  }
+
+  /**
+   * Returns <code>true</code> if the supplied type is one that {@link
+   * #sniffText(ByteBuffer, int)} may infer, and so is only a guess.
+   *
+   * @param      type
+   *               the {@link File} type
+   * @return     <code>true</code> if the type is textual
+   */
+  private static boolean isTextual(final int type) {
+    return type == FileSpecification.TEXT_FILE ||
+      type == FileSpecification.HTML_FILE ||
+      type == FileSpecification.SOURCE_PATCH_OR_DIFF_FILE;
+  }
+
+  /**
+   * Returns a value shared by {@link File} types whose contents look alike,
+   * such as {@link FileSpecification#BINARY_ZIP_FILE}, {@link
+   * FileSpecification#SOURCE_ZIP_FILE} and {@link
+   * FileSpecification#JAR_FILE}.
+   *
+   * @param      type
+   *               the {@link File} type
+   * @return     its kind
+   */
+  private static int kindOf(final int type) {
+    switch (type) {
+    case FileSpecification.SOURCE_ZIP_FILE:
+    case FileSpecification.JAR_FILE:
+      return FileSpecification.BINARY_ZIP_FILE;
+    case FileSpecification.SOURCE_GZIP_FILE:
+      return FileSpecification.BINARY_GZIP_FILE;
+    case FileSpecification.SOURCE_BZ2_FILE:
+      return FileSpecification.BINARY_BZIP2_FILE;
+    default:
+      return type;
+    }
+  }
+
+  /**
+   * Returns the unsigned byte at the supplied index, or <code>-1</code> if
+   * it is beyond the available bytes.
+   *
+   * @param      buffer
+   *               the bytes; must not be <code>null</code>
+   * @param      length
+   *               the number of bytes available
+   * @param      index
+   *               the index
+   * @return     the byte, or <code>-1</code>
+   */
+  private static int byteAt(final ByteBuffer buffer,
+                            final int length,
+                            final int index) {
+    if (index >= length) {
+      return -1;
+    }
+    return buffer.get(index) & 0xFF;
+  }
+
+  /**
+   * Returns the unsigned 16-bit value at the supplied index, or
+   * <code>-1</code> if it is beyond the available bytes.
+   *
+   * @param      buffer
+   *               the bytes; must not be <code>null</code>
+   * @param      length
+   *               the number of bytes available
+   * @param      index
+   *               the index
+   * @param      order
+   *               the {@link ByteOrder} of the value; must not be
+   *               <code>null</code>
+   * @return     the value, or <code>-1</code>
+   */
+  private static int shortAt(final ByteBuffer buffer,
+                             final int length,
+                             final int index,
+                             final ByteOrder order) {
+    if (index + 2 > length) {
+      return -1;
+    }
+    final int first = buffer.get(index) & 0xFF;
+    final int second = buffer.get(index + 1) & 0xFF;
+    if (ByteOrder.LITTLE_ENDIAN.equals(order)) {
+      return first | (second << 8);
+    }
+    return (first << 8) | second;
+  }
+
+  /**
+   * Returns <code>true</code> if the available bytes hold the supplied
+   * ASCII text at the supplied index.
+   *
+   * @param      buffer
+   *               the bytes; must not be <code>null</code>
+   * @param      length
+   *               the number of bytes available
+   * @param      index
+   *               the index
+   * @param      text
+   *               the ASCII text; must not be <code>null</code>
+   * @return     <code>true</code> if the text is present
+   */
+  private static boolean startsWith(final ByteBuffer buffer,
+                                    final int length,
+                                    final int index,
+                                    final String text) {
+    final int textLength = text.length();
+    if (index + textLength > length) {
+      return false;
+    }
+    for (int i = 0; i < textLength; i++) {
+      if ((buffer.get(index + i) & 0xFF) != text.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns <code>true</code> if the available bytes hold the supplied
+   * lower-case ASCII text, in any case, at the supplied index.
+   *
+   * @param      buffer
+   *               the bytes; must not be <code>null</code>
+   * @param      length
+   *               the number of bytes available
+   * @param      index
+   *               the index
+   * @param      text
+   *               the lower-case ASCII text; must not be <code>null</code>
+   * @return     <code>true</code> if the text is present
+   */
+  private static boolean startsWithIgnoreCase(final ByteBuffer buffer,
+                                              final int length,
+                                              final int index,
+                                              final String text) {
+    final int textLength = text.length();
+    if (index + textLength > length) {
+      return false;
+    }
+    for (int i = 0; i < textLength; i++) {
+      int b = buffer.get(index + i) & 0xFF;
+      if (b >= 'A' && b <= 'Z') {
+        b += 'a' - 'A';
+      }
+      if (b != text.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The identity of a {@link File}'s contents as far as a {@link
+   * ContentSniffer} is concerned: its path, length and last-modified time.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private static final class Key {
+
+    /**
+     * The absolute path.
+     */
+    private final String path;
+
+    /**
+     * The length in bytes.
+     */
+    private final long size;
+
+    /**
+     * The last-modified time.
+     */
+    private final long lastModified;
+
+    /**
+     * Creates a new {@link Key}.
+     *
+     * @param      path
+     *               the absolute path; must not be <code>null</code>
+     * @param      size
+     *               the length in bytes
+     * @param      lastModified
+     *               the last-modified time
+     */
+    private Key(final String path, final long size, final long lastModified) {
+      super();
+      assert path != null;
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+
+    /**
+     * Returns a hashcode for this {@link Key}.
+     *
+     * @return     a hashcode
+     */
+    public int hashCode() {
+      int hash = this.path.hashCode();
+      hash = 31 * hash + (int)(this.size ^ (this.size >>> 32));
+      hash = 31 * hash + (int)(this.lastModified ^ (this.lastModified >>> 32));
+      return hash;
+    }
+
+    /**
+     * Returns <code>true</code> if the supplied {@link Object} is a {@link
+     * Key} with the same path, length and last-modified time.
+     *
+     * @param      other
+     *               the {@link Object} to compare; may be <code>null</code>
+     * @return     <code>true</code> if the {@link Key}s are equal
+     */
+    public boolean equals(final Object other) {
+      if (other == this) {
+        return true;
+      }
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      final Key key = (Key)other;
+      return this.size == key.size &&
+        this.lastModified == key.lastModified &&
+        this.path.equals(key.path);
+    }
+
+  }
+
+}
@@ -0,0 +1,302 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.File;
+
+import sfutils.BoundedCache;
+import sfutils.CacheStatistics;
+
+/**
+ * Remembers, for a short while, the attributes of {@link File}s that
+ * validation and type inference ask about, so that building and
+ * revalidating a large {@link FileRelease} asks the file system about each
+ * {@link File} once rather than once per check.
+ *
+ * <p>Attributes are read together into an immutable {@link Attributes}
+ * snapshot and cached by absolute path.  A snapshot lives for a {@linkplain
+ * #getTimeToLiveMillis() time to live}, after which the {@link File} is
+ * asked about again; callers that know a {@link File} has changed may
+ * {@linkplain #invalidate(File) invalidate} it sooner.  A time to live of
+ * <code>0</code> or less turns caching off.</p>
+ *
+ * <p>The {@linkplain #getShared() shared instance} is the one {@link
+ * FileSpecification}, {@link FileRelease}, {@link ContentSniffer} and the
+ * {@link sfutils.frs.web.Reconciler} consult.  Since a stale length or
+ * modification time would let them miss a {@link File} edited in the
+ * meantime, it caches nothing {@linkplain #DEFAULT_TIME_TO_LIVE unless told
+ * to}.  Its size and time to live may be set with the
+ * <code>sfutils.fileAttributeCache.size</code> and
+ * <code>sfutils.fileAttributeCache.ttl</code> (milliseconds) system
+ * properties; a build that knows its {@link File}s will not change while it
+ * runs may turn caching on that way.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class FileAttributeCache {
+
+  /**
+   * The number of {@link File}s whose attributes are cached by default.
+   */
+  public static final int DEFAULT_SIZE = 4096;
+
+  /**
+   * The number of milliseconds the {@linkplain #getShared() shared instance}
+   * caches attributes for unless told otherwise: <code>0</code>, so that
+   * caching is off and every {@link File} edited meanwhile is noticed.
+   */
+  public static final long DEFAULT_TIME_TO_LIVE = 0L;
+
+  /**
+   * The {@link FileAttributeCache} shared by default.  This field is never
+   * <code>null</code>.
+   */
+  private static final FileAttributeCache SHARED =
+    new FileAttributeCache(Integer.getInteger("sfutils.fileAttributeCache.size",
+                                              DEFAULT_SIZE).intValue(),
+                           Long.getLong("sfutils.fileAttributeCache.ttl",
+                                        DEFAULT_TIME_TO_LIVE).longValue());
+
+  /**
+   * The cached {@link Attributes}, indexed by absolute path, or
+   * <code>null</code> if caching is off.
+   */
+  private final BoundedCache cache;
+
+  /**
+   * The number of milliseconds attributes are cached for.
+   */
+  private final long timeToLiveMillis;
+
+  /**
+   * Creates a new {@link FileAttributeCache}.
+   *
+   * @param      size
+   *               the greatest number of {@link File}s whose attributes are
+   *               cached; must be positive
+   * @param      timeToLiveMillis
+   *               the number of milliseconds attributes are cached for;
+   *               <code>0</code> or less to turn caching off
+   * @exception  IllegalArgumentException
+   *               if <code>size</code> is not positive
+   */
+  public FileAttributeCache(final int size, final long timeToLiveMillis) {
+    super();
+    if (size <= 0) {
+      throw new IllegalArgumentException("size <= 0: " + size);
+    }
+    this.timeToLiveMillis = timeToLiveMillis;
+    if (timeToLiveMillis > 0L) {
+      this.cache = new BoundedCache(size, timeToLiveMillis);
+    } else {
+      this.cache = null;
+    }
+  }
+
+  /**
+   * Returns the {@link FileAttributeCache} shared by default.  This method
+   * never returns <code>null</code>.
+   *
+   * @return     the shared {@link FileAttributeCache}; never
+   *               <code>null</code>
+   */
+  public static FileAttributeCache getShared() {
+    return SHARED;
+  }
+
+  /**
+   * Returns the number of milliseconds attributes are cached for, or
+   * <code>0</code> or less if caching is off.
+   *
+   * @return     the time to live in milliseconds
+   */
+  public long getTimeToLiveMillis() {
+    return this.timeToLiveMillis;
+  }
+
+  /**
+   * Returns the {@link Attributes} of the supplied {@link File}, reading
+   * them if they are not cached.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      file
+   *               the {@link File}; must not be <code>null</code>
+   * @return     the {@link Attributes}; never <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if <code>file</code> is <code>null</code>
+   */
+  public Attributes get(final File file) {
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    if (this.cache == null) {
+      return new Attributes(file);
+    }
+    final String path = file.getAbsolutePath();
+    Attributes attributes = (Attributes)this.cache.get(path);
+    if (attributes == null) {
+      attributes = new Attributes(file);
+      this.cache.put(path, attributes);
+    }
+    return attributes;
+  }
+
+  /**
+   * Forgets the attributes of the supplied {@link File}, so that they are
+   * read afresh when next asked for.
+   *
+   * @param      file
+   *               the {@link File}; may be <code>null</code>, in which case
+   *               nothing happens
+   */
+  public void invalidate(final File file) {
+    if (file != null && this.cache != null) {
+      this.cache.remove(file.getAbsolutePath());
+    }
+  }
+
+  /**
+   * Forgets all cached attributes.
+   */
+  public void clear() {
+    if (this.cache != null) {
+      this.cache.clear();
+    }
+  }
+
+  /**
+   * Returns statistics about this {@link FileAttributeCache}, or
+   * <code>null</code> if caching is off.
+   *
+   * @return     the {@link CacheStatistics}, or <code>null</code>
+   */
+  public CacheStatistics getStatistics() {
+    if (this.cache == null) {
+      return null;
+    }
+    return this.cache.getStatistics();
+  }
+
+  /**
+   * An immutable snapshot of the attributes of a {@link File} that
+   * validation and type inference use.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  public static final class Attributes {
+
+    /**
+     * Whether the {@link File} existed and could be read.
+     */
+    private final boolean readable;
+
+    /**
+     * Whether the {@link File} was a normal file.
+     */
+    private final boolean normalFile;
+
+    /**
+     * The {@link File}'s length in bytes.
+     */
+    private final long length;
+
+    /**
+     * The {@link File}'s last-modified time.
+     */
+    private final long lastModified;
+
+    /**
+     * Reads the attributes of the supplied {@link File}.
+     *
+     * @param      file
+     *               the {@link File}; must not be <code>null</code>
+     */
+    private Attributes(final File file) {
+      super();
+      assert file != null;
+      this.readable = file.canRead();
+      if (this.readable) {
+        this.normalFile = file.isFile();
+        this.length = file.length();
+        this.lastModified = file.lastModified();
+      } else {
+        this.normalFile = false;
+        this.length = 0L;
+        this.lastModified = 0L;
+      }
+    }
+
+    /**
+     * Returns <code>true</code> if the {@link File} existed and could be
+     * read.
+     *
+     * @return     <code>true</code> if the {@link File} was readable
+     * @see        File#canRead()
+     */
+    public boolean isReadable() {
+      return this.readable;
+    }
+
+    /**
+     * Returns <code>true</code> if the {@link File} was a readable normal
+     * file rather than a directory.
+     *
+     * @return     <code>true</code> if the {@link File} was a normal file
+     * @see        File#isFile()
+     */
+    public boolean isFile() {
+      return this.normalFile;
+    }
+
+    /**
+     * Returns the {@link File}'s length in bytes, or <code>0</code> if it
+     * was not readable.
+     *
+     * @return     the length
+     * @see        File#length()
+     */
+    public long getLength() {
+      return this.length;
+    }
+
+    /**
+     * Returns the {@link File}'s last-modified time, or <code>0</code> if it
+     * was not readable.
+     *
+     * @return     the last-modified time
+     * @see        File#lastModified()
+     */
+    public long getLastModified() {
+      return this.lastModified;
+    }
+
+  }
+
+}
@@ -29,11 +29,20 @@ package sfutils.frs;
 
 import java.io.File;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Map;
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import sfutils.Project; // for Javadoc only
 
@@ -188,9 +197,17 @@ public class FileRelease extends HideableNamedObject {
    * A {@link Map} of {@link FileSpecification}s indexed by the {@linkplain
    * File#getName() unqualified name}s of their {@linkplain
    * FileSpecification#getFile() associated <code>File</code>}s.  This field
-   * cannot be <code>null</code>.  
+   * cannot be <code>null</code>.  It is replaced by a larger one when a
+   * bulk addition is made to it while it is empty.
+   */
+  private Map specs;
+
+  /**
+   * The cached, read-only {@link Views} of {@link #specs}, or
+   * <code>null</code> if they must be rebuilt because {@link #specs} has
+   * changed since they were last built.
    */
-  private final Map specs;
+  private transient volatile Views views;
 
   /**
    * A {@link Publisher} that handles the uploading and distribution of this
@@ -273,8 +290,28 @@ public class FileRelease extends HideableNamedObject {
    */
   public FileRelease(final Package projectPackage,
                      final String name) {
+    this(projectPackage, name, 0);
+  }
+
+  /**
+   * Creates a new {@link FileRelease} as {@link #FileRelease(Package,
+   * String)} does, with room for the supplied number of {@link
+   * FileSpecification}s so that adding them one by one causes no rehashing.
+   *
+   * @param      projectPackage
+   *               the {@link Package} to which this {@link FileRelease}
+   *               belongs; may be <code>null</code>, rather uselessly
+   * @param      name
+   *               the name of this new {@link FileRelease}; may be
+   *               <code>null</code>, rather uselessly
+   * @param      expectedFileCount
+   *               the number of {@link FileSpecification}s expected
+   */
+  public FileRelease(final Package projectPackage,
+                     final String name,
+                     final int expectedFileCount) {
     super(name);
-    this.specs = new LinkedHashMap(7);
+    this.specs = newSpecMap(expectedFileCount);
     this.setNotifyOthers(true);
     this.setPackage(projectPackage);
     this.setPreserveFormattedText(true);
@@ -292,6 +329,7 @@ public class FileRelease extends HideableNamedObject {
    *               uselessly)
    */
   public void setID(final String id) {
+    this.checkNotFrozen();
     this.id = id;
   }
 
@@ -327,6 +365,7 @@ public class FileRelease extends HideableNamedObject {
    *               FileRelease} will be notified when it is published
    */
   public void setNotifyOthers(final boolean notify) {
+    this.checkNotFrozen();
     this.notifyOthers = notify;
   }
 
@@ -356,6 +395,7 @@ public class FileRelease extends HideableNamedObject {
    *               preserved 
    */
   public void setPreserveFormattedText(final boolean preserve) {
+    this.checkNotFrozen();
     this.preserveFormattedText = preserve;
   }
 
@@ -378,6 +418,7 @@ public class FileRelease extends HideableNamedObject {
    *               belongs; may be <code>null</code> (rather uselessly)
    */
   public void setPackage(final Package projectPackage) {
+    this.checkNotFrozen();
     this.projectPackage = projectPackage;
   }
 
@@ -403,6 +444,7 @@ public class FileRelease extends HideableNamedObject {
    *               considered released; may be <code>null</code>
    */
   public void setReleaseDate(final Date date) {
+    this.checkNotFrozen();
     this.releaseDate = date;
   }
 
@@ -434,6 +476,7 @@ public class FileRelease extends HideableNamedObject {
    * @see        #setReleaseNotesFile(File)
    */
   public void setReleaseNotes(final String releaseNotes) {
+    this.checkNotFrozen();
     this.releaseNotes = releaseNotes;
   }
 
@@ -466,6 +509,7 @@ public class FileRelease extends HideableNamedObject {
    */
   public void setReleaseNotesFile(final File releaseNotesFile) 
     throws IllegalArgumentException {
+    this.checkNotFrozen();
     if (releaseNotesFile != null) {
       validate(releaseNotesFile);
     }
@@ -500,6 +544,7 @@ public class FileRelease extends HideableNamedObject {
    * @see        #setChangeLogFile(File) 
    */
   public void setChangeLog(final String changeLog) {
+    this.checkNotFrozen();
     this.changeLog = changeLog;
   }
 
@@ -532,6 +577,7 @@ public class FileRelease extends HideableNamedObject {
    */
   public void setChangeLogFile(final File changeLogFile) 
     throws IllegalArgumentException {
+    this.checkNotFrozen();
     if (changeLogFile != null) {
       validate(changeLogFile);
     }
@@ -544,80 +590,318 @@ public class FileRelease extends HideableNamedObject {
    * FileRelease}.  This method's implementation iterates through this {@link
    * FileRelease}'s {@linkplain #getFileSpecifications() associated
    * <code>FileSpecification</code>s} and extracts their associated {@link
-   * File}s.  This method may return <code>null</code>.  Additionally, it cannot
-   * be guaranteed that there are not <code>null</code> elements inside the
-   * returned {@link File} array.
+   * File}s.  The array is a copy, and is empty if there are none.  Callers
+   * that only read the {@link File}s should prefer {@link #getFileList()},
+   * which copies nothing.  This method never returns <code>null</code>.
    *
    * @return     all {@link File}s indirectly associated with this {@link
-   *               FileRelease}, or <code>null</code>
+   *               FileRelease}; never <code>null</code>
    */
   public final File[] getFiles() {
-    final FileSpecification[] specs = this.getFileSpecifications();
-    if (specs == null) {
-      return null;
-    }
+    final FileSpecification[] specs = this.getViews().specArray;
     final File[] files = new File[specs.length];
-    FileSpecification spec;
     for (int i = 0; i < specs.length; i++) {
-      spec = specs[i];
-      if (spec == null) {
-        files[i] = null;
-      } else {
-        files[i] = spec.getFile();
-      }
+      files[i] = specs[i].getFile();
     }
     return files;
   }
 
   /**
    * A convenience method that returns all {@linkplain File#getName() filenames}
-   * indirectly associated with this {@link FileRelease}.  This method's
-   * implementation iterates through this {@link FileRelease}'s {@linkplain
-   * #getFiles() associated <code>File</code>s} and extract their {@linkplain
-   * File#getName() names}.  This method may return <code>null</code>.
-   * Additionally, it cannot be guaranteed that there are not <code>null</code>
-   * elements inside the returned {@link File} array.
+   * indirectly associated with this {@link FileRelease}: the names under
+   * which its {@link FileSpecification}s are {@linkplain
+   * #getFileSpecification(String) indexed}.  Those are the names their {@link
+   * File}s had when they were added; a {@link FileSpecification} whose {@link
+   * File} is {@linkplain FileSpecification#setFile(File) changed} afterwards
+   * keeps its old name here until it is removed and added again.  The array
+   * is a copy, and is empty if there are none.  Callers that only read the
+   * names should prefer {@link #getShortFileNameList()} or {@link
+   * #getSortedShortFileNames()}, which copy nothing.  This method never
+   * returns <code>null</code>.
    *
    * @return     all {@linkplain File#getName() filenames} indirectly associated
-   *               with this {@link FileRelease}, or <code>null</code>
+   *               with this {@link FileRelease}; never <code>null</code>
    */
   public final String[] getShortFileNames() {
-    final File[] files = this.getFiles();
-    if (files == null) {
-      return null;
-    }
-    final String[] names = new String[files.length];
-    File file;
-    for (int i = 0; i < files.length; i++) {
-      file = files[i];
-      if (file == null) {
-        names[i] = null;
-      } else {
-        names[i] = file.getName();
-      }
-    }
-    return names;
+    return this.getViews().nameArray.clone();
   }
 
   /**
    * Returns all the {@link FileSpecification}s associated with this {@link
-   * FileRelease}.  This method may return <code>null</code>.
+   * FileRelease}.  The array is a copy, and is empty if there are none;
+   * callers that only read it should prefer {@link
+   * #getFileSpecificationList()} or {@link #accept(Visitor)}.  This method
+   * never returns <code>null</code>.
    *
    * @return     all the {@link FileSpecification}s associated with this {@link
-   *               FileRelease}, or <code>null</code>
+   *               FileRelease}; never <code>null</code>
    */
   public FileSpecification[] getFileSpecifications() {
-    final Collection values = this.specs.values();
-    if (values == null) {
-      return null;
+    return this.getViews().specArray.clone();
+  }
+
+  /**
+   * Returns the number of {@link FileSpecification}s associated with this
+   * {@link FileRelease}.
+   *
+   * @return     the number of {@link FileSpecification}s
+   */
+  public int getFileSpecificationCount() {
+    return this.getViews().specArray.length;
+  }
+
+  /**
+   * Returns a read-only {@link List} of the {@link FileSpecification}s
+   * associated with this {@link FileRelease}, in the order in which they were
+   * added.  Unlike {@link #getFileSpecifications()}, this method does not
+   * copy anything: the same {@link List} is returned until the {@link
+   * FileSpecification}s {@linkplain #setFileSpecifications(FileSpecification[])
+   * change}.  This method never returns <code>null</code>.
+   *
+   * @return     a read-only {@link List} of {@link FileSpecification}s; never
+   *               <code>null</code>
+   */
+  public List getFileSpecificationList() {
+    return this.getViews().specList;
+  }
+
+  /**
+   * Returns a read-only {@link List} of the {@link File}s of the {@linkplain
+   * #getFileSpecificationList() <code>FileSpecification</code>s} associated
+   * with this {@link FileRelease}.  Each element is read from its {@link
+   * FileSpecification} when it is accessed, so nothing is copied.  This
+   * method never returns <code>null</code>.
+   *
+   * @return     a read-only {@link List} of {@link File}s; never
+   *               <code>null</code>
+   */
+  public List getFileList() {
+    return this.getViews().fileList;
+  }
+
+  /**
+   * Returns a read-only {@link List} of the {@linkplain File#getName()
+   * filenames} under which the {@link FileSpecification}s associated with
+   * this {@link FileRelease} are {@linkplain #getFileSpecification(String)
+   * indexed}, in the order in which they were added.  As {@link
+   * #getShortFileNames()} describes, these are the names their {@link
+   * File}s had when they were added.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     a read-only {@link List} of filenames; never
+   *               <code>null</code>
+   */
+  public List getShortFileNameList() {
+    return this.getViews().nameList;
+  }
+
+  /**
+   * Returns a read-only, naturally ordered {@link SortedSet} of the
+   * {@linkplain #getShortFileNameList() filenames} of this {@link
+   * FileRelease}.  It is built once and then reused until the {@link
+   * FileSpecification}s change.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     a read-only {@link SortedSet} of filenames; never
+   *               <code>null</code>
+   */
+  public SortedSet getSortedShortFileNames() {
+    final Views views = this.getViews();
+    SortedSet sortedNames = views.sortedNames;
+    if (sortedNames == null) {
+      sortedNames =
+        Collections.unmodifiableSortedSet(new TreeSet(views.nameList));
+      views.sortedNames = sortedNames;
+    }
+    return sortedNames;
+  }
+
+  /**
+   * Hands each {@link FileSpecification} associated with this {@link
+   * FileRelease} to the supplied {@link Visitor}, in the order in which they
+   * were added, until the {@link Visitor} asks to stop.  Nothing is
+   * allocated.
+   *
+   * @param      visitor
+   *               the {@link Visitor}; must not be <code>null</code>
+   * @return     <code>true</code> if every {@link FileSpecification} was
+   *               visited; <code>false</code> if the {@link Visitor} stopped
+   *               early
+   */
+  public boolean accept(final Visitor visitor) {
+    if (visitor == null) {
+      throw new IllegalArgumentException("null visitor");
+    }
+    final FileSpecification[] specs = this.getViews().specArray;
+    for (int i = 0; i < specs.length; i++) {
+      if (!visitor.visit(specs[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns a read-only {@link List} of the {@link FileSpecification}s whose
+   * {@linkplain FileSpecification#getFileType() file type} is the supplied
+   * one, in the order in which they were added.  The {@link List} comes from
+   * an index that is built on first use and reused until a {@link
+   * FileSpecification} is added, removed or changed, so repeated queries do
+   * not scan.  This method never returns <code>null</code>.
+   *
+   * @param      fileType
+   *               the file type; see {@link FileSpecification#OTHER_FILE}
+   *               for an example
+   * @return     a read-only {@link List} of {@link FileSpecification}s;
+   *               never <code>null</code>
+   */
+  public List getFileSpecificationsByFileType(final int fileType) {
+    return lookUp(this.getIndexes().byFileType, new Integer(fileType));
+  }
+
+  /**
+   * Returns a read-only {@link List} of the {@link FileSpecification}s whose
+   * {@linkplain FileSpecification#getProcessorType() processor type} is the
+   * supplied one, in the order in which they were added, from an index as
+   * {@link #getFileSpecificationsByFileType(int)} does.  This method never
+   * returns <code>null</code>.
+   *
+   * @param      processorType
+   *               the processor type; see {@link
+   *               FileSpecification#ANY_PROCESSOR} for an example
+   * @return     a read-only {@link List} of {@link FileSpecification}s;
+   *               never <code>null</code>
+   */
+  public List getFileSpecificationsByProcessorType(final int processorType) {
+    return lookUp(this.getIndexes().byProcessorType,
+                  new Integer(processorType));
+  }
+
+  /**
+   * Returns a read-only {@link List} of the {@link FileSpecification}s whose
+   * {@link File}s are directly inside the supplied directory, in the order in
+   * which they were added, from an index as {@link
+   * #getFileSpecificationsByFileType(int)} does.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      directory
+   *               the directory; may be <code>null</code>
+   * @return     a read-only {@link List} of {@link FileSpecification}s;
+   *               never <code>null</code>
+   */
+  public List getFileSpecificationsInDirectory(final File directory) {
+    if (directory == null) {
+      return Collections.EMPTY_LIST;
+    }
+    return lookUp(this.getIndexes().byDirectory,
+                  directory.getAbsolutePath());
+  }
+
+  /**
+   * Returns a read-only {@link List} of the {@link FileSpecification}s whose
+   * {@link File}s are between the supplied lengths, inclusive, ordered by
+   * length.  Lengths are those the {@linkplain FileAttributeCache#getShared()
+   * shared <code>FileAttributeCache</code>} reported when the index was
+   * built; the index is otherwise kept as {@link
+   * #getFileSpecificationsByFileType(int)} describes, and a query costs a
+   * binary search.  This method never returns <code>null</code>.
+   *
+   * @param      minLength
+   *               the least length, in bytes
+   * @param      maxLength
+   *               the greatest length, in bytes
+   * @return     a read-only {@link List} of {@link FileSpecification}s;
+   *               never <code>null</code>
+   */
+  public List getFileSpecificationsByLength(final long minLength,
+                                            final long maxLength) {
+    final Indexes indexes = this.getIndexes();
+    final int from = indexes.firstIndexOfLength(minLength);
+    int to = indexes.firstIndexOfLength(maxLength);
+    while (to < indexes.lengths.length && indexes.lengths[to] == maxLength) {
+      to++;
+    }
+    if (from >= to) {
+      return Collections.EMPTY_LIST;
+    }
+    return indexes.byLength.subList(from, to);
+  }
+
+  /**
+   * Returns the read-only {@link List} the supplied index holds under the
+   * supplied key, or an empty one.
+   *
+   * @param      index
+   *               the index; must not be <code>null</code>
+   * @param      key
+   *               the key
+   * @return     a read-only {@link List}; never <code>null</code>
+   */
+  private static List lookUp(final Map index, final Object key) {
+    final List list = (List)index.get(key);
+    if (list == null) {
+      return Collections.EMPTY_LIST;
+    }
+    return list;
+  }
+
+  /**
+   * Returns the current {@link Indexes}, rebuilding them if the {@link
+   * FileSpecification}s have been added, removed or changed.  This method
+   * never returns <code>null</code>.
+   */
+  private Indexes getIndexes() {
+    final Views views = this.getViews();
+    final long modificationCount = modificationCount(views.specArray);
+    Indexes indexes = views.indexes;
+    if (indexes == null || indexes.modificationCount != modificationCount) {
+      indexes = new Indexes(views.specArray, modificationCount);
+      views.indexes = indexes;
     }
-    return (FileSpecification[])values.toArray(new FileSpecification[values.size()]);
+    return indexes;
+  }
+
+  /**
+   * Returns the sum of the {@linkplain
+   * FileSpecification#getModificationCount() modification counts} of the
+   * supplied {@link FileSpecification}s.  Since each count only grows, the
+   * sum changes whenever any of them is changed, and only then.
+   *
+   * @param      specs
+   *               the {@link FileSpecification}s; must not be
+   *               <code>null</code>
+   * @return     the sum of their modification counts
+   */
+  private static long modificationCount(final FileSpecification[] specs) {
+    long count = 0L;
+    for (int i = 0; i < specs.length; i++) {
+      count += specs[i].getModificationCount();
+    }
+    return count;
+  }
+
+  /**
+   * Returns the current {@link Views}, rebuilding them if the {@link
+   * FileSpecification}s have changed.  This method never returns
+   * <code>null</code>.
+   */
+  private Views getViews() {
+    Views views = this.views;
+    if (views == null) {
+      views = new Views(this.specs);
+      this.views = views;
+    }
+    return views;
   }
 
   /**
    * Returns the {@link FileSpecification} that contains the {@link File} with
    * the supplied {@linkplain File#getName() name}, or <code>null</code> if no
-   * such {@link FileSpecification} exists.
+   * such {@link FileSpecification} exists.  {@link FileSpecification}s are
+   * found by the name their {@link File}s had when they were added to this
+   * {@link FileRelease}, which a later {@linkplain
+   * FileSpecification#setFile(File) change} of {@link File} does not
+   * affect.
    *
    * @param      fileBaseName
    *               the {@linkplain File#getName() short name} of the {@link
@@ -649,6 +933,7 @@ public class FileRelease extends HideableNamedObject {
    */
   public void setFileSpecifications(final FileSpecification[] specs) 
     throws IllegalArgumentException {
+    this.checkNotFrozen();
     if (specs != null) {
       FileSpecification spec;
       File file;
@@ -664,7 +949,146 @@ public class FileRelease extends HideableNamedObject {
         name = file.getName();
         assert name != null;
         this.specs.put(name, spec);
+        this.views = null;
+      }
+    }
+  }
+  /**
+   * Adds {@link FileSpecification}s whose {@link File}s have already been
+   * {@linkplain FileSpecification#validate(File) validated}, such as those a
+   * {@link FileReleaseBuilder} produces, without validating them again.
+   *
+   * @param      specs
+   *               the {@link FileSpecification}s; must not be
+   *               <code>null</code>, contain <code>null</code> elements or
+   *               contain a {@link FileSpecification} with no {@link File}
+   */
+  void setValidatedFileSpecifications(final FileSpecification[] specs) {
+    assert specs != null;
+    this.checkNotFrozen();
+    this.makeRoomFor(specs.length);
+    for (int i = 0; i < specs.length; i++) {
+      assert specs[i] != null;
+      this.specs.put(specs[i].getFile().getName(), specs[i]);
+    }
+    this.views = null;
+  }
+  /**
+   * Adds the supplied {@link FileSpecification}s to this {@link
+   * FileRelease}, replacing any that share a {@linkplain File#getName()
+   * filename} with one of them.  Every {@link FileSpecification} is
+   * validated before any is added, so on failure nothing changes.
+   *
+   * @param      specs
+   *               a {@link Collection} of {@link FileSpecification}s; must
+   *               not be <code>null</code> or contain <code>null</code>
+   *               elements
+   * @exception  IllegalArgumentException
+   *               if <code>specs</code> is <code>null</code> or any of its
+   *               {@link FileSpecification}s is not set up properly; see
+   *               {@link #setFileSpecifications(FileSpecification[])} for
+   *               details
+   */
+  public void addFileSpecifications(final Collection specs)
+    throws IllegalArgumentException {
+    this.checkNotFrozen();
+    if (specs == null) {
+      throw new IllegalArgumentException("null specs");
+    }
+    final FileSpecification[] array =
+      (FileSpecification[])specs.toArray(new FileSpecification[specs.size()]);
+    for (int i = 0; i < array.length; i++) {
+      if (array[i] == null) {
+        throw new IllegalArgumentException("specs contains null elements");
       }
+      FileSpecification.validate(array[i].getFile());
+    }
+    this.setValidatedFileSpecifications(array);
+  }
+
+  /**
+   * Removes the {@link FileSpecification} whose {@link File} has the supplied
+   * {@linkplain File#getName() name}, if there is one.
+   *
+   * @param      fileBaseName
+   *               the {@linkplain File#getName() short name}; may be
+   *               <code>null</code>
+   * @return     the removed {@link FileSpecification}, or <code>null</code>
+   */
+  public FileSpecification removeFileSpecification(final String fileBaseName) {
+    this.checkNotFrozen();
+    final FileSpecification removed =
+      (FileSpecification)this.specs.remove(fileBaseName);
+    if (removed != null) {
+      this.views = null;
+    }
+    return removed;
+  }
+
+  /**
+   * Removes the {@link FileSpecification}s whose {@link File}s have the
+   * supplied {@linkplain File#getName() names}.
+   *
+   * @param      fileBaseNames
+   *               a {@link Collection} of {@linkplain File#getName() short
+   *               names}; must not be <code>null</code>
+   * @return     the number of {@link FileSpecification}s removed
+   * @exception  IllegalArgumentException
+   *               if <code>fileBaseNames</code> is <code>null</code>
+   */
+  public int removeFileSpecifications(final Collection fileBaseNames) {
+    this.checkNotFrozen();
+    if (fileBaseNames == null) {
+      throw new IllegalArgumentException("null fileBaseNames");
+    }
+    final int before = this.specs.size();
+    this.specs.keySet().removeAll(fileBaseNames);
+    final int removed = before - this.specs.size();
+    if (removed > 0) {
+      this.views = null;
+    }
+    return removed;
+  }
+
+  /**
+   * Returns a new, empty {@link Map} for {@link #specs} with room for the
+   * supplied number of {@link FileSpecification}s.
+   *
+   * @param      expectedFileCount
+   *               the number of {@link FileSpecification}s expected
+   * @return     a new {@link Map}; never <code>null</code>
+   */
+  private static Map newSpecMap(final int expectedFileCount) {
+    return new LinkedHashMap(Math.max(7, expectedFileCount * 4 / 3 + 1));
+  }
+
+  /**
+   * Replaces {@link #specs} with a larger {@link Map} if it is empty and
+   * about to receive more {@link FileSpecification}s than it has room for.
+   *
+   * @param      count
+   *               the number of {@link FileSpecification}s about to be added
+   */
+  private void makeRoomFor(final int count) {
+    if (this.specs.isEmpty() && count > 5) {
+      this.specs = newSpecMap(count);
+    }
+  }
+
+
+
+  /**
+   * Freezes the {@link Package} to which this {@link FileRelease} belongs and
+   * its {@linkplain #getFileSpecifications() file specifications}.
+   */
+  protected void freezeReferences() {
+    super.freezeReferences();
+    if (this.projectPackage != null) {
+      this.projectPackage.freeze();
+    }
+    final Iterator iterator = this.specs.values().iterator();
+    while (iterator.hasNext()) {
+      ((FileSpecification)iterator.next()).freeze();
     }
   }
 
@@ -690,6 +1114,7 @@ public class FileRelease extends HideableNamedObject {
    *               the new {@link Publisher}; may be <code>null</code>
    */
   public void setPublisher(final Publisher publisher) {
+    this.checkNotFrozen();
     this.publisher = publisher;
   }
 
@@ -729,7 +1154,7 @@ public class FileRelease extends HideableNamedObject {
     throws IllegalArgumentException {
     FileSpecification.validate(file);
     assert file != null;
-    final long length = file.length();
+    final long length = FileAttributeCache.getShared().get(file).getLength();
     if (length < 20L || length > 256000L) {
       throw new IllegalArgumentException("file length must be between 20 and " +
                                          "256,000 bytes");
@@ -764,4 +1189,187 @@ public class FileRelease extends HideableNamedObject {
     return returnMe.toString();
   }
 
+  /**
+   * Something that is handed each {@link FileSpecification} of a {@link
+   * FileRelease} in turn.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   * @see        FileRelease#accept(FileRelease.Visitor)
+   */
+  public static interface Visitor {
+
+    /**
+     * Visits the supplied {@link FileSpecification}.
+     *
+     * @param      spec
+     *               the {@link FileSpecification}; never <code>null</code>
+     * @return     <code>true</code> to go on to the next {@link
+     *               FileSpecification}; <code>false</code> to stop
+     */
+    public boolean visit(final FileSpecification spec);
+
+  }
+
+  /**
+   * Read-only views of the {@link FileSpecification}s of a {@link
+   * FileRelease} as they stood when the {@link Views} were built.
+   */
+  private static final class Views {
+
+    final FileSpecification[] specArray;
+
+    final String[] nameArray;
+
+    final List specList;
+
+    final List nameList;
+
+    final List fileList;
+
+    /**
+     * The sorted filenames, built on first use.  Racy but idempotent.
+     */
+    volatile SortedSet sortedNames;
+
+    /**
+     * The secondary indexes, built on first use.  Racy but idempotent.
+     */
+    volatile Indexes indexes;
+
+    Views(final Map specs) {
+      super();
+      this.specArray =
+        (FileSpecification[])specs.values().toArray(new FileSpecification[specs.size()]);
+      this.nameArray = (String[])specs.keySet().toArray(new String[specs.size()]);
+      this.specList = Collections.unmodifiableList(Arrays.asList(this.specArray));
+      this.nameList = Collections.unmodifiableList(Arrays.asList(this.nameArray));
+      this.fileList = new AbstractList() {
+          public Object get(final int index) {
+            return specArray[index].getFile();
+          }
+
+          public int size() {
+            return specArray.length;
+          }
+        };
+    }
+
+  }
+
+  /**
+   * Secondary indexes over the {@link FileSpecification}s of a {@link
+   * FileRelease} as they stood when the {@link Indexes} were built.  Each
+   * index holds read-only {@link List}s in the order in which the {@link
+   * FileSpecification}s were added.
+   */
+  private static final class Indexes {
+
+    /**
+     * The sum of the {@linkplain FileSpecification#getModificationCount()
+     * modification counts} of the {@link FileSpecification}s when the
+     * indexes were built.
+     */
+    final long modificationCount;
+
+    final Map byFileType;
+
+    final Map byProcessorType;
+
+    final Map byDirectory;
+
+    /**
+     * The {@link FileSpecification}s ordered by length.
+     */
+    final List byLength;
+
+    /**
+     * The lengths of the elements of {@link #byLength}, by index.
+     */
+    final long[] lengths;
+
+    Indexes(final FileSpecification[] specs, final long modificationCount) {
+      super();
+      this.modificationCount = modificationCount;
+      final Map byFileType = new HashMap();
+      final Map byProcessorType = new HashMap();
+      final Map byDirectory = new HashMap();
+      final long[] lengths = new long[specs.length];
+      final Integer[] order = new Integer[specs.length];
+      final FileAttributeCache attributes = FileAttributeCache.getShared();
+      for (int i = 0; i < specs.length; i++) {
+        final FileSpecification spec = specs[i];
+        final File file = spec.getFile();
+        add(byFileType, new Integer(spec.getFileType()), spec);
+        add(byProcessorType, new Integer(spec.getProcessorType()), spec);
+        final File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+          add(byDirectory, directory.getPath(), spec);
+        }
+        lengths[i] = attributes.get(file).getLength();
+        order[i] = new Integer(i);
+      }
+      Arrays.sort(order, new Comparator() {
+          public int compare(final Object one, final Object two) {
+            final long first = lengths[((Integer)one).intValue()];
+            final long second = lengths[((Integer)two).intValue()];
+            return first < second ? -1 : (first == second ? 0 : 1);
+          }
+        });
+      final FileSpecification[] byLength = new FileSpecification[specs.length];
+      this.lengths = new long[specs.length];
+      for (int i = 0; i < order.length; i++) {
+        final int index = order[i].intValue();
+        byLength[i] = specs[index];
+        this.lengths[i] = lengths[index];
+      }
+      this.byLength = Collections.unmodifiableList(Arrays.asList(byLength));
+      this.byFileType = seal(byFileType);
+      this.byProcessorType = seal(byProcessorType);
+      this.byDirectory = seal(byDirectory);
+    }
+
+    /**
+     * Returns the index of the first of the {@link #lengths} not less than
+     * the supplied length.
+     */
+    int firstIndexOfLength(final long length) {
+      int low = 0;
+      int high = this.lengths.length;
+      while (low < high) {
+        final int middle = (low + high) >>> 1;
+        if (this.lengths[middle] < length) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    private static void add(final Map index,
+                            final Object key,
+                            final FileSpecification spec) {
+      List list = (List)index.get(key);
+      if (list == null) {
+        list = new ArrayList();
+        index.put(key, list);
+      }
+      list.add(spec);
+    }
+
+    /**
+     * Makes each {@link List} in the supplied index read-only.
+     */
+    private static Map seal(final Map index) {
+      final Iterator iterator = index.entrySet().iterator();
+      while (iterator.hasNext()) {
+        final Map.Entry entry = (Map.Entry)iterator.next();
+        entry.setValue(Collections.unmodifiableList((List)entry.getValue()));
+      }
+      return index;
+    }
+
+  }
+
 }
@@ -0,0 +1,762 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import java.util.regex.Pattern;
+
+/**
+ * Builds a {@link FileRelease} from the {@link File}s found beneath one or
+ * more root directories, rather than from a hand-made list of {@link
+ * FileSpecification}s.
+ *
+ * <p>Which {@link File}s are taken is governed by include and exclude
+ * rules, matched against each {@link File}'s path relative to its root with
+ * <code>/</code> as the separator.  Rules are either Ant-style globs, in
+ * which <code>**</code> matches any number of directories, <code>*</code>
+ * any run of characters within a name and <code>?</code> any one such
+ * character, or regular expressions.  A {@link File} is taken if it matches
+ * an include rule (or there are none) and no exclude rule.  Directories
+ * that an exclude rule covers entirely, such as <code>**&#47;CVS/**</code>,
+ * are not descended into, and neither are symbolic links to directories,
+ * which could otherwise lead round a cycle or take the same {@link File}s
+ * twice.</p>
+ *
+ * <p>Directories are listed, and the {@link File}s in them validated and
+ * {@linkplain FileSpecification#computeFileType(File) typed}, by a pool of
+ * worker threads sharing one queue of work, so a tree of tens of thousands
+ * of {@link File}s is scanned in a fraction of the time a single thread
+ * would take.  A {@link FileReleaseBuilder} is not itself thread-safe.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        FileRelease
+ */
+public class FileReleaseBuilder {
+
+  /**
+   * The greatest number of {@link File}s one unit of work validates.
+   */
+  private static final int BATCH_SIZE = 256;
+
+  /**
+   * The number used to name threads started by {@link #scan()}.
+   */
+  private static final AtomicInteger SCANNER_THREAD_NUMBER =
+    new AtomicInteger();
+
+  /**
+   * The root directories, in the order they were added.  This field is
+   * never <code>null</code>.
+   */
+  private final List roots;
+
+  /**
+   * The include rules, as {@link Pattern}s.  This field is never
+   * <code>null</code>.
+   */
+  private final List includes;
+
+  /**
+   * The exclude rules, as {@link Pattern}s.  This field is never
+   * <code>null</code>.
+   */
+  private final List excludes;
+
+  /**
+   * The number of worker threads.
+   */
+  private int parallelism;
+
+  /**
+   * The processor type given to each {@link FileSpecification}.
+   */
+  private int processorType;
+
+  /**
+   * Creates a new {@link FileReleaseBuilder} with no roots or rules that
+   * scans with one thread per available processor.
+   */
+  public FileReleaseBuilder() {
+    super();
+    this.roots = new ArrayList();
+    this.includes = new ArrayList();
+    this.excludes = new ArrayList();
+    this.parallelism = Runtime.getRuntime().availableProcessors();
+    this.processorType = FileSpecification.ANY_PROCESSOR;
+  }
+
+  /**
+   * Adds a directory beneath which {@link File}s will be found.
+   *
+   * @param      root
+   *               the directory; must not be <code>null</code> and must be
+   *               a {@linkplain File#isDirectory() directory}
+   * @exception  IllegalArgumentException
+   *               if <code>root</code> is <code>null</code> or not a
+   *               directory
+   */
+  public void addRoot(final File root) {
+    if (root == null) {
+      throw new IllegalArgumentException("null root");
+    }
+    if (!root.isDirectory()) {
+      throw new IllegalArgumentException("Not a directory: " + root);
+    }
+    this.roots.add(root);
+  }
+
+  /**
+   * Adds an include rule given as a glob.  A glob ending in <code>/</code>
+   * is taken to end in <code>/**</code>.
+   *
+   * @param      glob
+   *               the glob; must not be <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if <code>glob</code> is <code>null</code>
+   */
+  public void addInclude(final String glob) {
+    this.includes.add(Pattern.compile(toRegularExpression(glob)));
+  }
+
+  /**
+   * Adds an exclude rule given as a glob.  A glob ending in <code>/</code>
+   * is taken to end in <code>/**</code>.
+   *
+   * @param      glob
+   *               the glob; must not be <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if <code>glob</code> is <code>null</code>
+   */
+  public void addExclude(final String glob) {
+    this.excludes.add(Pattern.compile(toRegularExpression(glob)));
+  }
+
+  /**
+   * Adds an include rule given as a regular expression, which must match a
+   * relative path entirely.
+   *
+   * @param      pattern
+   *               the {@link Pattern}; must not be <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if <code>pattern</code> is <code>null</code>
+   */
+  public void addInclude(final Pattern pattern) {
+    if (pattern == null) {
+      throw new IllegalArgumentException("null pattern");
+    }
+    this.includes.add(pattern);
+  }
+
+  /**
+   * Adds an exclude rule given as a regular expression, which must match a
+   * relative path entirely.
+   *
+   * @param      pattern
+   *               the {@link Pattern}; must not be <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if <code>pattern</code> is <code>null</code>
+   */
+  public void addExclude(final Pattern pattern) {
+    if (pattern == null) {
+      throw new IllegalArgumentException("null pattern");
+    }
+    this.excludes.add(pattern);
+  }
+
+  /**
+   * Returns the number of worker threads that will scan.
+   *
+   * @return     the number of worker threads
+   */
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  /**
+   * Sets the number of worker threads that will scan.
+   *
+   * @param      parallelism
+   *               the number of worker threads; must be positive
+   * @exception  IllegalArgumentException
+   *               if <code>parallelism</code> is not positive
+   */
+  public void setParallelism(final int parallelism) {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("parallelism <= 0: " + parallelism);
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Returns the {@linkplain FileSpecification#setProcessorType(int)
+   * processor type} given to each {@link FileSpecification}.
+   *
+   * @return     the processor type
+   */
+  public int getProcessorType() {
+    return this.processorType;
+  }
+
+  /**
+   * Sets the {@linkplain FileSpecification#setProcessorType(int) processor
+   * type} given to each {@link FileSpecification}.
+   *
+   * @param      processorType
+   *               the processor type; see {@link
+   *               FileSpecification#setProcessorType(int)}
+   */
+  public void setProcessorType(final int processorType) {
+    this.processorType = processorType;
+  }
+
+  /**
+   * Scans the roots and returns a new {@link FileRelease} holding a {@link
+   * FileSpecification} for each {@link File} taken.
+   *
+   * @param      projectPackage
+   *               the {@link Package} the {@link FileRelease} belongs to;
+   *               may be <code>null</code>
+   * @param      name
+   *               the name of the {@link FileRelease}; may be
+   *               <code>null</code>
+   * @return     a new {@link FileRelease}; never <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if a {@link File} taken does not meet the <a
+   *               href="FileSpecification.html#fileReqs">SourceForge-imposed
+   *               filename requirements</a>, or two share a name
+   * @exception  IOException
+   *               if a directory could not be listed, or the calling thread
+   *               was interrupted
+   */
+  public FileRelease build(final Package projectPackage, final String name)
+    throws IOException {
+    final FileRelease release = new FileRelease(projectPackage, name);
+    release.setValidatedFileSpecifications(this.scan());
+    return release;
+  }
+
+  /**
+   * Scans the roots and returns a {@link FileSpecification} for each {@link
+   * File} taken, ordered by root and then by relative path.
+   *
+   * @return     the {@link FileSpecification}s; never <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if a {@link File} taken does not meet the <a
+   *               href="FileSpecification.html#fileReqs">SourceForge-imposed
+   *               filename requirements</a>, or two share a name
+   * @exception  IOException
+   *               if a directory could not be listed, or the calling thread
+   *               was interrupted
+   */
+  public FileSpecification[] scan() throws IOException {
+    final Scan scan = new Scan();
+    for (int i = 0; i < this.roots.size(); i++) {
+      final File root = (File)this.roots.get(i);
+      scan.enqueue(new Directory(i, root, root.getCanonicalFile(), ""));
+    }
+    if (scan.pending.get() > 0) {
+      final ExecutorService executor =
+        Executors.newFixedThreadPool(this.parallelism, new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+              final Thread thread =
+                new Thread(runnable, "sfutils-scanner-" +
+                           SCANNER_THREAD_NUMBER.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+      try {
+        for (int i = 0; i < this.parallelism; i++) {
+          executor.execute(new Runnable() {
+              public void run() {
+                work(scan);
+              }
+            });
+        }
+        executor.shutdown();
+        while (!executor.awaitTermination(1L, TimeUnit.SECONDS)) {
+          // keep waiting
+        }
+      } catch (final InterruptedException kaboom) {
+        Thread.currentThread().interrupt();
+        scan.fail(new InterruptedIOException("Interrupted while scanning"));
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+    final Throwable failure = (Throwable)scan.failure.get();
+    if (failure instanceof IOException) {
+      throw (IOException)failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException)failure;
+    } else if (failure instanceof Error) {
+      throw (Error)failure;
+    }
+    return sort(scan.found);
+  }
+
+  /**
+   * Performs units of work from the supplied {@link Scan} until it is
+   * finished or has failed.
+   *
+   * @param      scan
+   *               the {@link Scan}; must not be <code>null</code>
+   */
+  private void work(final Scan scan) {
+    assert scan != null;
+    while (scan.pending.get() > 0 && scan.failure.get() == null) {
+      final Object unit;
+      try {
+        unit = scan.work.poll(10L, TimeUnit.MILLISECONDS);
+      } catch (final InterruptedException kaboom) {
+        scan.fail(new InterruptedIOException("Interrupted while scanning"));
+        return;
+      }
+      if (unit != null) {
+        try {
+          if (unit instanceof Directory) {
+            this.list(scan, (Directory)unit);
+          } else {
+            this.validate(scan, (Found[])unit);
+          }
+        } catch (final IOException kaboom) {
+          scan.fail(kaboom);
+        } catch (final RuntimeException kaboom) {
+          scan.fail(kaboom);
+        } catch (final Error kaboom) {
+          scan.fail(kaboom);
+        } finally {
+          scan.pending.decrementAndGet();
+        }
+      }
+    }
+  }
+
+  /**
+   * Lists a directory, queuing its subdirectories and, in batches, the
+   * {@link File}s in it that the rules take.
+   *
+   * @param      scan
+   *               the {@link Scan}; must not be <code>null</code>
+   * @param      directory
+   *               the {@link Directory}; must not be <code>null</code>
+   * @exception  IOException
+   *               if the directory could not be listed, or the canonical
+   *               form of a subdirectory could not be worked out
+   */
+  private void list(final Scan scan, final Directory directory)
+    throws IOException {
+    assert scan != null;
+    assert directory != null;
+    final File[] children = directory.file.listFiles();
+    if (children == null) {
+      throw new IOException("Could not list " + directory.file);
+    }
+    List batch = new ArrayList(Math.min(children.length, BATCH_SIZE));
+    for (int i = 0; i < children.length; i++) {
+      final File child = children[i];
+      assert child != null;
+      final String path = directory.path + child.getName();
+      if (child.isDirectory()) {
+        if (!this.excluded(path + "/")) {
+          // A directory whose canonical path is not its parent's plus its
+          // name is, or is reached through, a symbolic link; skip it.
+          final File canonical = child.getCanonicalFile();
+          if (canonical.equals(new File(directory.canonical,
+                                        child.getName()))) {
+            scan.enqueue(new Directory(directory.root, child, canonical,
+                                       path + "/"));
+          }
+        }
+      } else if (this.taken(path)) {
+        batch.add(new Found(directory.root, path, child));
+        if (batch.size() == BATCH_SIZE) {
+          scan.enqueue(batch.toArray(new Found[batch.size()]));
+          batch = new ArrayList(BATCH_SIZE);
+        }
+      }
+    }
+    if (!batch.isEmpty()) {
+      scan.enqueue(batch.toArray(new Found[batch.size()]));
+    }
+  }
+
+  /**
+   * Builds, validates and types a {@link FileSpecification} for each of a
+   * batch of {@link Found} {@link File}s.
+   *
+   * @param      scan
+   *               the {@link Scan}; must not be <code>null</code>
+   * @param      batch
+   *               the {@link Found} {@link File}s; must not be
+   *               <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if a {@link File} does not meet the <a
+   *               href="FileSpecification.html#fileReqs">SourceForge-imposed
+   *               filename requirements</a>
+   */
+  private void validate(final Scan scan, final Found[] batch) {
+    assert scan != null;
+    assert batch != null;
+    for (int i = 0; i < batch.length; i++) {
+      final Found found = batch[i];
+      assert found != null;
+      try {
+        found.spec = new FileSpecification(found.file);
+      } catch (final IllegalArgumentException kaboom) {
+        throw new IllegalArgumentException(found.file + ": " +
+                                           kaboom.getMessage());
+      }
+      found.spec.setProcessorType(this.processorType);
+      scan.found.add(found);
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if the supplied relative path is matched by
+   * an include rule, or there are none, and by no exclude rule.
+   *
+   * @param      path
+   *               the relative path; must not be <code>null</code>
+   * @return     <code>true</code> if the path is taken
+   */
+  private boolean taken(final String path) {
+    assert path != null;
+    if (this.excluded(path)) {
+      return false;
+    }
+    return this.includes.isEmpty() || matches(this.includes, path);
+  }
+
+  /**
+   * Returns <code>true</code> if the supplied relative path is matched by
+   * an exclude rule.
+   *
+   * @param      path
+   *               the relative path; must not be <code>null</code>
+   * @return     <code>true</code> if the path is excluded
+   */
+  private boolean excluded(final String path) {
+    return matches(this.excludes, path);
+  }
+
+  /**
+   * Returns <code>true</code> if any of the supplied {@link Pattern}s
+   * matches the supplied path entirely.
+   *
+   * @param      patterns
+   *               the {@link Pattern}s; must not be <code>null</code>
+   * @param      path
+   *               the path; must not be <code>null</code>
+   * @return     <code>true</code> if a {@link Pattern} matches
+   */
+  private static boolean matches(final List patterns, final String path) {
+    assert patterns != null;
+    final int size = patterns.size();
+    for (int i = 0; i < size; i++) {
+      if (((Pattern)patterns.get(i)).matcher(path).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Orders the {@link Found} {@link File}s by root and relative path and
+   * returns their {@link FileSpecification}s.
+   *
+   * @param      found
+   *               the {@link Found} {@link File}s; must not be
+   *               <code>null</code>
+   * @return     the {@link FileSpecification}s; never <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if two {@link File}s share a name
+   */
+  private static FileSpecification[] sort(final ConcurrentLinkedQueue found) {
+    assert found != null;
+    final Found[] array = (Found[])found.toArray(new Found[found.size()]);
+    Arrays.sort(array, new Comparator() {
+        public int compare(final Object one, final Object two) {
+          final Found first = (Found)one;
+          final Found second = (Found)two;
+          if (first.root != second.root) {
+            return first.root < second.root ? -1 : 1;
+          }
+          return first.path.compareTo(second.path);
+        }
+      });
+    final Map byName = new HashMap(array.length * 2);
+    final FileSpecification[] specs = new FileSpecification[array.length];
+    for (int i = 0; i < array.length; i++) {
+      final String name = array[i].file.getName();
+      final Object previous = byName.put(name, array[i].file);
+      if (previous != null) {
+        throw new IllegalArgumentException("Both " + previous + " and " +
+                                           array[i].file + " are named " +
+                                           name);
+      }
+      specs[i] = array[i].spec;
+    }
+    return specs;
+  }
+
+  /**
+   * Translates an Ant-style glob into a regular expression.
+   *
+   * @param      glob
+   *               the glob; must not be <code>null</code>
+   * @return     the regular expression; never <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if <code>glob</code> is <code>null</code>
+   */
+  static String toRegularExpression(final String glob) {
+    if (glob == null) {
+      throw new IllegalArgumentException("null glob");
+    }
+    String working = glob.replace('\\', '/');
+    if (working.endsWith("/")) {
+      working = working + "**";
+    }
+    final int length = working.length();
+    final StringBuffer regex = new StringBuffer(length * 2);
+    for (int i = 0; i < length; i++) {
+      final char c = working.charAt(i);
+      if (c == '*') {
+        if (i + 1 < length && working.charAt(i + 1) == '*') {
+          i++;
+          if (i + 1 < length && working.charAt(i + 1) == '/') {
+            i++;
+            regex.append("(?:.*/)?");
+          } else {
+            regex.append(".*");
+          }
+        } else {
+          regex.append("[^/]*");
+        }
+      } else if (c == '?') {
+        regex.append("[^/]");
+      } else if (Character.isLetterOrDigit(c) || c == '/' || c == '_' ||
+                 c == '-') {
+        regex.append(c);
+      } else {
+        regex.append('\\').append(c);
+      }
+    }
+    return regex.toString();
+  }
+
+  /**
+   * The state of one {@link FileReleaseBuilder#scan()} shared by its worker
+   * threads.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private static final class Scan {
+
+    /**
+     * The units of work: {@link Directory} instances to list and arrays of
+     * {@link Found} {@link File}s to validate.
+     */
+    private final BlockingQueue work = new LinkedBlockingQueue();
+
+    /**
+     * The number of units of work queued or in progress; the scan is
+     * finished when it reaches <code>0</code>.
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * The {@link Found} {@link File}s validated so far.
+     */
+    private final ConcurrentLinkedQueue found = new ConcurrentLinkedQueue();
+
+    /**
+     * The first {@link Throwable} that stopped the scan, if any.
+     */
+    private final AtomicReference failure = new AtomicReference();
+
+    /**
+     * Creates a new {@link Scan}.
+     */
+    private Scan() {
+      super();
+    }
+
+    /**
+     * Queues a unit of work.
+     *
+     * @param      unit
+     *               the unit of work; must not be <code>null</code>
+     */
+    private void enqueue(final Object unit) {
+      assert unit != null;
+      this.pending.incrementAndGet();
+      this.work.add(unit);
+    }
+
+    /**
+     * Records the {@link Throwable} that stopped the scan, unless one has
+     * been recorded already.
+     *
+     * @param      kaboom
+     *               the {@link Throwable}; must not be <code>null</code>
+     */
+    private void fail(final Throwable kaboom) {
+      assert kaboom != null;
+      this.failure.compareAndSet(null, kaboom);
+    }
+
+  }
+
+  /**
+   * A directory waiting to be listed.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private static final class Directory {
+
+    /**
+     * The index of the root the directory is beneath.
+     */
+    private final int root;
+
+    /**
+     * The directory.
+     */
+    private final File file;
+
+    /**
+     * The directory's canonical form.
+     */
+    private final File canonical;
+
+    /**
+     * The directory's path relative to its root, ending in <code>/</code>
+     * unless it is the root itself.
+     */
+    private final String path;
+
+    /**
+     * Creates a new {@link Directory}.
+     *
+     * @param      root
+     *               the index of the root
+     * @param      file
+     *               the directory; must not be <code>null</code>
+     * @param      canonical
+     *               the directory's canonical form; must not be
+     *               <code>null</code>
+     * @param      path
+     *               the relative path; must not be <code>null</code>
+     */
+    private Directory(final int root,
+                      final File file,
+                      final File canonical,
+                      final String path) {
+      super();
+      this.root = root;
+      this.file = file;
+      this.canonical = canonical;
+      this.path = path;
+    }
+
+  }
+
+  /**
+   * A {@link File} the rules took, and its {@link FileSpecification} once
+   * it has been validated.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private static final class Found {
+
+    /**
+     * The index of the root the {@link File} is beneath.
+     */
+    private final int root;
+
+    /**
+     * The {@link File}'s path relative to its root.
+     */
+    private final String path;
+
+    /**
+     * The {@link File}.
+     */
+    private final File file;
+
+    /**
+     * The {@link File}'s {@link FileSpecification}, once validated.
+     */
+    private FileSpecification spec;
+
+    /**
+     * Creates a new {@link Found}.
+     *
+     * @param      root
+     *               the index of the root
+     * @param      path
+     *               the relative path; must not be <code>null</code>
+     * @param      file
+     *               the {@link File}; must not be <code>null</code>
+     */
+    private Found(final int root, final String path, final File file) {
+      super();
+      this.root = root;
+      this.path = path;
+      this.file = file;
+    }
+
+  }
+
+}
@@ -30,14 +30,11 @@ package sfutils.frs;
 import java.io.File;
 import java.io.Serializable;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
-
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
 
+
 import sfutils.Project; // for Javadoc only
 
 /**
@@ -344,43 +341,24 @@ public class FileSpecification implements Serializable {
   /**
    * A {@link Map} that indexes file type constants by filename suffix.  For
    * example, a "<code>.deb</code>" suffix is mapped to the {@link
-   * #DEBIAN_PACKAGE_FILE} constant.
-   */
-  protected static final Map SUFFIX_TO_FILE_TYPE_MAP;
-
-  /**
-   * Static initializer; initializes the {@link #SUFFIX_TO_FILE_TYPE_MAP} field.
-   */
-  static {
-    final Map map = new HashMap(31, 1F);
-    map.put(".deb", new Integer(DEBIAN_PACKAGE_FILE));
-    map.put(".rpm", new Integer(BINARY_REDHAT_PACKAGE_FILE));
-    map.put(".zip", new Integer(BINARY_ZIP_FILE));
-    map.put(".bz2", new Integer(BINARY_BZIP2_FILE));
-    map.put(".gz", new Integer(BINARY_GZIP_FILE));
-    map.put(".tgz", new Integer(BINARY_GZIP_FILE));
-    map.put(".jpg", new Integer(JPEG_IMAGE_FILE));
-    map.put(".jpeg", new Integer(JPEG_IMAGE_FILE));
-    map.put(".txt", new Integer(TEXT_FILE));
-    map.put(".text", new Integer(TEXT_FILE));
-    map.put(".htm", new Integer(HTML_FILE));
-    map.put(".html", new Integer(HTML_FILE));
-    map.put(".pdf", new Integer(PDF_FILE));
-    map.put(".sit", new Integer(STUFFIT_FILE));
-    map.put(".nbz", new Integer(NODEBALL_FILE));
-    map.put(".nbz", new Integer(NODEBALL_FILE));
-    map.put(".exe", new Integer(WINDOWS_32_BIT_EXE_FILE));
-    map.put(".dmg", new Integer(DMG_FILE));
-    map.put(".jar", new Integer(JAR_FILE));
-    map.put(".diff", new Integer(SOURCE_PATCH_OR_DIFF_FILE));
-    map.put(".patch", new Integer(SOURCE_PATCH_OR_DIFF_FILE));
-    map.put(".prc", new Integer(PALM_RESOURCE_DATABASE_FILE));
-    map.put(".iso", new Integer(ISO_FILE));
-    map.put(".z", new Integer(SOURCE_Z_FILE));
-    map.put(".bin", new Integer(MACBINARY_FILE));
-    SUFFIX_TO_FILE_TYPE_MAP = 
-      Collections.synchronizedMap(Collections.unmodifiableMap(map));
-  }
+   * #DEBIAN_PACKAGE_FILE} constant.  This {@link Map} is kept for
+   * compatibility only; this class consults the {@link TypeRegistry}
+   * instead.
+   *
+   * @see        TypeRegistry#getFileTypeForName(String)
+   */
+  protected static final Map SUFFIX_TO_FILE_TYPE_MAP =
+    Collections.unmodifiableMap(TypeRegistry.newSuffixMap());
+
+  /**
+   * The {@link ContentSniffer} that {@link #computeFileType(File)} checks
+   * names against, or <code>null</code> if types are inferred from names
+   * alone.  Content sniffing is off unless the
+   * <code>sfutils.contentSniffing</code> system property is
+   * <code>true</code>.
+   */
+  private static volatile ContentSniffer contentSniffer =
+    Boolean.getBoolean("sfutils.contentSniffing") ? new ContentSniffer() : null;
 
   /**
    * The type of processor this {@link FileSpecification}'s enclosing {@link
@@ -421,6 +399,27 @@ public class FileSpecification implements Serializable {
    */
   private int fileType;
 
+  /**
+   * The hashcode computed when this {@link FileSpecification} was
+   * {@linkplain #freeze() frozen}.  Meaningless until then.
+   */
+  private int frozenHashCode;
+
+  /**
+   * Whether this {@link FileSpecification} has been {@linkplain #freeze()
+   * frozen}.  Written last, so that a thread that sees it set also sees
+   * everything written before it.
+   */
+  private volatile boolean frozen;
+
+  /**
+   * Counts changes to the attributes of this {@link FileSpecification} that
+   * {@link FileRelease} indexes.
+   *
+   * @see        #getModificationCount()
+   */
+  private transient volatile int modificationCount;
+
   /**
    * Creates a new {@link FileSpecification}.  The {@linkplain #getFileType()
    * file type} is initialized to {@link #OTHER_FILE}, the {@linkplain
@@ -490,21 +489,12 @@ public class FileSpecification implements Serializable {
    *               #PLATFORM_INDEPENDENT_PROCESSOR} 
    */
   public void setProcessorType(int processorType) {
-    switch (processorType) {
-    case ALPHA_PROCESSOR:
-    case ANY_PROCESSOR:
-    case I386_PROCESSOR:
-    case IA64_PROCESSOR:
-    case MIPS_PROCESSOR:
-    case PLATFORM_INDEPENDENT_PROCESSOR:
-    case PPC_PROCESSOR:
-    case SPARC_PROCESSOR:
-    case ULTRASPARC_PROCESSOR:
-      break;
-    default:
+    this.checkNotFrozen();
+    if (!TypeRegistry.isProcessorType(processorType)) {
       processorType = ANY_PROCESSOR;
     }
     this.processorType = processorType;
+    this.modificationCount++;
   }
 
   /**
@@ -569,6 +559,11 @@ public class FileSpecification implements Serializable {
    * <p>If possible, the {@linkplain #setFileType(int) file type} will be set
    * appropriately from the supplied {@link File}'s suffix.</p>
    *
+   * <p>A {@link FileRelease} to which this {@link FileSpecification} has
+   * already been added goes on {@linkplain
+   * FileRelease#getFileSpecification(String) indexing} it under its old
+   * {@link File}'s name.</p>
+   *
    * @param      file
    *               the {@link File} that this {@link FileSpecification} will
    *               represent; must be non-<code>null</code>, must {@linkplain
@@ -582,15 +577,45 @@ public class FileSpecification implements Serializable {
    */
   public void setFile(final File file)
     throws IllegalArgumentException {
+    this.checkNotFrozen();
     validate(file);
     assert file != null;
-    final int fileType = computeFileType(file);
+    final int fileType = inferFileType(file);
     if (isValidFileType(fileType)) {
       this.setFileType(fileType);
     } else {
       this.setFileType(OTHER_FILE);
     }
     this.file = file;
+    this.modificationCount++;
+  }
+
+  /**
+   * Sets the {@link File} that this {@link FileSpecification} will represent
+   * together with its {@linkplain #setFileType(int) file type}, without
+   * inferring the type from the {@link File}'s name or contents.  Callers
+   * that already know the type, such as a {@link ReleaseManifest} or a
+   * pattern-based mapping, save the inference this way.
+   *
+   * @param      file
+   *               the {@link File}; must satisfy the requirements of {@link
+   *               #setFile(File)}
+   * @param      fileType
+   *               the file type; an invalid type is taken as {@link
+   *               #OTHER_FILE}
+   * @exception  IllegalArgumentException
+   *               if the supplied {@link File} does not satisfy the <a
+   *               href="#fileReqs">SourceForge-imposed filename
+   *               requirements</a>
+   */
+  public void setFile(final File file, final int fileType)
+    throws IllegalArgumentException {
+    this.checkNotFrozen();
+    validate(file);
+    assert file != null;
+    this.setFileType(fileType);
+    this.file = file;
+    this.modificationCount++;
   }
 
   /**
@@ -611,7 +636,7 @@ public class FileSpecification implements Serializable {
     if (file == null) {
       throw new IllegalArgumentException("file is null");
     }
-    if (!file.canRead()) {
+    if (!FileAttributeCache.getShared().get(file).isReadable()) {
       throw new IllegalArgumentException("file must exist and must be " +
                                          "readable");
     }
@@ -631,9 +656,14 @@ public class FileSpecification implements Serializable {
   }
 
   /**
-   * Returns a {@link File} type for the supplied {@link File} based on its
-   * suffix.  If a suitable {@link File} type cannot be determined, then {@link
-   * #OTHER_FILE} is returned.
+   * Returns a {@link File} type for the supplied {@link File} based on the
+   * longest known suffix of its name, so that, for example,
+   * "<code>foo-src.tar.gz</code>" is a {@link #SOURCE_GZIP_FILE} while
+   * "<code>foo.gz</code>" is a {@link #BINARY_GZIP_FILE}.  If a {@linkplain
+   * #setContentSniffer(ContentSniffer) <code>ContentSniffer</code> is
+   * installed}, the type is then {@linkplain ContentSniffer#refine(int, File)
+   * checked against the <code>File</code>'s contents}.  If a suitable {@link
+   * File} type cannot be determined, then {@link #OTHER_FILE} is returned.
    *
    * @param      file
    *               the {@link File} for which a {@link File} type should be
@@ -649,26 +679,56 @@ public class FileSpecification implements Serializable {
   public static int computeFileType(final File file)
     throws IllegalArgumentException {
     validate(file);
+    return inferFileType(file);
+  }
+
+  /**
+   * Returns a {@link File} type for the supplied, already {@linkplain
+   * #validate(File) validated}, {@link File}, as {@link
+   * #computeFileType(File)} does.
+   *
+   * @param      file
+   *               the {@link File}; must not be <code>null</code> and must
+   *               have been validated
+   * @return     a suitable {@link File} type for the supplied {@link File}
+   */
+  private static int inferFileType(final File file) {
     assert file != null;
     final String name = file.getName();
     assert name != null;
     assert name.length() > 0;
-    final int lastPeriodIndex = name.lastIndexOf('.');
-    if (lastPeriodIndex >= 0 && lastPeriodIndex != name.length() - 1) {
-      String suffix = name.substring(lastPeriodIndex);
-      assert suffix != null;
-      suffix = suffix.toLowerCase();
-      assert suffix != null;
-      final Integer type = (Integer)SUFFIX_TO_FILE_TYPE_MAP.get(suffix);
-      if (type == null) {
-        return OTHER_FILE;
-      }
-      final int fileType = type.intValue();
-      if (isValidFileType(fileType)) {
-        return fileType;
-      }
+    int fileType = TypeRegistry.getFileTypeForName(name);
+    final ContentSniffer sniffer = contentSniffer;
+    if (sniffer != null) {
+      fileType = sniffer.refine(fileType, file);
+    }
+    if (fileType == TypeRegistry.UNKNOWN) {
+      return OTHER_FILE;
     }
-    return OTHER_FILE;
+    return fileType;
+  }
+
+  /**
+   * Returns the {@link ContentSniffer} that {@link #computeFileType(File)}
+   * consults, or <code>null</code> if {@link File} types are inferred from
+   * names alone.
+   *
+   * @return     the {@link ContentSniffer}, or <code>null</code>
+   */
+  public static ContentSniffer getContentSniffer() {
+    return contentSniffer;
+  }
+
+  /**
+   * Installs the {@link ContentSniffer} that {@link #computeFileType(File)}
+   * consults.
+   *
+   * @param      sniffer
+   *               the {@link ContentSniffer}, or <code>null</code> to infer
+   *               {@link File} types from names alone
+   */
+  public static void setContentSniffer(final ContentSniffer sniffer) {
+    contentSniffer = sniffer;
   }
 
   /**
@@ -682,39 +742,7 @@ public class FileSpecification implements Serializable {
    *               in this class 
    */
   protected static boolean isValidFileType(final int type) {
-    switch (type) {
-    case BINARY_BZIP2_FILE:
-    case BINARY_GZIP_FILE:
-    case BINARY_REDHAT_PACKAGE_FILE:
-    case BINARY_ZIP_FILE:
-    case DEBIAN_PACKAGE_FILE:
-    case DMG_FILE:
-    case DOS_EXE_FILE:
-    case HTML_FILE:
-    case ISO_FILE:
-    case JAR_FILE:
-    case JPEG_IMAGE_FILE:
-    case MACBINARY_FILE:
-    case NODEBALL_FILE:
-    case OS2_EXE_FILE:
-    case OTHER_FILE:
-    case OTHER_SOURCE_FILE:
-    case PALM_RESOURCE_DATABASE_FILE:
-    case PDF_FILE:
-    case SOURCE_BZ2_FILE:
-    case SOURCE_GZIP_FILE:
-    case SOURCE_PATCH_OR_DIFF_FILE:
-    case SOURCE_REDHAT_PACKAGE_FILE:
-    case SOURCE_ZIP_FILE:
-    case SOURCE_Z_FILE:
-    case STUFFIT_FILE:
-    case TEXT_FILE:
-    case WINDOWS_16_BIT_EXE_FILE:
-    case WINDOWS_32_BIT_EXE_FILE:
-      return true;
-    default:
-      return false;
-    }
+    return TypeRegistry.isFileType(type);
   }
 
   /**
@@ -742,11 +770,26 @@ public class FileSpecification implements Serializable {
    * @see        #OTHER_FILE 
    */
   public void setFileType(final int type) {
+    this.checkNotFrozen();
     if (isValidFileType(type)) {
       this.fileType = type;
     } else {
       this.fileType = OTHER_FILE;
     }
+    this.modificationCount++;
+  }
+
+  /**
+   * Returns a number that grows whenever the {@link File}, {@linkplain
+   * #getFileType() file type} or {@linkplain #getProcessorType() processor
+   * type} of this {@link FileSpecification} changes, so that indexes over
+   * those attributes, such as {@link FileRelease}'s, can tell when they are
+   * stale.
+   *
+   * @return     the modification count
+   */
+  int getModificationCount() {
+    return this.modificationCount;
   }
 
   /**
@@ -774,7 +817,8 @@ public class FileSpecification implements Serializable {
    * String} argument into the proper constant value.  For example, an argument
    * of &quot;<code>OTHER_FILE</code>&quot; would be translated into the value
    * of the {@link #OTHER_FILE} field, and the {@link #setFileType(int)} method
-   * would be called with that value as an argument.
+   * would be called with that value as an argument.  Names are resolved
+   * through the {@link TypeRegistry}.
    *
    * @param      type
    *               the {@link String} value that hopefully corresponds to a
@@ -791,61 +835,27 @@ public class FileSpecification implements Serializable {
     throws IllegalArgumentException {
 
     final String kind;
-    final String fieldNameSuffix;
     if (fileType) {
       kind = "File";
-      fieldNameSuffix = "_FILE";
     } else {
       kind = "Processor";
-      fieldNameSuffix = "_PROCESSOR";
     }
-
-    String workingType = type;
-    if (workingType == null) {
+    if (type == null) {
       throw new IllegalArgumentException(kind + " type cannot be null");
     }
-    workingType = workingType.trim();
-    if (workingType == null) {
-      throw new InternalError("String.trim() returned null");
-    }
-    workingType = workingType.replace(' ', '_');
-    if (workingType == null) {
-      throw new InternalError("String.replace() returned null");
-    }
-    if (!workingType.endsWith(fieldNameSuffix)) {
-      workingType = workingType + fieldNameSuffix;
-    }
-    workingType = workingType.toUpperCase();
-    
-    // Since there are so many types, let's just use reflection to see if
-    // there is a constant that is named the same thing.
-    final Class myClass = this.getClass();
-    if (myClass == null) {
-      throw new InternalError("Object.getClass() returned null");
-    }
-    Field f = null;
-    try {
-      f = myClass.getField(workingType);
-    } catch (final NoSuchFieldException kaboom) {
-      throw new IllegalArgumentException("Unknown " + kind + " type: " + type);
-    }
-    if (f == null) {
-      throw new IllegalArgumentException("Unknown " + kind + " type: " + type);
+    final int code;
+    if (fileType) {
+      code = TypeRegistry.getFileType(type);
+    } else {
+      code = TypeRegistry.getProcessorType(type);
     }
-    final int modifiers = f.getModifiers();
-    if (!Modifier.isStatic(modifiers) ||
-        !Modifier.isFinal(modifiers) ||
-        !Integer.TYPE.equals(f.getType())) {
+    if (code == TypeRegistry.UNKNOWN) {
       throw new IllegalArgumentException("Unknown " + kind + " type: " + type);
     }
-    try {
-      if (fileType) {
-        this.setFileType(f.getInt(this));
-      } else {
-        this.setProcessorType(f.getInt(this));
-      }
-    } catch (final IllegalAccessException wontHappen) {
-      throw new IllegalArgumentException("Unknown " + kind + " type: " + type);
+    if (fileType) {
+      this.setFileType(code);
+    } else {
+      this.setProcessorType(code);
     }
   }
 
@@ -878,6 +888,7 @@ public class FileSpecification implements Serializable {
    *               will be used instead
    */
   public void setReleaseDate(final Date date) {
+    this.checkNotFrozen();
     if (date == null) {
       this.releaseDate = new Date();
     } else {
@@ -885,13 +896,54 @@ public class FileSpecification implements Serializable {
     }
   }
 
+  /**
+   * Makes this {@link FileSpecification} immutable: from now on its setters
+   * throw an {@link IllegalStateException}, and its {@linkplain #hashCode()
+   * hashcode} is computed once, here.  A frozen {@link FileSpecification} may
+   * safely be used as a {@link Map} key and shared among threads.  Freezing
+   * an already frozen {@link FileSpecification} does nothing.
+   *
+   * @see        #isFrozen()
+   */
+  public void freeze() {
+    if (!this.frozen) {
+      this.frozenHashCode = this.computeHashCode();
+      this.frozen = true;
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if this {@link FileSpecification} has been
+   * {@linkplain #freeze() frozen}.
+   *
+   * @return     <code>true</code> if this {@link FileSpecification} is frozen
+   */
+  public final boolean isFrozen() {
+    return this.frozen;
+  }
+
+  private void checkNotFrozen() throws IllegalStateException {
+    if (this.frozen) {
+      throw new IllegalStateException(this + " is frozen");
+    }
+  }
+
   /**
    * Returns a hashcode for this {@link FileSpecification} based on its
-   * {@linkplain #getFile() associated <code>File</code>}.
+   * {@linkplain #getFile() associated <code>File</code>}.  Once this {@link
+   * FileSpecification} is {@linkplain #freeze() frozen} the hashcode is not
+   * recomputed.
    *
    * @return     a hashcode for this {@link FileSpecification}
    */
   public int hashCode() {
+    if (this.frozen) {
+      return this.frozenHashCode;
+    }
+    return this.computeHashCode();
+  }
+
+  private int computeHashCode() {
     File file = null;
     try {
       file = this.getFile();
@@ -930,7 +982,7 @@ public class FileSpecification implements Serializable {
       }
       File otherFile = null;
       try {
-        otherFile = this.getFile();
+        otherFile = other.getFile();
       } catch (final IllegalStateException ignore) {
         otherFile = null;
       }
@@ -87,18 +87,19 @@ public abstract class HideableNamedObject extends NamedObject {
    * @see        #isHidden()
    */
   public void setHidden(final boolean hidden) {
+    this.checkNotFrozen();
     this.hidden = hidden;
   }
 
   /**
-   * Returns a hashcode for this {@link HideableNamedObject} based off its
+   * Computes a hashcode for this {@link HideableNamedObject} based off its
    * {@linkplain #getName() name} and its {@linkplain #isHidden() hidden
    * status}.
    *
    * @return     a hashcode for this {@link HideableNamedObject}
    */
-  public int hashCode() {
-    int hashCode = super.hashCode();
+  protected int computeHashCode() {
+    int hashCode = super.computeHashCode();
     if (this.isHidden()) {
       ++hashCode;
     }
@@ -0,0 +1,872 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import sfutils.Administrator;
+import sfutils.Project;
+
+/**
+ * Reads {@linkplain ReleaseManifest#JSON JSON} manifests in a single pass,
+ * without building a tree, handing each {@link FileRelease} to a {@link
+ * ReleaseManifest.Handler} as soon as it has been read.
+ *
+ * <p>Members are applied to the object being read in the order in which
+ * they appear, so a {@link Project}'s or {@link Package}'s own members
+ * should precede its <code>packages</code> or <code>releases</code>, as
+ * {@link JsonManifestWriter} writes them, if the {@link FileRelease}s
+ * handed out are to see them.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        JsonManifestWriter
+ */
+final class JsonManifestReader {
+
+  /**
+   * The {@link Reader} from which characters are read.  This field is never
+   * <code>null</code>.
+   */
+  private final Reader in;
+
+  /**
+   * The {@link ReleaseManifest.Handler} to which {@link FileRelease}s are
+   * handed.  This field is never <code>null</code>.
+   */
+  private final ReleaseManifest.Handler handler;
+
+  /**
+   * The characters most recently read from {@link #in}.
+   */
+  private final char[] buffer;
+
+  /**
+   * A scratch buffer for {@link String}s being read.
+   */
+  private final StringBuffer scratch;
+
+  /**
+   * The index in {@link #buffer} of the next character to be read.
+   */
+  private int position;
+
+  /**
+   * The number of valid characters in {@link #buffer}.
+   */
+  private int limit;
+
+  /**
+   * The current line, for error messages.
+   */
+  private int line;
+
+  /**
+   * The number of {@link FileRelease}s handed out.
+   */
+  private int count;
+
+  /**
+   * Whether the {@link ReleaseManifest.Handler} has asked that reading
+   * stop.
+   */
+  private boolean stopped;
+
+  /**
+   * Creates a new {@link JsonManifestReader}.
+   *
+   * @param      in
+   *               the {@link InputStream}; must not be <code>null</code>
+   * @param      handler
+   *               the {@link ReleaseManifest.Handler}; must not be
+   *               <code>null</code>
+   * @exception  IOException
+   *               if UTF-8 is not supported
+   */
+  JsonManifestReader(final InputStream in,
+                     final ReleaseManifest.Handler handler)
+    throws IOException {
+    super();
+    assert in != null;
+    assert handler != null;
+    this.in = new InputStreamReader(in, "UTF-8");
+    this.handler = handler;
+    this.buffer = new char[8192];
+    this.scratch = new StringBuffer(64);
+    this.line = 1;
+  }
+
+  /**
+   * Reads the manifest.
+   *
+   * @return     the number of {@link FileRelease}s handed out
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed or the {@link
+   *               ReleaseManifest.Handler} throws one
+   */
+  int read() throws IOException, PublishingException {
+    this.expect('{');
+    if (!this.endOfObject()) {
+      do {
+        final String name = this.readName();
+        if ("version".equals(name)) {
+          final long version = this.readLong();
+          if (version > ReleaseManifest.VERSION) {
+            throw this.malformed("Unsupported version " + version);
+          }
+        } else if ("projects".equals(name)) {
+          this.expect('[');
+          if (!this.endOfArray()) {
+            do {
+              this.readProject();
+              if (this.stopped) {
+                return this.count;
+              }
+            } while (this.nextElement(']'));
+          }
+        } else {
+          this.skipValue();
+        }
+      } while (this.nextElement('}'));
+    }
+    return this.count;
+  }
+
+  /**
+   * Reads a {@link Project} and its {@link Package}s.
+   *
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed or the {@link
+   *               ReleaseManifest.Handler} throws one
+   */
+  private void readProject() throws IOException, PublishingException {
+    final Project project = new Project();
+    this.expect('{');
+    if (this.endOfObject()) {
+      return;
+    }
+    do {
+      final String name = this.readName();
+      if ("name".equals(name)) {
+        project.setName(this.readString());
+      } else if ("shortName".equals(name)) {
+        project.setShortName(this.readString());
+      } else if ("id".equals(name)) {
+        project.setID(this.readString());
+      } else if ("administrator".equals(name)) {
+        project.setAdministrator(this.readAdministrator());
+      } else if ("packages".equals(name)) {
+        this.expect('[');
+        if (!this.endOfArray()) {
+          do {
+            this.readPackage(project);
+            if (this.stopped) {
+              return;
+            }
+          } while (this.nextElement(']'));
+        }
+      } else {
+        this.skipValue();
+      }
+    } while (this.nextElement('}'));
+  }
+
+  /**
+   * Reads an {@link Administrator}.
+   *
+   * @return     the {@link Administrator}, or <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private Administrator readAdministrator()
+    throws IOException, PublishingException {
+    if (this.peek() == 'n') {
+      this.readLiteral("null");
+      return null;
+    }
+    final Administrator administrator = new Administrator();
+    this.expect('{');
+    if (!this.endOfObject()) {
+      do {
+        final String name = this.readName();
+        try {
+          if ("name".equals(name)) {
+            administrator.setName(this.readString());
+          } else if ("password".equals(name)) {
+            administrator.setPassword(this.readString());
+          } else {
+            this.skipValue();
+          }
+        } catch (final IllegalArgumentException kaboom) {
+          throw this.malformed(kaboom.getMessage());
+        }
+      } while (this.nextElement('}'));
+    }
+    return administrator;
+  }
+
+  /**
+   * Reads a {@link Package} and its {@link FileRelease}s.
+   *
+   * @param      project
+   *               the {@link Project} to which the {@link Package} belongs;
+   *               must not be <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed or the {@link
+   *               ReleaseManifest.Handler} throws one
+   */
+  private void readPackage(final Project project)
+    throws IOException, PublishingException {
+    assert project != null;
+    final Package projectPackage = new Package(project);
+    this.expect('{');
+    if (this.endOfObject()) {
+      return;
+    }
+    do {
+      final String name = this.readName();
+      if ("name".equals(name)) {
+        projectPackage.setName(this.readString());
+      } else if ("id".equals(name)) {
+        projectPackage.setID(this.readString());
+      } else if ("hidden".equals(name)) {
+        projectPackage.setHidden(this.readBoolean());
+      } else if ("releases".equals(name)) {
+        this.expect('[');
+        if (!this.endOfArray()) {
+          do {
+            this.readRelease(projectPackage);
+            if (this.stopped) {
+              return;
+            }
+          } while (this.nextElement(']'));
+        }
+      } else {
+        this.skipValue();
+      }
+    } while (this.nextElement('}'));
+  }
+
+  /**
+   * Reads a {@link FileRelease} and its {@link FileSpecification}s, and
+   * hands it to the {@link ReleaseManifest.Handler}.
+   *
+   * @param      projectPackage
+   *               the {@link Package} to which the {@link FileRelease}
+   *               belongs; must not be <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed or the {@link
+   *               ReleaseManifest.Handler} throws one
+   */
+  private void readRelease(final Package projectPackage)
+    throws IOException, PublishingException {
+    assert projectPackage != null;
+    final FileRelease release = new FileRelease(projectPackage, null);
+    List specs = null;
+    this.expect('{');
+    if (!this.endOfObject()) {
+      do {
+        final String name = this.readName();
+        try {
+          if ("name".equals(name)) {
+            release.setName(this.readString());
+          } else if ("id".equals(name)) {
+            release.setID(this.readString());
+          } else if ("hidden".equals(name)) {
+            release.setHidden(this.readBoolean());
+          } else if ("releaseDate".equals(name)) {
+            release.setReleaseDate(this.readDate());
+          } else if ("notifyOthers".equals(name)) {
+            release.setNotifyOthers(this.readBoolean());
+          } else if ("preserveFormattedText".equals(name)) {
+            release.setPreserveFormattedText(this.readBoolean());
+          } else if ("releaseNotes".equals(name)) {
+            release.setReleaseNotes(this.readString());
+          } else if ("releaseNotesFile".equals(name)) {
+            release.setReleaseNotesFile(this.readFile());
+          } else if ("changeLog".equals(name)) {
+            release.setChangeLog(this.readString());
+          } else if ("changeLogFile".equals(name)) {
+            release.setChangeLogFile(this.readFile());
+          } else if ("files".equals(name)) {
+            specs = this.readFileSpecifications();
+          } else {
+            this.skipValue();
+          }
+        } catch (final IllegalArgumentException kaboom) {
+          throw this.malformed(name + ": " + kaboom.getMessage());
+        }
+      } while (this.nextElement('}'));
+    }
+    if (specs != null) {
+      try {
+        ReleaseManifest.setFileSpecifications(release, specs);
+      } catch (final IllegalArgumentException kaboom) {
+        throw this.malformed(kaboom.getMessage());
+      }
+    }
+    this.count++;
+    this.stopped = !this.handler.handle(release);
+  }
+
+  /**
+   * Reads an array of {@link FileSpecification}s.
+   *
+   * @return     a {@link List} of {@link FileSpecification}s; never
+   *               <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private List readFileSpecifications()
+    throws IOException, PublishingException {
+    final List specs = new ArrayList();
+    this.expect('[');
+    if (this.endOfArray()) {
+      return specs;
+    }
+    do {
+      File file = null;
+      int fileType = FileSpecification.OTHER_FILE;
+      int processorType = FileSpecification.ANY_PROCESSOR;
+      boolean fileTypeSet = false;
+      Date releaseDate = null;
+      this.expect('{');
+      if (!this.endOfObject()) {
+        do {
+          final String name = this.readName();
+          if ("file".equals(name)) {
+            file = this.readFile();
+          } else if ("fileType".equals(name)) {
+            fileType = this.readType(true);
+            fileTypeSet = true;
+          } else if ("processorType".equals(name)) {
+            processorType = this.readType(false);
+          } else if ("releaseDate".equals(name)) {
+            releaseDate = this.readDate();
+          } else {
+            this.skipValue();
+          }
+        } while (this.nextElement('}'));
+      }
+      if (file == null) {
+        throw this.malformed("File specification has no file");
+      }
+      try {
+        if (fileTypeSet) {
+          specs.add(ReleaseManifest.newFileSpecification(file,
+                                                         fileType,
+                                                         processorType,
+                                                         releaseDate));
+        } else {
+          final FileSpecification spec = new FileSpecification(file);
+          spec.setProcessorType(processorType);
+          spec.setReleaseDate(releaseDate);
+          specs.add(spec);
+        }
+      } catch (final IllegalArgumentException kaboom) {
+        throw this.malformed(file + ": " + kaboom.getMessage());
+      }
+    } while (this.nextElement(']'));
+    return specs;
+  }
+
+  /**
+   * Reads a file or processor type, given either by name or by code.
+   *
+   * @param      fileType
+   *               <code>true</code> for a file type; <code>false</code> for
+   *               a processor type
+   * @return     the type
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed or the type is unknown
+   */
+  private int readType(final boolean fileType)
+    throws IOException, PublishingException {
+    if (this.peek() != '"') {
+      return (int)this.readLong();
+    }
+    final String name = this.readString();
+    final int type;
+    if (fileType) {
+      type = TypeRegistry.getFileType(name);
+    } else {
+      type = TypeRegistry.getProcessorType(name);
+    }
+    if (type == TypeRegistry.UNKNOWN) {
+      throw this.malformed("Unknown " + (fileType ? "file" : "processor") +
+                           " type: " + name);
+    }
+    return type;
+  }
+
+  /**
+   * Reads a {@link File}, given as a path.
+   *
+   * @return     the {@link File}, or <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private File readFile() throws IOException, PublishingException {
+    final String path = this.readString();
+    if (path == null) {
+      return null;
+    }
+    return new File(path);
+  }
+
+  /**
+   * Reads a {@link Date}, given as milliseconds since the epoch.
+   *
+   * @return     the {@link Date}, or <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private Date readDate() throws IOException, PublishingException {
+    if (this.peek() == 'n') {
+      this.readLiteral("null");
+      return null;
+    }
+    return new Date(this.readLong());
+  }
+
+  /**
+   * Reads a <code>boolean</code>.
+   *
+   * @return     the <code>boolean</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private boolean readBoolean() throws IOException, PublishingException {
+    if (this.peek() == 't') {
+      this.readLiteral("true");
+      return true;
+    }
+    this.readLiteral("false");
+    return false;
+  }
+
+  /**
+   * Reads an integral number.
+   *
+   * @return     the number
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private long readLong() throws IOException, PublishingException {
+    int c = this.peek();
+    final boolean negative = c == '-';
+    if (negative) {
+      this.position++;
+      c = this.next();
+    } else {
+      this.position++;
+    }
+    if (c < '0' || c > '9') {
+      throw this.malformed("Expected a number");
+    }
+    long value = c - '0';
+    while (true) {
+      if (this.position >= this.limit && !this.fill()) {
+        break;
+      }
+      c = this.buffer[this.position];
+      if (c < '0' || c > '9') {
+        break;
+      }
+      this.position++;
+      value = value * 10 + (c - '0');
+    }
+    if (c == '.' || c == 'e' || c == 'E') {
+      throw this.malformed("Expected an integer");
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Reads a member name and the colon that follows it.
+   *
+   * @return     the name; never <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private String readName() throws IOException, PublishingException {
+    if (this.peek() != '"') {
+      throw this.malformed("Expected a member name");
+    }
+    final String name = this.readString();
+    this.expect(':');
+    return name;
+  }
+
+  /**
+   * Reads a {@link String}, or <code>null</code>.
+   *
+   * @return     the {@link String}, or <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private String readString() throws IOException, PublishingException {
+    final int first = this.peek();
+    if (first == 'n') {
+      this.readLiteral("null");
+      return null;
+    }
+    if (first != '"') {
+      throw this.malformed("Expected a string");
+    }
+    this.position++;
+    final StringBuffer value = this.scratch;
+    value.setLength(0);
+    while (true) {
+      if (this.position >= this.limit && !this.fill()) {
+        throw this.malformed("Unterminated string");
+      }
+      int start = this.position;
+      while (this.position < this.limit) {
+        final char c = this.buffer[this.position];
+        if (c == '"') {
+          value.append(this.buffer, start, this.position - start);
+          this.position++;
+          return value.toString();
+        }
+        if (c == '\\') {
+          value.append(this.buffer, start, this.position - start);
+          this.position++;
+          value.append(this.readEscape());
+          start = this.position;
+        } else if (c < 0x20) {
+          throw this.malformed("Control character in string");
+        } else {
+          this.position++;
+        }
+      }
+      value.append(this.buffer, start, this.position - start);
+    }
+  }
+
+  /**
+   * Reads the remainder of an escape sequence whose backslash has been
+   * read.
+   *
+   * @return     the escaped character
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private char readEscape() throws IOException, PublishingException {
+    final int c = this.next();
+    switch (c) {
+    case '"':
+    case '\\':
+    case '/':
+      return (char)c;
+    case 'b':
+      return '\b';
+    case 'f':
+      return '\f';
+    case 'n':
+      return '\n';
+    case 'r':
+      return '\r';
+    case 't':
+      return '\t';
+    case 'u':
+      int value = 0;
+      for (int i = 0; i < 4; i++) {
+        final int digit = Character.digit((char)this.next(), 16);
+        if (digit < 0) {
+          throw this.malformed("Bad unicode escape");
+        }
+        value = (value << 4) | digit;
+      }
+      return (char)value;
+    default:
+      throw this.malformed("Bad escape");
+    }
+  }
+
+  /**
+   * Reads the supplied literal.
+   *
+   * @param      literal
+   *               the literal; must not be <code>null</code>
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest does not contain the literal here
+   */
+  private void readLiteral(final String literal)
+    throws IOException, PublishingException {
+    assert literal != null;
+    this.peek();
+    for (int i = 0; i < literal.length(); i++) {
+      if (this.next() != literal.charAt(i)) {
+        throw this.malformed("Expected " + literal);
+      }
+    }
+  }
+
+  /**
+   * Skips a value of any kind.
+   *
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest is malformed
+   */
+  private void skipValue() throws IOException, PublishingException {
+    final int c = this.peek();
+    switch (c) {
+    case '"':
+      this.readString();
+      break;
+    case '{':
+      this.position++;
+      if (!this.endOfObject()) {
+        do {
+          this.readName();
+          this.skipValue();
+        } while (this.nextElement('}'));
+      }
+      break;
+    case '[':
+      this.position++;
+      if (!this.endOfArray()) {
+        do {
+          this.skipValue();
+        } while (this.nextElement(']'));
+      }
+      break;
+    case 't':
+      this.readLiteral("true");
+      break;
+    case 'f':
+      this.readLiteral("false");
+      break;
+    case 'n':
+      this.readLiteral("null");
+      break;
+    default:
+      if (c != '-' && (c < '0' || c > '9')) {
+        throw this.malformed("Expected a value");
+      }
+      this.position++;
+      while ((this.position < this.limit || this.fill()) &&
+             "0123456789+-.eE".indexOf(this.buffer[this.position]) >= 0) {
+        this.position++;
+      }
+      break;
+    }
+  }
+
+  /**
+   * Consumes the closing brace of an object if it follows immediately.
+   *
+   * @return     <code>true</code> if the object was empty
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest ends here
+   */
+  private boolean endOfObject() throws IOException, PublishingException {
+    if (this.peek() == '}') {
+      this.position++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Consumes the closing bracket of an array if it follows immediately.
+   *
+   * @return     <code>true</code> if the array was empty
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest ends here
+   */
+  private boolean endOfArray() throws IOException, PublishingException {
+    if (this.peek() == ']') {
+      this.position++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Consumes either a comma, returning <code>true</code>, or the supplied
+   * closing character, returning <code>false</code>.
+   *
+   * @param      close
+   *               the closing character
+   * @return     <code>true</code> if another element follows
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if neither character follows
+   */
+  private boolean nextElement(final char close)
+    throws IOException, PublishingException {
+    final int c = this.peek();
+    this.position++;
+    if (c == ',') {
+      return true;
+    }
+    if (c == close) {
+      return false;
+    }
+    throw this.malformed("Expected ',' or '" + close + "'");
+  }
+
+  /**
+   * Consumes the supplied character, which must be the next one that is
+   * not whitespace.
+   *
+   * @param      expected
+   *               the character
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if another character follows
+   */
+  private void expect(final char expected)
+    throws IOException, PublishingException {
+    if (this.peek() != expected) {
+      throw this.malformed("Expected '" + expected + "'");
+    }
+    this.position++;
+  }
+
+  /**
+   * Skips whitespace and returns, without consuming, the next character.
+   *
+   * @return     the next character
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest ends here
+   */
+  private int peek() throws IOException, PublishingException {
+    while (true) {
+      if (this.position >= this.limit && !this.fill()) {
+        throw this.malformed("Unexpected end of manifest");
+      }
+      final char c = this.buffer[this.position];
+      if (c == '\n') {
+        this.line++;
+      } else if (c != ' ' && c != '\t' && c != '\r') {
+        return c;
+      }
+      this.position++;
+    }
+  }
+
+  /**
+   * Consumes and returns the next character, whitespace or not.
+   *
+   * @return     the next character
+   * @exception  IOException
+   *               if an error occurs reading
+   * @exception  PublishingException
+   *               if the manifest ends here
+   */
+  private int next() throws IOException, PublishingException {
+    if (this.position >= this.limit && !this.fill()) {
+      throw this.malformed("Unexpected end of manifest");
+    }
+    return this.buffer[this.position++];
+  }
+
+  /**
+   * Refills {@link #buffer}.
+   *
+   * @return     <code>false</code> if the end of the manifest has been
+   *               reached
+   * @exception  IOException
+   *               if an error occurs reading
+   */
+  private boolean fill() throws IOException {
+    final int read = this.in.read(this.buffer, 0, this.buffer.length);
+    if (read <= 0) {
+      this.position = 0;
+      this.limit = 0;
+      return false;
+    }
+    this.position = 0;
+    this.limit = read;
+    return true;
+  }
+
+  /**
+   * Returns a {@link PublishingException} reporting a malformed manifest.
+   *
+   * @param      message
+   *               what is wrong; may be <code>null</code>
+   * @return     a new {@link PublishingException}; never <code>null</code>
+   */
+  private PublishingException malformed(final String message) {
+    return new PublishingException("Malformed manifest at line " + this.line +
+                                   ": " + message);
+  }
+
+}
@@ -0,0 +1,446 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.util.Date;
+import java.util.Iterator;
+
+import sfutils.Administrator;
+import sfutils.Project;
+
+/**
+ * A {@link ReleaseManifest.Writer} that writes {@linkplain
+ * ReleaseManifest#JSON JSON} manifests.  Each {@link FileRelease} is
+ * written on a line of its own.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        JsonManifestReader
+ */
+final class JsonManifestWriter extends ReleaseManifest.Writer {
+
+  /**
+   * Hexadecimal digits, for escaping control characters.
+   */
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  /**
+   * The {@link Writer} to which JSON is written.  This field is never
+   * <code>null</code>.
+   */
+  private final Writer out;
+
+  /**
+   * Whether the manifest has been started.
+   */
+  private boolean started;
+
+  /**
+   * Whether a {@link Project} has been written.
+   */
+  private boolean projectWritten;
+
+  /**
+   * Whether a {@link Package} has been written within the current {@link
+   * Project}.
+   */
+  private boolean packageWritten;
+
+  /**
+   * Whether a {@link FileRelease} has been written within the current
+   * {@link Package}.
+   */
+  private boolean releaseWritten;
+
+  /**
+   * Whether a member has been written within the current object.
+   */
+  private boolean memberWritten;
+
+  /**
+   * Creates a new {@link JsonManifestWriter}.
+   *
+   * @param      out
+   *               the {@link OutputStream}; must not be <code>null</code>
+   */
+  JsonManifestWriter(final OutputStream out) {
+    super();
+    assert out != null;
+    try {
+      this.out = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"),
+                                    8192);
+    } catch (final IOException kaboom) {
+      throw (InternalError)new InternalError("UTF-8").initCause(kaboom);
+    }
+  }
+
+  /**
+   * Writes the start of the manifest, if it has not been written.
+   *
+   * @exception  IOException
+   *               if an error occurs
+   */
+  private void startManifest() throws IOException {
+    if (!this.started) {
+      this.started = true;
+      this.out.write("{\"version\":");
+      this.out.write(String.valueOf(ReleaseManifest.VERSION));
+      this.out.write(",\"projects\":[");
+    }
+  }
+
+  /**
+   * Writes the start of the supplied {@link Project}.
+   *
+   * @param      project
+   *               the {@link Project}; never <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  protected void startProject(final Project project) throws IOException {
+    assert project != null;
+    this.startManifest();
+    if (this.projectWritten) {
+      this.out.write(',');
+    }
+    this.projectWritten = true;
+    this.packageWritten = false;
+    this.out.write("\n{");
+    this.memberWritten = false;
+    this.member("name", project.getName());
+    this.member("shortName", project.getShortName());
+    this.member("id", project.getID());
+    final Administrator administrator = project.getAdministrator();
+    if (administrator != null) {
+      String name;
+      try {
+        name = administrator.getName();
+      } catch (final IllegalStateException noName) {
+        name = null;
+      }
+      if (name != null) {
+        this.name("administrator");
+        this.out.write("{\"name\":");
+        this.string(name);
+        this.out.write('}');
+      }
+    }
+    this.name("packages");
+    this.out.write('[');
+  }
+
+  /**
+   * Writes the end of the {@link Project} most recently started.
+   *
+   * @exception  IOException
+   *               if an error occurs
+   */
+  protected void endProject() throws IOException {
+    this.out.write("]}");
+  }
+
+  /**
+   * Writes the start of the supplied {@link Package}.
+   *
+   * @param      projectPackage
+   *               the {@link Package}; never <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  protected void startPackage(final Package projectPackage)
+    throws IOException {
+    assert projectPackage != null;
+    if (this.packageWritten) {
+      this.out.write(',');
+    }
+    this.packageWritten = true;
+    this.releaseWritten = false;
+    this.out.write("\n{");
+    this.memberWritten = false;
+    this.member("name", projectPackage.getName());
+    this.member("id", projectPackage.getID());
+    this.member("hidden", projectPackage.isHidden());
+    this.name("releases");
+    this.out.write('[');
+  }
+
+  /**
+   * Writes the end of the {@link Package} most recently started.
+   *
+   * @exception  IOException
+   *               if an error occurs
+   */
+  protected void endPackage() throws IOException {
+    this.out.write("]}");
+  }
+
+  /**
+   * Writes the supplied {@link FileRelease} and its {@link
+   * FileSpecification}s.
+   *
+   * @param      release
+   *               the {@link FileRelease}; never <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  protected void writeRelease(final FileRelease release) throws IOException {
+    assert release != null;
+    if (this.releaseWritten) {
+      this.out.write(',');
+    }
+    this.releaseWritten = true;
+    this.out.write("\n{");
+    this.memberWritten = false;
+    this.member("name", release.getName());
+    this.member("id", release.getID());
+    this.member("hidden", release.isHidden());
+    this.member("releaseDate", release.getReleaseDate());
+    this.member("notifyOthers", release.getNotifyOthers());
+    this.member("preserveFormattedText", release.getPreserveFormattedText());
+    this.member("releaseNotes", release.getReleaseNotes());
+    this.member("releaseNotesFile", release.getReleaseNotesFile());
+    this.member("changeLog", release.getChangeLog());
+    this.member("changeLogFile", release.getChangeLogFile());
+    this.name("files");
+    this.out.write('[');
+    final Iterator specs = release.getFileSpecificationList().iterator();
+    assert specs != null;
+    boolean first = true;
+    while (specs.hasNext()) {
+      final FileSpecification spec = (FileSpecification)specs.next();
+      if (!first) {
+        this.out.write(',');
+      }
+      first = false;
+      this.out.write('{');
+      this.memberWritten = false;
+      this.member("file", spec.getFile());
+      final String fileType = TypeRegistry.getFileTypeName(spec.getFileType());
+      if (fileType == null) {
+        this.member("fileType", spec.getFileType());
+      } else {
+        this.member("fileType", fileType);
+      }
+      final String processorType =
+        TypeRegistry.getProcessorTypeName(spec.getProcessorType());
+      if (processorType == null) {
+        this.member("processorType", spec.getProcessorType());
+      } else {
+        this.member("processorType", processorType);
+      }
+      this.member("releaseDate", spec.getReleaseDate());
+      this.out.write('}');
+    }
+    this.out.write("]}");
+  }
+
+  /**
+   * Writes the end of the manifest and flushes the underlying {@link
+   * OutputStream}.
+   *
+   * @exception  IOException
+   *               if an error occurs
+   */
+  protected void endManifest() throws IOException {
+    this.startManifest();
+    this.out.write("]}\n");
+    this.out.flush();
+  }
+
+  /**
+   * Closes the underlying {@link OutputStream}.
+   *
+   * @exception  IOException
+   *               if an error occurs
+   */
+  protected void closeStream() throws IOException {
+    this.out.close();
+  }
+
+  /**
+   * Writes a member name, preceded by a comma if it is not the first
+   * member of the current object.
+   *
+   * @param      name
+   *               the name; must not be <code>null</code> and must need no
+   *               escaping
+   * @exception  IOException
+   *               if an error occurs
+   */
+  private void name(final String name) throws IOException {
+    assert name != null;
+    if (this.memberWritten) {
+      this.out.write(',');
+    }
+    this.memberWritten = true;
+    this.out.write('"');
+    this.out.write(name);
+    this.out.write("\":");
+  }
+
+  /**
+   * Writes a {@link String} member, unless its value is <code>null</code>.
+   *
+   * @param      name
+   *               the name; must not be <code>null</code>
+   * @param      value
+   *               the value; may be <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  private void member(final String name, final String value)
+    throws IOException {
+    if (value != null) {
+      this.name(name);
+      this.string(value);
+    }
+  }
+
+  /**
+   * Writes a {@link File} member, as its path, unless its value is
+   * <code>null</code>.
+   *
+   * @param      name
+   *               the name; must not be <code>null</code>
+   * @param      value
+   *               the value; may be <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  private void member(final String name, final File value)
+    throws IOException {
+    if (value != null) {
+      this.member(name, value.getPath());
+    }
+  }
+
+  /**
+   * Writes a {@link Date} member, as milliseconds since the epoch, unless
+   * its value is <code>null</code>.
+   *
+   * @param      name
+   *               the name; must not be <code>null</code>
+   * @param      value
+   *               the value; may be <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  private void member(final String name, final Date value)
+    throws IOException {
+    if (value != null) {
+      this.name(name);
+      this.out.write(String.valueOf(value.getTime()));
+    }
+  }
+
+  /**
+   * Writes a <code>boolean</code> member.
+   *
+   * @param      name
+   *               the name; must not be <code>null</code>
+   * @param      value
+   *               the value
+   * @exception  IOException
+   *               if an error occurs
+   */
+  private void member(final String name, final boolean value)
+    throws IOException {
+    this.name(name);
+    this.out.write(value ? "true" : "false");
+  }
+
+  /**
+   * Writes an <code>int</code> member.
+   *
+   * @param      name
+   *               the name; must not be <code>null</code>
+   * @param      value
+   *               the value
+   * @exception  IOException
+   *               if an error occurs
+   */
+  private void member(final String name, final int value)
+    throws IOException {
+    this.name(name);
+    this.out.write(String.valueOf(value));
+  }
+
+  /**
+   * Writes a quoted and escaped {@link String}.
+   *
+   * @param      value
+   *               the {@link String}; must not be <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  private void string(final String value) throws IOException {
+    assert value != null;
+    this.out.write('"');
+    final int length = value.length();
+    int start = 0;
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      if (c < 0x20 || c == '"' || c == '\\') {
+        this.out.write(value, start, i - start);
+        start = i + 1;
+        switch (c) {
+        case '"':
+          this.out.write("\\\"");
+          break;
+        case '\\':
+          this.out.write("\\\\");
+          break;
+        case '\n':
+          this.out.write("\\n");
+          break;
+        case '\r':
+          this.out.write("\\r");
+          break;
+        case '\t':
+          this.out.write("\\t");
+          break;
+        default:
+          this.out.write("\\u00");
+          this.out.write(HEX[c >> 4]);
+          this.out.write(HEX[c & 0xF]);
+          break;
+        }
+      }
+    }
+    this.out.write(value, start, length - start);
+    this.out.write('"');
+  }
+
+}
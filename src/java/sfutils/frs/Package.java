@@ -115,6 +115,7 @@ public class Package extends HideableNamedObject {
    * @see        #getID()
    */
   public void setID(final String id) {
+    this.checkNotFrozen();
     this.id = id;
   }
 
@@ -151,18 +152,30 @@ public class Package extends HideableNamedObject {
    * @see        #getProject()
    */
   public void setProject(final Project project) {
+    this.checkNotFrozen();
     this.project = project;
   }
 
   /**
-   * Returns a hashcode for this {@link Package} based on all of its attributes.
+   * Freezes the {@link Project} to which this {@link Package} belongs.
+   */
+  protected void freezeReferences() {
+    super.freezeReferences();
+    if (this.project != null) {
+      this.project.freeze();
+    }
+  }
+
+  /**
+   * Computes a hashcode for this {@link Package} based on all of its
+   * attributes.
    *
    * @return     a hashcode for this {@link Package}
    */
-  public int hashCode() {
+  protected int computeHashCode() {
     final String id = this.getID();
     final Project project = this.getProject();
-    int hashCode = super.hashCode();
+    int hashCode = super.computeHashCode();
     if (id != null) {
       hashCode += id.hashCode();
     }
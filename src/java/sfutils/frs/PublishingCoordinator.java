@@ -0,0 +1,625 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.util.LinkedList;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import sfutils.Project;
+
+/**
+ * A {@link Publisher} that publishes many {@link FileRelease}s in parallel
+ * through another {@link Publisher}.  At most {@linkplain
+ * #getMaxConcurrency() a fixed number} of publishes run at once, and,
+ * {@linkplain #isProjectExclusive() unless told otherwise}, two publishes for
+ * the same {@link Project} never overlap: each {@link Project}
+ * maps to one of a fixed set of stripes, each of which runs one publish at a
+ * time.  Distinct {@link Project}s that happen to share a stripe are
+ * serialized too; with the {@linkplain #DEFAULT_STRIPE_COUNT default stripe
+ * count} that is rare.
+ *
+ * <p>The wrapped {@link Publisher} must be safe for concurrent use on
+ * different {@link Project}s, as {@link sfutils.frs.web.HttpUnitPublisher}
+ * is.  A publish whose stripe is busy waits in that stripe's own queue, not
+ * on a worker thread, and is run by the worker thread that finishes the
+ * publish ahead of it; so a batch with many {@link FileRelease}s for one
+ * {@link Project} never keeps the publishes for other {@link Project}s
+ * from running.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class PublishingCoordinator implements Publisher {
+
+  /**
+   * The number of stripes used when none is specified.
+   */
+  public static final int DEFAULT_STRIPE_COUNT = 64;
+
+  /**
+   * The {@link Publisher} that does the actual publishing.  This field is
+   * never <code>null</code>.
+   */
+  private final Publisher publisher;
+
+  /**
+   * The maximum number of publishes that may run at once.
+   */
+  private final int maxConcurrency;
+
+  /**
+   * Whether publishes for the same {@link Project} exclude one another, or
+   * only publishes of the same {@link FileRelease}.
+   */
+  private final boolean projectExclusive;
+
+  /**
+   * The stripes; a {@link Project} always maps to the same one.  The length
+   * of this array is a power of two.  This field is never
+   * <code>null</code>.
+   */
+  private final Stripe[] stripes;
+
+  /**
+   * The {@link ExecutorService} whose worker threads run the publishes.  This
+   * field is never <code>null</code>.
+   */
+  private final ExecutorService executor;
+
+  /**
+   * The number of publishes currently running.  This field is never
+   * <code>null</code>.
+   */
+  private final AtomicInteger activeCount;
+
+  /**
+   * Creates a new {@link PublishingCoordinator} with the {@linkplain
+   * #DEFAULT_STRIPE_COUNT default number of stripes}.
+   *
+   * @param      publisher
+   *               the {@link Publisher} that will do the actual publishing;
+   *               must not be <code>null</code>
+   * @param      maxConcurrency
+   *               the maximum number of publishes that may run at once; must
+   *               be positive
+   */
+  public PublishingCoordinator(final Publisher publisher,
+                               final int maxConcurrency) {
+    this(publisher, maxConcurrency, DEFAULT_STRIPE_COUNT);
+  }
+
+  /**
+   * Creates a new {@link PublishingCoordinator}.
+   *
+   * @param      publisher
+   *               the {@link Publisher} that will do the actual publishing;
+   *               must not be <code>null</code>
+   * @param      maxConcurrency
+   *               the maximum number of publishes that may run at once; must
+   *               be positive
+   * @param      stripeCount
+   *               the minimum number of stripes; must be positive; rounded
+   *               up to a power of two
+   * @exception  IllegalArgumentException
+   *               if <code>publisher</code> is <code>null</code>, or
+   *               <code>maxConcurrency</code> or <code>stripeCount</code> is
+   *               not positive
+   */
+  public PublishingCoordinator(final Publisher publisher,
+                               final int maxConcurrency,
+                               final int stripeCount) {
+    this(publisher, maxConcurrency, stripeCount, true);
+  }
+
+  /**
+   * Creates a new {@link PublishingCoordinator} that, unless
+   * <code>projectExclusive</code> is <code>true</code>, lets publishes of
+   * distinct {@link FileRelease}s of the same {@link Project} run at once.
+   * That suits a {@link Publisher} that only touches state belonging to
+   * the {@link FileRelease} itself, as {@link
+   * sfutils.frs.web.HttpUnitPublisher} does when its {@linkplain
+   * sfutils.frs.web.HttpUnitPublisher#isWebStepsEnabled() web steps} are
+   * disabled and it only uploads.
+   *
+   * @param      publisher
+   *               the {@link Publisher} that will do the actual publishing;
+   *               must not be <code>null</code>
+   * @param      maxConcurrency
+   *               the maximum number of publishes that may run at once; must
+   *               be positive
+   * @param      stripeCount
+   *               the minimum number of stripes; must be positive; rounded
+   *               up to a power of two
+   * @param      projectExclusive
+   *               if <code>true</code>, publishes for the same {@link
+   *               Project} never overlap; if <code>false</code>, only
+   *               publishes of {@link FileRelease}s with the same {@linkplain
+   *               FileRelease#getName() name} in the same {@link Project}
+   *               are kept apart
+   * @exception  IllegalArgumentException
+   *               if <code>publisher</code> is <code>null</code>, or
+   *               <code>maxConcurrency</code> or <code>stripeCount</code> is
+   *               not positive
+   */
+  public PublishingCoordinator(final Publisher publisher,
+                               final int maxConcurrency,
+                               final int stripeCount,
+                               final boolean projectExclusive) {
+    super();
+    if (publisher == null) {
+      throw new IllegalArgumentException("null publisher");
+    }
+    if (maxConcurrency <= 0) {
+      throw new IllegalArgumentException("maxConcurrency <= 0: " +
+                                         maxConcurrency);
+    }
+    if (stripeCount <= 0) {
+      throw new IllegalArgumentException("stripeCount <= 0: " + stripeCount);
+    }
+    this.publisher = publisher;
+    this.maxConcurrency = maxConcurrency;
+    this.projectExclusive = projectExclusive;
+    int size = 1;
+    while (size < stripeCount) {
+      size <<= 1;
+    }
+    this.stripes = new Stripe[size];
+    for (int i = 0; i < size; i++) {
+      this.stripes[i] = new Stripe();
+    }
+    this.activeCount = new AtomicInteger();
+    this.executor =
+      Executors.newFixedThreadPool(maxConcurrency, new ThreadFactory() {
+          private final AtomicInteger threadCount = new AtomicInteger();
+          public Thread newThread(final Runnable runnable) {
+            final Thread thread =
+              new Thread(runnable,
+                         "sfutils-publisher-" +
+                         this.threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+  }
+
+  /**
+   * Returns the {@link Publisher} that does the actual publishing.  This
+   * method never returns <code>null</code>.
+   *
+   * @return     the wrapped {@link Publisher}; never <code>null</code>
+   */
+  public Publisher getPublisher() {
+    return this.publisher;
+  }
+
+  /**
+   * Returns the maximum number of publishes that may run at once.
+   *
+   * @return     the global concurrency cap
+   */
+  public int getMaxConcurrency() {
+    return this.maxConcurrency;
+  }
+
+  /**
+   * Returns whether publishes for the same {@link Project} exclude one
+   * another, rather than only publishes of the same {@link FileRelease}.
+   *
+   * @return     <code>true</code> if publishes are exclusive per {@link
+   *               Project}
+   */
+  public boolean isProjectExclusive() {
+    return this.projectExclusive;
+  }
+
+  /**
+   * Returns the number of stripes.
+   *
+   * @return     the number of stripes; always a power of two
+   */
+  public int getStripeCount() {
+    return this.stripes.length;
+  }
+
+  /**
+   * Returns the number of publishes running at this moment.
+   *
+   * @return     the number of running publishes
+   */
+  public int getActiveCount() {
+    return this.activeCount.get();
+  }
+
+  /**
+   * Schedules the supplied {@link FileRelease} for publication and returns at
+   * once.  The returned {@link Future}'s {@link Future#get() get()} method
+   * returns <code>null</code> when the publish has succeeded, and throws an
+   * {@link ExecutionException} wrapping the failure otherwise.  This method
+   * never returns <code>null</code>.
+   *
+   * @param      release
+   *               the {@link FileRelease} to publish; must not be
+   *               <code>null</code> and must belong to a {@link Package} that
+   *               belongs to a {@link Project}
+   * @return     a {@link Future} representing the publish; never
+   *               <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if <code>release</code> does not belong to a {@link
+   *               Project}
+   * @exception  RejectedExecutionException
+   *               if this {@link PublishingCoordinator} has been {@linkplain
+   *               #shutDown(long) shut down}
+   */
+  public Future submit(final FileRelease release) {
+    final Stripe stripe = this.getStripe(release);
+    final FutureTask task = new FutureTask(new Callable() {
+        public Object call() throws PublishingException {
+          activeCount.incrementAndGet();
+          try {
+            publisher.publish(release);
+          } finally {
+            activeCount.decrementAndGet();
+          }
+          return null;
+        }
+      });
+    stripe.enqueue(task);
+    return task;
+  }
+
+  /**
+   * Publishes the supplied {@link FileRelease}, waiting until it has been
+   * published.  The publish is subject to the same concurrency cap and
+   * per-{@link Project} exclusion as those {@linkplain #submit(FileRelease)
+   * submitted} asynchronously.
+   *
+   * @param      release
+   *               the {@link FileRelease} to publish; must not be
+   *               <code>null</code>
+   * @exception  PublishingException
+   *               if the {@link FileRelease} could not be published, or the
+   *               calling thread was interrupted while waiting
+   */
+  public void publish(final FileRelease release)
+    throws PublishingException {
+    if (release == null) {
+      throw new PublishingException("release == null");
+    }
+    final Future future;
+    try {
+      future = this.submit(release);
+    } catch (final IllegalArgumentException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+    try {
+      future.get();
+    } catch (final InterruptedException kaboom) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new PublishingException(kaboom);
+    } catch (final ExecutionException kaboom) {
+      throw unwrap(kaboom);
+    }
+  }
+
+  /**
+   * Publishes all of the supplied {@link FileRelease}s in parallel, and
+   * waits until every one has been published or has failed.  One failure
+   * does not stop the others.  The returned array is parallel to the
+   * supplied one: an element is <code>null</code> if the corresponding
+   * {@link FileRelease} was published, or the reason it was not.  This method
+   * never returns <code>null</code>.
+   *
+   * @param      releases
+   *               the {@link FileRelease}s to publish; must not be
+   *               <code>null</code> or contain <code>null</code> elements
+   * @return     an array of failures; never <code>null</code>
+   * @exception  InterruptedException
+   *               if the calling thread was interrupted while waiting; those
+   *               publishes that had not yet completed are cancelled
+   */
+  public PublishingException[] publishAll(final FileRelease[] releases)
+    throws InterruptedException {
+    if (releases == null) {
+      throw new IllegalArgumentException("null releases");
+    }
+    final Future[] futures = new Future[releases.length];
+    final PublishingException[] failures =
+      new PublishingException[releases.length];
+    for (int i = 0; i < releases.length; i++) {
+      try {
+        futures[i] = this.submit(releases[i]);
+      } catch (final IllegalArgumentException kaboom) {
+        failures[i] = new PublishingException(kaboom);
+      }
+    }
+    try {
+      for (int i = 0; i < futures.length; i++) {
+        if (futures[i] != null) {
+          try {
+            futures[i].get();
+          } catch (final ExecutionException kaboom) {
+            failures[i] = unwrap(kaboom);
+          }
+        }
+      }
+    } catch (final InterruptedException kaboom) {
+      for (int i = 0; i < futures.length; i++) {
+        if (futures[i] != null) {
+          futures[i].cancel(true);
+        }
+      }
+      throw kaboom;
+    }
+    return failures;
+  }
+
+  /**
+   * Stops accepting new {@link FileRelease}s and waits up to the supplied
+   * number of milliseconds for those already submitted to finish.
+   *
+   * @param      timeoutMillis
+   *               the maximum number of milliseconds to wait
+   * @return     <code>true</code> if all publishes finished in time
+   * @exception  InterruptedException
+   *               if the calling thread was interrupted while waiting
+   */
+  public boolean shutDown(final long timeoutMillis)
+    throws InterruptedException {
+    // Publishes queued behind a busy stripe are run by the worker thread
+    // that holds it, so they too finish before the executor terminates.
+    this.executor.shutdown();
+    return this.executor.awaitTermination(timeoutMillis,
+                                          TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the stripe that guards the supplied {@link Project}.  This
+   * method never returns <code>null</code>.
+   *
+   * @param      project
+   *               the {@link Project}; must not be <code>null</code>
+   * @return     the {@link Stripe} for the supplied {@link Project}; never
+   *               <code>null</code>
+   */
+  private Stripe getStripe(final Project project) {
+    return this.getStripe(getProjectKey(project));
+  }
+
+  /**
+   * Returns the stripe that a publish of the supplied {@link FileRelease}
+   * runs on: that of its {@link Project} if publishes are
+   * {@linkplain #isProjectExclusive() exclusive per project}, and otherwise
+   * one chosen by its {@link Project} and {@linkplain FileRelease#getName()
+   * name} together.  This method never returns <code>null</code>.
+   *
+   * @param      release
+   *               the {@link FileRelease}; must not be <code>null</code>
+   * @return     the {@link Stripe} for the supplied {@link FileRelease};
+   *               never <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if <code>release</code> does not belong to a {@link
+   *               Project}
+   */
+  private Stripe getStripe(final FileRelease release) {
+    final Project project = getProject(release);
+    if (this.projectExclusive) {
+      return this.getStripe(project);
+    }
+    return this.getStripe(getProjectKey(project) + "/" + release.getName());
+  }
+
+  /**
+   * Returns the stripe that guards the supplied key.  This method never
+   * returns <code>null</code>.
+   *
+   * @param      key
+   *               the key; must not be <code>null</code>
+   * @return     the {@link Stripe} for the supplied key; never
+   *               <code>null</code>
+   */
+  private Stripe getStripe(final String key) {
+    int hash = key.hashCode();
+    // Spread the high bits down, since only the low bits select a stripe.
+    hash ^= (hash >>> 20) ^ (hash >>> 12);
+    hash ^= (hash >>> 7) ^ (hash >>> 4);
+    return this.stripes[hash & (this.stripes.length - 1)];
+  }
+
+  /**
+   * Returns a key that identifies the supplied {@link Project} for
+   * striping purposes: its {@linkplain Project#getShortName() short name} if it has
+   * one, since that is what users supply, and otherwise its {@linkplain
+   * Project#getID() identifier} or {@linkplain Project#getName() name}.
+   * {@link Project#hashCode()} is not used because it changes as
+   * identifiers are discovered during a publish.
+   *
+   * @param      project
+   *               the {@link Project}; must not be <code>null</code>
+   * @return     a key; never <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if the {@link Project} has no short name, identifier or
+   *               name
+   */
+  private static String getProjectKey(final Project project) {
+    String key = project.getShortName();
+    if (key == null) {
+      key = project.getID();
+      if (key == null) {
+        key = project.getName();
+        if (key == null) {
+          throw new IllegalArgumentException("Unnamed project: " + project);
+        }
+      }
+    }
+    return key.toLowerCase();
+  }
+
+  private static Project getProject(final FileRelease release) {
+    if (release == null) {
+      throw new IllegalArgumentException("null release");
+    }
+    final Package pkg = release.getPackage();
+    if (pkg == null || pkg.getProject() == null) {
+      throw new IllegalArgumentException("No project for release " +
+                                         release.getName());
+    }
+    return pkg.getProject();
+  }
+
+  private static PublishingException unwrap(final ExecutionException wrapper) {
+    final Throwable cause = wrapper.getCause();
+    if (cause instanceof PublishingException) {
+      return (PublishingException)cause;
+    }
+    if (cause instanceof Exception) {
+      return new PublishingException((Exception)cause);
+    }
+    if (cause instanceof Error) {
+      throw (Error)cause;
+    }
+    return new PublishingException(wrapper);
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * A queue of publishes that must not overlap.  At most one worker thread
+   * runs a {@link Stripe}'s publishes at a time, one after another; the
+   * others wait in the queue without occupying a worker thread.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private final class Stripe {
+
+    /**
+     * The {@link FutureTask}s waiting for the publish in progress to
+     * finish.  Guarded by this {@link Stripe}.  This field is never
+     * <code>null</code>.
+     */
+    private final LinkedList queue;
+
+    /**
+     * Whether a worker thread is running this {@link Stripe}'s publishes.
+     * Guarded by this {@link Stripe}.
+     */
+    private boolean busy;
+
+    /**
+     * Creates a new {@link Stripe}.
+     */
+    private Stripe() {
+      super();
+      this.queue = new LinkedList();
+    }
+
+    /**
+     * Runs the supplied {@link FutureTask} on a worker thread if no other
+     * publish on this {@link Stripe} is in progress, and otherwise queues it
+     * to be run once those ahead of it have finished.
+     *
+     * @param      task
+     *               the {@link FutureTask}; must not be <code>null</code>
+     * @exception  RejectedExecutionException
+     *               if the {@link #executor} has been shut down
+     */
+    void enqueue(final FutureTask task) {
+      synchronized (this) {
+        if (this.busy) {
+          this.queue.addLast(task);
+          return;
+        }
+        this.busy = true;
+      }
+      try {
+        executor.execute(new Runnable() {
+            public void run() {
+              drain(task);
+            }
+          });
+      } catch (final RejectedExecutionException kaboom) {
+        // Anything queued meanwhile would have been rejected too.
+        final Object[] queued;
+        synchronized (this) {
+          this.busy = false;
+          queued = this.queue.toArray();
+          this.queue.clear();
+        }
+        for (int i = 0; i < queued.length; i++) {
+          ((FutureTask)queued[i]).cancel(false);
+        }
+        throw kaboom;
+      }
+    }
+
+    /**
+     * Runs the supplied {@link FutureTask}, then each queued one in turn,
+     * until the queue is empty.  A {@link FutureTask} that was cancelled
+     * while queued does nothing when run.
+     *
+     * @param      first
+     *               the first {@link FutureTask}; must not be
+     *               <code>null</code>
+     */
+    private void drain(final FutureTask first) {
+      FutureTask task = first;
+      while (task != null) {
+        task.run();
+        // A cancelled publish may have left this thread interrupted, which
+        // must not carry over into the next one.
+        Thread.interrupted();
+        synchronized (this) {
+          if (this.queue.isEmpty()) {
+            this.busy = false;
+            task = null;
+          } else {
+            task = (FutureTask)this.queue.removeFirst();
+          }
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,569 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import sfutils.Project;
+
+/**
+ * An immutable summary of everything about a {@link FileRelease} that
+ * publishing it would send to <a href="http://sourceforge.net/">SourceForge</a>:
+ * a digest of its attributes, release notes and change log, and a digest
+ * of the contents, file type and processor type of each of its {@link
+ * File}s.  Comparing the fingerprint of a {@link FileRelease} with the one
+ * recorded when it was last published tells whether it needs publishing
+ * again, and if so whether only some of its {@link File}s changed.
+ *
+ * <p>Reading every {@link File} on every build would cost as much as the
+ * comparison saves, so a {@link File} whose {@linkplain File#length()
+ * length} and {@linkplain File#lastModified() modification time} match
+ * those recorded in the previous fingerprint keeps its recorded digest
+ * without being read, much as <code>make</code> or <code>rsync</code>
+ * trust timestamps.</p>
+ *
+ * <p>A fingerprint's {@linkplain #toString() string form} may be stored,
+ * for instance in a {@link sfutils.MetadataStore}, and {@linkplain
+ * #parse(String) parsed} back.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public final class ReleaseFingerprint {
+
+  /**
+   * The version of the string form written by this class.
+   */
+  private static final String VERSION = "1";
+
+  /**
+   * The character separating the parts of the string form; it cannot occur
+   * in a file name.
+   */
+  private static final char SEPARATOR = '/';
+
+  /**
+   * Hexadecimal digits, for rendering digests.
+   */
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  /**
+   * The digest of the attributes, as hexadecimal.  This field is never
+   * <code>null</code>.
+   */
+  private final String attributes;
+
+  /**
+   * The {@link Entry}s for the {@link File}s, indexed and sorted by
+   * {@linkplain File#getName() name}.  This field is never
+   * <code>null</code>.
+   */
+  private final Map entries;
+
+  /**
+   * Creates a new {@link ReleaseFingerprint}.
+   *
+   * @param      attributes
+   *               the digest of the attributes; must not be
+   *               <code>null</code>
+   * @param      entries
+   *               the {@link Entry}s, indexed and sorted by name; must not
+   *               be <code>null</code>
+   */
+  private ReleaseFingerprint(final String attributes, final Map entries) {
+    super();
+    assert attributes != null;
+    assert entries != null;
+    this.attributes = attributes;
+    this.entries = Collections.unmodifiableMap(entries);
+  }
+
+  /**
+   * Computes the fingerprint of the supplied {@link FileRelease}.  This
+   * method never returns <code>null</code>.
+   *
+   * @param      release
+   *               the {@link FileRelease}; must not be <code>null</code>
+   * @param      target
+   *               a description of where the {@link FileRelease} is
+   *               published, such that publishing it elsewhere yields a
+   *               different fingerprint; may be <code>null</code>
+   * @param      previous
+   *               the fingerprint recorded when the {@link FileRelease} was
+   *               last published, whose digests are reused for {@link
+   *               File}s that appear untouched; may be <code>null</code>
+   * @return     the fingerprint; never <code>null</code>
+   * @exception  IOException
+   *               if a {@link File} could not be read
+   */
+  public static ReleaseFingerprint compute(final FileRelease release,
+                                           final String target,
+                                           final ReleaseFingerprint previous)
+    throws IOException {
+    if (release == null) {
+      throw new IllegalArgumentException("null release");
+    }
+    final MessageDigest digest = newDigest();
+    update(digest, target);
+    final Package pkg = release.getPackage();
+    if (pkg != null) {
+      update(digest, pkg.getName());
+      update(digest, String.valueOf(pkg.isHidden()));
+      final Project project = pkg.getProject();
+      if (project != null) {
+        update(digest, project.getShortName());
+        update(digest, project.getName());
+      }
+    }
+    update(digest, release.getName());
+    update(digest, String.valueOf(release.isHidden()));
+    update(digest, String.valueOf(release.getNotifyOthers()));
+    update(digest, String.valueOf(release.getPreserveFormattedText()));
+    final Date releaseDate = release.getReleaseDate();
+    update(digest, releaseDate == null ? null
+           : String.valueOf(releaseDate.getTime()));
+    update(digest, release.getReleaseNotes());
+    update(digest, contentDigest(release.getReleaseNotesFile()));
+    update(digest, release.getChangeLog());
+    update(digest, contentDigest(release.getChangeLogFile()));
+
+    final Map entries = new TreeMap();
+    final Iterator specs = release.getFileSpecificationList().iterator();
+    assert specs != null;
+    while (specs.hasNext()) {
+      final FileSpecification spec = (FileSpecification)specs.next();
+      final File file = spec.getFile();
+      // Not the FileAttributeCache: a stale length and modification time
+      // would make a changed File look untouched.
+      final long length = file.length();
+      final long lastModified = file.lastModified();
+      final String name = file.getName();
+      String contents = null;
+      if (previous != null) {
+        final Entry old = (Entry)previous.entries.get(name);
+        if (old != null &&
+            old.length == length &&
+            old.lastModified == lastModified) {
+          contents = old.contents;
+        }
+      }
+      if (contents == null) {
+        contents = contentDigest(file);
+      }
+      entries.put(name, new Entry(length,
+                                  lastModified,
+                                  spec.getFileType(),
+                                  spec.getProcessorType(),
+                                  contents));
+    }
+    return new ReleaseFingerprint(toHex(digest.digest()), entries);
+  }
+
+  /**
+   * Parses the {@linkplain #toString() string form} of a fingerprint.
+   *
+   * @param      text
+   *               the string form; may be <code>null</code>
+   * @return     the fingerprint, or <code>null</code> if <code>text</code>
+   *               is <code>null</code>, malformed or written by another
+   *               version of this class
+   */
+  public static ReleaseFingerprint parse(final String text) {
+    if (text == null) {
+      return null;
+    }
+    final List parts = split(text, SEPARATOR);
+    if (parts.size() < 2 || !VERSION.equals(parts.get(0))) {
+      return null;
+    }
+    final Map entries = new TreeMap();
+    try {
+      for (int i = 2; i < parts.size(); i++) {
+        final List fields = split((String)parts.get(i), ':');
+        if (fields.size() < 6) {
+          return null;
+        }
+        // The name comes last, since it may itself contain colons.
+        final StringBuffer name = new StringBuffer((String)fields.get(5));
+        for (int j = 6; j < fields.size(); j++) {
+          name.append(':').append((String)fields.get(j));
+        }
+        entries.put(name.toString(),
+                    new Entry(Long.parseLong((String)fields.get(0)),
+                              Long.parseLong((String)fields.get(1)),
+                              Integer.parseInt((String)fields.get(2)),
+                              Integer.parseInt((String)fields.get(3)),
+                              (String)fields.get(4)));
+      }
+    } catch (final NumberFormatException malformed) {
+      return null;
+    }
+    return new ReleaseFingerprint((String)parts.get(1), entries);
+  }
+
+  /**
+   * Returns whether this fingerprint and the supplied one record the same
+   * attributes.
+   *
+   * @param      other
+   *               the other fingerprint; may be <code>null</code>
+   * @return     <code>true</code> if the attributes are the same
+   */
+  public boolean hasSameAttributes(final ReleaseFingerprint other) {
+    return other != null && this.attributes.equals(other.attributes);
+  }
+
+  /**
+   * Returns the sorted names of the {@link File}s that this fingerprint
+   * records but the supplied one does not, or records differently.  This
+   * method never returns <code>null</code>.
+   *
+   * @param      previous
+   *               the earlier fingerprint; may be <code>null</code>, in
+   *               which case every name is returned
+   * @return     a sorted {@link List} of {@link File} names; never
+   *               <code>null</code>
+   */
+  public List getChangedFileNames(final ReleaseFingerprint previous) {
+    final List changed = new ArrayList();
+    final Iterator iterator = this.entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      final Map.Entry entry = (Map.Entry)iterator.next();
+      if (previous == null ||
+          !((Entry)entry.getValue()).sameAs((Entry)previous.entries.get(entry.getKey()))) {
+        changed.add(entry.getKey());
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Returns whether the supplied fingerprint records a {@link File} that
+   * this one does not.
+   *
+   * @param      previous
+   *               the earlier fingerprint; may be <code>null</code>
+   * @return     <code>true</code> if a {@link File} has been removed since
+   *               <code>previous</code>
+   */
+  public boolean hasRemovedFiles(final ReleaseFingerprint previous) {
+    return previous != null &&
+      !this.entries.keySet().containsAll(previous.entries.keySet());
+  }
+
+  /**
+   * Returns whether nothing recorded by the supplied fingerprint has
+   * changed.  Modification times alone do not count as changes.
+   *
+   * @param      previous
+   *               the earlier fingerprint; may be <code>null</code>
+   * @return     <code>true</code> if publishing again would change nothing
+   */
+  public boolean isUpToDate(final ReleaseFingerprint previous) {
+    return this.hasSameAttributes(previous) &&
+      !this.hasRemovedFiles(previous) &&
+      this.getChangedFileNames(previous).isEmpty();
+  }
+
+  /**
+   * Returns the names of the {@link File}s this fingerprint records.  This
+   * method never returns <code>null</code>.
+   *
+   * @return     an unmodifiable, sorted {@link Set} of {@link File} names;
+   *               never <code>null</code>
+   */
+  public Set getFileNames() {
+    return this.entries.keySet();
+  }
+
+  /**
+   * Returns a hashcode for this {@link ReleaseFingerprint}.
+   *
+   * @return     a hashcode
+   */
+  public int hashCode() {
+    return this.toString().hashCode();
+  }
+
+  /**
+   * Returns whether the supplied object is a {@link ReleaseFingerprint} with
+   * the same {@linkplain #toString() string form} as this one.
+   *
+   * @param      anObject
+   *               the object to compare; may be <code>null</code>
+   * @return     <code>true</code> if the fingerprints are equal
+   */
+  public boolean equals(final Object anObject) {
+    if (anObject == this) {
+      return true;
+    }
+    if (!(anObject instanceof ReleaseFingerprint)) {
+      return false;
+    }
+    return this.toString().equals(anObject.toString());
+  }
+
+  /**
+   * Returns the string form of this {@link ReleaseFingerprint}, which
+   * {@link #parse(String)} accepts.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     the string form; never <code>null</code>
+   */
+  public String toString() {
+    final StringBuffer buffer = new StringBuffer(64 + 80 * this.entries.size());
+    buffer.append(VERSION).append(SEPARATOR).append(this.attributes);
+    final Iterator iterator = this.entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      final Map.Entry entry = (Map.Entry)iterator.next();
+      final Entry value = (Entry)entry.getValue();
+      buffer.append(SEPARATOR);
+      buffer.append(value.length).append(':');
+      buffer.append(value.lastModified).append(':');
+      buffer.append(value.fileType).append(':');
+      buffer.append(value.processorType).append(':');
+      buffer.append(value.contents).append(':');
+      buffer.append((String)entry.getKey());
+    }
+    return buffer.toString();
+  }
+
+  /**
+   * Returns the hexadecimal digest of the contents of the supplied {@link
+   * File}.
+   *
+   * @param      file
+   *               the {@link File}; may be <code>null</code>
+   * @return     the digest, or <code>null</code> if <code>file</code> is
+   *               <code>null</code>
+   * @exception  IOException
+   *               if the {@link File} could not be read
+   */
+  static String contentDigest(final File file) throws IOException {
+    if (file == null) {
+      return null;
+    }
+    final MessageDigest digest = newDigest();
+    final byte[] buffer = new byte[65536];
+    final InputStream in = new FileInputStream(file);
+    try {
+      int read;
+      while ((read = in.read(buffer)) >= 0) {
+        digest.update(buffer, 0, read);
+      }
+    } finally {
+      in.close();
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Returns a new MD5 {@link MessageDigest}, which every Java platform
+   * provides.  This method never returns <code>null</code>.
+   *
+   * @return     a new {@link MessageDigest}; never <code>null</code>
+   */
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (final NoSuchAlgorithmException kaboom) {
+      throw (InternalError)new InternalError("MD5").initCause(kaboom);
+    }
+  }
+
+  /**
+   * Feeds a {@link String}, or <code>null</code>, to the supplied {@link
+   * MessageDigest}, in a way that keeps consecutive values distinct.
+   *
+   * @param      digest
+   *               the {@link MessageDigest}; must not be <code>null</code>
+   * @param      value
+   *               the value; may be <code>null</code>
+   */
+  private static void update(final MessageDigest digest, final String value) {
+    if (value == null) {
+      digest.update((byte)0);
+      return;
+    }
+    digest.update((byte)1);
+    try {
+      final byte[] bytes = value.getBytes("UTF-8");
+      final int length = bytes.length;
+      digest.update((byte)(length >>> 24));
+      digest.update((byte)(length >>> 16));
+      digest.update((byte)(length >>> 8));
+      digest.update((byte)length);
+      digest.update(bytes);
+    } catch (final UnsupportedEncodingException kaboom) {
+      throw (InternalError)new InternalError("UTF-8").initCause(kaboom);
+    }
+  }
+
+  /**
+   * Returns the supplied bytes as hexadecimal.
+   *
+   * @param      bytes
+   *               the bytes; must not be <code>null</code>
+   * @return     a {@link String} of hexadecimal digits; never
+   *               <code>null</code>
+   */
+  private static String toHex(final byte[] bytes) {
+    final char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+      chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Splits the supplied {@link String} at every occurrence of the supplied
+   * character.
+   *
+   * @param      text
+   *               the {@link String}; must not be <code>null</code>
+   * @param      separator
+   *               the character
+   * @return     a {@link List} of the parts; never <code>null</code>
+   */
+  private static List split(final String text, final char separator) {
+    final List parts = new ArrayList();
+    int start = 0;
+    int end;
+    while ((end = text.indexOf(separator, start)) >= 0) {
+      parts.add(text.substring(start, end));
+      start = end + 1;
+    }
+    parts.add(text.substring(start));
+    return parts;
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * What a {@link ReleaseFingerprint} records about one {@link File}.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private static final class Entry {
+
+    /**
+     * The {@link File}'s length.
+     */
+    private final long length;
+
+    /**
+     * The {@link File}'s modification time.
+     */
+    private final long lastModified;
+
+    /**
+     * The file type.
+     */
+    private final int fileType;
+
+    /**
+     * The processor type.
+     */
+    private final int processorType;
+
+    /**
+     * The digest of the {@link File}'s contents, as hexadecimal.  This
+     * field is never <code>null</code>.
+     */
+    private final String contents;
+
+    /**
+     * Creates a new {@link Entry}.
+     *
+     * @param      length
+     *               the {@link File}'s length
+     * @param      lastModified
+     *               the {@link File}'s modification time
+     * @param      fileType
+     *               the file type
+     * @param      processorType
+     *               the processor type
+     * @param      contents
+     *               the digest of the {@link File}'s contents; must not be
+     *               <code>null</code>
+     */
+    private Entry(final long length,
+                  final long lastModified,
+                  final int fileType,
+                  final int processorType,
+                  final String contents) {
+      super();
+      assert contents != null;
+      this.length = length;
+      this.lastModified = lastModified;
+      this.fileType = fileType;
+      this.processorType = processorType;
+      this.contents = contents;
+    }
+
+    /**
+     * Returns whether the supplied {@link Entry} records the same contents
+     * and types as this one, whatever the modification times.
+     *
+     * @param      other
+     *               the other {@link Entry}; may be <code>null</code>
+     * @return     <code>true</code> if publishing would not distinguish
+     *               them
+     */
+    private boolean sameAs(final Entry other) {
+      return other != null &&
+        this.fileType == other.fileType &&
+        this.processorType == other.processorType &&
+        this.contents.equals(other.contents);
+    }
+
+  }
+
+}
@@ -0,0 +1,549 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import sfutils.Project;
+
+/**
+ * Reads and writes release manifests: streams of {@link FileRelease}s,
+ * together with the {@link Package}s and {@link Project}s they belong to,
+ * in either a {@linkplain #JSON JSON} or a compact {@linkplain #BINARY
+ * binary} form.
+ *
+ * <p>Both forms nest {@link FileRelease}s within their {@link Package}s
+ * within their {@link Project}s.  Neither is ever read into a tree: a
+ * manifest is parsed in a single pass, each {@link FileRelease} being built
+ * and handed to a {@link Handler} as soon as its last {@link
+ * FileSpecification} has been read, so that even very large manifests are
+ * loaded in little time and memory.  Every {@link FileRelease} read from
+ * one {@link Package} shares the same {@link Package} object, and every
+ * {@link Package} read from one {@link Project} the same {@link Project}
+ * object.</p>
+ *
+ * <p>{@link sfutils.Administrator} passwords are never written.  A JSON manifest
+ * may nevertheless supply one, so that hand-written manifests can be
+ * published directly.</p>
+ *
+ * <p>A JSON manifest looks like this; every member other than
+ * <code>file</code> is optional, and unknown members are ignored:</p>
+ *
+ * <pre>{"version":1,"projects":[
+ *  {"name":"My Project","shortName":"myproj","administrator":{"name":"username"},
+ *   "packages":[
+ *    {"name":"myproj","hidden":false,"releases":[
+ *     {"name":"myproj-1.0","releaseDate":1057000000000,"notifyOthers":true,
+ *      "releaseNotes":"Behold the release notes",
+ *      "files":[{"file":"/path/to/file1.txt","fileType":"TEXT_FILE",
+ *                "processorType":"PLATFORM_INDEPENDENT_PROCESSOR"}]}]}]}]}</pre>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        FileRelease
+ */
+public final class ReleaseManifest {
+
+  /**
+   * The format identifier for JSON manifests.
+   */
+  public static final int JSON = 0;
+
+  /**
+   * The format identifier for binary manifests.
+   */
+  public static final int BINARY = 1;
+
+  /**
+   * The version of the manifest formats written by this class.
+   */
+  static final int VERSION = 1;
+
+  /**
+   * The bytes with which every binary manifest begins.
+   */
+  static final byte[] BINARY_MAGIC = new byte[] { 'S', 'F', 'R', 'M' };
+
+  /**
+   * Creates a new {@link ReleaseManifest}.  Not used.
+   */
+  private ReleaseManifest() {
+    super();
+  }
+
+  /**
+   * Returns a new {@link Writer} that writes a manifest in the supplied
+   * format to the supplied {@link OutputStream}.
+   *
+   * @param      out
+   *               the {@link OutputStream}; must not be <code>null</code>
+   * @param      format
+   *               {@link #JSON} or {@link #BINARY}
+   * @return     a new {@link Writer}; never <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if <code>out</code> is <code>null</code> or
+   *               <code>format</code> is not a known format
+   */
+  public static Writer newWriter(final OutputStream out, final int format)
+    throws IllegalArgumentException {
+    if (out == null) {
+      throw new IllegalArgumentException("null out");
+    }
+    switch (format) {
+    case JSON:
+      return new JsonManifestWriter(out);
+    case BINARY:
+      return new BinaryManifestWriter(out);
+    default:
+      throw new IllegalArgumentException("Unknown format: " + format);
+    }
+  }
+
+  /**
+   * Writes the supplied {@link FileRelease}s as a manifest in the supplied
+   * format to the supplied {@link OutputStream}, which is flushed but not
+   * closed.  {@link FileRelease}s belonging to the same {@link Package}
+   * should be adjacent, or the {@link Package} is written once for each run
+   * of them.
+   *
+   * @param      releases
+   *               a {@link Collection} of {@link FileRelease}s; must not be
+   *               <code>null</code>
+   * @param      out
+   *               the {@link OutputStream}; must not be <code>null</code>
+   * @param      format
+   *               {@link #JSON} or {@link #BINARY}
+   * @exception  IllegalArgumentException
+   *               if any argument is unsuitable, or any {@link FileRelease}
+   *               can not be written; see {@link Writer#write(FileRelease)}
+   * @exception  PublishingException
+   *               if the manifest could not be written
+   */
+  public static void write(final Collection releases,
+                           final OutputStream out,
+                           final int format)
+    throws PublishingException {
+    if (releases == null) {
+      throw new IllegalArgumentException("null releases");
+    }
+    final Writer writer = newWriter(out, format);
+    final Iterator iterator = releases.iterator();
+    assert iterator != null;
+    while (iterator.hasNext()) {
+      writer.write((FileRelease)iterator.next());
+    }
+    writer.finish();
+  }
+
+  /**
+   * Reads a manifest, in either format, from the supplied {@link
+   * InputStream}, which is not closed, handing each {@link FileRelease} to
+   * the supplied {@link Handler} as soon as it has been read.
+   *
+   * @param      in
+   *               the {@link InputStream}; must not be <code>null</code>
+   * @param      handler
+   *               the {@link Handler}; must not be <code>null</code>
+   * @return     the number of {@link FileRelease}s handed to the {@link
+   *               Handler}
+   * @exception  IllegalArgumentException
+   *               if either argument is <code>null</code>
+   * @exception  PublishingException
+   *               if the manifest could not be read or is malformed, if any
+   *               of the {@link File}s it names does not meet the <a
+   *               href="FileSpecification.html#fileReqs">SourceForge-imposed
+   *               filename requirements</a>, or if the {@link Handler}
+   *               throws one
+   */
+  public static int read(final InputStream in, final Handler handler)
+    throws PublishingException {
+    if (in == null) {
+      throw new IllegalArgumentException("null in");
+    }
+    if (handler == null) {
+      throw new IllegalArgumentException("null handler");
+    }
+    final BufferedInputStream buffered = new BufferedInputStream(in, 8192);
+    try {
+      buffered.mark(BINARY_MAGIC.length);
+      boolean binary = true;
+      for (int i = 0; binary && i < BINARY_MAGIC.length; i++) {
+        binary = buffered.read() == BINARY_MAGIC[i];
+      }
+      buffered.reset();
+      if (binary) {
+        return new BinaryManifestReader(buffered, handler).read();
+      }
+      return new JsonManifestReader(buffered, handler).read();
+    } catch (final IOException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+  }
+
+  /**
+   * Reads a manifest, in either format, from the supplied {@link
+   * InputStream}, which is not closed, and returns its {@link
+   * FileRelease}s.
+   *
+   * @param      in
+   *               the {@link InputStream}; must not be <code>null</code>
+   * @return     a {@link List} of the {@link FileRelease}s read, in manifest
+   *               order; never <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if <code>in</code> is <code>null</code>
+   * @exception  PublishingException
+   *               if the manifest could not be read; see {@link
+   *               #read(InputStream, Handler)}
+   */
+  public static List readAll(final InputStream in)
+    throws PublishingException {
+    final List releases = new ArrayList();
+    read(in, new Handler() {
+        public boolean handle(final FileRelease release) {
+          releases.add(release);
+          return true;
+        }
+      });
+    return releases;
+  }
+
+  /**
+   * Returns a new {@link FileSpecification} as read from a manifest.
+   *
+   * @param      file
+   *               the {@link File}; must not be <code>null</code>
+   * @param      fileType
+   *               the file type
+   * @param      processorType
+   *               the processor type
+   * @param      releaseDate
+   *               the release date; may be <code>null</code>
+   * @return     a new {@link FileSpecification}; never <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if the supplied {@link File} does not meet the <a
+   *               href="FileSpecification.html#fileReqs">SourceForge-imposed
+   *               filename requirements</a>
+   */
+  static FileSpecification newFileSpecification(final File file,
+                                                final int fileType,
+                                                final int processorType,
+                                                final Date releaseDate)
+    throws IllegalArgumentException {
+    final FileSpecification spec = new FileSpecification();
+    spec.setFile(file, fileType);
+    spec.setProcessorType(processorType);
+    spec.setReleaseDate(releaseDate);
+    return spec;
+  }
+
+  /**
+   * Adds {@link FileSpecification}s read from a manifest to the supplied
+   * {@link FileRelease}.
+   *
+   * @param      release
+   *               the {@link FileRelease}; must not be <code>null</code>
+   * @param      specs
+   *               a {@link List} of {@link FileSpecification}s created by
+   *               {@link #newFileSpecification(File, int, int, Date)}; must
+   *               not be <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if two of the {@link FileSpecification}s share a
+   *               {@linkplain File#getName() filename}
+   */
+  static void setFileSpecifications(final FileRelease release,
+                                    final List specs)
+    throws IllegalArgumentException {
+    assert release != null;
+    assert specs != null;
+    final FileSpecification[] array =
+      (FileSpecification[])specs.toArray(new FileSpecification[specs.size()]);
+    release.setValidatedFileSpecifications(array);
+    if (release.getFileSpecificationCount() != array.length) {
+      throw new IllegalArgumentException("Duplicate filenames in release " +
+                                         release.getName());
+    }
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * Receives the {@link FileRelease}s read from a manifest.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   * @see        ReleaseManifest#read(InputStream, Handler)
+   */
+  public static interface Handler {
+
+    /**
+     * Handles a {@link FileRelease} read from a manifest.
+     *
+     * @param      release
+     *               the {@link FileRelease}; never <code>null</code>
+     * @return     <code>true</code> if reading should continue;
+     *               <code>false</code> if it should stop
+     * @exception  PublishingException
+     *               if the {@link FileRelease} could not be handled; reading
+     *               stops and the exception is rethrown
+     */
+    public boolean handle(final FileRelease release)
+      throws PublishingException;
+
+  }
+
+  /**
+   * Writes {@link FileRelease}s, one at a time, to a manifest.  Each {@link
+   * Package} and {@link Project} is written once for each run of adjacent
+   * {@link FileRelease}s that belong to it.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   * @see        ReleaseManifest#newWriter(OutputStream, int)
+   */
+  public abstract static class Writer {
+
+    /**
+     * The {@link Project} most recently written, or <code>null</code>.
+     */
+    private Project project;
+
+    /**
+     * The {@link Package} most recently written, or <code>null</code>.
+     */
+    private Package projectPackage;
+
+    /**
+     * Whether {@link #finish()} has been called.
+     */
+    private boolean finished;
+
+    /**
+     * Creates a new {@link Writer}.
+     */
+    protected Writer() {
+      super();
+    }
+
+    /**
+     * Writes the supplied {@link FileRelease}, preceded by its {@link
+     * Package} and {@link Project} if they differ from those of the {@link
+     * FileRelease} written before it.
+     *
+     * @param      release
+     *               the {@link FileRelease}; must not be <code>null</code>
+     *               and must belong to a {@link Package} that belongs to a
+     *               {@link Project}
+     * @exception  IllegalArgumentException
+     *               if <code>release</code> is unsuitable
+     * @exception  IllegalStateException
+     *               if {@link #finish()} has been called
+     * @exception  PublishingException
+     *               if the {@link FileRelease} could not be written
+     */
+    public final void write(final FileRelease release)
+      throws PublishingException {
+      if (release == null) {
+        throw new IllegalArgumentException("null release");
+      }
+      if (this.finished) {
+        throw new IllegalStateException("finished");
+      }
+      final Package releasePackage = release.getPackage();
+      if (releasePackage == null) {
+        throw new IllegalArgumentException("Release " + release.getName() +
+                                           " has no package");
+      }
+      final Project releaseProject = releasePackage.getProject();
+      if (releaseProject == null) {
+        throw new IllegalArgumentException("Package " +
+                                           releasePackage.getName() +
+                                           " has no project");
+      }
+      try {
+        if (!same(releaseProject, this.project)) {
+          if (this.project != null) {
+            this.endPackage();
+            this.endProject();
+          }
+          this.startProject(releaseProject);
+          this.project = releaseProject;
+          this.projectPackage = null;
+        }
+        if (!same(releasePackage, this.projectPackage)) {
+          if (this.projectPackage != null) {
+            this.endPackage();
+          }
+          this.startPackage(releasePackage);
+          this.projectPackage = releasePackage;
+        }
+        this.writeRelease(release);
+      } catch (final IOException kaboom) {
+        throw new PublishingException(kaboom);
+      }
+    }
+
+    /**
+     * Completes the manifest and flushes, but does not close, the
+     * underlying {@link OutputStream}.  Calling this method more than once
+     * has no further effect.
+     *
+     * @exception  PublishingException
+     *               if the manifest could not be completed
+     */
+    public final void finish() throws PublishingException {
+      if (!this.finished) {
+        this.finished = true;
+        try {
+          if (this.project != null) {
+            this.endPackage();
+            this.endProject();
+          }
+          this.endManifest();
+        } catch (final IOException kaboom) {
+          throw new PublishingException(kaboom);
+        }
+      }
+    }
+
+    /**
+     * {@linkplain #finish() Completes} the manifest and closes the
+     * underlying {@link OutputStream}.
+     *
+     * @exception  PublishingException
+     *               if the manifest could not be completed or closed
+     */
+    public final void close() throws PublishingException {
+      try {
+        this.finish();
+      } finally {
+        try {
+          this.closeStream();
+        } catch (final IOException kaboom) {
+          throw new PublishingException(kaboom);
+        }
+      }
+    }
+
+    /**
+     * Returns whether the two supplied objects should be written as one.
+     *
+     * @param      one
+     *               the first object; must not be <code>null</code>
+     * @param      two
+     *               the second object; may be <code>null</code>
+     * @return     <code>true</code> if the objects are the same or equal
+     */
+    private static boolean same(final Object one, final Object two) {
+      assert one != null;
+      return one == two || one.equals(two);
+    }
+
+    /**
+     * Writes the start of the supplied {@link Project}.
+     *
+     * @param      project
+     *               the {@link Project}; never <code>null</code>
+     * @exception  IOException
+     *               if an error occurs
+     */
+    protected abstract void startProject(final Project project)
+      throws IOException;
+
+    /**
+     * Writes the end of the {@link Project} most recently started.
+     *
+     * @exception  IOException
+     *               if an error occurs
+     */
+    protected abstract void endProject() throws IOException;
+
+    /**
+     * Writes the start of the supplied {@link Package}.
+     *
+     * @param      projectPackage
+     *               the {@link Package}; never <code>null</code>
+     * @exception  IOException
+     *               if an error occurs
+     */
+    protected abstract void startPackage(final Package projectPackage)
+      throws IOException;
+
+    /**
+     * Writes the end of the {@link Package} most recently started.
+     *
+     * @exception  IOException
+     *               if an error occurs
+     */
+    protected abstract void endPackage() throws IOException;
+
+    /**
+     * Writes the supplied {@link FileRelease} and its {@link
+     * FileSpecification}s.
+     *
+     * @param      release
+     *               the {@link FileRelease}; never <code>null</code>
+     * @exception  IOException
+     *               if an error occurs
+     */
+    protected abstract void writeRelease(final FileRelease release)
+      throws IOException;
+
+    /**
+     * Writes the end of the manifest and flushes the underlying {@link
+     * OutputStream}.
+     *
+     * @exception  IOException
+     *               if an error occurs
+     */
+    protected abstract void endManifest() throws IOException;
+
+    /**
+     * Closes the underlying {@link OutputStream}.
+     *
+     * @exception  IOException
+     *               if an error occurs
+     */
+    protected abstract void closeStream() throws IOException;
+
+  }
+
+}
@@ -0,0 +1,285 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.Serializable;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Classifies filenames by the longest filename suffix they end with,
+ * regardless of case.  Suffixes may be compound, such as
+ * "<code>.tar.gz</code>", or need not begin with a period at all, such as
+ * "<code>-src.zip</code>"; the longest one that a filename ends with wins,
+ * so that "<code>foo-src.tar.gz</code>" can be told apart from
+ * "<code>foo.gz</code>".
+ *
+ * <p>The suffixes are held in a trie of their reversed characters, so a
+ * filename is classified in a single pass backwards over its characters
+ * without creating any intermediate {@link String}s.  A {@link
+ * SuffixClassifier} is immutable and may be shared freely between
+ * threads.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        TypeRegistry#getSuffixClassifier()
+ */
+public final class SuffixClassifier implements Serializable {
+
+  /**
+   * The root of the trie; it stands for the empty suffix.  This field is
+   * never <code>null</code>.
+   */
+  private final Node root;
+
+  /**
+   * The suffixes, folded to lower case, indexed to their {@link Integer}
+   * types.  This field is never <code>null</code>.
+   */
+  private final Map suffixes;
+
+  /**
+   * Creates a new {@link SuffixClassifier}.
+   *
+   * @param      suffixes
+   *               a {@link Map} of non-empty {@link String} suffixes to
+   *               {@link Integer} types; must not be <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if <code>suffixes</code> is <code>null</code> or contains
+   *               a key that is not a non-empty {@link String} or a value
+   *               that is not an {@link Integer}
+   */
+  public SuffixClassifier(final Map suffixes) {
+    super();
+    if (suffixes == null) {
+      throw new IllegalArgumentException("null suffixes");
+    }
+    this.root = new Node();
+    this.suffixes = new TreeMap();
+    final Iterator iterator = suffixes.entrySet().iterator();
+    assert iterator != null;
+    while (iterator.hasNext()) {
+      final Map.Entry entry = (Map.Entry)iterator.next();
+      assert entry != null;
+      final Object key = entry.getKey();
+      if (!(key instanceof String) || ((String)key).length() <= 0) {
+        throw new IllegalArgumentException("Bad suffix: " + key);
+      }
+      final Object value = entry.getValue();
+      if (!(value instanceof Integer)) {
+        throw new IllegalArgumentException("Bad type for suffix " + key +
+                                           ": " + value);
+      }
+      final String suffix = (String)key;
+      final int length = suffix.length();
+      final char[] folded = new char[length];
+      Node node = this.root;
+      for (int i = length - 1; i >= 0; i--) {
+        folded[i] = fold(suffix.charAt(i));
+        node = node.add(folded[i]);
+      }
+      node.type = ((Integer)value).intValue();
+      this.suffixes.put(new String(folded), value);
+    }
+  }
+
+  /**
+   * Returns the type of the longest suffix that the supplied filename ends
+   * with, or {@link TypeRegistry#UNKNOWN} if it ends with none of them.
+   *
+   * @param      name
+   *               the filename; may be <code>null</code>
+   * @return     the type, or {@link TypeRegistry#UNKNOWN}
+   */
+  public int classify(final String name) {
+    if (name == null) {
+      return TypeRegistry.UNKNOWN;
+    }
+    int type = TypeRegistry.UNKNOWN;
+    Node node = this.root;
+    for (int i = name.length() - 1; i >= 0; i--) {
+      node = node.get(fold(name.charAt(i)));
+      if (node == null) {
+        break;
+      }
+      if (node.type != TypeRegistry.UNKNOWN) {
+        type = node.type;
+      }
+    }
+    return type;
+  }
+
+  /**
+   * Returns the number of suffixes this {@link SuffixClassifier} knows.
+   *
+   * @return     the number of suffixes
+   */
+  public int size() {
+    return this.suffixes.size();
+  }
+
+  /**
+   * Returns a new, modifiable {@link Map} of this {@link SuffixClassifier}'s
+   * suffixes, folded to lower case, to their {@link Integer} types.  It may
+   * be changed and handed to {@link #SuffixClassifier(Map)} to derive a new
+   * {@link SuffixClassifier}.  This method never returns <code>null</code>.
+   *
+   * @return     a new {@link Map}; never <code>null</code>
+   */
+  public Map toMap() {
+    return new TreeMap(this.suffixes);
+  }
+
+  /**
+   * Returns a {@link String} representation of this {@link
+   * SuffixClassifier}.  This method never returns <code>null</code>.
+   *
+   * @return     a {@link String} representation of this {@link
+   *               SuffixClassifier}; never <code>null</code>
+   */
+  public String toString() {
+    return this.suffixes.toString();
+  }
+
+  /**
+   * Folds the supplied character to lower case.
+   *
+   * @param      c
+   *               the character to fold
+   * @return     the folded character
+   */
+  private static char fold(final char c) {
+    if (c >= 'A' && c <= 'Z') {
+      return (char)(c + ('a' - 'A'));
+    }
+    if (c < 128) {
+      return c;
+    }
+    return Character.toLowerCase(c);
+  }
+
+  /**
+   * A node in a {@link SuffixClassifier}'s trie.  Its children are kept in
+   * parallel arrays sorted by character.  Nodes are only modified while
+   * their {@link SuffixClassifier} is being constructed.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private static final class Node implements Serializable {
+
+    /**
+     * The characters leading to this {@link Node}'s children, sorted.
+     */
+    private char[] labels;
+
+    /**
+     * This {@link Node}'s children, by the index of their label.
+     */
+    private Node[] children;
+
+    /**
+     * The type of the suffix ending at this {@link Node}, or {@link
+     * TypeRegistry#UNKNOWN} if no suffix ends here.
+     */
+    private int type;
+
+    /**
+     * Creates a new {@link Node} with no children and no type.
+     */
+    private Node() {
+      super();
+      this.labels = new char[0];
+      this.children = new Node[0];
+      this.type = TypeRegistry.UNKNOWN;
+    }
+
+    /**
+     * Returns the child reached by the supplied character, or
+     * <code>null</code> if there is none.
+     *
+     * @param      c
+     *               the character
+     * @return     the child, or <code>null</code>
+     */
+    private Node get(final char c) {
+      final char[] labels = this.labels;
+      int low = 0;
+      int high = labels.length - 1;
+      while (low <= high) {
+        final int middle = (low + high) >>> 1;
+        final char label = labels[middle];
+        if (label < c) {
+          low = middle + 1;
+        } else if (label > c) {
+          high = middle - 1;
+        } else {
+          return this.children[middle];
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Returns the child reached by the supplied character, adding it if
+     * there is none.
+     *
+     * @param      c
+     *               the character
+     * @return     the child; never <code>null</code>
+     */
+    private Node add(final char c) {
+      final Node existing = this.get(c);
+      if (existing != null) {
+        return existing;
+      }
+      final int length = this.labels.length;
+      int index = 0;
+      while (index < length && this.labels[index] < c) {
+        index++;
+      }
+      final char[] labels = new char[length + 1];
+      final Node[] children = new Node[length + 1];
+      System.arraycopy(this.labels, 0, labels, 0, index);
+      System.arraycopy(this.children, 0, children, 0, index);
+      System.arraycopy(this.labels, index, labels, index + 1, length - index);
+      System.arraycopy(this.children, index, children, index + 1,
+                       length - index);
+      final Node child = new Node();
+      labels[index] = c;
+      children[index] = child;
+      this.labels = labels;
+      this.children = children;
+      return child;
+    }
+
+  }
+
+}
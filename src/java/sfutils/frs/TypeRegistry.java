@@ -0,0 +1,660 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A registry of the {@link java.io.File} type and processor type constants
+ * declared by {@link FileSpecification}, together with the filename suffixes
+ * that imply a {@link java.io.File} type.
+ *
+ * <p>All lookup tables are built once, when this class is initialized, and
+ * are never modified afterwards, so lookups take no locks.  Name lookups are
+ * performed directly against the supplied {@link String}: case is folded
+ * character by character, so no intermediate {@link String}s are created
+ * and no codes are boxed.  Filename suffixes are matched by a {@link
+ * SuffixClassifier}, which may be {@linkplain
+ * #setSuffixClassifier(SuffixClassifier) replaced}.</p>
+ *
+ * <p>A type name is the name of its constant, with or without its
+ * "<code>_FILE</code>" or "<code>_PROCESSOR</code>" suffix, in any case, and
+ * with spaces standing in for underscores if desired.  For example,
+ * "<code>binary zip</code>" and "<code>BINARY_ZIP_FILE</code>" both name the
+ * {@link FileSpecification#BINARY_ZIP_FILE} type.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        FileSpecification
+ */
+public final class TypeRegistry {
+
+  /**
+   * The value returned by lookup methods in this class when nothing matches.
+   * It is not a valid {@link java.io.File} or processor type.
+   */
+  public static final int UNKNOWN = Integer.MIN_VALUE;
+
+  /**
+   * The suffix that {@link java.io.File} type constant names end with.
+   */
+  private static final String FILE_SUFFIX = "_FILE";
+
+  /**
+   * The suffix that processor type constant names end with.
+   */
+  private static final String PROCESSOR_SUFFIX = "_PROCESSOR";
+
+  /**
+   * The filename suffixes that imply a {@link java.io.File} type by default,
+   * in lower case.  Each is paired with the element of {@link #SUFFIX_TYPES}
+   * at the same index.  Compound suffixes such as "<code>.tar.gz</code>"
+   * take precedence over the simple suffixes they end with.
+   */
+  private static final String[] SUFFIXES = {
+    ".deb", ".rpm", ".zip", ".bz2", ".gz", ".tgz", ".jpg", ".jpeg", ".txt",
+    ".text", ".htm", ".html", ".pdf", ".sit", ".nbz", ".exe", ".dmg", ".jar",
+    ".diff", ".patch", ".prc", ".iso", ".z", ".bin",
+    ".tar.gz", ".tar.bz2", ".tar.z", "-src.zip", "-src.tgz", "-src.tar.gz",
+    "-src.tar.bz2", ".src.rpm"
+  };
+
+  /**
+   * The {@link java.io.File} types implied by the elements of {@link
+   * #SUFFIXES}.
+   */
+  private static final int[] SUFFIX_TYPES = {
+    FileSpecification.DEBIAN_PACKAGE_FILE,
+    FileSpecification.BINARY_REDHAT_PACKAGE_FILE,
+    FileSpecification.BINARY_ZIP_FILE,
+    FileSpecification.BINARY_BZIP2_FILE,
+    FileSpecification.BINARY_GZIP_FILE,
+    FileSpecification.BINARY_GZIP_FILE,
+    FileSpecification.JPEG_IMAGE_FILE,
+    FileSpecification.JPEG_IMAGE_FILE,
+    FileSpecification.TEXT_FILE,
+    FileSpecification.TEXT_FILE,
+    FileSpecification.HTML_FILE,
+    FileSpecification.HTML_FILE,
+    FileSpecification.PDF_FILE,
+    FileSpecification.STUFFIT_FILE,
+    FileSpecification.NODEBALL_FILE,
+    FileSpecification.WINDOWS_32_BIT_EXE_FILE,
+    FileSpecification.DMG_FILE,
+    FileSpecification.JAR_FILE,
+    FileSpecification.SOURCE_PATCH_OR_DIFF_FILE,
+    FileSpecification.SOURCE_PATCH_OR_DIFF_FILE,
+    FileSpecification.PALM_RESOURCE_DATABASE_FILE,
+    FileSpecification.ISO_FILE,
+    FileSpecification.SOURCE_Z_FILE,
+    FileSpecification.MACBINARY_FILE,
+    FileSpecification.SOURCE_GZIP_FILE,
+    FileSpecification.SOURCE_BZ2_FILE,
+    FileSpecification.SOURCE_Z_FILE,
+    FileSpecification.SOURCE_ZIP_FILE,
+    FileSpecification.SOURCE_GZIP_FILE,
+    FileSpecification.SOURCE_GZIP_FILE,
+    FileSpecification.SOURCE_BZ2_FILE,
+    FileSpecification.SOURCE_REDHAT_PACKAGE_FILE
+  };
+
+  /**
+   * The valid {@link java.io.File} type codes, sorted.
+   */
+  private static final int[] FILE_TYPES;
+
+  /**
+   * The constant names of the elements of {@link #FILE_TYPES}, by index.
+   */
+  private static final String[] FILE_TYPE_NAMES;
+
+  /**
+   * The valid processor type codes, sorted.
+   */
+  private static final int[] PROCESSOR_TYPES;
+
+  /**
+   * The constant names of the elements of {@link #PROCESSOR_TYPES}, by index.
+   */
+  private static final String[] PROCESSOR_TYPE_NAMES;
+
+  /**
+   * Indexes {@link java.io.File} type codes by upper-case name.
+   */
+  private static final Table FILE_TYPES_BY_NAME;
+
+  /**
+   * Indexes processor type codes by upper-case name.
+   */
+  private static final Table PROCESSOR_TYPES_BY_NAME;
+
+  /**
+   * The {@link SuffixClassifier} built from {@link #SUFFIXES} and {@link
+   * #SUFFIX_TYPES}.
+   */
+  private static final SuffixClassifier DEFAULT_SUFFIX_CLASSIFIER;
+
+  /**
+   * The {@link SuffixClassifier} that classifies filenames.  This field is
+   * never <code>null</code>.
+   */
+  private static volatile SuffixClassifier suffixClassifier;
+
+  /**
+   * Static initializer; reads the type constants off {@link
+   * FileSpecification} once and builds the lookup tables from them.
+   */
+  static {
+    final Field[] fields = FileSpecification.class.getFields();
+    assert fields != null;
+    final Map fileTypes = new HashMap(61, 1F);
+    final Map processorTypes = new HashMap(31, 1F);
+    for (int i = 0; i < fields.length; i++) {
+      final Field field = fields[i];
+      assert field != null;
+      final int modifiers = field.getModifiers();
+      if (Modifier.isStatic(modifiers) &&
+          Modifier.isFinal(modifiers) &&
+          Integer.TYPE.equals(field.getType())) {
+        final String name = field.getName();
+        assert name != null;
+        final Integer code;
+        try {
+          code = new Integer(field.getInt(null));
+        } catch (final IllegalAccessException wontHappen) {
+          throw new InternalError(wontHappen.toString());
+        }
+        if (name.endsWith(FILE_SUFFIX)) {
+          fileTypes.put(name, code);
+        } else if (name.endsWith(PROCESSOR_SUFFIX)) {
+          processorTypes.put(name, code);
+        }
+      }
+    }
+
+    FILE_TYPE_NAMES = new String[fileTypes.size()];
+    FILE_TYPES = sort(fileTypes, FILE_TYPE_NAMES);
+    FILE_TYPES_BY_NAME = index(FILE_TYPE_NAMES, FILE_TYPES, FILE_SUFFIX);
+
+    PROCESSOR_TYPE_NAMES = new String[processorTypes.size()];
+    PROCESSOR_TYPES = sort(processorTypes, PROCESSOR_TYPE_NAMES);
+    PROCESSOR_TYPES_BY_NAME =
+      index(PROCESSOR_TYPE_NAMES, PROCESSOR_TYPES, PROCESSOR_SUFFIX);
+
+    assert SUFFIXES.length == SUFFIX_TYPES.length;
+    DEFAULT_SUFFIX_CLASSIFIER = new SuffixClassifier(newSuffixMap());
+    suffixClassifier = DEFAULT_SUFFIX_CLASSIFIER;
+  }
+
+  /**
+   * Creates a new {@link TypeRegistry}.  This constructor is private because
+   * this class has only static methods.
+   */
+  private TypeRegistry() {
+    super();
+  }
+
+  /**
+   * Returns <code>true</code> if the supplied <code>int</code> is one of the
+   * {@link java.io.File} type constants declared by {@link
+   * FileSpecification}.
+   *
+   * @param      type
+   *               the code to test
+   * @return     <code>true</code> if <code>type</code> is a valid {@link
+   *               java.io.File} type
+   */
+  public static boolean isFileType(final int type) {
+    return Arrays.binarySearch(FILE_TYPES, type) >= 0;
+  }
+
+  /**
+   * Returns <code>true</code> if the supplied <code>int</code> is one of the
+   * processor type constants declared by {@link FileSpecification}.
+   *
+   * @param      type
+   *               the code to test
+   * @return     <code>true</code> if <code>type</code> is a valid processor
+   *               type
+   */
+  public static boolean isProcessorType(final int type) {
+    return Arrays.binarySearch(PROCESSOR_TYPES, type) >= 0;
+  }
+
+  /**
+   * Returns the {@link java.io.File} type named by the supplied {@link
+   * String}, or {@link #UNKNOWN} if there is no such type.
+   *
+   * @param      name
+   *               the type name; may be <code>null</code>
+   * @return     the {@link java.io.File} type, or {@link #UNKNOWN}
+   */
+  public static int getFileType(final String name) {
+    return lookUpName(FILE_TYPES_BY_NAME, name);
+  }
+
+  /**
+   * Returns the processor type named by the supplied {@link String}, or
+   * {@link #UNKNOWN} if there is no such type.
+   *
+   * @param      name
+   *               the type name; may be <code>null</code>
+   * @return     the processor type, or {@link #UNKNOWN}
+   */
+  public static int getProcessorType(final String name) {
+    return lookUpName(PROCESSOR_TYPES_BY_NAME, name);
+  }
+
+  /**
+   * Returns the {@link java.io.File} type implied by the longest known
+   * suffix of the supplied filename, or {@link #UNKNOWN} if it has none.
+   * Suffixes are matched regardless of case by the {@linkplain
+   * #getSuffixClassifier() current <code>SuffixClassifier</code>}.
+   *
+   * @param      fileName
+   *               the filename; may be <code>null</code>
+   * @return     the {@link java.io.File} type, or {@link #UNKNOWN}
+   */
+  public static int getFileTypeForName(final String fileName) {
+    return suffixClassifier.classify(fileName);
+  }
+
+  /**
+   * Returns the {@link SuffixClassifier} that {@link
+   * #getFileTypeForName(String)} consults.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     the {@link SuffixClassifier}; never <code>null</code>
+   */
+  public static SuffixClassifier getSuffixClassifier() {
+    return suffixClassifier;
+  }
+
+  /**
+   * Replaces the {@link SuffixClassifier} that {@link
+   * #getFileTypeForName(String)} consults.  To extend the default
+   * suffixes, start from the {@linkplain SuffixClassifier#toMap() map} of
+   * the {@linkplain #getDefaultSuffixClassifier() default
+   * <code>SuffixClassifier</code>}.
+   *
+   * @param      classifier
+   *               the new {@link SuffixClassifier}, or <code>null</code> to
+   *               restore the {@linkplain #getDefaultSuffixClassifier()
+   *               default}
+   */
+  public static void setSuffixClassifier(final SuffixClassifier classifier) {
+    if (classifier == null) {
+      suffixClassifier = DEFAULT_SUFFIX_CLASSIFIER;
+    } else {
+      suffixClassifier = classifier;
+    }
+  }
+
+  /**
+   * Returns the {@link SuffixClassifier} that knows the built-in suffixes.
+   * This method never returns <code>null</code>.
+   *
+   * @return     the default {@link SuffixClassifier}; never
+   *               <code>null</code>
+   */
+  public static SuffixClassifier getDefaultSuffixClassifier() {
+    return DEFAULT_SUFFIX_CLASSIFIER;
+  }
+
+  /**
+   * Returns the name of the constant declaring the supplied {@link
+   * java.io.File} type, or <code>null</code> if it is not a valid {@link
+   * java.io.File} type.
+   *
+   * @param      type
+   *               the {@link java.io.File} type
+   * @return     the constant's name, such as
+   *               "<code>BINARY_ZIP_FILE</code>", or <code>null</code>
+   */
+  public static String getFileTypeName(final int type) {
+    final int index = Arrays.binarySearch(FILE_TYPES, type);
+    if (index < 0) {
+      return null;
+    }
+    return FILE_TYPE_NAMES[index];
+  }
+
+  /**
+   * Returns the name of the constant declaring the supplied processor type,
+   * or <code>null</code> if it is not a valid processor type.
+   *
+   * @param      type
+   *               the processor type
+   * @return     the constant's name, such as
+   *               "<code>I386_PROCESSOR</code>", or <code>null</code>
+   */
+  public static String getProcessorTypeName(final int type) {
+    final int index = Arrays.binarySearch(PROCESSOR_TYPES, type);
+    if (index < 0) {
+      return null;
+    }
+    return PROCESSOR_TYPE_NAMES[index];
+  }
+
+  /**
+   * Returns a new, modifiable {@link Map} of the built-in lower-case filename
+   * suffixes to {@link Integer} {@link java.io.File} types.
+   *
+   * @return     a new {@link Map}; never <code>null</code>
+   */
+  static Map newSuffixMap() {
+    final Map map = new HashMap(SUFFIXES.length * 2, 1F);
+    for (int i = 0; i < SUFFIXES.length; i++) {
+      map.put(SUFFIXES[i], new Integer(SUFFIX_TYPES[i]));
+    }
+    return map;
+  }
+
+  /**
+   * Looks up a type name in the supplied {@link Table}, ignoring leading and
+   * trailing whitespace as {@link String#trim()} would.
+   *
+   * @param      table
+   *               the {@link Table} to consult; must not be <code>null</code>
+   * @param      name
+   *               the name; may be <code>null</code>
+   * @return     the code, or {@link #UNKNOWN}
+   */
+  private static int lookUpName(final Table table, final String name) {
+    assert table != null;
+    if (name == null) {
+      return UNKNOWN;
+    }
+    int start = 0;
+    int end = name.length();
+    while (start < end && name.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && name.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    if (start == end) {
+      return UNKNOWN;
+    }
+    return table.get(name, start, end);
+  }
+
+  /**
+   * Copies the supplied {@link Map} of constant names to {@link Integer}
+   * codes into an <code>int</code> array sorted by code, filling in the
+   * supplied array of names in the same order.
+   *
+   * @param      types
+   *               the {@link Map} to copy; must not be <code>null</code>
+   * @param      names
+   *               the array to fill in; must not be <code>null</code> and
+   *               must have the same length as <code>types</code> has
+   *               entries
+   * @return     the sorted codes; never <code>null</code>
+   */
+  private static int[] sort(final Map types, final String[] names) {
+    assert types != null;
+    assert names != null;
+    assert names.length == types.size();
+    final int[] codes = new int[names.length];
+    final Map namesByCode = new HashMap(names.length * 2, 1F);
+    final Iterator iterator = types.entrySet().iterator();
+    assert iterator != null;
+    for (int i = 0; iterator.hasNext(); i++) {
+      final Map.Entry entry = (Map.Entry)iterator.next();
+      assert entry != null;
+      codes[i] = ((Integer)entry.getValue()).intValue();
+      namesByCode.put(entry.getValue(), entry.getKey());
+    }
+    Arrays.sort(codes);
+    for (int i = 0; i < codes.length; i++) {
+      names[i] = (String)namesByCode.get(new Integer(codes[i]));
+    }
+    return codes;
+  }
+
+  /**
+   * Builds a {@link Table} that finds each code by its constant name, both
+   * with and without the supplied suffix.
+   *
+   * @param      names
+   *               the constant names; must not be <code>null</code>
+   * @param      codes
+   *               the codes, by index; must not be <code>null</code>
+   * @param      suffix
+   *               the suffix the names end with; must not be
+   *               <code>null</code>
+   * @return     a new {@link Table}; never <code>null</code>
+   */
+  private static Table index(final String[] names,
+                             final int[] codes,
+                             final String suffix) {
+    assert names != null;
+    assert codes != null;
+    assert suffix != null;
+    final Table table = new Table(names.length * 2);
+    for (int i = 0; i < names.length; i++) {
+      final String name = names[i];
+      assert name != null;
+      table.put(name, codes[i]);
+      table.put(name.substring(0, name.length() - suffix.length()), codes[i]);
+    }
+    return table;
+  }
+
+  /**
+   * An open-addressed hash table from upper-case {@link String}s, in which
+   * spaces are read as underscores, to
+   * <code>int</code>s.  Keys are folded when they are {@linkplain
+   * #put(String, int) put}; a {@linkplain #get(String, int, int) lookup}
+   * folds each character of its argument as it hashes and compares it, and
+   * so allocates nothing.  A {@link Table} must be fully populated before it
+   * is shared between threads.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  private static final class Table {
+
+    /**
+     * The folded keys; <code>null</code> elements are empty slots.
+     */
+    private final String[] keys;
+
+    /**
+     * The values, by slot.
+     */
+    private final int[] values;
+
+    /**
+     * One less than the number of slots, which is a power of two.
+     */
+    private final int mask;
+
+    /**
+     * The folded form of each ASCII character, by character, so that the
+     * common case need not consult {@link Character}.
+     */
+    private final char[] asciiFolds;
+
+    /**
+     * Creates a new {@link Table}.
+     *
+     * @param      expectedSize
+     *               the number of keys that will be {@linkplain #put(String,
+     *               int) put}
+     */
+    private Table(final int expectedSize) {
+      super();
+      int capacity = 16;
+      while (capacity < expectedSize * 2) {
+        capacity <<= 1;
+      }
+      this.keys = new String[capacity];
+      this.values = new int[capacity];
+      this.mask = capacity - 1;
+      this.asciiFolds = new char[128];
+      for (char c = 0; c < 128; c++) {
+        this.asciiFolds[c] = this.foldSlowly(c);
+      }
+    }
+
+    /**
+     * Folds the supplied character.
+     *
+     * @param      c
+     *               the character to fold
+     * @return     the folded character
+     */
+    private char fold(final char c) {
+      if (c < 128) {
+        return this.asciiFolds[c];
+      }
+      return this.foldSlowly(c);
+    }
+
+    /**
+     * Folds the supplied character without consulting the table of folded
+     * ASCII characters.
+     *
+     * @param      c
+     *               the character to fold
+     * @return     the folded character
+     */
+    private char foldSlowly(final char c) {
+      if (c == ' ') {
+        return '_';
+      }
+      return Character.toUpperCase(c);
+    }
+
+    /**
+     * Hashes the folded form of the supplied region of a {@link String}.
+     *
+     * @param      s
+     *               the {@link String}; must not be <code>null</code>
+     * @param      start
+     *               the index of the region's first character
+     * @param      end
+     *               the index after the region's last character
+     * @return     the hash
+     */
+    private int hash(final String s, final int start, final int end) {
+      assert s != null;
+      int h = 0;
+      for (int i = start; i < end; i++) {
+        h = 31 * h + this.fold(s.charAt(i));
+      }
+      return h ^ (h >>> 16);
+    }
+
+    /**
+     * Adds a key and its value, replacing any value the key already had.
+     *
+     * @param      key
+     *               the key; must not be <code>null</code>
+     * @param      value
+     *               the value
+     */
+    private void put(final String key, final int value) {
+      assert key != null;
+      final int length = key.length();
+      final char[] folded = new char[length];
+      for (int i = 0; i < length; i++) {
+        folded[i] = this.fold(key.charAt(i));
+      }
+      final String foldedKey = new String(folded);
+      int slot = this.hash(foldedKey, 0, length) & this.mask;
+      while (this.keys[slot] != null && !this.keys[slot].equals(foldedKey)) {
+        slot = (slot + 1) & this.mask;
+      }
+      this.keys[slot] = foldedKey;
+      this.values[slot] = value;
+    }
+
+    /**
+     * Returns the value of the key equal to the folded form of the supplied
+     * region of a {@link String}, or {@link TypeRegistry#UNKNOWN} if there
+     * is none.
+     *
+     * @param      s
+     *               the {@link String}; must not be <code>null</code>
+     * @param      start
+     *               the index of the region's first character
+     * @param      end
+     *               the index after the region's last character
+     * @return     the value, or {@link TypeRegistry#UNKNOWN}
+     */
+    private int get(final String s, final int start, final int end) {
+      assert s != null;
+      final int length = end - start;
+      int slot = this.hash(s, start, end) & this.mask;
+      String key;
+      while ((key = this.keys[slot]) != null) {
+        if (key.length() == length && this.matches(key, s, start)) {
+          return this.values[slot];
+        }
+        slot = (slot + 1) & this.mask;
+      }
+      return UNKNOWN;
+    }
+
+    /**
+     * Returns <code>true</code> if the supplied key equals the folded form
+     * of the region of a {@link String} of the same length starting at the
+     * supplied index.
+     *
+     * @param      key
+     *               the folded key; must not be <code>null</code>
+     * @param      s
+     *               the {@link String}; must not be <code>null</code>
+     * @param      start
+     *               the index of the region's first character
+     * @return     <code>true</code> if the key matches
+     */
+    private boolean matches(final String key, final String s, final int start) {
+      assert key != null;
+      assert s != null;
+      final int length = key.length();
+      for (int i = 0; i < length; i++) {
+        if (key.charAt(i) != this.fold(s.charAt(start + i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
+}
@@ -32,6 +32,7 @@ import java.io.FileInputStream;
 import java.io.OutputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.IOException;
 
 import java.net.MalformedURLException;
@@ -41,18 +42,19 @@ import java.net.URLConnection;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 
-import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 import java.util.logging.Logger;
 
 import com.meterware.httpunit.GetMethodWebRequest;
-import com.meterware.httpunit.HttpUnitOptions;
 import com.meterware.httpunit.TableCell;
 import com.meterware.httpunit.UploadFileSpec;
 import com.meterware.httpunit.WebConversation;
@@ -64,9 +66,16 @@ import com.meterware.httpunit.WebTable;
 
 import org.xml.sax.SAXException;
 
+import sfutils.AdaptiveLimiter;
 import sfutils.Administrator;
+import sfutils.BoundedCache;
+import sfutils.LimitedWebConversation;
+import sfutils.MetadataStore;
 import sfutils.Project;
+import sfutils.SourceForge;
+import sfutils.SourceForgeException;
 
+import sfutils.frs.FileAttributeCache;
 import sfutils.frs.FileRelease;
 import sfutils.frs.FileSpecification;
 import sfutils.frs.HideableNamedObject;
@@ -84,6 +93,12 @@ import com.sshtools.j2ssh.authentication.*;
  * with the <a href="http://sourceforge.net/">SourceForge</a> File Release
  * System.
  *
+ * <p>Once configured, an {@link HttpUnitPublisher} may publish several {@link
+ * FileRelease}s concurrently: every publish runs in its own {@link
+ * WebConversation}, and no per-publish state is kept in fields.  Publishes
+ * that touch the same project should not overlap, though; see {@link
+ * sfutils.frs.PublishingCoordinator}.</p>
+ *
  * @author     <a href="mailto:ljnelson94@alumni.amherst.edu">Laird Nelson</a>
  * @version    $Revision: 1.13.2.1 $ $Date: 2003/07/15 21:38:40 $
  * @since      June 19, 2003
@@ -102,17 +117,48 @@ import com.sshtools.j2ssh.authentication.*;
 public class HttpUnitPublisher implements Publisher, Serializable {
 
   /**
-   * The {@link String} that represents the URL to use to log in to <a
-   * href="http://sourceforge.net/">SourceForge</a>.
+   * The {@link String} that represents the default base URL of the <a
+   * href="http://sourceforge.net/">SourceForge</a> website.
+   *
+   * @see        #setSiteURL(String)
+   */
+  public static final String DEFAULT_SITE_URL = "http://sourceforge.net";
+
+  /**
+   * The default name of the host to which release files are uploaded via
+   * SFTP.
+   *
+   * @see        #setUploadHost(String)
+   */
+  public static final String DEFAULT_UPLOAD_HOST = "frs.sourceforge.net";
+
+  /**
+   * The default port on the {@linkplain #DEFAULT_UPLOAD_HOST upload host} on
+   * which an SSH server is listening.
+   *
+   * @see        #setUploadPort(int)
+   */
+  public static final int DEFAULT_UPLOAD_PORT = 22;
+
+  /**
+   * The default directory on the {@linkplain #DEFAULT_UPLOAD_HOST upload host}
+   * beneath which all project file release directories live.
+   *
+   * @see        #setUploadRoot(String)
    */
-  private static final String LOGIN_URL = 
-    "http://sourceforge.net/account/login.php";
+  public static final String DEFAULT_UPLOAD_ROOT = "/home/frs/project";
+
+  /**
+   * The path, relative to the {@linkplain #getSiteURL() site URL}, of the page
+   * used to log in to <a href="http://sourceforge.net/">SourceForge</a>.
+   */
+  private static final String LOGIN_PATH = "/account/login.php";
 
   /**
    * A {@link String} representing a package or file release's visibility
    * status.
    */
-  private static final String VISIBLE = "1";
+  static final String VISIBLE = "1";
 
   /**
    * A {@link String} that indicates that a value of a form has been turned on.
@@ -123,7 +169,7 @@ public class HttpUnitPublisher implements Publisher, Serializable {
    * A {@link String} that corresponds to a file release's or package's hidden
    * status.
    */
-  private static final String HIDDEN = "3";
+  static final String HIDDEN = "3";
 
   /**
    * The name of a form parameter in the <a
@@ -154,19 +200,19 @@ public class HttpUnitPublisher implements Publisher, Serializable {
    * A form parameter name whose corresponding value will be the identifier of a
    * package.
    */
-  private static final String PACKAGE_ID = "package_id";
+  static final String PACKAGE_ID = "package_id";
 
   /**
    * A form parameter name whose corresponding value will be the identifier of a
    * project.
    */
-  private static final String GROUP_ID = "group_id";
+  static final String GROUP_ID = "group_id";
 
   /**
    * A form parameter name whose corresponding value will be either {@link
    * #HIDDEN} or {@link #VISIBLE}.
    */
-  private static final String STATUS = "status_id";
+  static final String STATUS = "status_id";
 
   /**
    * A form parameter name whose corresponding value will be the name of a file
@@ -178,7 +224,7 @@ public class HttpUnitPublisher implements Publisher, Serializable {
    * A form parameter name whose corresponding value will be the release date of
    * a file release.
    */
-  private static final String RELEASE_DATE = "release_date";
+  static final String RELEASE_DATE = "release_date";
 
   /**
    * A form parameter name whose corresponding value will be a {@link File} that
@@ -198,33 +244,33 @@ public class HttpUnitPublisher implements Publisher, Serializable {
   /**
    * A form parameter name whose value will be the contents of a changelog.
    */
-  private static final String CHANGE_LOG = "release_changes";
+  static final String CHANGE_LOG = "release_changes";
 
   /**
    * A form parameter name whose value will be the contents of a release notes
    * file.
    */
-  private static final String RELEASE_NOTES = "release_notes";
+  static final String RELEASE_NOTES = "release_notes";
 
   /**
    * A form parameter name whose value will indicate whether preformatted text
    * is to be preserved.  Its value may be equal to the value of the {@link #ON}
    * field.
    */
-  private static final String PRESERVE_FORMATTED_TEXT = "preformatted";
+  static final String PRESERVE_FORMATTED_TEXT = "preformatted";
 
   /**
    * An <code>int</code> that corresponds to the step on the "edit release" page
    * that will actually edit the file release in question.
    */
-  private static final int EDIT_RELEASE_STEP = 1;
+  static final int EDIT_RELEASE_STEP = 1;
 
   /**
    * An <code>int</code> that corresponds to the step on the "edit release" page
    * that will select files to be included as part of the file release in
    * question.
    */
-  private static final int ADD_FILES_STEP = 2;
+  static final int ADD_FILES_STEP = 2;
 
   /**
    * An <code>int</code> that corresponds to the step on the "edit release" page
@@ -232,14 +278,14 @@ public class HttpUnitPublisher implements Publisher, Serializable {
    * users monitoring the file release in question to be notified by email of
    * its release.  
    */
-  private static final int NOTIFY_OTHERS_STEP = 4;
+  static final int NOTIFY_OTHERS_STEP = 4;
 
   /**
    * A relative URL {@link String} used as the value for a certain form's
    * <code>ACTION</code> attribute when the form is designed to return a page
    * that allows the user to edit the file releases that belong to a package.
    */
-  private static final String EDIT_RELEASES_ACTION =
+  static final String EDIT_RELEASES_ACTION =
     "/project/admin/editreleases.php";
 
   /**
@@ -247,7 +293,7 @@ public class HttpUnitPublisher implements Publisher, Serializable {
    * <code>ACTION</code> attribute when the form is designed to return a page
    * that allows the user to edit the packages that belong to a project.
    */
-  private static final String EDIT_PACKAGES_ACTION =
+  static final String EDIT_PACKAGES_ACTION =
     "/project/admin/editpackages.php";
 
   /**
@@ -257,26 +303,394 @@ public class HttpUnitPublisher implements Publisher, Serializable {
   private static final Logger LOGGER;
 
   /**
-   * The {@link DateFormat} used to format release dates.  This field is never
-   * <code>null</code> and <i>must</i> be synchronized on before use.
+   * A {@link ThreadLocal} holding the {@link DateFormat} used by each thread
+   * to format release dates, so that concurrent publishes neither share nor
+   * contend for one.  This field is never <code>null</code>.
    */
-  private static final DateFormat DATE_FORMATTER;
+  private static final ThreadLocal DATE_FORMATTER = new ThreadLocal() {
+      protected Object initialValue() {
+        return new SimpleDateFormat("yyyy-MM-dd");
+      }
+    };
 
   /**
-   * Static initializer; initializes the {@link Logger} used by this class as
-   * well as other private fields.
+   * The {@link AdaptiveLimiter} that governs the SFTP sessions of every
+   * {@link HttpUnitPublisher} not {@linkplain
+   * #setSftpLimiter(AdaptiveLimiter) given one of its own}.  This field is
+   * never <code>null</code>.
+   */
+  private static final AdaptiveLimiter SFTP_LIMITER = new AdaptiveLimiter();
+
+  /**
+   * Static initializer; initializes the {@link Logger} used by this class.
+   * The global HttpUnit options are set up by {@link LimitedWebConversation}
+   * when the first {@link WebConversation} is {@linkplain
+   * #createConversation() created}, so that a publish that only uploads by
+   * SFTP never loads HttpUnit; everything that varies from publish to
+   * publish lives in the {@link WebConversation} created for it.
    */
   static {
     LOGGER = Logger.getLogger(HttpUnitPublisher.class.getName());
-    DATE_FORMATTER = new SimpleDateFormat("yyyy-MM-dd");
-    HttpUnitOptions.setExceptionsThrownOnScriptError(false);
   }
 
   /**
-   * Creates a new {@link HttpUnitPublisher}.
+   * The base URL of the <a href="http://sourceforge.net/">SourceForge</a>
+   * website, without a trailing slash.  This field is never
+   * <code>null</code>.
+   *
+   * @see        #getSiteURL()
+   */
+  private String siteURL;
+
+  /**
+   * The name of the host to which release files are uploaded via SFTP.  This
+   * field is never <code>null</code>.
+   *
+   * @see        #getUploadHost()
+   */
+  private String uploadHost;
+
+  /**
+   * The port on the {@linkplain #getUploadHost() upload host} on which an SSH
+   * server is listening.
+   *
+   * @see        #getUploadPort()
+   */
+  private int uploadPort;
+
+  /**
+   * The directory on the {@linkplain #getUploadHost() upload host} beneath
+   * which all project file release directories live.  This field is never
+   * <code>null</code>.
+   *
+   * @see        #getUploadRoot()
+   */
+  private String uploadRoot;
+
+  /**
+   * Whether or not the file release system web pages are driven after the
+   * release files have been uploaded.
+   *
+   * @see        #isWebStepsEnabled()
+   */
+  private boolean webStepsEnabled;
+
+  /**
+   * The {@link AdaptiveLimiter} governing every HTTP request this {@link
+   * HttpUnitPublisher} makes, or <code>null</code> to use the {@linkplain
+   * AdaptiveLimiter#getShared() shared} one.  Not serialized, since a
+   * limiter describes the state of this VM's connections.
+   *
+   * @see        #getLimiter()
+   */
+  private transient AdaptiveLimiter limiter;
+
+  /**
+   * The {@link AdaptiveLimiter} governing every SFTP session this {@link
+   * HttpUnitPublisher} opens, or <code>null</code> to use the one {@linkplain
+   * #SFTP_LIMITER shared} by every {@link HttpUnitPublisher}.  Not
+   * serialized, since a limiter describes the state of this VM's
+   * connections.
+   *
+   * @see        #getSftpLimiter()
+   */
+  private transient AdaptiveLimiter sftpLimiter;
+
+  /**
+   * The {@link MetadataStore} in which identifiers learned while publishing
+   * are recorded, or <code>null</code> to use the {@linkplain
+   * MetadataStore#getDefault() default} one.
+   *
+   * @see        #getMetadataStore()
+   */
+  private transient MetadataStore metadataStore;
+
+  /**
+   * The {@link SharedSessions} through which logins and SFTP sessions are
+   * reused across publishes, or <code>null</code> if every publish makes its
+   * own.
+   *
+   * @see        #getSharedSessions()
+   */
+  private transient volatile SharedSessions sharedSessions;
+
+  /**
+   * Creates a new {@link HttpUnitPublisher} that talks to the real <a
+   * href="http://sourceforge.net/">SourceForge</a> website.
    */
   public HttpUnitPublisher() {
     super();
+    this.setSiteURL(DEFAULT_SITE_URL);
+    this.setUploadHost(DEFAULT_UPLOAD_HOST);
+    this.setUploadPort(DEFAULT_UPLOAD_PORT);
+    this.setUploadRoot(DEFAULT_UPLOAD_ROOT);
+  }
+
+  /**
+   * Returns the base URL of the <a href="http://sourceforge.net/">SourceForge</a>
+   * website this {@link HttpUnitPublisher} talks to.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     the base URL, without a trailing slash; never
+   *               <code>null</code>
+   * @see        #setSiteURL(String)
+   */
+  public String getSiteURL() {
+    return this.siteURL;
+  }
+
+  /**
+   * Sets the base URL of the <a href="http://sourceforge.net/">SourceForge</a>
+   * website this {@link HttpUnitPublisher} talks to.  This is normally only
+   * changed to point at a local simulator of the file release system.
+   *
+   * @param      siteURL
+   *               the base URL, such as {@link #DEFAULT_SITE_URL}; if
+   *               <code>null</code> then {@link #DEFAULT_SITE_URL} will be
+   *               used instead
+   * @see        #getSiteURL()
+   */
+  public void setSiteURL(final String siteURL) {
+    if (siteURL == null) {
+      this.siteURL = DEFAULT_SITE_URL;
+    } else if (siteURL.endsWith("/")) {
+      this.siteURL = siteURL.substring(0, siteURL.length() - 1);
+    } else {
+      this.siteURL = siteURL;
+    }
+  }
+
+  /**
+   * Returns the name of the host to which release files are uploaded via SFTP.
+   * This method never returns <code>null</code>.
+   *
+   * @return     the upload host name; never <code>null</code>
+   * @see        #setUploadHost(String)
+   */
+  public String getUploadHost() {
+    return this.uploadHost;
+  }
+
+  /**
+   * Sets the name of the host to which release files are uploaded via SFTP.
+   *
+   * @param      uploadHost
+   *               the upload host name; if <code>null</code> then {@link
+   *               #DEFAULT_UPLOAD_HOST} will be used instead
+   * @see        #getUploadHost()
+   */
+  public void setUploadHost(final String uploadHost) {
+    if (uploadHost == null) {
+      this.uploadHost = DEFAULT_UPLOAD_HOST;
+    } else {
+      this.uploadHost = uploadHost;
+    }
+  }
+
+  /**
+   * Returns the port on the {@linkplain #getUploadHost() upload host} on which
+   * an SSH server is listening.
+   *
+   * @return     the upload port
+   * @see        #setUploadPort(int)
+   */
+  public int getUploadPort() {
+    return this.uploadPort;
+  }
+
+  /**
+   * Sets the port on the {@linkplain #getUploadHost() upload host} on which an
+   * SSH server is listening.
+   *
+   * @param      uploadPort
+   *               the upload port; if less than or equal to <code>0</code>
+   *               then {@link #DEFAULT_UPLOAD_PORT} will be used instead
+   * @see        #getUploadPort()
+   */
+  public void setUploadPort(final int uploadPort) {
+    if (uploadPort <= 0) {
+      this.uploadPort = DEFAULT_UPLOAD_PORT;
+    } else {
+      this.uploadPort = uploadPort;
+    }
+  }
+
+  /**
+   * Returns the directory on the {@linkplain #getUploadHost() upload host}
+   * beneath which all project file release directories live.  This method
+   * never returns <code>null</code>.
+   *
+   * @return     the upload root directory; never <code>null</code>
+   * @see        #setUploadRoot(String)
+   */
+  public String getUploadRoot() {
+    return this.uploadRoot;
+  }
+
+  /**
+   * Sets the directory on the {@linkplain #getUploadHost() upload host}
+   * beneath which all project file release directories live.
+   *
+   * @param      uploadRoot
+   *               the upload root directory; if <code>null</code> then {@link
+   *               #DEFAULT_UPLOAD_ROOT} will be used instead
+   * @see        #getUploadRoot()
+   */
+  public void setUploadRoot(final String uploadRoot) {
+    if (uploadRoot == null) {
+      this.uploadRoot = DEFAULT_UPLOAD_ROOT;
+    } else if (uploadRoot.endsWith("/") && uploadRoot.length() > 1) {
+      this.uploadRoot = uploadRoot.substring(0, uploadRoot.length() - 1);
+    } else {
+      this.uploadRoot = uploadRoot;
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if the file release system web pages (package
+   * and release creation, release attributes and file types) will be driven
+   * by the {@link #publish(FileRelease)} method once the release files have
+   * been uploaded.
+   *
+   * @return     <code>true</code> if the web steps are enabled
+   * @see        #setWebStepsEnabled(boolean)
+   */
+  public boolean isWebStepsEnabled() {
+    return this.webStepsEnabled;
+  }
+
+  /**
+   * Sets whether the file release system web pages will be driven by the
+   * {@link #publish(FileRelease)} method once the release files have been
+   * uploaded.  The web steps are disabled by default, since <a
+   * href="http://sourceforge.net/">SourceForge</a> replaced the pages they
+   * drive with its File Manager; enable them when talking to a site that
+   * still serves those pages.
+   *
+   * @param      webStepsEnabled
+   *               whether the web steps should be driven
+   * @see        #isWebStepsEnabled()
+   */
+  public void setWebStepsEnabled(final boolean webStepsEnabled) {
+    this.webStepsEnabled = webStepsEnabled;
+  }
+
+  /**
+   * Returns the {@link AdaptiveLimiter} that governs every HTTP request this
+   * {@link HttpUnitPublisher} makes.  Unless {@linkplain
+   * #setLimiter(AdaptiveLimiter) set}, this is the {@linkplain
+   * AdaptiveLimiter#getShared() shared} {@link AdaptiveLimiter}, so that all
+   * publishers in the VM back off together.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     the {@link AdaptiveLimiter}; never <code>null</code>
+   */
+  public AdaptiveLimiter getLimiter() {
+    final AdaptiveLimiter limiter = this.limiter;
+    if (limiter == null) {
+      return AdaptiveLimiter.getShared();
+    }
+    return limiter;
+  }
+
+  /**
+   * Returns the {@link MetadataStore} in which identifiers learned while
+   * publishing are recorded.  Unless {@linkplain
+   * #setMetadataStore(MetadataStore) set}, this is the {@linkplain
+   * MetadataStore#getDefault() default} one, which {@link SourceForge} uses
+   * too.  This method never returns <code>null</code>.
+   *
+   * @return     the {@link MetadataStore}; never <code>null</code>
+   */
+  public MetadataStore getMetadataStore() {
+    final MetadataStore metadataStore = this.metadataStore;
+    if (metadataStore == null) {
+      return MetadataStore.getDefault();
+    }
+    return metadataStore;
+  }
+
+  /**
+   * Sets the {@link MetadataStore} in which identifiers learned while
+   * publishing are recorded.
+   *
+   * @param      metadataStore
+   *               the {@link MetadataStore} to use; if <code>null</code>, the
+   *               {@linkplain MetadataStore#getDefault() default} one is used
+   */
+  public void setMetadataStore(final MetadataStore metadataStore) {
+    this.metadataStore = metadataStore;
+  }
+
+  /**
+   * Sets the {@link AdaptiveLimiter} that governs every HTTP request this
+   * {@link HttpUnitPublisher} makes.
+   *
+   * @param      limiter
+   *               the {@link AdaptiveLimiter} to use; if <code>null</code>,
+   *               the {@linkplain AdaptiveLimiter#getShared() shared} one is
+   *               used
+   */
+  public void setLimiter(final AdaptiveLimiter limiter) {
+    this.limiter = limiter;
+  }
+
+  /**
+   * Returns the {@link AdaptiveLimiter} that governs every SFTP session this
+   * {@link HttpUnitPublisher} opens.  An SFTP session holds its permit for
+   * as long as its uploads take, and the upload host is not the web site, so
+   * SFTP sessions are kept apart from the {@linkplain #getLimiter() HTTP
+   * limiter}: they neither starve HTTP requests of permits nor cut the HTTP
+   * limit when they fail.  Unless {@linkplain
+   * #setSftpLimiter(AdaptiveLimiter) set}, this is an {@link
+   * AdaptiveLimiter} shared by every {@link HttpUnitPublisher} in the VM.
+   * This method never returns <code>null</code>.
+   *
+   * @return     the {@link AdaptiveLimiter}; never <code>null</code>
+   */
+  public AdaptiveLimiter getSftpLimiter() {
+    final AdaptiveLimiter sftpLimiter = this.sftpLimiter;
+    if (sftpLimiter == null) {
+      return SFTP_LIMITER;
+    }
+    return sftpLimiter;
+  }
+
+  /**
+   * Sets the {@link AdaptiveLimiter} that governs every SFTP session this
+   * {@link HttpUnitPublisher} opens.
+   *
+   * @param      sftpLimiter
+   *               the {@link AdaptiveLimiter} to use; if <code>null</code>,
+   *               the one shared by every {@link HttpUnitPublisher} is used
+   */
+  public void setSftpLimiter(final AdaptiveLimiter sftpLimiter) {
+    this.sftpLimiter = sftpLimiter;
+  }
+
+  /**
+   * Returns the {@link SharedSessions} through which logins and SFTP
+   * sessions are reused across publishes, or <code>null</code> if every
+   * publish makes its own, which is the default.
+   *
+   * @return     the {@link SharedSessions}, or <code>null</code>
+   * @see        #setSharedSessions(SharedSessions)
+   */
+  public SharedSessions getSharedSessions() {
+    return this.sharedSessions;
+  }
+
+  /**
+   * Sets the {@link SharedSessions} through which logins and SFTP sessions
+   * are reused across publishes.  The caller remains responsible for
+   * {@linkplain SharedSessions#close() closing} them.
+   *
+   * @param      sharedSessions
+   *               the {@link SharedSessions}; may be <code>null</code>, in
+   *               which case every publish makes its own sessions
+   */
+  public void setSharedSessions(final SharedSessions sharedSessions) {
+    this.sharedSessions = sharedSessions;
   }
 
   /**
@@ -291,11 +705,35 @@ public class HttpUnitPublisher implements Publisher, Serializable {
    */
   public void publish(final FileRelease release)
     throws PublishingException {
+    this.publish(release, null);
+  }
+
+  /**
+   * Publishes the supplied {@link FileRelease} to its associated {@link
+   * Project} area on <a href="http://sourceforge.net/">SourceForge</a>, as
+   * {@link #publish(FileRelease)} does, uploading the files named in the
+   * supplied {@link Collection} again even if files of those names are
+   * already there.  Callers that know which files changed since the last
+   * publish, such as the {@link IncrementalPublisher}, use this method so
+   * that a file whose contents changed under the same name is not left
+   * stale.
+   *
+   * @param      release
+   *               the {@link FileRelease} to publish; must not be
+   *               <code>null</code>
+   * @param      changedFileNames
+   *               the names of the files whose contents have changed; may be
+   *               <code>null</code>
+   * @exception  PublishingException
+   *               if the supplied {@link FileRelease} could not be published
+   */
+  public void publish(final FileRelease release,
+                      final Collection changedFileNames)
+    throws PublishingException {
 
     // Validate the FileRelease object graph.
     assertNotNull(release, "release");
-    final FileSpecification[] files = release.getFileSpecifications();
-    assertArrayFull(files, "files");
+    assertListFull(release.getFileSpecificationList(), "files");
     final Package pkg = release.getPackage();
     assertNotNull(pkg, "pkg");
     final Project project = pkg.getProject();
@@ -308,9 +746,6 @@ public class HttpUnitPublisher implements Publisher, Serializable {
     assertNotNull(userName, "userName");
     final String password = admin.getPassword();
 
-    // Begin our session.
-    final WebConversation conversation = new WebConversation();
-
     try {
 /*
       // First, log in.
@@ -353,7 +788,15 @@ public class HttpUnitPublisher implements Publisher, Serializable {
       // upload our files now.
 //James: Upload now uses SFTP
 //      this.uploadFiles(release);
-      this.uploadSFTP(release,userName,password);
+      if (this.isWebStepsEnabled()) {
+        // Begin our session.  The SFTP-only path needs none, and so never
+        // loads HttpUnit.
+        final WebConversation conversation = this.createConversation();
+        // Uploads only what is missing, as part of reconciliation.
+        this.processWebSteps(conversation, release, changedFileNames);
+      } else {
+        this.uploadSFTP(release,userName,password);
+      }
 /*
       // Get the Edit Release page from it.  This is a bulky operation.
       WebResponse editReleasePage =
@@ -379,6 +822,168 @@ public class HttpUnitPublisher implements Publisher, Serializable {
 
   }
 
+  /**
+   * Creates the {@link WebConversation} to which all interaction for a single
+   * {@linkplain #publish(FileRelease) publish} or {@linkplain
+   * #plan(FileRelease) plan} belongs.  Each call returns a new, independent
+   * {@link WebConversation}, so that any number of publishes may run
+   * concurrently through one {@link HttpUnitPublisher} without sharing
+   * cookies or pages.  Its requests are governed by this {@link
+   * HttpUnitPublisher}'s {@linkplain #getLimiter() limiter}.  This method
+   * never returns <code>null</code>.
+   *
+   * @return     a new {@link WebConversation}; never <code>null</code>
+   */
+  protected WebConversation createConversation() {
+    return new LimitedWebConversation(this.getLimiter());
+  }
+
+  /**
+   * Works out what {@linkplain #publish(FileRelease) publishing} the supplied
+   * {@link FileRelease} would do, without doing it.  If the {@linkplain
+   * #isWebStepsEnabled() web steps are enabled}, the {@link Project}'s
+   * {@link Administrator} is logged in and the current state is {@linkplain
+   * Reconciler#read(WebConversation, FileRelease) read}; apart from the login
+   * form, only <code>GET</code> requests are made, and nothing on <a
+   * href="http://sourceforge.net/">SourceForge</a> is changed.  Identifiers
+   * discovered along the way are installed on the supplied {@link
+   * FileRelease}, its {@link Package} and its {@link Project}.  Otherwise a
+   * publish would only upload every file, so the {@link Plan} lists just
+   * those uploads and nothing is requested at all.  This method never
+   * returns <code>null</code>.
+   *
+   * @param      release
+   *               the {@link FileRelease} to plan; must not be
+   *               <code>null</code>
+   * @return     a {@link Plan} listing the {@link Mutation}s a publish would
+   *               make and estimating their cost; never <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  public Plan plan(final FileRelease release)
+    throws PublishingException {
+    assertNotNull(release, "release");
+    assertListFull(release.getFileSpecificationList(), "files");
+    final Package pkg = release.getPackage();
+    assertNotNull(pkg, "pkg");
+    final Project project = pkg.getProject();
+    assertNotNull(project, "project");
+
+    if (!this.isWebStepsEnabled()) {
+      final File[] files = release.getFiles();
+      final List mutations = new ArrayList(files.length);
+      long uploadBytes = 0L;
+      for (int i = 0; i < files.length; i++) {
+        final long length =
+          FileAttributeCache.getShared().get(files[i]).getLength();
+        mutations.add(new Mutation(Mutation.UPLOAD_FILE, files[i].getName(),
+                                   length + " bytes", files[i]));
+        uploadBytes += length;
+      }
+      return new Plan(release.getName(), mutations, 0, 0, 0L, uploadBytes);
+    }
+
+    // Work out what logging in and reading will cost before doing either.
+    int setupReads = Reconciler.LOGIN_REQUESTS;
+    final SharedSessions sessions = this.getSharedSessions();
+    if (sessions != null && sessions.hasLogin(this.getLoginKey(project))) {
+      setupReads = 0;
+    }
+    if (project.getID() == null &&
+        !SourceForge.isProjectIDKnown(project.getShortName())) {
+      // The project's summary page.
+      setupReads++;
+    }
+
+    final WebConversation conversation = this.createConversation();
+    this.establishLogin(conversation, project);
+
+    final Reconciler reconciler = new Reconciler(this);
+    final RemoteState remote = reconciler.read(conversation, release);
+    assertNotNull(remote, "remote");
+    final List mutations = reconciler.diff(remote, release);
+    assertNotNull(mutations, "mutations");
+    return reconciler.plan(remote, release, mutations, setupReads);
+  }
+
+  /**
+   * Drives the file release system web pages so that the <a
+   * href="http://sourceforge.net/">SourceForge</a> analogs of the supplied
+   * {@link FileRelease}, its {@link Package} and its files reflect the
+   * supplied {@link FileRelease}.  The current state is {@linkplain
+   * Reconciler#read(WebConversation, FileRelease) read} once, {@linkplain
+   * Reconciler#diff(RemoteState, FileRelease) compared} with the supplied
+   * {@link FileRelease}, and only the resulting {@link Mutation}s, including
+   * the upload of missing files, are {@linkplain Reconciler#apply(WebConversation,
+   * RemoteState, FileRelease, List) applied}; publishing a {@link FileRelease}
+   * that is already up to date therefore costs only the reads.  This method
+   * is called by the {@link #publish(FileRelease)} method when the
+   * {@linkplain #isWebStepsEnabled() web steps are enabled}.
+   *
+   * @param      conversation
+   *               the {@link WebConversation} to which all interaction with <a
+   *               href="http://sourceforge.net/">SourceForge</a> logically
+   *               belongs; must not be <code>null</code>
+   * @param      release
+   *               the {@link FileRelease} to process; must not be
+   *               <code>null</code>
+   * @return     a {@link WebResponse} representing the "edit release" page
+   *               after all edits have been made; never <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  protected WebResponse processWebSteps(final WebConversation conversation,
+                                        final FileRelease release)
+    throws PublishingException {
+    return this.processWebSteps(conversation, release, null);
+  }
+
+  /**
+   * Drives the file release system web pages as {@link
+   * #processWebSteps(WebConversation, FileRelease)} does, uploading the files
+   * named in the supplied {@link Collection} again even if files of those
+   * names are already there.  This method never returns <code>null</code>.
+   *
+   * @param      conversation
+   *               the {@link WebConversation} to which all interaction with <a
+   *               href="http://sourceforge.net/">SourceForge</a> logically
+   *               belongs; must not be <code>null</code>
+   * @param      release
+   *               the {@link FileRelease} to process; must not be
+   *               <code>null</code>
+   * @param      changedFileNames
+   *               the names of the files whose contents have changed; may be
+   *               <code>null</code>
+   * @return     a {@link WebResponse} representing the "edit release" page
+   *               after all edits have been made; never <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   * @see        Reconciler#diff(RemoteState, FileRelease, Collection)
+   */
+  protected WebResponse processWebSteps(final WebConversation conversation,
+                                        final FileRelease release,
+                                        final Collection changedFileNames)
+    throws PublishingException {
+    assertNotNull(conversation, "conversation");
+    assertNotNull(release, "release");
+    final Package pkg = release.getPackage();
+    assertNotNull(pkg, "pkg");
+    final Project project = pkg.getProject();
+    assertNotNull(project, "project");
+
+    this.establishLogin(conversation, project);
+
+    final Reconciler reconciler = new Reconciler(this);
+    final RemoteState remote = reconciler.read(conversation, release);
+    assertNotNull(remote, "remote");
+    final List mutations =
+      reconciler.diff(remote, release, changedFileNames);
+    assertNotNull(mutations, "mutations");
+    LOGGER.info("Applying " + mutations.size() + " mutation(s) to " +
+                release.getName());
+    return reconciler.apply(conversation, remote, release, mutations);
+  }
+
   /**
    * Ensures that all the properties and attributes specified in the supplied
    * {@link FileRelease} are saved persistently to <a
@@ -424,7 +1029,8 @@ public class HttpUnitPublisher implements Publisher, Serializable {
         step1Form.removeParameter(PRESERVE_FORMATTED_TEXT);
       }
       final File changeLogFile = release.getChangeLogFile();
-      if (changeLogFile != null && changeLogFile.canRead()) {
+      if (changeLogFile != null &&
+          FileAttributeCache.getShared().get(changeLogFile).isReadable()) {
         step1Form.setParameter(UPLOAD_CHANGE_LOG,
                                new UploadFileSpec[] { 
                                  new UploadFileSpec(changeLogFile) 
@@ -436,7 +1042,8 @@ public class HttpUnitPublisher implements Publisher, Serializable {
         }
       }
       final File releaseNotesFile = release.getReleaseNotesFile();
-      if (releaseNotesFile != null && releaseNotesFile.canRead()) {
+      if (releaseNotesFile != null &&
+          FileAttributeCache.getShared().get(releaseNotesFile).isReadable()) {
         step1Form.setParameter(UPLOAD_RELEASE_NOTES,
                                new UploadFileSpec[] { 
                                  new UploadFileSpec(releaseNotesFile)
@@ -476,9 +1083,7 @@ public class HttpUnitPublisher implements Publisher, Serializable {
     if (releaseDate == null) {
       return null;
     }
-    synchronized (DATE_FORMATTER) {
-      return DATE_FORMATTER.format(releaseDate);
-    }
+    return ((DateFormat)DATE_FORMATTER.get()).format(releaseDate);
   }
 
   /**
@@ -577,8 +1182,7 @@ public class HttpUnitPublisher implements Publisher, Serializable {
     throws PublishingException {
     assertNotNull(editReleasePage, "editReleasePage");
     assertNotNull(release, "release");
-    final FileSpecification[] specs = release.getFileSpecifications();
-    assertArrayFull(specs, "specs");
+    assertListFull(release.getFileSpecificationList(), "specs");
 
     try {
       WebForm form = this.getStepForm(editReleasePage, ADD_FILES_STEP);
@@ -772,7 +1376,8 @@ public class HttpUnitPublisher implements Publisher, Serializable {
     try {
       for (int i = 0; i < files.length; i++) {
         file = files[i];
-        if (file != null && file.canRead()) {
+        if (file != null &&
+            FileAttributeCache.getShared().get(file).isReadable()) {
           thread = new FileUploader(file, errors);
           thread.start();
           threads[i] = thread;
@@ -791,44 +1396,218 @@ public class HttpUnitPublisher implements Publisher, Serializable {
     }
   }
 
-  public void uploadSFTP(final FileRelease release, final String username, final String password)
+  /**
+   * Uploads all {@link File}s that are reachable from the supplied {@link
+   * FileRelease} via SFTP to their {@linkplain #getUploadDirectory(FileRelease)
+   * release directory} on the {@linkplain #getUploadHost() upload host}.  This
+   * method is called by the {@link #publish(FileRelease)} method.
+   *
+   * @param      release
+   *               the {@link FileRelease} containing {@link FileSpecification}s
+   *               containing the {@link File}s to be uploaded; must not be
+   *               <code>null</code>
+   * @param      username
+   *               the name of the user to authenticate as; must not be
+   *               <code>null</code>
+   * @param      password
+   *               the password of the user to authenticate as; must not be
+   *               <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  public void uploadSFTP(final FileRelease release, final String username, final String password)
+  		throws IOException {
+    this.uploadSFTP(release, release.getFiles(), username, password);
+  }
+
+  /**
+   * Uploads the supplied {@link File}s via SFTP to the {@linkplain
+   * #getUploadDirectory(FileRelease) release directory} of the supplied {@link
+   * FileRelease} on the {@linkplain #getUploadHost() upload host}.  This method
+   * is called by the {@link #uploadSFTP(FileRelease, String, String)} method
+   * with all of the release's {@link File}s, and by the {@link Reconciler} with
+   * only those {@link File}s that are not already on the upload host.
+   *
+   * @param      release
+   *               the {@link FileRelease} to which the {@link File}s belong;
+   *               must not be <code>null</code>
+   * @param      files
+   *               the {@link File}s to upload; must not be <code>null</code>
+   * @param      username
+   *               the name of the user to authenticate as; must not be
+   *               <code>null</code>
+   * @param      password
+   *               the password of the user to authenticate as; must not be
+   *               <code>null</code>
+   * @exception  IOException
+   *               if an error occurs
+   */
+  public void uploadSFTP(final FileRelease release, final File[] files, final String username, final String password)
+  		throws IOException {
+	final String hostname = this.getUploadHost();
+	final String projectname = release.getPackage().getProject().getName().toLowerCase();
+	final String dir = this.getUploadDirectory(release);
+	final int port = this.getUploadPort();
+	final SharedSessions sessions = this.getSharedSessions();
+	final String key = hostname + ":" + port + " " + SharedSessions.credentialsKey(username + "," + projectname, password);
+	// The session counts as one permit of the SFTP limiter; its length
+	// depends on the file sizes, so only its outcome is reported.
+	final AdaptiveLimiter limiter = this.getSftpLimiter();
+	try {
+		limiter.acquire();
+	} catch (final InterruptedException kaboom) {
+		Thread.currentThread().interrupt();
+		throw new InterruptedIOException("Interrupted waiting for a permit");
+	}
+	boolean success = false;
+	SharedSessions.Sftp session = null;
+	try {
+		boolean borrowed = false;
+		if (sessions != null) {
+			session = sessions.borrow(key);
+			borrowed = session != null;
+		}
+		while (!success) {
+			if (session == null) {
+				session = this.openSftpSession(hostname, port, username + "," + projectname, password);
+				if (sessions != null) {
+					sessions.opened();
+				}
+			}
+			final SftpClient client = session.getClient();
+			int written = 0;
+			try {
+				LOGGER.info("Making directories " + dir);
+				client.mkdirs(dir);
+			    for (int i = 0; i < files.length; i++) {
+			        File file = files[i];
+					//Send the file
+					client.put(file.getAbsolutePath(),dir + "/" + file.getName());
+					//client.put(file.getAbsolutePath());
+					written++;
+				}
+				success = true;
+			} catch (final IOException kaboom) {
+				// An idle session that the upload host has dropped can still
+				// look open; if a borrowed one fails before any file has been
+				// written, retry once on a newly opened session.
+				if (!borrowed || written > 0) {
+					throw kaboom;
+				}
+				LOGGER.info("Borrowed SFTP session failed; opening another: " + kaboom);
+				borrowed = false;
+				session.close();
+				session = null;
+			}
+		}
+	} finally {
+		limiter.release(success);
+		if (session != null) {
+			if (success && sessions != null) {
+				sessions.giveBack(key, session);
+			} else {
+				session.close();
+			}
+		}
+	}
+  }
+
+  /**
+   * Opens an SSH connection to the supplied host, authenticates it with the
+   * supplied credentials and opens an SFTP channel over it.  This method is
+   * called by the {@link #uploadSFTP(FileRelease, File[], String, String)}
+   * method whenever no {@linkplain #getSharedSessions() shared} session is
+   * idle, or a borrowed one fails before any file has been written, and
+   * never returns <code>null</code>.
+   *
+   * @param      hostname
+   *               the host; must not be <code>null</code>
+   * @param      port
+   *               the port
+   * @param      username
+   *               the user name, qualified by the project name as the upload
+   *               host requires; must not be <code>null</code>
+   * @param      password
+   *               the password; must not be <code>null</code>
+   * @return     an open {@link SharedSessions.Sftp} session; never
+   *               <code>null</code>
+   * @exception  IOException
+   *               if the connection could not be made or authenticated
+   */
+  SharedSessions.Sftp openSftpSession(final String hostname, final int port, final String username, final String password)
   		throws IOException {
-	final String hostname = "frs.sourceforge.net";
-	final String releasename = release.getName();
-	final Package package2 = release.getPackage();
-	final String packagename = package2.getName().toLowerCase();
-	final Project project = package2.getProject();
-	final String projectname = project.getName().toLowerCase();
-	final String dir = "/home/frs/project/" + projectname.substring(0,1) + "/" + projectname.substring(0,2) + "/" + projectname + "/" + projectname + "/" + releasename;
-	final int port = 22;
-	final File[] files = release.getFiles();
 	//String previousValue = System.setProperty("log4j.rootCategory", "WARN");
 	SshClient ssh = new SshClient();
-	ssh.connect(hostname);
-	//Authenticate
-	PasswordAuthenticationClient passwordAuthenticationClient = new PasswordAuthenticationClient();
-	passwordAuthenticationClient.setUsername(username + "," + projectname);
-	passwordAuthenticationClient.setPassword(password);
-	int result = ssh.authenticate(passwordAuthenticationClient);
-	if(result != AuthenticationProtocolState.COMPLETE){
-		throw new IOException("Authentication failed.");
-	}
-	//Open the SFTP channel
-	SftpClient client = ssh.openSftpClient();
-	System.out.println("MAKING DIRS " + dir);
-	client.mkdirs(dir);
-	System.out.println("FINISHED");
-    for (int i = 0; i < files.length; i++) {
-        File file = files[i];
-		//Send the file
-		client.put(file.getAbsolutePath(),dir + "/" + file.getName());
-		//client.put(file.getAbsolutePath());
+	ssh.connect(hostname, port);
+	boolean opened = false;
+	try {
+		//Authenticate
+		PasswordAuthenticationClient passwordAuthenticationClient = new PasswordAuthenticationClient();
+		passwordAuthenticationClient.setUsername(username);
+		passwordAuthenticationClient.setPassword(password);
+		int result = ssh.authenticate(passwordAuthenticationClient);
+		if(result != AuthenticationProtocolState.COMPLETE){
+			throw new IOException("Authentication failed.");
+		}
+		//Open the SFTP channel
+		final SharedSessions.Sftp session = new SharedSessions.Sftp(ssh, ssh.openSftpClient());
+		opened = true;
+		return session;
+	} finally {
+		if (!opened) {
+			ssh.disconnect();
+		}
 	}
-	//disconnect
-	client.quit();
-	ssh.disconnect();
-	//System.setProperty("log4j.rootCategory", previousValue);
   }
+
+
+  /**
+   * Returns the path, relative to the {@linkplain #getUploadRoot() upload
+   * root}, of the directory to which the {@link File}s belonging to the
+   * supplied {@link FileRelease} are uploaded.  The path has the form
+   * <code><i>p</i>/<i>pr</i>/<i>project</i>/<i>project</i>/<i>release</i></code>,
+   * where <code><i>project</i></code> is the lowercased {@linkplain
+   * Project#getName() project name}.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      release
+   *               the {@link FileRelease} in question; must not be
+   *               <code>null</code> and must belong to a {@link Package} that
+   *               belongs to a named {@link Project}
+   * @return     the relative upload path; never <code>null</code>
+   */
+  public String getUploadPath(final FileRelease release) {
+    final String projectname =
+      release.getPackage().getProject().getName().toLowerCase();
+    final StringBuffer path = new StringBuffer();
+    path.append(projectname.substring(0, 1));
+    path.append("/");
+    path.append(projectname.substring(0, Math.min(2, projectname.length())));
+    path.append("/");
+    path.append(projectname);
+    path.append("/");
+    path.append(projectname);
+    path.append("/");
+    path.append(release.getName());
+    return path.toString();
+  }
+
+  /**
+   * Returns the absolute path on the {@linkplain #getUploadHost() upload host}
+   * of the directory to which the {@link File}s belonging to the supplied
+   * {@link FileRelease} are uploaded.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      release
+   *               the {@link FileRelease} in question; must not be
+   *               <code>null</code>
+   * @return     the absolute upload directory; never <code>null</code>
+   * @see        #getUploadPath(FileRelease)
+   */
+  public String getUploadDirectory(final FileRelease release) {
+    return this.getUploadRoot() + "/" + this.getUploadPath(release);
+  }
+
 /*
 //for use with //import ch.ethz.ssh2.*; j2ssh was better (see above)
   public void uploadSFTP(final FileRelease release, final String username, final String password) 
@@ -859,10 +1638,12 @@ public class HttpUnitPublisher implements Publisher, Serializable {
 */
 
   /**
-   * Assembles a {@link SortedSet} of {@linkplain File#getName()
-   * <code>File</code> "short name"s} from the supplied {@link FileRelease}.
-   * This method is called by the {@link #addFiles(WebResponse, FileRelease)}
-   * method and never returns <code>null</code>.
+   * Returns the {@link SortedSet} of {@linkplain File#getName()
+   * <code>File</code> "short name"s} of the supplied {@link FileRelease}.
+   * The {@link SortedSet} is the release's {@linkplain
+   * FileRelease#getSortedShortFileNames() cached, read-only} one.  This method
+   * is called by the {@link #addFiles(WebResponse, FileRelease)} method and
+   * never returns <code>null</code>.
    *
    * @param      release
    *               the {@link FileRelease} to work on; must not be
@@ -876,9 +1657,7 @@ public class HttpUnitPublisher implements Publisher, Serializable {
   protected SortedSet extractShortFileNames(final FileRelease release)
     throws PublishingException {
     assertNotNull(release, "release");
-    final SortedSet names = new TreeSet();
-    names.addAll(Arrays.asList(release.getShortFileNames()));
-    return names;
+    return release.getSortedShortFileNames();
   }
 
   /**
@@ -1089,6 +1868,324 @@ public class HttpUnitPublisher implements Publisher, Serializable {
     }
   }
 
+  /**
+   * Returns a {@link WebResponse} that represents the "packages page" for the
+   * supplied {@link Project}, requested directly by its {@linkplain
+   * Project#getID() identifier} rather than by navigating to it.  If the
+   * supplied {@link Project} does not yet have an identifier, it is
+   * {@linkplain SourceForge#getProjectID(String) looked up} and installed.
+   * Since a looked-up identifier may come from a cache or the {@link
+   * MetadataStore}, it is validated against the page it fetches, and looked
+   * up afresh if it does not check out.  This method will never return
+   * <code>null</code>.
+   *
+   * @param      conversation
+   *               the {@link WebConversation} currently in effect; must not be
+   *               <code>null</code>
+   * @param      project
+   *               the {@link Project} whose packages page should be returned;
+   *               must not be <code>null</code>
+   * @return     a {@link WebResponse} that represents the "packages page";
+   *               never <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  protected WebResponse getPackagesPage(final WebConversation conversation,
+                                        final Project project)
+    throws PublishingException {
+    assertNotNull(conversation, "conversation");
+    assertNotNull(project, "project");
+    if (project.getID() != null) {
+      return this.requestPackagesPage(conversation, project, project.getID());
+    }
+    final String shortName = project.getShortName();
+    String groupID = lookUpProjectID(shortName);
+    WebResponse packagesPage =
+      this.requestPackagesPage(conversation, project, groupID);
+    if (!this.isPackagesPageFor(packagesPage, groupID)) {
+      // The identifier came from a cache or the metadata store and may be
+      // stale; look it up afresh, once.
+      LOGGER.info("Project identifier " + groupID + " for " + shortName +
+                  " did not check out; looking it up again");
+      SourceForge.invalidateProjectID(shortName);
+      groupID = lookUpProjectID(shortName);
+      packagesPage = this.requestPackagesPage(conversation, project, groupID);
+    }
+    if (!project.isFrozen()) {
+      project.setID(groupID);
+    }
+    return packagesPage;
+  }
+
+  /**
+   * Returns the identifier of the supplied {@link Project}: the one it
+   * carries if it has one, and otherwise the one {@linkplain
+   * SourceForge#getProjectID(String) looked up} by its short name, which is
+   * normally cached by then.  This lets {@linkplain
+   * sfutils.NamedObject#freeze() frozen} {@link Project}s, on which no
+   * identifier can be installed, be published.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      project
+   *               the {@link Project}; must not be <code>null</code>
+   * @return     the project identifier; never <code>null</code>
+   * @exception  PublishingException
+   *               if the identifier could not be looked up
+   */
+  static String getProjectID(final Project project)
+    throws PublishingException {
+    assertNotNull(project, "project");
+    final String groupID = project.getID();
+    if (groupID != null) {
+      return groupID;
+    }
+    return lookUpProjectID(project.getShortName());
+  }
+
+  /**
+   * Requests the "packages page" of the project with the supplied
+   * identifier, checking that the site still honours the login in effect.
+   * The packages page is the first page a publish requests after logging
+   * in, so a {@linkplain #getSharedSessions() shared} login that has expired
+   * on the site shows up here; it is then {@linkplain
+   * SharedSessions#invalidateLogin(String) forgotten}, established again and
+   * the page requested once more.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      conversation
+   *               the {@link WebConversation} currently in effect; must not be
+   *               <code>null</code>
+   * @param      project
+   *               the {@link Project} whose {@link Administrator} is logged
+   *               in; must not be <code>null</code>
+   * @param      groupID
+   *               the project identifier; must not be <code>null</code>
+   * @return     the "packages page"; never <code>null</code>
+   * @exception  PublishingException
+   *               if the page still asks for a login after logging in again,
+   *               or if any other error occurs
+   */
+  private WebResponse requestPackagesPage(final WebConversation conversation,
+                                          final Project project,
+                                          final String groupID)
+    throws PublishingException {
+    final WebResponse packagesPage =
+      this.requestPackagesPage(conversation, groupID);
+    if (!this.isLoginRequired(packagesPage)) {
+      return packagesPage;
+    }
+    final SharedSessions sessions = this.getSharedSessions();
+    if (sessions == null) {
+      throw new PublishingException("Not logged in to project " + groupID);
+    }
+    LOGGER.info("Shared login no longer honoured; logging in again");
+    sessions.invalidateLogin(this.getLoginKey(project));
+    // A cookie added under a name already present does not replace it, so
+    // the stale ones must go first.
+    conversation.clearContents();
+    this.establishLogin(conversation, project);
+    final WebResponse retriedPage =
+      this.requestPackagesPage(conversation, groupID);
+    if (this.isLoginRequired(retriedPage)) {
+      throw new PublishingException("Not logged in to project " + groupID);
+    }
+    return retriedPage;
+  }
+
+  /**
+   * Returns <code>true</code> if the supplied page shows that the site does
+   * not honour the login in effect: that is, if it is the login page or a
+   * "Permission Denied" page.
+   *
+   * @param      page
+   *               the page to check; must not be <code>null</code>
+   * @return     <code>true</code> if a login is required
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  protected boolean isLoginRequired(final WebResponse page)
+    throws PublishingException {
+    assertNotNull(page, "page");
+    try {
+      if (this.findFormWithActionEndingWith(page.getForms(),
+                                            LOGIN_PATH) != null) {
+        return true;
+      }
+      final String text = page.getText();
+      return text != null && text.indexOf("Permission Denied") >= 0;
+    } catch (final IOException kaboom) {
+      throw new PublishingException(kaboom);
+    } catch (final SAXException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+  }
+
+  /**
+   * Requests the "packages page" of the project with the supplied
+   * identifier.  This method never returns <code>null</code>.
+   *
+   * @param      conversation
+   *               the {@link WebConversation} currently in effect; must not be
+   *               <code>null</code>
+   * @param      groupID
+   *               the project identifier; must not be <code>null</code>
+   * @return     the "packages page"; never <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  private WebResponse requestPackagesPage(final WebConversation conversation,
+                                          final String groupID)
+    throws PublishingException {
+    try {
+      final WebResponse packagesPage =
+        conversation.getResponse(new GetMethodWebRequest(this.getSiteURL() +
+                                                         EDIT_PACKAGES_ACTION +
+                                                         "?" + GROUP_ID + "=" +
+                                                         groupID));
+      assertNotNull(packagesPage, "packagesPage");
+      LOGGER.info("Retrieved " + packagesPage.getTitle() + " (packages page)");
+      return packagesPage;
+    } catch (final IOException kaboom) {
+      throw new PublishingException(kaboom);
+    } catch (final SAXException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if the supplied page is the "packages page" of
+   * the project with the supplied identifier, which is taken to be the case
+   * if it holds a package form for that project.
+   *
+   * @param      page
+   *               the page to check; must not be <code>null</code>
+   * @param      groupID
+   *               the project identifier; must not be <code>null</code>
+   * @return     <code>true</code> if the page checks out
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  protected boolean isPackagesPageFor(final WebResponse page,
+                                      final String groupID)
+    throws PublishingException {
+    try {
+      final WebForm[] forms =
+        this.retainFormsWithAction(page.getForms(), EDIT_PACKAGES_ACTION);
+      for (int i = 0; forms != null && i < forms.length; i++) {
+        if (groupID.equals(forms[i].getParameterValue(GROUP_ID))) {
+          return true;
+        }
+      }
+      return false;
+    } catch (final SAXException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+  }
+
+  private static String lookUpProjectID(final String projectShortName)
+    throws PublishingException {
+    final String groupID;
+    try {
+      groupID = SourceForge.getProjectID(projectShortName);
+    } catch (final SourceForgeException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+    assertNotNull(groupID, "groupID");
+    return groupID;
+  }
+
+  /**
+   * Ensures that the supplied {@link WebConversation} is logged in as the
+   * supplied {@link Project}'s {@link Project#getAdministrator()
+   * Administrator}.  Without {@linkplain #getSharedSessions() shared
+   * sessions} this simply {@linkplain #login(WebConversation, Project) logs
+   * in}; with them, the cookies of a single login per {@linkplain
+   * #getSiteURL() site} and set of credentials are copied into the {@link
+   * WebConversation} instead, concurrent callers waiting for the first to
+   * log in.  This method is called by the {@link #plan(FileRelease)} and
+   * {@link #processWebSteps(WebConversation, FileRelease)} methods, and
+   * again when the packages page shows that a shared login has expired.
+   *
+   * @param      conversation
+   *               the {@link WebConversation} to log in; must not be
+   *               <code>null</code>
+   * @param      project
+   *               the {@link Project} to log into; must not be
+   *               <code>null</code> and must provide a non-<code>null</code>
+   *               {@link Project#getAdministrator() Administrator}
+   * @exception  InvalidCredentialsException
+   *               if the associated {@link Administrator} could not log in
+   * @exception  PublishingException
+   *               if any other error occurs
+   */
+  protected void establishLogin(final WebConversation conversation,
+                                final Project project)
+    throws InvalidCredentialsException, PublishingException {
+    assertNotNull(conversation, "conversation");
+    assertNotNull(project, "project");
+    final SharedSessions sessions = this.getSharedSessions();
+    if (sessions == null) {
+      final WebResponse loginResponse = this.login(conversation, project);
+      assertNotNull(loginResponse, "loginResponse");
+      LOGGER.info("Logged in as " + project.getAdministrator().getName());
+      return;
+    }
+    final Administrator administrator = project.getAdministrator();
+    assertNotNull(administrator, "administrator");
+    final String key = this.getLoginKey(project);
+    final Map cookies;
+    try {
+      cookies = sessions.getLoginCookies(key, new BoundedCache.Loader() {
+          public Object load(final Object ignored)
+            throws PublishingException {
+            final WebConversation loginConversation =
+              createConversation();
+            final WebResponse loginResponse =
+              login(loginConversation, project);
+            assertNotNull(loginResponse, "loginResponse");
+            LOGGER.info("Logged in as " + administrator.getName() +
+                        " (shared)");
+            final String[] names = loginConversation.getCookieNames();
+            final Map loginCookies = new HashMap();
+            for (int i = 0; names != null && i < names.length; i++) {
+              loginCookies.put(names[i],
+                               loginConversation.getCookieValue(names[i]));
+            }
+            return Collections.unmodifiableMap(loginCookies);
+          }
+        });
+    } catch (final PublishingException kaboom) {
+      throw kaboom;
+    } catch (final SourceForgeException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+    final Iterator entries = cookies.entrySet().iterator();
+    while (entries.hasNext()) {
+      final Map.Entry entry = (Map.Entry)entries.next();
+      conversation.addCookie((String)entry.getKey(), (String)entry.getValue());
+    }
+  }
+
+  /**
+   * Returns the key under which the login of the supplied {@link Project}'s
+   * {@link Administrator} is {@linkplain #getSharedSessions() shared}: the
+   * {@linkplain #getSiteURL() site} followed by the administrator's
+   * {@linkplain SharedSessions#credentialsKey(String, String) credentials}.
+   * This method never returns <code>null</code>.
+   *
+   * @param      project
+   *               the {@link Project}; must not be <code>null</code> and
+   *               must provide a non-<code>null</code> {@link
+   *               Project#getAdministrator() Administrator}
+   * @return     the login key; never <code>null</code>
+   */
+  private String getLoginKey(final Project project) {
+    final Administrator administrator = project.getAdministrator();
+    return this.getSiteURL() + " " +
+      SharedSessions.credentialsKey(administrator.getName(),
+                                    administrator.getPassword());
+  }
+
   /**
    * Logs the supplied {@link Project}'s {@link Project#getAdministrator()
    * Administrator} into the supplied {@link Project} on <a
@@ -1126,7 +2223,8 @@ public class HttpUnitPublisher implements Publisher, Serializable {
 
     try {
       final WebResponse getLoginPageResponse =
-        conversation.getResponse(new GetMethodWebRequest(LOGIN_URL));
+        conversation.getResponse(new GetMethodWebRequest(this.getSiteURL() +
+                                                         LOGIN_PATH));
       assertNotNull(getLoginPageResponse, "getLoginPageResponse");
       LOGGER.info("Retrieved " + getLoginPageResponse.getTitle());
 
@@ -1134,8 +2232,7 @@ public class HttpUnitPublisher implements Publisher, Serializable {
       assertArrayFull(forms, "forms");
 
       final WebForm loginForm =
-        this.findFormWithAction(forms,
-                                "https://sourceforge.net/account/login.php");
+        this.findFormWithActionEndingWith(forms, LOGIN_PATH);
       assertNotNull(loginForm, "loginForm");
 
       loginForm.setParameter("form_loginname", userName);
@@ -1268,6 +2365,44 @@ public class HttpUnitPublisher implements Publisher, Serializable {
     return null;
   }
 
+  /**
+   * Extracts a {@link WebForm} from the supplied array of {@link WebForm}s,
+   * provided that its {@linkplain WebForm#getAction() action} ends with the
+   * supplied {@link String}.  This allows a form to be found regardless of the
+   * scheme and host its action names.  This method may return
+   * <code>null</code>.
+   *
+   * @param      forms
+   *               the array of {@link WebForm}s to consider; if
+   *               <code>null</code> then <code>null</code> will be returned
+   * @param      actionSuffix
+   *               the {@link String} with which a given {@link WebForm}'s
+   *               {@linkplain WebForm#getAction() action} must end in order for
+   *               that {@link WebForm} to be returned; if <code>null</code>
+   *               then <code>null</code> will be returned
+   * @return     a {@link WebForm} from the supplied array of {@link WebForm}s,
+   *               provided that its {@linkplain WebForm#getAction() action}
+   *               ends with the supplied {@link String}, or <code>null</code>
+   */
+  protected WebForm findFormWithActionEndingWith(final WebForm[] forms,
+                                                 final String actionSuffix) {
+    if (forms == null || forms.length <= 0 || actionSuffix == null) {
+      return null;
+    }
+    WebForm form;
+    String formAction;
+    for (int i = 0; i < forms.length; i++) {
+      form = forms[i];
+      if (form != null) {
+        formAction = form.getAction();
+        if (formAction != null && formAction.endsWith(actionSuffix)) {
+          return form;
+        }
+      }
+    }
+    return null;
+  }
+
   /**
    * Returns an array of {@link WebForm}s whose elements are those {@link
    * WebForm}s extracted from the supplied {@link WebForm} array with
@@ -1481,14 +2616,18 @@ public class HttpUnitPublisher implements Publisher, Serializable {
       final String packageID = updatePackageForm.getParameterValue(PACKAGE_ID);
       assertNotNull(packageID, "packageID");
 
-      pkg.setID(packageID);
+      if (!pkg.isFrozen()) {
+        pkg.setID(packageID);
+      }
 
       // ...and then grab its "group ID", which I think is really the
       // project identifier.
       final String groupID = updatePackageForm.getParameterValue(GROUP_ID);
       assertNotNull(groupID, "groupID");
 
-      project.setID(groupID);
+      if (!project.isFrozen()) {
+        project.setID(groupID);
+      }
 
       final WebResponse releasesPage =
         this.getReleasesPage(conversation, packageID, groupID);
@@ -1509,6 +2648,50 @@ public class HttpUnitPublisher implements Publisher, Serializable {
       // or
       // 3. packagesPage --(edit releases)--> releasesPage --(no match)--> packagesPage --(add release)--> createReleasePage --(create)--> editReleasePage
       //                                                                   ^^^^^^^^^^^^
+      return
+        this.createRelease(conversation, packageID, groupID, fileRelease);
+
+    } catch (final IOException kaboom) {
+      throw new PublishingException(kaboom);
+    } catch (final SAXException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+  }
+
+  /**
+   * Creates a new file release with the name of the supplied {@link
+   * FileRelease} in the package and project with the supplied identifiers,
+   * and returns the resulting "edit release" page.  This method is called by
+   * the {@link #getEditReleasePage(WebConversation, WebResponse, FileRelease)}
+   * method and by the {@link Reconciler}, and never returns
+   * <code>null</code>.
+   *
+   * @param      conversation
+   *               the {@link WebConversation} currently in effect; must not be
+   *               <code>null</code>
+   * @param      packageID
+   *               the identifier of the package to which the new file release
+   *               will belong; must not be <code>null</code>
+   * @param      groupID
+   *               the identifier of the project to which the new file release
+   *               will belong; must not be <code>null</code>
+   * @param      fileRelease
+   *               the {@link FileRelease} whose <a
+   *               href="http://sourceforge.net/">SourceForge</a> analog is to
+   *               be created; must not be <code>null</code>
+   * @return     a {@link WebResponse} representing the "edit release" page of
+   *               the new file release; never <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  protected WebResponse createRelease(final WebConversation conversation,
+                                      final String packageID,
+                                      final String groupID,
+                                      final FileRelease fileRelease)
+    throws PublishingException {
+    assertNotNull(conversation, "conversation");
+    assertNotNull(fileRelease, "fileRelease");
+    try {
       final String newReleaseURL = 
         this.buildNewReleaseHref(conversation, packageID, groupID);
       assertNotNull(newReleaseURL, "newReleaseURL");
@@ -1527,7 +2710,9 @@ public class HttpUnitPublisher implements Publisher, Serializable {
       newReleaseForm.setParameter(PACKAGE_ID, packageID);
       newReleaseForm.setParameter(GROUP_ID, groupID);
 
-      return newReleaseForm.submit();
+      final WebResponse editReleasePage = newReleaseForm.submit();
+      assertNotNull(editReleasePage, "editReleasePage");
+      return editReleasePage;
 
     } catch (final IOException kaboom) {
       throw new PublishingException(kaboom);
@@ -1999,6 +3184,30 @@ public class HttpUnitPublisher implements Publisher, Serializable {
     }
   }
 
+  /**
+   * A convenience method that throws a {@link NullObjectException} if the
+   * supplied {@link List} is <code>null</code> and an {@link
+   * EmptyArrayException} if it is empty.
+   *
+   * @param      list
+   *               the {@link List} to check
+   * @param      message
+   *               a message describing the problem; may be
+   *               <code>null</code>
+   * @exception  NullObjectException
+   *               if the supplied {@link List} is <code>null</code>
+   * @exception  EmptyArrayException
+   *               if the supplied {@link List} is empty
+   */
+  protected static final void assertListFull(final List list,
+                                             final String message)
+    throws NullObjectException, EmptyArrayException {
+    assertNotNull(list, message);
+    if (list.isEmpty()) {
+      throw new EmptyArrayException(message);
+    }
+  }
+
   /**
    * A {@link Thread} that uploads a {@link File} to an FTP site.
    *
@@ -0,0 +1,346 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs.web;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.Iterator;
+import java.util.List;
+
+import java.util.logging.Logger;
+
+import sfutils.Administrator;
+import sfutils.MetadataStore;
+import sfutils.Project;
+
+import sfutils.frs.FileRelease;
+import sfutils.frs.FileSpecification;
+import sfutils.frs.Package;
+import sfutils.frs.Publisher;
+import sfutils.frs.PublishingException;
+import sfutils.frs.ReleaseFingerprint;
+
+/**
+ * A {@link Publisher} that publishes a {@link FileRelease} through an {@link
+ * HttpUnitPublisher} only if it has changed since it was last published.
+ * The {@linkplain ReleaseFingerprint fingerprint} of each {@link
+ * FileRelease} published successfully is recorded in a {@link
+ * MetadataStore}; a {@link FileRelease} whose fingerprint matches the one
+ * recorded is skipped, and one whose attributes are unchanged and that has
+ * only gained or changed {@link java.io.File}s has only those uploaded.
+ *
+ * <p>Partial publishes are only made when the {@link HttpUnitPublisher}'s
+ * {@linkplain HttpUnitPublisher#isWebStepsEnabled() web steps are
+ * disabled}, since then publishing consists of nothing but the upload.
+ * With web steps enabled, a changed {@link FileRelease} is published in
+ * full, and the {@link Reconciler} keeps the requests it makes to a
+ * minimum; the names of the files whose contents changed are {@linkplain
+ * HttpUnitPublisher#publish(FileRelease, java.util.Collection) passed
+ * along}, so that they are uploaded again even though files of those names
+ * are already attached.</p>
+ *
+ * <p>An {@link IncrementalPublisher} holds no state of its own beyond its
+ * configuration, so one instance may be used by several threads at
+ * once.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        ReleaseFingerprint
+ */
+public class IncrementalPublisher implements Publisher {
+
+  /**
+   * The {@linkplain #publishIfChanged(FileRelease) outcome} of a publish that
+   * was skipped because nothing had changed.
+   */
+  public static final int UP_TO_DATE = 0;
+
+  /**
+   * The {@linkplain #publishIfChanged(FileRelease) outcome} of a publish that
+   * uploaded only the {@link java.io.File}s that had changed.
+   */
+  public static final int PARTIAL = 1;
+
+  /**
+   * The {@linkplain #publishIfChanged(FileRelease) outcome} of a full
+   * publish.
+   */
+  public static final int FULL = 2;
+
+  /**
+   * The {@link Logger} used by this class.  This field is never
+   * <code>null</code>.
+   */
+  private static final Logger LOGGER =
+    Logger.getLogger(IncrementalPublisher.class.getName());
+
+  /**
+   * The {@link HttpUnitPublisher} that does the publishing.  This field is
+   * never <code>null</code>.
+   */
+  private final HttpUnitPublisher publisher;
+
+  /**
+   * The {@link MetadataStore} in which fingerprints are recorded.  This
+   * field is never <code>null</code>.
+   */
+  private final MetadataStore metadataStore;
+
+  /**
+   * Whether every {@link FileRelease} is published in full regardless of
+   * its recorded fingerprint.
+   */
+  private final boolean forced;
+
+  /**
+   * Creates a new {@link IncrementalPublisher} that records fingerprints in
+   * the supplied {@link HttpUnitPublisher}'s {@linkplain
+   * HttpUnitPublisher#getMetadataStore() metadata store}.
+   *
+   * @param      publisher
+   *               the {@link HttpUnitPublisher} that does the publishing;
+   *               must not be <code>null</code>
+   */
+  public IncrementalPublisher(final HttpUnitPublisher publisher) {
+    this(publisher, null, false);
+  }
+
+  /**
+   * Creates a new {@link IncrementalPublisher}.
+   *
+   * @param      publisher
+   *               the {@link HttpUnitPublisher} that does the publishing;
+   *               must not be <code>null</code>
+   * @param      metadataStore
+   *               the {@link MetadataStore} in which to record
+   *               fingerprints; if <code>null</code>, the {@link
+   *               HttpUnitPublisher}'s {@linkplain
+   *               HttpUnitPublisher#getMetadataStore() metadata store} is
+   *               used
+   * @param      forced
+   *               whether to publish every {@link FileRelease} in full
+   *               regardless of its recorded fingerprint; fingerprints are
+   *               still recorded
+   */
+  public IncrementalPublisher(final HttpUnitPublisher publisher,
+                              final MetadataStore metadataStore,
+                              final boolean forced) {
+    super();
+    if (publisher == null) {
+      throw new IllegalArgumentException("null publisher");
+    }
+    this.publisher = publisher;
+    if (metadataStore == null) {
+      this.metadataStore = publisher.getMetadataStore();
+    } else {
+      this.metadataStore = metadataStore;
+    }
+    this.forced = forced;
+  }
+
+  /**
+   * Returns the {@link HttpUnitPublisher} that does the publishing.  This
+   * method never returns <code>null</code>.
+   *
+   * @return     the {@link HttpUnitPublisher}; never <code>null</code>
+   */
+  public HttpUnitPublisher getPublisher() {
+    return this.publisher;
+  }
+
+  /**
+   * Returns the {@link MetadataStore} in which fingerprints are recorded.
+   * This method never returns <code>null</code>.
+   *
+   * @return     the {@link MetadataStore}; never <code>null</code>
+   */
+  public MetadataStore getMetadataStore() {
+    return this.metadataStore;
+  }
+
+  /**
+   * Returns whether every {@link FileRelease} is published in full
+   * regardless of its recorded fingerprint.
+   *
+   * @return     <code>true</code> if publishing is forced
+   */
+  public boolean isForced() {
+    return this.forced;
+  }
+
+  /**
+   * Publishes the supplied {@link FileRelease} if it has changed since it
+   * was last published.
+   *
+   * @param      release
+   *               the {@link FileRelease} to publish; must not be
+   *               <code>null</code>
+   * @exception  PublishingException
+   *               if the supplied {@link FileRelease} could not be published
+   * @see        #publishIfChanged(FileRelease)
+   */
+  public void publish(final FileRelease release)
+    throws PublishingException {
+    this.publishIfChanged(release);
+  }
+
+  /**
+   * Publishes the supplied {@link FileRelease} if it has changed since it
+   * was last published, and records its new fingerprint if it was
+   * published successfully.
+   *
+   * @param      release
+   *               the {@link FileRelease} to publish; must not be
+   *               <code>null</code>
+   * @return     {@link #UP_TO_DATE}, {@link #PARTIAL} or {@link #FULL}
+   * @exception  PublishingException
+   *               if the supplied {@link FileRelease} could not be published
+   */
+  public int publishIfChanged(final FileRelease release)
+    throws PublishingException {
+    HttpUnitPublisher.assertNotNull(release, "release");
+    final String key = getFingerprintKey(release);
+    final ReleaseFingerprint previous =
+      ReleaseFingerprint.parse(this.metadataStore.getFingerprint(key));
+    final ReleaseFingerprint current;
+    try {
+      current = ReleaseFingerprint.compute(release, this.getTarget(), previous);
+    } catch (final IOException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+
+    final int outcome;
+    if (!this.forced && current.isUpToDate(previous)) {
+      LOGGER.info(key + " is up to date");
+      if (current.equals(previous)) {
+        return UP_TO_DATE;
+      }
+      // Only modification times differ; record them so that the files need
+      // not be read next time.
+      outcome = UP_TO_DATE;
+    } else if (!this.forced &&
+               !this.publisher.isWebStepsEnabled() &&
+               current.hasSameAttributes(previous) &&
+               !current.hasRemovedFiles(previous)) {
+      final List changed = current.getChangedFileNames(previous);
+      LOGGER.info("Uploading " + changed.size() + " changed files of " + key);
+      final Administrator admin =
+        release.getPackage().getProject().getAdministrator();
+      HttpUnitPublisher.assertNotNull(admin, "admin");
+      try {
+        this.publisher.uploadSFTP(release, getFiles(release, changed),
+                                  admin.getName(), admin.getPassword());
+      } catch (final IOException kaboom) {
+        throw new PublishingException(kaboom);
+      }
+      outcome = PARTIAL;
+    } else {
+      // The web pages show only names, so tell the publisher which files
+      // changed; otherwise a file changed under the same name stays stale.
+      // A forced publish, or one with no fingerprint to go by, uploads all.
+      if (this.forced) {
+        this.publisher.publish(release, current.getChangedFileNames(null));
+      } else {
+        this.publisher.publish(release, current.getChangedFileNames(previous));
+      }
+      outcome = FULL;
+    }
+    this.metadataStore.putFingerprint(key, current.toString());
+    return outcome;
+  }
+
+  /**
+   * Returns a description of where and how the {@link HttpUnitPublisher}
+   * publishes, which is folded into every fingerprint so that publishing to
+   * another site, or with the {@linkplain
+   * HttpUnitPublisher#isWebStepsEnabled() web steps} switched on or off, is
+   * never mistaken for being up to date.  A release uploaded without the
+   * web steps has no package, release or attached files on the web side
+   * yet.  This method never returns <code>null</code>.
+   *
+   * @return     a description of the target; never <code>null</code>
+   */
+  private String getTarget() {
+    return this.publisher.getSiteURL() + " " +
+      this.publisher.getUploadHost() + ":" +
+      this.publisher.getUploadPort() +
+      this.publisher.getUploadRoot() +
+      (this.publisher.isWebStepsEnabled() ? " web" : " sftp");
+  }
+
+  /**
+   * Returns the key under which the fingerprint of the supplied {@link
+   * FileRelease} is recorded: its project's short name, its package's name
+   * and its own name.  This method never returns <code>null</code>.
+   *
+   * @param      release
+   *               the {@link FileRelease}; must not be <code>null</code>
+   * @return     the key; never <code>null</code>
+   * @exception  NullObjectException
+   *               if the {@link FileRelease} lacks a {@link Package}, a
+   *               {@link Project} or a name
+   */
+  static String getFingerprintKey(final FileRelease release)
+    throws NullObjectException {
+    final Package pkg = release.getPackage();
+    HttpUnitPublisher.assertNotNull(pkg, "pkg");
+    final Project project = pkg.getProject();
+    HttpUnitPublisher.assertNotNull(project, "project");
+    final String projectShortName = project.getShortName();
+    HttpUnitPublisher.assertNotNull(projectShortName, "projectShortName");
+    final String releaseName = release.getName();
+    HttpUnitPublisher.assertNotNull(releaseName, "releaseName");
+    return projectShortName + "/" + pkg.getName() + "/" + releaseName;
+  }
+
+  /**
+   * Returns the {@link File}s of the supplied {@link FileRelease} that have
+   * the supplied names.  This method never returns <code>null</code>.
+   *
+   * @param      release
+   *               the {@link FileRelease}; must not be <code>null</code>
+   * @param      names
+   *               the names of the {@link File}s; must not be
+   *               <code>null</code>
+   * @return     the {@link File}s; never <code>null</code>
+   */
+  private static File[] getFiles(final FileRelease release,
+                                 final List names) {
+    final File[] files = new File[names.size()];
+    final Iterator iterator = names.iterator();
+    for (int i = 0; iterator.hasNext(); i++) {
+      final FileSpecification spec =
+        release.getFileSpecification((String)iterator.next());
+      assert spec != null;
+      files[i] = spec.getFile();
+    }
+    return files;
+  }
+
+}
@@ -0,0 +1,257 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs.web;
+
+import java.io.File;
+import java.io.Serializable;
+
+/**
+ * A single change that a {@link Reconciler} must make to the <a
+ * href="http://sourceforge.net/">SourceForge</a> file release system so that
+ * it reflects a {@link sfutils.frs.FileRelease}.  {@link Mutation}s are
+ * immutable.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        Reconciler#diff(RemoteState, sfutils.frs.FileRelease)
+ */
+public class Mutation implements Serializable {
+
+  /**
+   * The kind of {@link Mutation} that creates a package.
+   */
+  public static final int CREATE_PACKAGE = 1;
+
+  /**
+   * The kind of {@link Mutation} that changes the hidden status of a package.
+   */
+  public static final int UPDATE_PACKAGE_STATUS = 2;
+
+  /**
+   * The kind of {@link Mutation} that creates a file release.
+   */
+  public static final int CREATE_RELEASE = 3;
+
+  /**
+   * The kind of {@link Mutation} that uploads a file to the upload host.
+   */
+  public static final int UPLOAD_FILE = 4;
+
+  /**
+   * The kind of {@link Mutation} that saves the attributes of a file release
+   * (its date, status, notes, change log and formatting); step 1 of the "edit
+   * release" page.
+   */
+  public static final int UPDATE_RELEASE = 5;
+
+  /**
+   * The kind of {@link Mutation} that adds an uploaded file to a file
+   * release; step 2 of the "edit release" page.
+   */
+  public static final int ADD_FILE = 6;
+
+  /**
+   * The kind of {@link Mutation} that changes the file and processor types of
+   * a file in a file release; step 3 of the "edit release" page.
+   */
+  public static final int UPDATE_FILE_TYPE = 7;
+
+  /**
+   * The kind of {@link Mutation} that notifies users monitoring a package of
+   * a file release; step 4 of the "edit release" page.
+   */
+  public static final int NOTIFY_OTHERS = 8;
+
+  /**
+   * The kind of this {@link Mutation}; one of the constants declared by this
+   * class.
+   */
+  private final int kind;
+
+  /**
+   * The name of the package, release or file affected by this {@link
+   * Mutation}.  This field is never <code>null</code>.
+   */
+  private final String target;
+
+  /**
+   * A human-readable description of the change.  This field may be
+   * <code>null</code>.
+   */
+  private final String detail;
+
+  /**
+   * The local {@link File} involved in this {@link Mutation}, if any.  This
+   * field may be <code>null</code>.
+   */
+  private final File file;
+
+  /**
+   * Creates a new {@link Mutation} that involves no local {@link File}.
+   *
+   * @param      kind
+   *               the kind of {@link Mutation}; one of the constants declared
+   *               by this class
+   * @param      target
+   *               the name of the package, release or file affected; must not
+   *               be <code>null</code>
+   * @param      detail
+   *               a human-readable description of the change; may be
+   *               <code>null</code>
+   */
+  public Mutation(final int kind, final String target, final String detail) {
+    this(kind, target, detail, null);
+  }
+
+  /**
+   * Creates a new {@link Mutation}.
+   *
+   * @param      kind
+   *               the kind of {@link Mutation}; one of the constants declared
+   *               by this class
+   * @param      target
+   *               the name of the package, release or file affected; must not
+   *               be <code>null</code>
+   * @param      detail
+   *               a human-readable description of the change; may be
+   *               <code>null</code>
+   * @param      file
+   *               the local {@link File} involved; may be <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if <code>kind</code> is not one of the constants declared by
+   *               this class or <code>target</code> is <code>null</code>
+   */
+  public Mutation(final int kind,
+                  final String target,
+                  final String detail,
+                  final File file) {
+    super();
+    if (kind < CREATE_PACKAGE || kind > NOTIFY_OTHERS) {
+      throw new IllegalArgumentException("Unknown kind: " + kind);
+    }
+    if (target == null) {
+      throw new IllegalArgumentException("null target");
+    }
+    this.kind = kind;
+    this.target = target;
+    this.detail = detail;
+    this.file = file;
+  }
+
+  /**
+   * Returns the kind of this {@link Mutation}; one of the constants declared
+   * by this class.
+   *
+   * @return     the kind of this {@link Mutation}
+   */
+  public int getKind() {
+    return this.kind;
+  }
+
+  /**
+   * Returns the name of the package, release or file affected by this {@link
+   * Mutation}.  This method never returns <code>null</code>.
+   *
+   * @return     the name of the affected object; never <code>null</code>
+   */
+  public String getTarget() {
+    return this.target;
+  }
+
+  /**
+   * Returns a human-readable description of the change.  This method may
+   * return <code>null</code>.
+   *
+   * @return     the description, or <code>null</code>
+   */
+  public String getDetail() {
+    return this.detail;
+  }
+
+  /**
+   * Returns the local {@link File} involved in this {@link Mutation}.  This
+   * method may return <code>null</code>.
+   *
+   * @return     the {@link File}, or <code>null</code>
+   */
+  public File getFile() {
+    return this.file;
+  }
+
+  /**
+   * Returns a short name for the supplied kind of {@link Mutation}, such as
+   * "<code>create package</code>".  This method never returns
+   * <code>null</code>.
+   *
+   * @param      kind
+   *               the kind of {@link Mutation}
+   * @return     a short name; never <code>null</code>
+   */
+  public static String getKindName(final int kind) {
+    switch (kind) {
+    case CREATE_PACKAGE:
+      return "create package";
+    case UPDATE_PACKAGE_STATUS:
+      return "update package status";
+    case CREATE_RELEASE:
+      return "create release";
+    case UPLOAD_FILE:
+      return "upload file";
+    case UPDATE_RELEASE:
+      return "update release";
+    case ADD_FILE:
+      return "add file";
+    case UPDATE_FILE_TYPE:
+      return "update file type";
+    case NOTIFY_OTHERS:
+      return "notify others";
+    default:
+      return "unknown";
+    }
+  }
+
+  /**
+   * Returns a {@link String} representation of this {@link Mutation}.  This
+   * method never returns <code>null</code>.
+   *
+   * @return     a {@link String} representation of this {@link Mutation};
+   *               never <code>null</code>
+   */
+  public String toString() {
+    final StringBuffer buffer = new StringBuffer(getKindName(this.kind));
+    buffer.append(" ");
+    buffer.append(this.target);
+    if (this.detail != null) {
+      buffer.append(" (");
+      buffer.append(this.detail);
+      buffer.append(")");
+    }
+    return buffer.toString();
+  }
+
+}
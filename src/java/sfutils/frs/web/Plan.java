@@ -0,0 +1,289 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs.web;
+
+import java.io.Serializable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The result of a dry run: the {@link Mutation}s that publishing a {@link
+ * sfutils.frs.FileRelease} would make, together with an estimate of what
+ * making them would cost.  A {@link Plan} is produced by {@link
+ * HttpUnitPublisher#plan(sfutils.frs.FileRelease)} without changing anything
+ * on <a href="http://sourceforge.net/">SourceForge</a>.  {@link Plan}s are
+ * immutable.
+ *
+ * <p>Request counts include the requests made to log in and to read the
+ * current state, since a real publish makes those too.  Byte counts are
+ * estimates of the request bodies sent; SFTP upload bytes are counted
+ * separately because they do not travel over HTTP.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        Reconciler#plan(RemoteState, sfutils.frs.FileRelease, List)
+ */
+public class Plan implements Serializable {
+
+  /**
+   * The name of the file release this {@link Plan} is for.  This field is
+   * never <code>null</code>.
+   */
+  private final String releaseName;
+
+  /**
+   * The unmodifiable, ordered {@link List} of {@link Mutation}s that would be
+   * made.  This field is never <code>null</code>.
+   */
+  private final List mutations;
+
+  /**
+   * The number of HTTP requests made to log in and read the current state.
+   */
+  private final int readRequestCount;
+
+  /**
+   * The estimated number of HTTP requests needed to apply the {@link
+   * Mutation}s.
+   */
+  private final int writeRequestCount;
+
+  /**
+   * The estimated number of bytes sent in HTTP request bodies while applying
+   * the {@link Mutation}s.
+   */
+  private final long requestByteCount;
+
+  /**
+   * The number of bytes that would be uploaded via SFTP.
+   */
+  private final long uploadByteCount;
+
+  /**
+   * Creates a new {@link Plan}.
+   *
+   * @param      releaseName
+   *               the name of the file release; must not be <code>null</code>
+   * @param      mutations
+   *               the {@link Mutation}s that would be made, in order; must not
+   *               be <code>null</code>; copied
+   * @param      readRequestCount
+   *               the number of HTTP requests made to log in and read the
+   *               current state
+   * @param      writeRequestCount
+   *               the estimated number of HTTP requests needed to apply the
+   *               {@link Mutation}s
+   * @param      requestByteCount
+   *               the estimated number of bytes sent in HTTP request bodies
+   *               while applying the {@link Mutation}s
+   * @param      uploadByteCount
+   *               the number of bytes that would be uploaded via SFTP
+   * @exception  IllegalArgumentException
+   *               if <code>releaseName</code> or <code>mutations</code> is
+   *               <code>null</code>, or any count is negative
+   */
+  public Plan(final String releaseName,
+              final List mutations,
+              final int readRequestCount,
+              final int writeRequestCount,
+              final long requestByteCount,
+              final long uploadByteCount) {
+    super();
+    if (releaseName == null) {
+      throw new IllegalArgumentException("null releaseName");
+    }
+    if (mutations == null) {
+      throw new IllegalArgumentException("null mutations");
+    }
+    if (readRequestCount < 0 || writeRequestCount < 0 ||
+        requestByteCount < 0L || uploadByteCount < 0L) {
+      throw new IllegalArgumentException("negative count");
+    }
+    this.releaseName = releaseName;
+    this.mutations = Collections.unmodifiableList(new ArrayList(mutations));
+    this.readRequestCount = readRequestCount;
+    this.writeRequestCount = writeRequestCount;
+    this.requestByteCount = requestByteCount;
+    this.uploadByteCount = uploadByteCount;
+  }
+
+  /**
+   * Returns the name of the file release this {@link Plan} is for.  This
+   * method never returns <code>null</code>.
+   *
+   * @return     the file release name; never <code>null</code>
+   */
+  public String getReleaseName() {
+    return this.releaseName;
+  }
+
+  /**
+   * Returns the unmodifiable, ordered {@link List} of {@link Mutation}s that
+   * would be made.  This method never returns <code>null</code>.
+   *
+   * @return     a {@link List} of {@link Mutation}s; never <code>null</code>
+   */
+  public List getMutations() {
+    return this.mutations;
+  }
+
+  /**
+   * Returns the {@link Mutation}s of the supplied kind, in order.  This
+   * method never returns <code>null</code>.
+   *
+   * @param      kind
+   *               one of the kinds declared by the {@link Mutation} class
+   * @return     a new {@link List} of {@link Mutation}s; never
+   *               <code>null</code>
+   */
+  public List getMutations(final int kind) {
+    final List result = new ArrayList();
+    final Iterator iterator = this.mutations.iterator();
+    Mutation mutation;
+    while (iterator.hasNext()) {
+      mutation = (Mutation)iterator.next();
+      if (mutation.getKind() == kind) {
+        result.add(mutation);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns <code>true</code> if publishing would change nothing.
+   *
+   * @return     <code>true</code> if there are no {@link Mutation}s
+   */
+  public boolean isEmpty() {
+    return this.mutations.isEmpty();
+  }
+
+  /**
+   * Returns the number of HTTP requests made to log in and read the current
+   * state.  A real publish makes the same requests.
+   *
+   * @return     the number of read requests
+   */
+  public int getReadRequestCount() {
+    return this.readRequestCount;
+  }
+
+  /**
+   * Returns the estimated number of HTTP requests needed to apply the {@link
+   * Mutation}s.  The estimate is an upper bound; file type edits that turn
+   * out to be unnecessary are skipped.
+   *
+   * @return     the estimated number of write requests
+   */
+  public int getWriteRequestCount() {
+    return this.writeRequestCount;
+  }
+
+  /**
+   * Returns the estimated total number of HTTP requests a publish would make.
+   *
+   * @return     the sum of the {@linkplain #getReadRequestCount() read} and
+   *               {@linkplain #getWriteRequestCount() write} request counts
+   */
+  public int getEstimatedRequestCount() {
+    return this.readRequestCount + this.writeRequestCount;
+  }
+
+  /**
+   * Returns the estimated number of bytes sent in HTTP request bodies while
+   * applying the {@link Mutation}s.
+   *
+   * @return     the estimated number of request bytes
+   */
+  public long getRequestByteCount() {
+    return this.requestByteCount;
+  }
+
+  /**
+   * Returns the number of bytes that would be uploaded via SFTP.
+   *
+   * @return     the number of upload bytes
+   */
+  public long getUploadByteCount() {
+    return this.uploadByteCount;
+  }
+
+  /**
+   * Returns the estimated total number of bytes a publish would send, over
+   * HTTP and SFTP.
+   *
+   * @return     the sum of the {@linkplain #getRequestByteCount() request}
+   *               and {@linkplain #getUploadByteCount() upload} byte counts
+   */
+  public long getEstimatedByteCount() {
+    return this.requestByteCount + this.uploadByteCount;
+  }
+
+  /**
+   * Returns a multi-line, human-readable report of this {@link Plan}: one line
+   * per {@link Mutation}, followed by the estimates.  This method never
+   * returns <code>null</code>.
+   *
+   * @return     a report; never <code>null</code>
+   */
+  public String toString() {
+    final String newline = System.getProperty("line.separator", "\n");
+    final StringBuffer buffer = new StringBuffer("Plan for release ");
+    buffer.append(this.releaseName);
+    buffer.append(": ");
+    if (this.mutations.isEmpty()) {
+      buffer.append("up to date");
+    } else {
+      buffer.append(this.mutations.size());
+      buffer.append(" mutation(s)");
+    }
+    buffer.append(newline);
+    final Iterator iterator = this.mutations.iterator();
+    while (iterator.hasNext()) {
+      buffer.append("  ");
+      buffer.append(iterator.next());
+      buffer.append(newline);
+    }
+    buffer.append("  ~");
+    buffer.append(this.getEstimatedRequestCount());
+    buffer.append(" HTTP request(s) (");
+    buffer.append(this.readRequestCount);
+    buffer.append(" read, ~");
+    buffer.append(this.writeRequestCount);
+    buffer.append(" write), ~");
+    buffer.append(this.requestByteCount);
+    buffer.append(" request byte(s), ");
+    buffer.append(this.uploadByteCount);
+    buffer.append(" upload byte(s)");
+    return buffer.toString();
+  }
+
+}
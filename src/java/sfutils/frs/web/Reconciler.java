@@ -0,0 +1,1058 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs.web;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.meterware.httpunit.WebConversation;
+import com.meterware.httpunit.WebForm;
+import com.meterware.httpunit.WebLink;
+import com.meterware.httpunit.WebResponse;
+import com.meterware.httpunit.WebTable;
+
+import org.xml.sax.SAXException;
+
+import sfutils.Administrator;
+import sfutils.BoundedCache;
+import sfutils.MetadataStore;
+import sfutils.Project;
+import sfutils.SingleFlight;
+import sfutils.SourceForgeException;
+
+import sfutils.frs.FileAttributeCache;
+import sfutils.frs.FileRelease;
+import sfutils.frs.FileSpecification;
+import sfutils.frs.Package;
+import sfutils.frs.PublishingException;
+
+/**
+ * Brings the <a href="http://sourceforge.net/">SourceForge</a> file release
+ * system into line with a {@link FileRelease} declaratively.  Rather than
+ * discovering and changing state as it navigates, a {@link Reconciler}
+ * {@linkplain #read(WebConversation, FileRelease) reads} the current state of
+ * the package and file release once, {@linkplain #diff(RemoteState,
+ * FileRelease) computes} the minimal list of {@link Mutation}s that will make
+ * it match the {@link FileRelease}, and then {@linkplain
+ * #apply(WebConversation, RemoteState, FileRelease, List) applies} them.  A
+ * {@link FileRelease} that is already up to date yields no {@link Mutation}s,
+ * so publishing it costs only the reads.
+ *
+ * <p>A {@link Reconciler} holds no state of its own beyond the {@link
+ * HttpUnitPublisher} whose settings and page-handling methods it uses, so one
+ * instance may be used by several threads at once.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        HttpUnitPublisher#processWebSteps(WebConversation, FileRelease)
+ */
+public class Reconciler {
+
+  /**
+   * The number of HTTP requests it takes to log in: a <code>GET</code> of the
+   * login page and a <code>POST</code> of its form.
+   */
+  public static final int LOGIN_REQUESTS = 2;
+
+  /**
+   * A rough allowance, in bytes, for the fixed form fields (identifiers,
+   * step markers, submit buttons) sent with every <code>POST</code>.
+   */
+  static final int FORM_FIELD_BYTES = 128;
+
+  /**
+   * Coalesces concurrent creations of the same package, keyed by site URL,
+   * project identifier and package name.  This field is never
+   * <code>null</code>.
+   */
+  private static final SingleFlight PACKAGE_CREATIONS = new SingleFlight();
+
+  /**
+   * The {@link HttpUnitPublisher} whose settings and page-handling methods
+   * this {@link Reconciler} uses.  This field is never <code>null</code>.
+   */
+  private final HttpUnitPublisher publisher;
+
+  /**
+   * Creates a new {@link Reconciler}.
+   *
+   * @param      publisher
+   *               the {@link HttpUnitPublisher} whose settings and
+   *               page-handling methods will be used; must not be
+   *               <code>null</code>
+   */
+  public Reconciler(final HttpUnitPublisher publisher) {
+    super();
+    if (publisher == null) {
+      throw new IllegalArgumentException("null publisher");
+    }
+    this.publisher = publisher;
+  }
+
+  /**
+   * Reads the current state of the package and file release that correspond
+   * to the supplied {@link FileRelease}.  Only <code>GET</code> requests are
+   * made: the "packages page", the "releases page" of the package if it
+   * exists, and the "edit release" page of the file release if it exists.
+   * The supplied {@link WebConversation} must already be {@linkplain
+   * HttpUnitPublisher#login(WebConversation, Project) logged in}.  Any
+   * identifiers discovered are installed on the supplied {@link FileRelease},
+   * its {@link Package} and its {@link Project}, unless they are {@linkplain
+   * sfutils.NamedObject#freeze() frozen}, and the package identifier
+   * is recorded in (or, if the package is gone, dropped from) the publisher's
+   * {@linkplain HttpUnitPublisher#getMetadataStore() metadata store}.  This
+   * method never returns <code>null</code>.
+   *
+   * @param      conversation
+   *               the logged-in {@link WebConversation}; must not be
+   *               <code>null</code>
+   * @param      release
+   *               the {@link FileRelease} whose remote analog should be read;
+   *               must not be <code>null</code>
+   * @return     the {@link RemoteState}; never <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  public RemoteState read(final WebConversation conversation,
+                          final FileRelease release)
+    throws PublishingException {
+    HttpUnitPublisher.assertNotNull(conversation, "conversation");
+    HttpUnitPublisher.assertNotNull(release, "release");
+    final Package pkg = release.getPackage();
+    HttpUnitPublisher.assertNotNull(pkg, "pkg");
+    final Project project = pkg.getProject();
+    HttpUnitPublisher.assertNotNull(project, "project");
+
+    final WebResponse packagesPage =
+      this.publisher.getPackagesPage(conversation, project);
+    final String groupID = HttpUnitPublisher.getProjectID(project);
+    final RemoteState remote = new RemoteState(groupID);
+    remote.setPackagesPage(packagesPage);
+
+    final MetadataStore metadataStore = this.publisher.getMetadataStore();
+    final WebForm updateForm = this.findUpdatePackageForm(packagesPage, pkg);
+    if (updateForm == null) {
+      // Whatever identifier may have been stored for it is stale.
+      metadataStore.removePackageID(groupID, pkg.getName());
+      return remote;
+    }
+    final String packageID =
+      updateForm.getParameterValue(HttpUnitPublisher.PACKAGE_ID);
+    HttpUnitPublisher.assertNotNull(packageID, "packageID");
+    remote.setPackage(packageID,
+                      HttpUnitPublisher.HIDDEN.equals(updateForm.getParameterValue(HttpUnitPublisher.STATUS)));
+    if (!pkg.isFrozen()) {
+      pkg.setID(packageID);
+    }
+    metadataStore.putPackageID(groupID, pkg.getName(), packageID);
+
+    final WebResponse releasesPage =
+      this.publisher.getReleasesPage(conversation, packageID,
+                                     remote.getGroupID());
+    if (releasesPage == null) {
+      return remote;
+    }
+    final WebLink editReleaseLink =
+      this.publisher.getEditReleaseLink(releasesPage, release);
+    if (editReleaseLink == null) {
+      return remote;
+    }
+    try {
+      this.readEditReleasePage(editReleaseLink.click(), remote);
+    } catch (final IOException kaboom) {
+      throw new PublishingException(kaboom);
+    } catch (final SAXException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+    if (!release.isFrozen()) {
+      release.setID(remote.getReleaseID());
+    }
+    return remote;
+  }
+
+  /**
+   * Records the attributes, attached files and uploaded-but-unattached files
+   * shown on the supplied "edit release" page in the supplied {@link
+   * RemoteState}.
+   *
+   * @param      editReleasePage
+   *               the "edit release" page; must not be <code>null</code>
+   * @param      remote
+   *               the {@link RemoteState} to fill in; must not be
+   *               <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  protected void readEditReleasePage(final WebResponse editReleasePage,
+                                     final RemoteState remote)
+    throws PublishingException {
+    HttpUnitPublisher.assertNotNull(editReleasePage, "editReleasePage");
+    remote.setEditReleasePage(editReleasePage);
+
+    final WebForm step1Form =
+      this.publisher.getStepForm(editReleasePage,
+                                 HttpUnitPublisher.EDIT_RELEASE_STEP);
+    HttpUnitPublisher.assertNotNull(step1Form, "step1Form");
+    final String releaseID = step1Form.getParameterValue("release_id");
+    HttpUnitPublisher.assertNotNull(releaseID, "releaseID");
+    remote.setReleaseID(releaseID);
+    remote.setReleaseDate(step1Form.getParameterValue(HttpUnitPublisher.RELEASE_DATE));
+    remote.setReleaseHidden(HttpUnitPublisher.HIDDEN.equals(step1Form.getParameterValue(HttpUnitPublisher.STATUS)));
+    remote.setPreserveFormattedText(step1Form.getParameterValue(HttpUnitPublisher.PRESERVE_FORMATTED_TEXT) != null);
+    remote.setReleaseNotes(step1Form.getParameterValue(HttpUnitPublisher.RELEASE_NOTES));
+    remote.setChangeLog(step1Form.getParameterValue(HttpUnitPublisher.CHANGE_LOG));
+
+    final WebForm step2Form =
+      this.publisher.getStepForm(editReleasePage,
+                                 HttpUnitPublisher.ADD_FILES_STEP);
+    if (step2Form != null && step2Form.hasParameterNamed("file_list[]")) {
+      final String[] uploaded = step2Form.getOptionValues("file_list[]");
+      for (int i = 0; uploaded != null && i < uploaded.length; i++) {
+        remote.addUploadedFile(uploaded[i]);
+      }
+    }
+
+    final Map fileForms = this.findFileForms(editReleasePage);
+    final Iterator iterator = fileForms.entrySet().iterator();
+    Map.Entry entry;
+    WebForm form;
+    while (iterator.hasNext()) {
+      entry = (Map.Entry)iterator.next();
+      form = (WebForm)entry.getValue();
+      remote.addAttachedFile((String)entry.getKey(),
+                             parseType(form.getParameterValue("type_id")),
+                             parseType(form.getParameterValue("processor_id")));
+    }
+  }
+
+  /**
+   * Computes the minimal, ordered list of {@link Mutation}s that will make
+   * the state described by the supplied {@link RemoteState} match the
+   * supplied {@link FileRelease}.  The list is empty if the remote state is
+   * already up to date.  No requests are made.  This method never returns
+   * <code>null</code>.
+   *
+   * <p>Files that are already attached to the file release, or uploaded but
+   * not yet attached, are not uploaded again; see {@link #diff(RemoteState,
+   * FileRelease, Collection)} for files whose contents have changed.  File type edits are planned
+   * for every file that is not yet attached, since the types a new file will
+   * be given cannot be known in advance; {@link #apply(WebConversation,
+   * RemoteState, FileRelease, List)} skips those that turn out to be
+   * correct already.</p>
+   *
+   * @param      remote
+   *               the {@link RemoteState} read earlier; must not be
+   *               <code>null</code>
+   * @param      release
+   *               the desired {@link FileRelease}; must not be
+   *               <code>null</code>
+   * @return     a {@link List} of {@link Mutation}s; never <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  public List diff(final RemoteState remote, final FileRelease release)
+    throws PublishingException {
+    return this.diff(remote, release, null);
+  }
+
+  /**
+   * Computes the minimal, ordered list of {@link Mutation}s that will make
+   * the state described by the supplied {@link RemoteState} match the
+   * supplied {@link FileRelease}, as {@link #diff(RemoteState, FileRelease)}
+   * does, except that the files named in the supplied {@link Collection} are
+   * uploaded again even if they are already attached or uploaded.  The file
+   * release pages show only the names of files, so a file whose contents
+   * changed under the same name can only be recognized by the caller, for
+   * example from a {@link sfutils.frs.ReleaseFingerprint}.  This method
+   * never returns <code>null</code>.
+   *
+   * @param      remote
+   *               the {@link RemoteState} read earlier; must not be
+   *               <code>null</code>
+   * @param      release
+   *               the desired {@link FileRelease}; must not be
+   *               <code>null</code>
+   * @param      changedFileNames
+   *               the names of the files whose contents have changed; may be
+   *               <code>null</code>
+   * @return     a {@link List} of {@link Mutation}s; never <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  public List diff(final RemoteState remote,
+                   final FileRelease release,
+                   final Collection changedFileNames)
+    throws PublishingException {
+    HttpUnitPublisher.assertNotNull(remote, "remote");
+    HttpUnitPublisher.assertNotNull(release, "release");
+    final Package pkg = release.getPackage();
+    HttpUnitPublisher.assertNotNull(pkg, "pkg");
+    final FileSpecification[] specs = release.getFileSpecifications();
+    HttpUnitPublisher.assertArrayFull(specs, "specs");
+    final String releaseName = release.getName();
+    final List mutations = new ArrayList();
+
+    if (remote.getPackageID() == null) {
+      mutations.add(new Mutation(Mutation.CREATE_PACKAGE, pkg.getName(), null));
+      if (pkg.isHidden()) {
+        mutations.add(new Mutation(Mutation.UPDATE_PACKAGE_STATUS,
+                                   pkg.getName(), "hidden"));
+      }
+    } else if (remote.isPackageHidden() != pkg.isHidden()) {
+      mutations.add(new Mutation(Mutation.UPDATE_PACKAGE_STATUS, pkg.getName(),
+                                 pkg.isHidden() ? "hidden" : "active"));
+    }
+
+    final boolean newRelease = remote.getReleaseID() == null;
+    if (newRelease) {
+      mutations.add(new Mutation(Mutation.CREATE_RELEASE, releaseName, null));
+    }
+
+    File file;
+    String name;
+    for (int i = 0; i < specs.length; i++) {
+      file = specs[i].getFile();
+      name = file.getName();
+      if ((!remote.isAttached(name) && !remote.isUploaded(name)) ||
+          (changedFileNames != null && changedFileNames.contains(name))) {
+        mutations.add(new Mutation(Mutation.UPLOAD_FILE, name,
+                                   FileAttributeCache.getShared().get(file).getLength() +
+                                   " bytes", file));
+      }
+    }
+
+    if (newRelease || !this.isUpToDate(remote, release)) {
+      mutations.add(new Mutation(Mutation.UPDATE_RELEASE, releaseName, null));
+    }
+
+    boolean filesAdded = false;
+    for (int i = 0; i < specs.length; i++) {
+      file = specs[i].getFile();
+      name = file.getName();
+      if (!remote.isAttached(name)) {
+        mutations.add(new Mutation(Mutation.ADD_FILE, name, null, file));
+        filesAdded = true;
+      }
+    }
+
+    for (int i = 0; i < specs.length; i++) {
+      file = specs[i].getFile();
+      name = file.getName();
+      if (!remote.isAttached(name) ||
+          remote.getFileType(name) != specs[i].getFileType() ||
+          remote.getProcessorType(name) != specs[i].getProcessorType()) {
+        mutations.add(new Mutation(Mutation.UPDATE_FILE_TYPE, name,
+                                   "type " + specs[i].getFileType() +
+                                   ", processor " +
+                                   specs[i].getProcessorType(),
+                                   file));
+      }
+    }
+
+    if (release.getNotifyOthers() && (newRelease || filesAdded)) {
+      mutations.add(new Mutation(Mutation.NOTIFY_OTHERS, releaseName, null));
+    }
+
+    return mutations;
+  }
+
+  /**
+   * Returns <code>true</code> if the date, status, formatting, notes and
+   * change log recorded in the supplied {@link RemoteState} already match
+   * those of the supplied {@link FileRelease}.  Attributes that the {@link
+   * FileRelease} leaves unset are not compared.
+   *
+   * @param      remote
+   *               the {@link RemoteState}; must not be <code>null</code>
+   * @param      release
+   *               the {@link FileRelease}; must not be <code>null</code>
+   * @return     <code>true</code> if no step 1 edit is needed
+   * @exception  PublishingException
+   *               if a release notes or change log file could not be read
+   */
+  protected boolean isUpToDate(final RemoteState remote,
+                               final FileRelease release)
+    throws PublishingException {
+    final String date = this.publisher.formatReleaseDate(release);
+    if (date != null && !date.equals(remote.getReleaseDate())) {
+      return false;
+    }
+    if (remote.isReleaseHidden() != release.isHidden() ||
+        remote.getPreserveFormattedText() != release.getPreserveFormattedText()) {
+      return false;
+    }
+    final String notes =
+      textOf(release.getReleaseNotesFile(), release.getReleaseNotes());
+    if (notes != null && !sameText(notes, remote.getReleaseNotes())) {
+      return false;
+    }
+    final String changeLog =
+      textOf(release.getChangeLogFile(), release.getChangeLog());
+    if (changeLog != null && !sameText(changeLog, remote.getChangeLog())) {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Applies the supplied {@link Mutation}s, which must have been computed by
+   * {@link #diff(RemoteState, FileRelease)} from the supplied {@link
+   * RemoteState} and {@link FileRelease}, in order.  Uploads are made in a
+   * single SFTP session and files are added in a single step 2 submission.
+   * Returns the "edit release" page after all {@link Mutation}s have been
+   * applied; if there were none, the page that was read is returned.  This
+   * method never returns <code>null</code>.
+   *
+   * @param      conversation
+   *               the logged-in {@link WebConversation}; must not be
+   *               <code>null</code>
+   * @param      remote
+   *               the {@link RemoteState} read earlier; must not be
+   *               <code>null</code>
+   * @param      release
+   *               the desired {@link FileRelease}; must not be
+   *               <code>null</code>
+   * @param      mutations
+   *               the {@link List} of {@link Mutation}s to apply; must not be
+   *               <code>null</code>
+   * @return     the "edit release" page; never <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  public WebResponse apply(final WebConversation conversation,
+                           final RemoteState remote,
+                           final FileRelease release,
+                           final List mutations)
+    throws PublishingException {
+    HttpUnitPublisher.assertNotNull(conversation, "conversation");
+    HttpUnitPublisher.assertNotNull(remote, "remote");
+    HttpUnitPublisher.assertNotNull(release, "release");
+    HttpUnitPublisher.assertNotNull(mutations, "mutations");
+    final Package pkg = release.getPackage();
+    HttpUnitPublisher.assertNotNull(pkg, "pkg");
+    final String groupID = remote.getGroupID();
+    String packageID = remote.getPackageID();
+    String releaseID = remote.getReleaseID();
+    WebResponse packagesPage = remote.getPackagesPage();
+    WebResponse page = remote.getEditReleasePage();
+    boolean uploaded = false;
+    boolean added = false;
+
+    try {
+      final Iterator iterator = mutations.iterator();
+      Mutation mutation;
+      WebForm form;
+      while (iterator.hasNext()) {
+        mutation = (Mutation)iterator.next();
+        switch (mutation.getKind()) {
+
+        case Mutation.CREATE_PACKAGE:
+          final WebResponse[] createdPage = new WebResponse[1];
+          packageID = this.createPackage(conversation, groupID, pkg,
+                                         createdPage);
+          HttpUnitPublisher.assertNotNull(packageID, "packageID");
+          if (createdPage[0] == null) {
+            // Another thread created the package; this conversation's
+            // packages page predates it.
+            packagesPage =
+              this.publisher.getPackagesPage(conversation, pkg.getProject());
+          } else {
+            packagesPage = createdPage[0];
+          }
+          if (!pkg.isFrozen()) {
+            pkg.setID(packageID);
+          }
+          this.publisher.getMetadataStore().putPackageID(groupID,
+                                                         pkg.getName(),
+                                                         packageID);
+          break;
+
+        case Mutation.UPDATE_PACKAGE_STATUS:
+          form = this.findUpdatePackageForm(packagesPage, pkg);
+          HttpUnitPublisher.assertNotNull(form, "updatePackageForm");
+          final WebResponse statusPage =
+            this.publisher.synchronizeStatus(form, pkg);
+          if (statusPage != null) {
+            packagesPage = statusPage;
+          }
+          break;
+
+        case Mutation.CREATE_RELEASE:
+          page = this.publisher.createRelease(conversation, packageID,
+                                              groupID, release);
+          form =
+            this.publisher.getStepForm(page,
+                                       HttpUnitPublisher.EDIT_RELEASE_STEP);
+          HttpUnitPublisher.assertNotNull(form, "step1Form");
+          releaseID = form.getParameterValue("release_id");
+          HttpUnitPublisher.assertNotNull(releaseID, "releaseID");
+          if (!release.isFrozen()) {
+            release.setID(releaseID);
+          }
+          break;
+
+        case Mutation.UPLOAD_FILE:
+          if (!uploaded) {
+            this.upload(release, filesOf(mutations, Mutation.UPLOAD_FILE));
+            uploaded = true;
+          }
+          break;
+
+        case Mutation.UPDATE_RELEASE:
+          if (page == null) {
+            page = this.getEditReleasePage(conversation, groupID, packageID,
+                                           releaseID);
+          }
+          page = this.publisher.saveFileReleaseAttributes(page, release);
+          break;
+
+        case Mutation.ADD_FILE:
+          if (!added) {
+            // Fetch the page afresh so that it lists the files just uploaded.
+            page = this.getEditReleasePage(conversation, groupID, packageID,
+                                           releaseID);
+            form =
+              this.publisher.getStepForm(page,
+                                         HttpUnitPublisher.ADD_FILES_STEP);
+            HttpUnitPublisher.assertNotNull(form, "step2Form");
+            form.setParameter("file_list[]",
+                              namesOf(mutations, Mutation.ADD_FILE));
+            page = form.submit();
+            added = true;
+          }
+          break;
+
+        case Mutation.UPDATE_FILE_TYPE:
+          if (page == null) {
+            page = this.getEditReleasePage(conversation, groupID, packageID,
+                                           releaseID);
+          }
+          page = this.updateFileType(page, release, mutation.getTarget());
+          break;
+
+        case Mutation.NOTIFY_OTHERS:
+          if (page == null) {
+            page = this.getEditReleasePage(conversation, groupID, packageID,
+                                           releaseID);
+          }
+          page = this.publisher.notifyOthers(page, release);
+          break;
+
+        default:
+          throw new PublishingException("Unknown mutation: " + mutation);
+        }
+        HttpUnitPublisher.assertNotNull(page == null ? packagesPage : page,
+                                        "page");
+      }
+    } catch (final IOException kaboom) {
+      throw new PublishingException(kaboom);
+    } catch (final SAXException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+
+    if (page == null) {
+      page = this.getEditReleasePage(conversation, groupID, packageID,
+                                     releaseID);
+    }
+    return page;
+  }
+
+  /**
+   * Builds a {@link Plan} describing what {@linkplain #apply(WebConversation,
+   * RemoteState, FileRelease, List) applying} the supplied {@link Mutation}s
+   * would do and cost, assuming that reading the {@link RemoteState} took a
+   * login of its own and no project identifier lookup.  No requests are
+   * made.  This method never returns <code>null</code>.
+   *
+   * @param      remote
+   *               the {@link RemoteState} read earlier; must not be
+   *               <code>null</code>
+   * @param      release
+   *               the desired {@link FileRelease}; must not be
+   *               <code>null</code>
+   * @param      mutations
+   *               the {@link Mutation}s {@linkplain #diff(RemoteState,
+   *               FileRelease) computed} from them; must not be
+   *               <code>null</code>
+   * @return     a {@link Plan}; never <code>null</code>
+   * @exception  PublishingException
+   *               if a release notes or change log file could not be read
+   * @see        #plan(RemoteState, FileRelease, List, int)
+   */
+  public Plan plan(final RemoteState remote,
+                   final FileRelease release,
+                   final List mutations)
+    throws PublishingException {
+    return this.plan(remote, release, mutations, LOGIN_REQUESTS);
+  }
+
+  /**
+   * Builds a {@link Plan} describing what {@linkplain #apply(WebConversation,
+   * RemoteState, FileRelease, List) applying} the supplied {@link Mutation}s
+   * would do and cost.  No requests are made.  This method never returns
+   * <code>null</code>.
+   *
+   * <p>The read request count covers the supplied number of requests made
+   * before reading, such as logging in, and the pages {@link
+   * #read(WebConversation, FileRelease)} fetched.  The write request count
+   * mirrors {@link #apply(WebConversation, RemoteState, FileRelease, List)}:
+   * creating a package or a file release takes a <code>GET</code> and a
+   * <code>POST</code>, files are added with one <code>GET</code> and one
+   * <code>POST</code> in all, every other {@link Mutation} except an upload
+   * takes one <code>POST</code>.  Request bytes are the text that would be
+   * submitted plus a fixed {@linkplain #FORM_FIELD_BYTES allowance} per
+   * <code>POST</code>.</p>
+   *
+   * @param      remote
+   *               the {@link RemoteState} read earlier; must not be
+   *               <code>null</code>
+   * @param      release
+   *               the desired {@link FileRelease}; must not be
+   *               <code>null</code>
+   * @param      mutations
+   *               the {@link Mutation}s {@linkplain #diff(RemoteState,
+   *               FileRelease) computed} from them; must not be
+   *               <code>null</code>
+   * @param      setupReads
+   *               the number of requests made before reading: {@link
+   *               #LOGIN_REQUESTS} unless a shared login was reused, plus one
+   *               if the project identifier had to be looked up
+   * @return     a {@link Plan}; never <code>null</code>
+   * @exception  PublishingException
+   *               if a release notes or change log file could not be read
+   */
+  public Plan plan(final RemoteState remote,
+                   final FileRelease release,
+                   final List mutations,
+                   final int setupReads)
+    throws PublishingException {
+    HttpUnitPublisher.assertNotNull(remote, "remote");
+    HttpUnitPublisher.assertNotNull(release, "release");
+    HttpUnitPublisher.assertNotNull(mutations, "mutations");
+
+    // The packages page.
+    int reads = setupReads + 1;
+    if (remote.getPackageID() != null) {
+      reads++;
+      if (remote.getReleaseID() != null) {
+        reads++;
+      }
+    }
+
+    int writes = 0;
+    long requestBytes = 0L;
+    long uploadBytes = 0L;
+    boolean added = false;
+    final Iterator iterator = mutations.iterator();
+    Mutation mutation;
+    while (iterator.hasNext()) {
+      mutation = (Mutation)iterator.next();
+      switch (mutation.getKind()) {
+      case Mutation.UPLOAD_FILE:
+        if (mutation.getFile() != null) {
+          uploadBytes +=
+            FileAttributeCache.getShared().get(mutation.getFile()).getLength();
+        }
+        break;
+      case Mutation.CREATE_PACKAGE:
+      case Mutation.CREATE_RELEASE:
+        writes += 2;
+        requestBytes += FORM_FIELD_BYTES + mutation.getTarget().length();
+        break;
+      case Mutation.ADD_FILE:
+        if (!added) {
+          writes += 2;
+          requestBytes += FORM_FIELD_BYTES;
+          added = true;
+        }
+        requestBytes += mutation.getTarget().length() + 16;
+        break;
+      case Mutation.UPDATE_RELEASE:
+        writes++;
+        requestBytes += FORM_FIELD_BYTES;
+        final String notes =
+          textOf(release.getReleaseNotesFile(), release.getReleaseNotes());
+        if (notes != null) {
+          requestBytes += notes.length();
+        }
+        final String changeLog =
+          textOf(release.getChangeLogFile(), release.getChangeLog());
+        if (changeLog != null) {
+          requestBytes += changeLog.length();
+        }
+        break;
+      default:
+        writes++;
+        requestBytes += FORM_FIELD_BYTES + mutation.getTarget().length();
+        break;
+      }
+    }
+    return new Plan(release.getName(), mutations, reads, writes,
+                    requestBytes, uploadBytes);
+  }
+
+  /**
+   * Sets the file and processor types of the named file on the supplied
+   * "edit release" page to those of its {@link FileSpecification}, unless
+   * they are already correct.
+   *
+   * @param      page
+   *               the "edit release" page; must not be <code>null</code>
+   * @param      release
+   *               the {@link FileRelease}; must not be <code>null</code>
+   * @param      fileName
+   *               the name of an attached file; must not be
+   *               <code>null</code>
+   * @return     the resulting "edit release" page; never <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  protected WebResponse updateFileType(final WebResponse page,
+                                       final FileRelease release,
+                                       final String fileName)
+    throws PublishingException {
+    final FileSpecification spec = release.getFileSpecification(fileName);
+    HttpUnitPublisher.assertNotNull(spec, "spec");
+    final WebForm form = (WebForm)this.findFileForms(page).get(fileName);
+    if (form == null) {
+      throw new PublishingException("File " + fileName +
+                                    " is not attached to " +
+                                    release.getName());
+    }
+    final String processor = String.valueOf(spec.getProcessorType());
+    final String type = String.valueOf(spec.getFileType());
+    if (processor.equals(form.getParameterValue("processor_id")) &&
+        type.equals(form.getParameterValue("type_id"))) {
+      return page;
+    }
+    form.setParameter("processor_id", processor);
+    form.setParameter("type_id", type);
+    try {
+      final WebResponse result = form.submit();
+      HttpUnitPublisher.assertNotNull(result, "result");
+      return result;
+    } catch (final IOException kaboom) {
+      throw new PublishingException(kaboom);
+    } catch (final SAXException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+  }
+
+  /**
+   * Returns the step 3 update forms on the supplied "edit release" page,
+   * indexed by the names of the files they edit, in page order.  The name of
+   * the file a form edits is only present as text in the table that wraps
+   * the forms; see {@link HttpUnitPublisher#editFiles(WebResponse,
+   * FileRelease)}.  This method never returns <code>null</code>.
+   *
+   * @param      page
+   *               the "edit release" page; must not be <code>null</code>
+   * @return     a {@link Map} of {@link WebForm}s indexed by file name;
+   *               never <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  protected Map findFileForms(final WebResponse page)
+    throws PublishingException {
+    HttpUnitPublisher.assertNotNull(page, "page");
+    final Map fileForms = new LinkedHashMap();
+    try {
+      final WebTable table = page.getTableStartingWithPrefix("Filename");
+      if (table == null) {
+        return fileForms;
+      }
+      final WebForm[] forms =
+        this.publisher.retainFormsWithAction(page.getForms(),
+                                             HttpUnitPublisher.EDIT_RELEASES_ACTION);
+      int tableRowIndex = 1;
+      String title;
+      for (int i = 0; i < forms.length; i++) {
+        if (forms[i].hasParameterNamed("im_sure")) {
+          tableRowIndex += 3;
+        } else if (forms[i].hasParameterNamed("processor_id") &&
+                   forms[i].hasParameterNamed("type_id") &&
+                   tableRowIndex < table.getRowCount()) {
+          title = table.getCellAsText(tableRowIndex, 0);
+          if (title != null) {
+            fileForms.put(title.trim(), forms[i]);
+          }
+        }
+      }
+      return fileForms;
+    } catch (final SAXException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+  }
+
+  /**
+   * Returns the "edit release" page of the file release with the supplied
+   * identifiers, requested directly.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      conversation
+   *               the logged-in {@link WebConversation}; must not be
+   *               <code>null</code>
+   * @param      groupID
+   *               the project identifier; must not be <code>null</code>
+   * @param      packageID
+   *               the package identifier; must not be <code>null</code>
+   * @param      releaseID
+   *               the file release identifier; must not be <code>null</code>
+   * @return     the "edit release" page; never <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  protected WebResponse getEditReleasePage(final WebConversation conversation,
+                                           final String groupID,
+                                           final String packageID,
+                                           final String releaseID)
+    throws PublishingException {
+    HttpUnitPublisher.assertNotNull(packageID, "packageID");
+    HttpUnitPublisher.assertNotNull(releaseID, "releaseID");
+    final StringBuffer url = new StringBuffer(this.publisher.getSiteURL());
+    url.append(HttpUnitPublisher.EDIT_RELEASES_ACTION);
+    url.append("?package_id=");
+    url.append(packageID);
+    url.append("&release_id=");
+    url.append(releaseID);
+    url.append("&group_id=");
+    url.append(groupID);
+    try {
+      final WebResponse page = conversation.getResponse(url.toString());
+      HttpUnitPublisher.assertNotNull(page, "page");
+      return page;
+    } catch (final IOException kaboom) {
+      throw new PublishingException(kaboom);
+    } catch (final SAXException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+  }
+
+  /**
+   * Uploads the supplied {@link File}s with the credentials of the supplied
+   * {@link FileRelease}'s {@link Project}'s {@link Administrator}.
+   *
+   * @param      release
+   *               the {@link FileRelease}; must not be <code>null</code>
+   * @param      files
+   *               the {@link File}s to upload; must not be <code>null</code>
+   * @exception  PublishingException
+   *               if an error occurs
+   */
+  private void upload(final FileRelease release, final File[] files)
+    throws PublishingException {
+    final Administrator admin = release.getPackage().getProject().getAdministrator();
+    HttpUnitPublisher.assertNotNull(admin, "admin");
+    try {
+      this.publisher.uploadSFTP(release, files, admin.getName(),
+                                admin.getPassword());
+    } catch (final IOException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+  }
+
+  /**
+   * Creates the supplied {@link Package} and returns its new identifier.
+   * Concurrent creations of the same package, by this or any other {@link
+   * Reconciler}, are {@linkplain SingleFlight coalesced}: only one thread
+   * submits the form, and the others receive the identifier it discovered.
+   * Since the packages page {@linkplain #read(WebConversation, FileRelease)
+   * read} earlier may predate a creation that has finished since, by another
+   * thread or another process, the page is fetched afresh first, and if it
+   * shows the package already, its identifier is returned and nothing is
+   * submitted.  The packages page that results is stored in
+   * <code>createdPage[0]</code> only in the thread that fetched it.
+   */
+  private String createPackage(final WebConversation conversation,
+                               final String groupID,
+                               final Package pkg,
+                               final WebResponse[] createdPage)
+    throws PublishingException {
+    final String key =
+      this.publisher.getSiteURL() + "|" + groupID + "|" + pkg.getName();
+    try {
+      return (String)PACKAGE_CREATIONS.execute(key, new BoundedCache.Loader() {
+          public Object load(final Object key) throws PublishingException {
+            final WebResponse packagesPage =
+              publisher.getPackagesPage(conversation, pkg.getProject());
+            final WebForm existingForm =
+              findUpdatePackageForm(packagesPage, pkg);
+            if (existingForm != null) {
+              createdPage[0] = packagesPage;
+              return existingForm.getParameterValue(HttpUnitPublisher.PACKAGE_ID);
+            }
+            final WebForm addForm = findAddPackageForm(packagesPage);
+            HttpUnitPublisher.assertNotNull(addForm, "addPackageForm");
+            final WebResponse page = publisher.createPackage(addForm, pkg);
+            HttpUnitPublisher.assertNotNull(page, "packagesPage");
+            final WebForm updateForm = findUpdatePackageForm(page, pkg);
+            HttpUnitPublisher.assertNotNull(updateForm, "updatePackageForm");
+            createdPage[0] = page;
+            return updateForm.getParameterValue(HttpUnitPublisher.PACKAGE_ID);
+          }
+        });
+    } catch (final PublishingException kaboom) {
+      throw kaboom;
+    } catch (final SourceForgeException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+  }
+
+  private WebForm findUpdatePackageForm(final WebResponse packagesPage,
+                                        final Package pkg)
+    throws PublishingException {
+    final WebForm[] forms = this.getPackageForms(packagesPage);
+    for (int i = 0; i < forms.length; i++) {
+      if (this.publisher.isUpdatePackageFormFor(forms[i], pkg)) {
+        return forms[i];
+      }
+    }
+    return null;
+  }
+
+  private WebForm findAddPackageForm(final WebResponse packagesPage)
+    throws PublishingException {
+    final WebForm[] forms = this.getPackageForms(packagesPage);
+    for (int i = 0; i < forms.length; i++) {
+      if (this.publisher.isAddPackageForm(forms[i])) {
+        return forms[i];
+      }
+    }
+    return null;
+  }
+
+  private WebForm[] getPackageForms(final WebResponse packagesPage)
+    throws PublishingException {
+    HttpUnitPublisher.assertNotNull(packagesPage, "packagesPage");
+    try {
+      return
+        this.publisher.retainFormsWithAction(packagesPage.getForms(),
+                                             HttpUnitPublisher.EDIT_PACKAGES_ACTION);
+    } catch (final SAXException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+  }
+
+  private static File[] filesOf(final List mutations, final int kind) {
+    final List files = new ArrayList();
+    Mutation mutation;
+    for (int i = 0; i < mutations.size(); i++) {
+      mutation = (Mutation)mutations.get(i);
+      if (mutation.getKind() == kind) {
+        files.add(mutation.getFile());
+      }
+    }
+    return (File[])files.toArray(new File[files.size()]);
+  }
+
+  private static String[] namesOf(final List mutations, final int kind) {
+    final List names = new ArrayList();
+    Mutation mutation;
+    for (int i = 0; i < mutations.size(); i++) {
+      mutation = (Mutation)mutations.get(i);
+      if (mutation.getKind() == kind) {
+        names.add(mutation.getTarget());
+      }
+    }
+    Collections.sort(names);
+    return (String[])names.toArray(new String[names.size()]);
+  }
+
+  private static int parseType(final String value) {
+    if (value == null) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (final NumberFormatException notAType) {
+      return -1;
+    }
+  }
+
+  /**
+   * Returns the contents of the supplied {@link File} if it is readable, or
+   * the supplied text otherwise, mirroring the preference {@link
+   * HttpUnitPublisher#saveFileReleaseAttributes(WebResponse, FileRelease)}
+   * gives to uploaded files.
+   */
+  private static String textOf(final File file, final String text)
+    throws PublishingException {
+    if (file == null) {
+      return text;
+    }
+    final FileAttributeCache.Attributes attributes =
+      FileAttributeCache.getShared().get(file);
+    if (!attributes.isReadable()) {
+      return text;
+    }
+    final StringBuffer contents =
+      new StringBuffer((int)attributes.getLength());
+    try {
+      final Reader reader = new FileReader(file);
+      try {
+        final char[] buffer = new char[4096];
+        int read;
+        while ((read = reader.read(buffer)) >= 0) {
+          contents.append(buffer, 0, read);
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (final IOException kaboom) {
+      throw new PublishingException(kaboom);
+    }
+    return contents.toString();
+  }
+
+  /**
+   * Compares two blocks of text the way a browser round trip through a
+   * <code>textarea</code> leaves them: line endings and surrounding
+   * whitespace are not significant.
+   */
+  private static boolean sameText(final String desired, final String actual) {
+    if (actual == null) {
+      return desired.trim().length() == 0;
+    }
+    return normalize(desired).equals(normalize(actual));
+  }
+
+  private static String normalize(final String text) {
+    return text.replaceAll("\r\n?", "\n").trim();
+  }
+
+}
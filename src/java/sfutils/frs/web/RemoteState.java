@@ -0,0 +1,399 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs.web;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.meterware.httpunit.WebResponse;
+
+/**
+ * A snapshot of the state of one package and one of its file releases as
+ * read from the <a href="http://sourceforge.net/">SourceForge</a> file
+ * release system by a {@link Reconciler}.  A {@link RemoteState} is filled in
+ * once, by {@link Reconciler#read(com.meterware.httpunit.WebConversation,
+ * sfutils.frs.FileRelease)}, and is not updated as {@link Mutation}s are
+ * applied.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class RemoteState {
+
+  /**
+   * The identifier of the project.  This field is never <code>null</code>.
+   */
+  private final String groupID;
+
+  /**
+   * The identifier of the package, or <code>null</code> if it does not
+   * exist.
+   */
+  private String packageID;
+
+  /**
+   * Whether the package is hidden.
+   */
+  private boolean packageHidden;
+
+  /**
+   * The identifier of the file release, or <code>null</code> if it does not
+   * exist.
+   */
+  private String releaseID;
+
+  /**
+   * The formatted date of the file release.  This field may be
+   * <code>null</code>.
+   */
+  private String releaseDate;
+
+  /**
+   * Whether the file release is hidden.
+   */
+  private boolean releaseHidden;
+
+  /**
+   * Whether the file release preserves the formatting of its notes and change
+   * log.
+   */
+  private boolean preserveFormattedText;
+
+  /**
+   * The release notes.  This field may be <code>null</code>.
+   */
+  private String releaseNotes;
+
+  /**
+   * The change log.  This field may be <code>null</code>.
+   */
+  private String changeLog;
+
+  /**
+   * A {@link Map} of <code>int[] { fileType, processorType }</code> arrays
+   * indexed by the names of the files attached to the file release.  This
+   * field is never <code>null</code>.
+   */
+  private final Map attachedFiles;
+
+  /**
+   * The names of files that have been uploaded for the file release but not
+   * yet attached to it.  This field is never <code>null</code>.
+   */
+  private final Set uploadedFiles;
+
+  /**
+   * The "packages page" that was read.  This field may be <code>null</code>.
+   */
+  private WebResponse packagesPage;
+
+  /**
+   * The "edit release" page that was read.  This field may be
+   * <code>null</code>.
+   */
+  private WebResponse editReleasePage;
+
+  /**
+   * Creates a new {@link RemoteState} for the project with the supplied
+   * identifier, in which neither the package nor the file release exist.
+   *
+   * @param      groupID
+   *               the identifier of the project; must not be
+   *               <code>null</code>
+   */
+  public RemoteState(final String groupID) {
+    super();
+    if (groupID == null) {
+      throw new IllegalArgumentException("null groupID");
+    }
+    this.groupID = groupID;
+    this.attachedFiles = new HashMap();
+    this.uploadedFiles = new HashSet();
+  }
+
+  /**
+   * Returns the identifier of the project.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     the identifier of the project; never <code>null</code>
+   */
+  public String getGroupID() {
+    return this.groupID;
+  }
+
+  /**
+   * Returns the identifier of the package, or <code>null</code> if the
+   * package does not exist.
+   *
+   * @return     the package identifier, or <code>null</code>
+   */
+  public String getPackageID() {
+    return this.packageID;
+  }
+
+  /**
+   * Returns <code>true</code> if the package exists and is hidden.
+   *
+   * @return     <code>true</code> if the package is hidden
+   */
+  public boolean isPackageHidden() {
+    return this.packageHidden;
+  }
+
+  /**
+   * Records that the package exists.
+   *
+   * @param      packageID
+   *               the package identifier; must not be <code>null</code>
+   * @param      hidden
+   *               whether the package is hidden
+   */
+  void setPackage(final String packageID, final boolean hidden) {
+    this.packageID = packageID;
+    this.packageHidden = hidden;
+  }
+
+  /**
+   * Returns the identifier of the file release, or <code>null</code> if the
+   * file release does not exist.
+   *
+   * @return     the file release identifier, or <code>null</code>
+   */
+  public String getReleaseID() {
+    return this.releaseID;
+  }
+
+  /**
+   * Records that the file release exists.
+   *
+   * @param      releaseID
+   *               the file release identifier; must not be <code>null</code>
+   */
+  void setReleaseID(final String releaseID) {
+    this.releaseID = releaseID;
+  }
+
+  /**
+   * Returns the formatted date of the file release.  This method may return
+   * <code>null</code>.
+   *
+   * @return     the release date, or <code>null</code>
+   */
+  public String getReleaseDate() {
+    return this.releaseDate;
+  }
+
+  void setReleaseDate(final String releaseDate) {
+    this.releaseDate = releaseDate;
+  }
+
+  /**
+   * Returns <code>true</code> if the file release exists and is hidden.
+   *
+   * @return     <code>true</code> if the file release is hidden
+   */
+  public boolean isReleaseHidden() {
+    return this.releaseHidden;
+  }
+
+  void setReleaseHidden(final boolean releaseHidden) {
+    this.releaseHidden = releaseHidden;
+  }
+
+  /**
+   * Returns <code>true</code> if the file release preserves the formatting of
+   * its notes and change log.
+   *
+   * @return     <code>true</code> if formatting is preserved
+   */
+  public boolean getPreserveFormattedText() {
+    return this.preserveFormattedText;
+  }
+
+  void setPreserveFormattedText(final boolean preserveFormattedText) {
+    this.preserveFormattedText = preserveFormattedText;
+  }
+
+  /**
+   * Returns the release notes.  This method may return <code>null</code>.
+   *
+   * @return     the release notes, or <code>null</code>
+   */
+  public String getReleaseNotes() {
+    return this.releaseNotes;
+  }
+
+  void setReleaseNotes(final String releaseNotes) {
+    this.releaseNotes = releaseNotes;
+  }
+
+  /**
+   * Returns the change log.  This method may return <code>null</code>.
+   *
+   * @return     the change log, or <code>null</code>
+   */
+  public String getChangeLog() {
+    return this.changeLog;
+  }
+
+  void setChangeLog(final String changeLog) {
+    this.changeLog = changeLog;
+  }
+
+  /**
+   * Returns <code>true</code> if a file with the supplied name is attached to
+   * the file release.
+   *
+   * @param      fileName
+   *               the file name; may be <code>null</code>
+   * @return     <code>true</code> if the file is attached
+   */
+  public boolean isAttached(final String fileName) {
+    return this.attachedFiles.containsKey(fileName);
+  }
+
+  /**
+   * Returns the file type of the attached file with the supplied name.
+   *
+   * @param      fileName
+   *               the name of an {@linkplain #isAttached(String) attached}
+   *               file
+   * @return     the file type
+   * @exception  IllegalArgumentException
+   *               if no such file is attached
+   */
+  public int getFileType(final String fileName) {
+    return this.getTypes(fileName)[0];
+  }
+
+  /**
+   * Returns the processor type of the attached file with the supplied name.
+   *
+   * @param      fileName
+   *               the name of an {@linkplain #isAttached(String) attached}
+   *               file
+   * @return     the processor type
+   * @exception  IllegalArgumentException
+   *               if no such file is attached
+   */
+  public int getProcessorType(final String fileName) {
+    return this.getTypes(fileName)[1];
+  }
+
+  private int[] getTypes(final String fileName) {
+    final int[] types = (int[])this.attachedFiles.get(fileName);
+    if (types == null) {
+      throw new IllegalArgumentException("Not attached: " + fileName);
+    }
+    return types;
+  }
+
+  /**
+   * Records that a file is attached to the file release.
+   *
+   * @param      fileName
+   *               the file name; must not be <code>null</code>
+   * @param      fileType
+   *               the file type
+   * @param      processorType
+   *               the processor type
+   */
+  void addAttachedFile(final String fileName,
+                       final int fileType,
+                       final int processorType) {
+    this.attachedFiles.put(fileName, new int[] { fileType, processorType });
+  }
+
+  /**
+   * Returns <code>true</code> if a file with the supplied name has been
+   * uploaded for the file release but not yet attached to it.
+   *
+   * @param      fileName
+   *               the file name; may be <code>null</code>
+   * @return     <code>true</code> if the file is uploaded but unattached
+   */
+  public boolean isUploaded(final String fileName) {
+    return this.uploadedFiles.contains(fileName);
+  }
+
+  void addUploadedFile(final String fileName) {
+    this.uploadedFiles.add(fileName);
+  }
+
+  /**
+   * Returns the "packages page" that was read.  This method may return
+   * <code>null</code>.
+   *
+   * @return     the "packages page", or <code>null</code>
+   */
+  WebResponse getPackagesPage() {
+    return this.packagesPage;
+  }
+
+  void setPackagesPage(final WebResponse packagesPage) {
+    this.packagesPage = packagesPage;
+  }
+
+  /**
+   * Returns the "edit release" page that was read.  This method may return
+   * <code>null</code>, and does so if the file release does not exist.
+   *
+   * @return     the "edit release" page, or <code>null</code>
+   */
+  WebResponse getEditReleasePage() {
+    return this.editReleasePage;
+  }
+
+  void setEditReleasePage(final WebResponse editReleasePage) {
+    this.editReleasePage = editReleasePage;
+  }
+
+  /**
+   * Returns a {@link String} representation of this {@link RemoteState}.
+   * This method never returns <code>null</code>.
+   *
+   * @return     a {@link String} representation of this {@link
+   *               RemoteState}; never <code>null</code>
+   */
+  public String toString() {
+    final StringBuffer buffer = new StringBuffer("group ");
+    buffer.append(this.groupID);
+    buffer.append(", package ");
+    buffer.append(this.packageID);
+    buffer.append(", release ");
+    buffer.append(this.releaseID);
+    buffer.append(", attached ");
+    buffer.append(this.attachedFiles.keySet());
+    buffer.append(", uploaded ");
+    buffer.append(this.uploadedFiles);
+    return buffer.toString();
+  }
+
+}
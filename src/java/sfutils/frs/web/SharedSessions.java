@@ -0,0 +1,558 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs.web;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sshtools.j2ssh.SftpClient;
+import com.sshtools.j2ssh.SshClient;
+
+import sfutils.BoundedCache;
+import sfutils.SourceForgeException;
+
+/**
+ * Sessions that {@link HttpUnitPublisher}s {@linkplain
+ * HttpUnitPublisher#setSharedSessions(SharedSessions) configured to share
+ * them} reuse across publishes, so that a batch of {@link
+ * sfutils.frs.FileRelease}s, published one after another or concurrently,
+ * logs each {@link sfutils.Administrator} in once and opens no more SFTP
+ * sessions than there are concurrent uploads.
+ *
+ * <p>A login is shared by copying the cookies it established into each new
+ * {@link com.meterware.httpunit.WebConversation}; concurrent publishes that
+ * need the same login wait for the first to establish it.  An SFTP session
+ * is borrowed for one upload at a time and returned to an idle pool
+ * afterwards, unless the upload failed, in which case it is closed.</p>
+ *
+ * <p>A login is forgotten once its {@linkplain #getLoginTimeToLive() time to
+ * live} has passed, or as soon as a page shows that the site no longer
+ * honours it, and is then established again.  An idle SFTP session is
+ * closed once it has been idle for longer than the {@linkplain
+ * #getSftpMaxIdleTime() maximum idle time}, since the upload host may have
+ * dropped it without the connection showing it; the rest are held until
+ * {@link #close()} is called, which callers must do once the batch is
+ * over.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ * @see        HttpUnitPublisher#setSharedSessions(SharedSessions)
+ */
+public class SharedSessions {
+
+  /**
+   * The number of milliseconds a login is reused for unless a different
+   * time to live is supplied: thirty minutes, well inside the time after
+   * which <a href="http://sourceforge.net/">SourceForge</a> ends an idle
+   * session.
+   */
+  public static final long DEFAULT_LOGIN_TIME_TO_LIVE = 30L * 60L * 1000L;
+
+  /**
+   * The number of milliseconds an SFTP session may stay idle before it is
+   * closed rather than reused, unless a different maximum is supplied: two
+   * minutes, short enough that the upload host is unlikely to have timed
+   * it out.
+   */
+  public static final long DEFAULT_SFTP_MAX_IDLE_TIME = 2L * 60L * 1000L;
+
+  /**
+   * The cookies established by each login, as {@link Map}s of cookie names
+   * to values, keyed by site and {@linkplain #credentialsKey(String,
+   * String) credentials}.  Entries expire after {@link #loginTimeToLive}
+   * milliseconds.  This field is never <code>null</code>.
+   */
+  private final BoundedCache logins;
+
+  /**
+   * The number of milliseconds a login is reused for; <code>0</code> or
+   * less if logins are only forgotten when the site stops honouring them.
+   */
+  private final long loginTimeToLive;
+
+  /**
+   * The number of milliseconds an SFTP session may stay idle before it is
+   * closed; <code>0</code> or less if idle sessions are kept until {@link
+   * #close()} is called.
+   */
+  private final long sftpMaxIdleTime;
+
+  /**
+   * {@link LinkedList}s of idle {@link Sftp} sessions, keyed by host, port
+   * and {@linkplain #credentialsKey(String, String) credentials}.  Guarded
+   * by itself.  This field is never <code>null</code>.
+   */
+  private final Map idleSessions;
+
+  /**
+   * The number of SFTP sessions opened.  This field is never
+   * <code>null</code>.
+   */
+  private final AtomicInteger openCount;
+
+  /**
+   * The number of times an idle SFTP session was reused.  This field is
+   * never <code>null</code>.
+   */
+  private final AtomicInteger reuseCount;
+
+  /**
+   * Whether {@link #close()} has been called.  Guarded by {@link
+   * #idleSessions}.
+   */
+  private boolean closed;
+
+  /**
+   * Creates a new {@link SharedSessions} that reuses each login for {@link
+   * #DEFAULT_LOGIN_TIME_TO_LIVE} milliseconds and each SFTP session until it
+   * has been idle for {@link #DEFAULT_SFTP_MAX_IDLE_TIME} milliseconds.
+   */
+  public SharedSessions() {
+    this(DEFAULT_LOGIN_TIME_TO_LIVE);
+  }
+
+  /**
+   * Creates a new {@link SharedSessions} that reuses each SFTP session until
+   * it has been idle for {@link #DEFAULT_SFTP_MAX_IDLE_TIME} milliseconds.
+   *
+   * @param      loginTimeToLive
+   *               the number of milliseconds each login is reused for;
+   *               <code>0</code> or less if logins are only forgotten when
+   *               the site stops honouring them
+   */
+  public SharedSessions(final long loginTimeToLive) {
+    this(loginTimeToLive, DEFAULT_SFTP_MAX_IDLE_TIME);
+  }
+
+  /**
+   * Creates a new {@link SharedSessions}.
+   *
+   * @param      loginTimeToLive
+   *               the number of milliseconds each login is reused for;
+   *               <code>0</code> or less if logins are only forgotten when
+   *               the site stops honouring them
+   * @param      sftpMaxIdleTime
+   *               the number of milliseconds an SFTP session may stay idle
+   *               before it is closed; <code>0</code> or less if idle
+   *               sessions are kept until {@link #close()} is called
+   */
+  public SharedSessions(final long loginTimeToLive,
+                        final long sftpMaxIdleTime) {
+    super();
+    this.loginTimeToLive = loginTimeToLive;
+    this.sftpMaxIdleTime = sftpMaxIdleTime;
+    this.logins = new BoundedCache(64, loginTimeToLive);
+    this.idleSessions = new HashMap();
+    this.openCount = new AtomicInteger();
+    this.reuseCount = new AtomicInteger();
+  }
+
+  /**
+   * Returns a key that identifies the supplied credentials without
+   * revealing the password: the user name followed by a SHA-1 digest of the
+   * user name and password.  Sessions kept under such a key are therefore
+   * never handed to a caller who supplies a different password for the same
+   * user.  This method never returns <code>null</code>.
+   *
+   * @param      username
+   *               the user name; may be <code>null</code>
+   * @param      password
+   *               the password; may be <code>null</code>
+   * @return     the credentials key; never <code>null</code>
+   */
+  public static String credentialsKey(final String username,
+                                      final String password) {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (final NoSuchAlgorithmException kaboom) {
+      throw (InternalError)new InternalError("SHA-1").initCause(kaboom);
+    }
+    try {
+      if (username != null) {
+        digest.update(username.getBytes("UTF-8"));
+      }
+      // The separator cannot occur in either value's UTF-8 encoding.
+      digest.update((byte)0xff);
+      if (password != null) {
+        digest.update(password.getBytes("UTF-8"));
+      }
+    } catch (final UnsupportedEncodingException kaboom) {
+      throw (InternalError)new InternalError("UTF-8").initCause(kaboom);
+    }
+    final byte[] bytes = digest.digest();
+    final StringBuffer key = new StringBuffer(String.valueOf(username));
+    key.append(' ');
+    for (int i = 0; i < bytes.length; i++) {
+      final int value = bytes[i] & 0xff;
+      if (value < 0x10) {
+        key.append('0');
+      }
+      key.append(Integer.toHexString(value));
+    }
+    return key.toString();
+  }
+
+  /**
+   * Returns the cookies established by logging in under the supplied key,
+   * logging in with the supplied {@link BoundedCache.Loader} if that has not
+   * yet been done.  This method never returns <code>null</code>.
+   *
+   * @param      key
+   *               the login key; must not be <code>null</code>
+   * @param      login
+   *               the {@link BoundedCache.Loader} that logs in and returns
+   *               the resulting cookies as a {@link Map}; must not be
+   *               <code>null</code>
+   * @return     a {@link Map} of cookie names to values; never
+   *               <code>null</code>
+   * @exception  SourceForgeException
+   *               if the login failed
+   */
+  Map getLoginCookies(final String key, final BoundedCache.Loader login)
+    throws SourceForgeException {
+    final Map cookies = (Map)this.logins.get(key, login);
+    if (cookies == null) {
+      throw new SourceForgeException("Login for " + key +
+                                     " established no cookies");
+    }
+    return cookies;
+  }
+
+  /**
+   * Returns <code>true</code> if a login made under the supplied key is
+   * still being reused, so that a publish that needs it makes no login
+   * requests.
+   *
+   * @param      key
+   *               the login key; must not be <code>null</code>
+   * @return     <code>true</code> if the login is held
+   */
+  boolean hasLogin(final String key) {
+    return this.logins.containsKey(key);
+  }
+
+  /**
+   * Returns the number of milliseconds each login is reused for.
+   *
+   * @return     the login time to live; <code>0</code> or less if logins
+   *               are only forgotten when the site stops honouring them
+   */
+  public long getLoginTimeToLive() {
+    return this.loginTimeToLive;
+  }
+
+  /**
+   * Returns the number of milliseconds an SFTP session may stay idle before
+   * it is closed rather than reused.
+   *
+   * @return     the maximum idle time; <code>0</code> or less if idle
+   *               sessions are kept until {@link #close()} is called
+   */
+  public long getSftpMaxIdleTime() {
+    return this.sftpMaxIdleTime;
+  }
+
+  /**
+   * Forgets the login made under the supplied key, so that the next
+   * publish that needs it logs in again.  This method is called when a page
+   * shows that the site no longer honours the login.
+   *
+   * @param      key
+   *               the login key; must not be <code>null</code>
+   */
+  void invalidateLogin(final String key) {
+    this.logins.remove(key);
+  }
+
+  /**
+   * Returns the number of logins established.
+   *
+   * @return     the login count
+   */
+  public int getLoginCount() {
+    return (int)this.logins.getStatistics().getLoadSuccessCount();
+  }
+
+  /**
+   * Removes and returns an idle {@link Sftp} session opened under the
+   * supplied key, or returns <code>null</code> if there is none.  A session
+   * that is returned may still turn out to have been dropped by the upload
+   * host, so callers should retry once on a newly opened session if it
+   * fails before anything has been written.
+   *
+   * @param      key
+   *               the session key; must not be <code>null</code>
+   * @return     an open {@link Sftp} session, or <code>null</code>
+   */
+  Sftp borrow(final String key) {
+    final LinkedList toClose = new LinkedList();
+    try {
+      synchronized (this.idleSessions) {
+        this.evictIdleSessions(toClose);
+        final LinkedList idle = (LinkedList)this.idleSessions.get(key);
+        while (idle != null && !idle.isEmpty()) {
+          final Sftp session = (Sftp)idle.removeFirst();
+          if (session.isOpen()) {
+            this.reuseCount.incrementAndGet();
+            return session;
+          }
+          toClose.add(session);
+        }
+      }
+      return null;
+    } finally {
+      close(toClose);
+    }
+  }
+
+  /**
+   * Removes every {@link Sftp} session that has been idle for longer than
+   * the {@linkplain #getSftpMaxIdleTime() maximum idle time} from the idle
+   * pool and adds it to the supplied {@link LinkedList}, so that it can be
+   * closed once the lock on {@link #idleSessions}, which the caller must
+   * hold, has been released.  Idle sessions are given back at the end of
+   * their {@link LinkedList}s, so only the head of each need be checked.
+   *
+   * @param      toClose
+   *               the {@link LinkedList} to which evicted sessions are
+   *               added; must not be <code>null</code>
+   */
+  private void evictIdleSessions(final LinkedList toClose) {
+    assert Thread.holdsLock(this.idleSessions);
+    if (this.sftpMaxIdleTime <= 0L) {
+      return;
+    }
+    final long oldest = System.currentTimeMillis() - this.sftpMaxIdleTime;
+    final Iterator lists = this.idleSessions.values().iterator();
+    while (lists.hasNext()) {
+      final LinkedList idle = (LinkedList)lists.next();
+      while (!idle.isEmpty() && ((Sftp)idle.getFirst()).idleSince < oldest) {
+        toClose.add(idle.removeFirst());
+      }
+      if (idle.isEmpty()) {
+        lists.remove();
+      }
+    }
+  }
+
+  /**
+   * Records that a new {@link Sftp} session has been opened.
+   */
+  void opened() {
+    this.openCount.incrementAndGet();
+  }
+
+  /**
+   * Returns the supplied {@link Sftp} session to the idle pool, or closes
+   * it if these {@link SharedSessions} have been {@linkplain #close()
+   * closed}.
+   *
+   * @param      key
+   *               the key under which the session was opened; must not be
+   *               <code>null</code>
+   * @param      session
+   *               the {@link Sftp} session; must not be <code>null</code>
+   */
+  void giveBack(final String key, final Sftp session) {
+    final LinkedList toClose = new LinkedList();
+    try {
+      synchronized (this.idleSessions) {
+        this.evictIdleSessions(toClose);
+        if (!this.closed && session.isOpen()) {
+          LinkedList idle = (LinkedList)this.idleSessions.get(key);
+          if (idle == null) {
+            idle = new LinkedList();
+            this.idleSessions.put(key, idle);
+          }
+          session.idleSince = System.currentTimeMillis();
+          idle.addLast(session);
+          return;
+        }
+      }
+      toClose.add(session);
+    } finally {
+      close(toClose);
+    }
+  }
+
+  /**
+   * Returns the number of SFTP sessions opened.
+   *
+   * @return     the number of SFTP sessions opened
+   */
+  public int getSftpSessionCount() {
+    return this.openCount.get();
+  }
+
+  /**
+   * Returns the number of uploads that reused an SFTP session opened for an
+   * earlier one.
+   *
+   * @return     the number of SFTP session reuses
+   */
+  public int getSftpReuseCount() {
+    return this.reuseCount.get();
+  }
+
+  /**
+   * Closes every idle SFTP session and forgets every login.  Sessions still
+   * in use are closed when they are given back.
+   */
+  public void close() {
+    final LinkedList toClose = new LinkedList();
+    synchronized (this.idleSessions) {
+      this.closed = true;
+      final Iterator lists = this.idleSessions.values().iterator();
+      while (lists.hasNext()) {
+        toClose.addAll((LinkedList)lists.next());
+      }
+      this.idleSessions.clear();
+    }
+    close(toClose);
+    this.logins.clear();
+  }
+
+  /**
+   * Closes each {@link Sftp} session in the supplied {@link LinkedList}.
+   *
+   * @param      sessions
+   *               the {@link Sftp} sessions; must not be <code>null</code>
+   */
+  private static void close(final LinkedList sessions) {
+    final Iterator i = sessions.iterator();
+    while (i.hasNext()) {
+      ((Sftp)i.next()).close();
+    }
+  }
+
+  /**
+   * Returns a {@link String} representation of these {@link
+   * SharedSessions}.  This method never returns <code>null</code>.
+   *
+   * @return     a {@link String} representation; never <code>null</code>
+   */
+  public String toString() {
+    return this.getLoginCount() + " login(s), " +
+      this.getSftpSessionCount() + " SFTP session(s) opened, " +
+      this.getSftpReuseCount() + " reused";
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * An authenticated SSH connection and the SFTP channel opened over it.
+   *
+   * @version    $Revision$ $Date$
+   * @since      October 19, 2026
+   */
+  static final class Sftp {
+
+    /**
+     * The SSH connection.  This field is never <code>null</code>.
+     */
+    private final SshClient ssh;
+
+    /**
+     * The SFTP channel.  This field is never <code>null</code>.
+     */
+    private final SftpClient client;
+
+    /**
+     * The time, in milliseconds since the epoch, at which this session was
+     * last given back to the idle pool.  Guarded by {@link
+     * SharedSessions#idleSessions}.
+     */
+    private long idleSince;
+
+    /**
+     * Creates a new {@link Sftp}.
+     *
+     * @param      ssh
+     *               the authenticated SSH connection; must not be
+     *               <code>null</code>
+     * @param      client
+     *               the SFTP channel; must not be <code>null</code>
+     */
+    Sftp(final SshClient ssh, final SftpClient client) {
+      super();
+      assert ssh != null;
+      assert client != null;
+      this.ssh = ssh;
+      this.client = client;
+    }
+
+    /**
+     * Returns the SFTP channel.  This method never returns
+     * <code>null</code>.
+     *
+     * @return     the {@link SftpClient}; never <code>null</code>
+     */
+    SftpClient getClient() {
+      return this.client;
+    }
+
+    /**
+     * Returns whether the connection and channel are still open.
+     *
+     * @return     <code>true</code> if this session may be used
+     */
+    boolean isOpen() {
+      return this.ssh.isConnected() && !this.client.isClosed();
+    }
+
+    /**
+     * Closes the channel and the connection, ignoring any error.
+     */
+    void close() {
+      try {
+        this.client.quit();
+      } catch (final IOException ignore) {
+        // Nothing can be done; the connection is closed below anyway.
+      } finally {
+        this.ssh.disconnect();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,252 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package org.apache.tools.ant.taskdefs.optional.sourceforge;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+
+import org.apache.tools.ant.types.FileSet;
+
+import sfutils.frs.FileRelease;
+import sfutils.frs.FileSpecification;
+
+/**
+ * A {@link TestCase} that ensures that nested {@link Release} elements of a
+ * {@link SourceForgePublish} task turn into the expected {@link
+ * FileRelease}s.  Nothing is published.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCaseRelease extends TestCase {
+
+  /**
+   * Creates a new {@link TestCaseRelease}.
+   *
+   * @param      name
+   *               the name of the test case to run; provided by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will never
+   *               be <code>null</code>
+   */
+  public TestCaseRelease(final String name) {
+    super(name);
+  }
+
+  /**
+   * Creates a temporary file with some content.
+   *
+   * @return     a new {@link File}; never <code>null</code>
+   * @exception  IOException
+   *               if the {@link File} could not be written
+   */
+  private static File createFile() throws IOException {
+    final File file = File.createTempFile("TEST-release", ".txt");
+    file.deleteOnExit();
+    write(file);
+    return file;
+  }
+
+  /**
+   * Writes some content to the supplied {@link File}.
+   *
+   * @param      file
+   *               the {@link File}; must not be <code>null</code>
+   * @exception  IOException
+   *               if the {@link File} could not be written
+   */
+  private static void write(final File file) throws IOException {
+    final Writer writer = new FileWriter(file);
+    try {
+      writer.write("Some content for this file");
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Returns a new {@link SourceForgePublish} task belonging to a new Ant
+   * {@link Project}.
+   *
+   * @return     a new {@link SourceForgePublish}; never <code>null</code>
+   */
+  private static SourceForgePublish createTask() {
+    final SourceForgePublish task = new SourceForgePublish();
+    task.setProject(new Project());
+    task.setProjectShortName("myproj");
+    task.setProjectName("My Project");
+    task.setUserName("username");
+    task.setPassword("password");
+    task.setPackageName("core");
+    task.setThreads(4);
+    return task;
+  }
+
+  /**
+   * Ensures that nested releases share packages by name, inherit the task's
+   * package and carry their own files.
+   *
+   * @exception  Exception
+   *               if an error occurs
+   */
+  public void testNestedReleases() throws Exception {
+    final SourceForgePublish task = createTask();
+    Release release = task.createRelease();
+    release.setReleaseName("core-1.0");
+    release.createFilespec().setFile(createFile());
+    release = task.createRelease();
+    release.setReleaseName("docs-1.0");
+    release.setPackageName("docs");
+    release.setPackageHidden(true);
+    release.createFilespec().setFile(createFile());
+    release = task.createRelease();
+    release.setReleaseName("docs-1.1");
+    release.setPackageName("docs");
+    release.createFilespec().setFile(createFile());
+
+    final FileRelease[] releases = task.getFileReleases();
+    assertEquals(3, releases.length);
+    assertEquals("core", releases[0].getPackage().getName());
+    assertEquals("docs", releases[1].getPackage().getName());
+    assertTrue(releases[1].getPackage() == releases[2].getPackage());
+    assertTrue(releases[1].getPackage().isHidden());
+    assertTrue(releases[0].getPackage().getProject() ==
+               releases[1].getPackage().getProject());
+    for (int i = 0; i < releases.length; i++) {
+      assertEquals(1, releases[i].getFileSpecificationCount());
+    }
+  }
+
+  /**
+   * Ensures that the task's own release is published alongside nested ones
+   * when it is named, and that a nested release needs a name.
+   *
+   * @exception  Exception
+   *               if an error occurs
+   */
+  public void testTaskRelease() throws Exception {
+    final SourceForgePublish task = createTask();
+    task.setReleaseName("core-0.9");
+    task.createFilespec().setFile(createFile());
+    task.createRelease().setReleaseName("core-1.0");
+    final FileRelease[] releases = task.getFileReleases();
+    assertEquals(2, releases.length);
+    assertEquals("core-0.9", releases[0].getName());
+    assertTrue(releases[0].getPackage() == releases[1].getPackage());
+
+    task.createRelease();
+    try {
+      task.getFileReleases();
+      fail("Accepted a nested release without a name");
+    } catch (final BuildException expected) {
+      // expected
+    }
+    try {
+      task.setThreads(0);
+      fail("Accepted zero threads");
+    } catch (final BuildException expected) {
+      // expected
+    }
+  }
+
+  /**
+   * Ensures that filesets are scanned only on demand, and that their files
+   * are typed by the release's type mappings before the task's.
+   *
+   * @exception  Exception
+   *               if an error occurs
+   */
+  public void testFileSets() throws Exception {
+    final File root = File.createTempFile("TEST-release", "");
+    assertTrue(root.delete());
+    final File sub = new File(root, "sub");
+    assertTrue(sub.mkdirs());
+    final File[] files = {
+      new File(root, "core-1.0.jar"),
+      new File(root, "core-1.0.zip"),
+      new File(sub, "notes.txt"),
+      new File(sub, "other.jar")
+    };
+    try {
+      for (int i = 0; i < files.length; i++) {
+        write(files[i]);
+      }
+      final SourceForgePublish task = createTask();
+      TypeMapping mapping = task.createTypemapping();
+      mapping.setPattern("*.jar");
+      mapping.setFileType("JAR_FILE");
+      mapping.setProcessorType("PLATFORM_INDEPENDENT_PROCESSOR");
+      final Release release = task.createRelease();
+      release.setReleaseName("core-1.0");
+      mapping = release.createTypemapping();
+      mapping.setPattern("sub/**");
+      mapping.setFileType("TEXT_FILE");
+      final FileSet fileSet = new FileSet();
+      fileSet.setProject(task.getProject());
+      fileSet.setDir(root);
+      release.addFileset(fileSet);
+
+      final FileRelease[] releases = task.getFileReleases();
+      assertEquals(1, releases.length);
+      assertEquals(0, releases[0].getFileSpecificationCount());
+      task.scan(releases[0]);
+      task.scan(releases[0]);
+      assertEquals(4, releases[0].getFileSpecificationCount());
+      FileSpecification spec = releases[0].getFileSpecification("core-1.0.jar");
+      assertEquals(FileSpecification.JAR_FILE, spec.getFileType());
+      assertEquals(FileSpecification.PLATFORM_INDEPENDENT_PROCESSOR,
+                   spec.getProcessorType());
+      spec = releases[0].getFileSpecification("core-1.0.zip");
+      assertEquals(FileSpecification.BINARY_ZIP_FILE, spec.getFileType());
+      assertEquals(FileSpecification.ANY_PROCESSOR, spec.getProcessorType());
+      spec = releases[0].getFileSpecification("other.jar");
+      assertEquals(FileSpecification.TEXT_FILE, spec.getFileType());
+      assertEquals(FileSpecification.ANY_PROCESSOR, spec.getProcessorType());
+
+      try {
+        task.createTypemapping().setFileType("NO_SUCH_FILE");
+        fail("Accepted an unknown file type");
+      } catch (final BuildException expected) {
+        // expected
+      }
+    } finally {
+      for (int i = 0; i < files.length; i++) {
+        files[i].delete();
+      }
+      sub.delete();
+      root.delete();
+    }
+  }
+
+}
@@ -0,0 +1,210 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+/**
+ * A {@link TestCase} that tests the {@link AdaptiveLimiter} class.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCaseAdaptiveLimiter extends TestCase {
+
+  /**
+   * A latency of ten milliseconds, in nanoseconds.
+   */
+  private static final long TEN_MILLIS = 10000000L;
+
+  /**
+   * Creates a new {@link TestCaseAdaptiveLimiter}.
+   *
+   * @param      name
+   *               the name of the test to run; supplied by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will not be
+   *               <code>null</code>
+   */
+  public TestCaseAdaptiveLimiter(final String name) {
+    super(name);
+  }
+
+  /**
+   * Runs the supplied number of requests at the limiter's full concurrency,
+   * all with the supplied latency and outcome.
+   */
+  private static void run(final AdaptiveLimiter limiter,
+                          final int requests,
+                          final long latencyNanos,
+                          final boolean success)
+    throws InterruptedException {
+    for (int i = 0; i < requests; i++) {
+      final int batch = limiter.getLimit();
+      for (int j = 0; j < batch; j++) {
+        limiter.acquire();
+      }
+      for (int j = 0; j < batch; j++) {
+        limiter.release(latencyNanos, success);
+      }
+    }
+  }
+
+  /**
+   * Tests that the limit grows while latency stays flat, up to its maximum.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testAdditiveIncrease() throws Exception {
+    final AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 8);
+    run(limiter, 3, TEN_MILLIS, true);
+    assertTrue(limiter.toString(), limiter.getLimit() > 2);
+    run(limiter, 100, TEN_MILLIS, true);
+    assertEquals(8, limiter.getLimit());
+    assertEquals(0, limiter.getInFlight());
+    assertEquals(10.0, limiter.getBaselineLatencyMillis(), 0.001);
+  }
+
+  /**
+   * Tests that errors halve the limit, down to its minimum.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testMultiplicativeDecrease() throws Exception {
+    final AdaptiveLimiter limiter = new AdaptiveLimiter(8, 2, 8);
+    limiter.acquire();
+    limiter.release(TEN_MILLIS, false);
+    assertEquals(4, limiter.getLimit());
+    limiter.acquire();
+    limiter.release(false);
+    assertEquals(2, limiter.getLimit());
+    limiter.acquire();
+    limiter.release(false);
+    assertEquals(2, limiter.getLimit());
+    assertEquals(3L, limiter.getErrorCount());
+  }
+
+  /**
+   * Tests that the limit backs off when latency rises well above its
+   * baseline.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testLatencyBackOff() throws Exception {
+    final AdaptiveLimiter limiter = new AdaptiveLimiter(8, 1, 8);
+    run(limiter, 1, TEN_MILLIS, true);
+    assertEquals(8, limiter.getLimit());
+    run(limiter, 5, TEN_MILLIS * 5, true);
+    assertTrue(limiter.toString(), limiter.getLimit() < 8);
+    assertEquals(0L, limiter.getErrorCount());
+  }
+
+  /**
+   * Tests that a steady mix of quick and slow requests, such as a publish's
+   * page fetches and form submissions, does not shrink the limit.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testMixedLatencies() throws Exception {
+    final AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 16);
+    int request = 0;
+    for (int i = 0; i < 50; i++) {
+      final int batch = limiter.getLimit();
+      for (int j = 0; j < batch; j++) {
+        limiter.acquire();
+      }
+      for (int j = 0; j < batch; j++) {
+        // Every third request is forty times slower than the others.
+        limiter.release(request++ % 3 == 0 ? TEN_MILLIS * 40 : TEN_MILLIS,
+                        true);
+      }
+    }
+    assertEquals(limiter.toString(), 16, limiter.getLimit());
+    assertEquals(0L, limiter.getErrorCount());
+  }
+
+  /**
+   * Tests that {@link AdaptiveLimiter#acquire()} blocks at the limit until a
+   * permit is released.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testAcquireBlocksAtLimit() throws Exception {
+    final AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1);
+    limiter.acquire();
+    final boolean[] acquired = new boolean[1];
+    final Thread waiter = new Thread() {
+        public void run() {
+          try {
+            limiter.acquire();
+            synchronized (acquired) {
+              acquired[0] = true;
+            }
+            limiter.release(true);
+          } catch (final InterruptedException ignore) {
+            // fall through
+          }
+        }
+      };
+    waiter.start();
+    waiter.join(200L);
+    synchronized (acquired) {
+      assertFalse(acquired[0]);
+    }
+    limiter.release(true);
+    waiter.join(5000L);
+    synchronized (acquired) {
+      assertTrue(acquired[0]);
+    }
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  /**
+   * Tests that the shared {@link AdaptiveLimiter}'s limit is exposed through
+   * the platform MBean server.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testSharedLimitIsExposed() throws Exception {
+    final AdaptiveLimiter shared = AdaptiveLimiter.getShared();
+    assertNotNull(shared);
+    final Object limit =
+      ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(AdaptiveLimiter.OBJECT_NAME), "Limit");
+    assertEquals(new Integer(shared.getLimit()), limit);
+  }
+
+}
@@ -108,6 +108,20 @@ public class TestCaseAdministrator extends TestCase {
     assertEquals(admin1, admin2);
   }
 
+  /**
+   * Tests that {@linkplain Administrator#equals(Object) equal} {@link
+   * Administrator}s have equal hashcodes.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testHashCode() throws Exception {
+    final Administrator admin1 = new Administrator("abc", "def");
+    final Administrator admin2 = new Administrator("abc", "def");
+    assertEquals(admin1.hashCode(), admin2.hashCode());
+    assertEquals(new Administrator().hashCode(), new Administrator().hashCode());
+  }
+
   /**
    * Tests the {@link Administrator#toString()} method.
    *
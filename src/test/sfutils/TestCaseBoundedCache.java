@@ -0,0 +1,285 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils;
+
+import junit.framework.TestCase;
+
+/**
+ * A {@link TestCase} that tests the {@link BoundedCache} class.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCaseBoundedCache extends TestCase {
+
+  /**
+   * The time reported by the {@link BoundedCache} under test.
+   */
+  private long now;
+
+  /**
+   * The number of times {@link #loader} has been called.
+   */
+  private int loads;
+
+  /**
+   * A {@link BoundedCache.Loader} that returns the upper-cased key, fails for
+   * <code>"fail"</code>, and counts its calls.
+   */
+  private final BoundedCache.Loader loader = new BoundedCache.Loader() {
+      public Object load(final Object key) throws SourceForgeException {
+        loads++;
+        if ("fail".equals(key)) {
+          throw new SourceForgeException("failed");
+        }
+        return ((String)key).toUpperCase();
+      }
+    };
+
+  /**
+   * Creates a new {@link TestCaseBoundedCache}.
+   *
+   * @param      name
+   *               the name of the test to run; supplied by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will not be
+   *               <code>null</code>
+   */
+  public TestCaseBoundedCache(final String name) {
+    super(name);
+  }
+
+  private BoundedCache createCache(final int maxSize, final long ttl) {
+    return new BoundedCache(maxSize, ttl, 1) {
+        protected long now() {
+          return TestCaseBoundedCache.this.now;
+        }
+      };
+  }
+
+  /**
+   * Tests that a loaded value is served from the cache afterwards, and that
+   * hits, misses and loads, but not presence checks, are counted.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testHitsAndMisses() throws Exception {
+    final BoundedCache cache = this.createCache(10, 0L);
+    assertEquals("FOO", cache.get("foo", this.loader));
+    assertEquals("FOO", cache.get("foo", this.loader));
+    assertEquals("FOO", cache.get("foo"));
+    assertNull(cache.get("bar"));
+    assertEquals(1, this.loads);
+    // Neither of these counts as a hit or a miss.
+    assertTrue(cache.containsKey("foo"));
+    assertFalse(cache.containsKey("bar"));
+    final CacheStatistics statistics = cache.getStatistics();
+    assertEquals(2L, statistics.getHitCount());
+    assertEquals(2L, statistics.getMissCount());
+    assertEquals(1L, statistics.getLoadSuccessCount());
+    assertEquals(0.5, statistics.getHitRate(), 0.0001);
+    assertEquals(1, statistics.getSize());
+  }
+
+  /**
+   * Tests that the least recently used entry is evicted when the cache is
+   * full.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testLeastRecentlyUsedEviction() throws Exception {
+    final BoundedCache cache = this.createCache(2, 0L);
+    cache.put("a", "A");
+    cache.put("b", "B");
+    assertEquals("A", cache.get("a"));
+    cache.put("c", "C");
+    assertEquals(2, cache.size());
+    assertNull(cache.get("b"));
+    assertEquals("A", cache.get("a"));
+    assertEquals("C", cache.get("c"));
+    assertEquals(1L, cache.getStatistics().getEvictionCount());
+  }
+
+  /**
+   * Tests that entries expire after their time to live.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testExpiry() throws Exception {
+    final BoundedCache cache = this.createCache(10, 1000L);
+    cache.get("foo", this.loader);
+    this.now += 999L;
+    cache.get("foo", this.loader);
+    assertEquals(1, this.loads);
+    this.now += 1L;
+    cache.get("foo", this.loader);
+    assertEquals(2, this.loads);
+    assertEquals(1L, cache.getStatistics().getExpirationCount());
+  }
+
+  /**
+   * Tests that failed loads are counted and not cached.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testFailedLoad() throws Exception {
+    final BoundedCache cache = this.createCache(10, 0L);
+    for (int i = 0; i < 2; i++) {
+      try {
+        cache.get("fail", this.loader);
+        fail("Loaded fail");
+      } catch (final SourceForgeException expected) {
+        // expected
+      }
+    }
+    assertEquals(2, this.loads);
+    assertEquals(2L, cache.getStatistics().getLoadFailureCount());
+    assertEquals(0, cache.size());
+  }
+
+  /**
+   * Tests that a cache spread over several segments stays within its bound
+   * under concurrent use.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testConcurrentUse() throws Exception {
+    final BoundedCache cache = new BoundedCache(64, 0L, 8);
+    final Thread[] threads = new Thread[8];
+    final Throwable[] failure = new Throwable[1];
+    for (int i = 0; i < threads.length; i++) {
+      final int seed = i;
+      threads[i] = new Thread() {
+          public void run() {
+            try {
+              String key;
+              for (int j = 0; j < 5000; j++) {
+                key = "k" + ((j * 31 + seed) % 200);
+                if (cache.get(key) == null) {
+                  cache.put(key, key);
+                }
+              }
+            } catch (final Throwable kaboom) {
+              synchronized (failure) {
+                failure[0] = kaboom;
+              }
+            }
+          }
+        };
+      threads[i].start();
+    }
+    for (int i = 0; i < threads.length; i++) {
+      threads[i].join();
+    }
+    synchronized (failure) {
+      assertNull(String.valueOf(failure[0]), failure[0]);
+    }
+    assertTrue(cache.size() <= 64);
+    final CacheStatistics statistics = cache.getStatistics();
+    assertEquals(8L * 5000L,
+                 statistics.getHitCount() + statistics.getMissCount());
+  }
+
+  /**
+   * Tests that concurrent misses for the same key share one load, and that
+   * they share its exception when it fails.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testCoalescedLoads() throws Exception {
+    this.assertCoalesced("foo", "FOO");
+    this.assertCoalesced("fail", null);
+  }
+
+  private void assertCoalesced(final String key, final String expected)
+    throws Exception {
+    final BoundedCache cache = new BoundedCache(10, 0L, 1);
+    final int threadCount = 20;
+    final Object gate = new Object();
+    final boolean[] open = new boolean[1];
+    final int[] loadCount = new int[1];
+    final BoundedCache.Loader slowLoader = new BoundedCache.Loader() {
+        public Object load(final Object key) throws SourceForgeException {
+          synchronized (gate) {
+            loadCount[0]++;
+            while (!open[0]) {
+              try {
+                gate.wait();
+              } catch (final InterruptedException kaboom) {
+                throw new SourceForgeException(kaboom);
+              }
+            }
+          }
+          return loader.load(key);
+        }
+      };
+    final Object[] results = new Object[threadCount];
+    final Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      final int index = i;
+      threads[i] = new Thread() {
+          public void run() {
+            try {
+              results[index] = cache.get(key, slowLoader);
+            } catch (final SourceForgeException kaboom) {
+              results[index] = kaboom;
+            }
+          }
+        };
+      threads[i].start();
+    }
+    while (cache.getStatistics().getCoalescedCount() < threadCount - 1) {
+      Thread.sleep(10L);
+    }
+    synchronized (gate) {
+      open[0] = true;
+      gate.notifyAll();
+    }
+    for (int i = 0; i < threadCount; i++) {
+      threads[i].join();
+    }
+    synchronized (gate) {
+      assertEquals(1, loadCount[0]);
+    }
+    for (int i = 0; i < threadCount; i++) {
+      if (expected == null) {
+        assertTrue(results[i] instanceof SourceForgeException);
+        assertSame(results[0], results[i]);
+      } else {
+        assertEquals(expected, results[i]);
+      }
+    }
+    assertEquals(threadCount, cache.getStatistics().getMissCount());
+  }
+
+}
@@ -0,0 +1,125 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils;
+
+import junit.framework.TestCase;
+
+/**
+ * A {@link TestCase} that tests the {@link CircuitBreaker} class.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCaseCircuitBreaker extends TestCase {
+
+  /**
+   * The time reported by the {@link CircuitBreaker} under test.
+   */
+  private long now;
+
+  /**
+   * The {@link CircuitBreaker} under test: it opens after three failures
+   * and stays open for a second.
+   */
+  private CircuitBreaker breaker;
+
+  /**
+   * Creates a new {@link TestCaseCircuitBreaker}.
+   *
+   * @param      name
+   *               the name of the test to run; supplied by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will not be
+   *               <code>null</code>
+   */
+  public TestCaseCircuitBreaker(final String name) {
+    super(name);
+  }
+
+  /**
+   * Creates the {@link CircuitBreaker} under test.
+   *
+   * @exception  Exception
+   *               if an error occurs
+   */
+  protected void setUp() throws Exception {
+    super.setUp();
+    this.breaker = new CircuitBreaker(3, 1000L) {
+        protected long now() {
+          return TestCaseCircuitBreaker.this.now;
+        }
+      };
+  }
+
+  /**
+   * Tests that the breaker opens after the threshold of consecutive
+   * failures, and that a success in between starts the count again.
+   */
+  public void testOpensAfterThreshold() {
+    this.recordFailures(2);
+    this.breaker.recordSuccess();
+    this.recordFailures(2);
+    assertEquals(CircuitBreaker.CLOSED, this.breaker.getState());
+    this.recordFailures(1);
+    assertEquals(CircuitBreaker.OPEN, this.breaker.getState());
+    assertFalse(this.breaker.allowRequest());
+    assertFalse(this.breaker.allowRequest());
+    assertEquals(2L, this.breaker.getRejectionCount());
+  }
+
+  /**
+   * Tests that after the cooldown one trial is let through, and that its
+   * outcome closes or reopens the breaker.
+   */
+  public void testHalfOpenTrial() {
+    this.recordFailures(3);
+    this.now += 1000L;
+    assertEquals(CircuitBreaker.HALF_OPEN, this.breaker.getState());
+    assertTrue(this.breaker.allowRequest());
+    assertFalse(this.breaker.allowRequest());
+    this.breaker.recordFailure();
+    assertEquals(CircuitBreaker.OPEN, this.breaker.getState());
+    assertFalse(this.breaker.allowRequest());
+
+    this.now += 1000L;
+    assertTrue(this.breaker.allowRequest());
+    this.breaker.recordIgnored();
+    assertTrue(this.breaker.allowRequest());
+    this.breaker.recordSuccess();
+    assertEquals(CircuitBreaker.CLOSED, this.breaker.getState());
+    assertTrue(this.breaker.allowRequest());
+    assertTrue(this.breaker.allowRequest());
+  }
+
+  private void recordFailures(final int count) {
+    for (int i = 0; i < count; i++) {
+      assertTrue(this.breaker.allowRequest());
+      this.breaker.recordFailure();
+    }
+  }
+
+}
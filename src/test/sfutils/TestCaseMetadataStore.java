@@ -0,0 +1,233 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+/**
+ * A {@link TestCase} that tests the {@link MetadataStore} class.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCaseMetadataStore extends TestCase {
+
+  /**
+   * The file backing the {@link MetadataStore}s under test.
+   */
+  private File file;
+
+  /**
+   * Creates a new {@link TestCaseMetadataStore}.
+   *
+   * @param      name
+   *               the name of the test to run; supplied by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will not be
+   *               <code>null</code>
+   */
+  public TestCaseMetadataStore(final String name) {
+    super(name);
+  }
+
+  /**
+   * Picks a fresh file for the {@link MetadataStore}s under test.
+   *
+   * @exception  Exception
+   *               if an error occurs
+   */
+  protected void setUp() throws Exception {
+    super.setUp();
+    this.file = File.createTempFile("sfutils", ".properties");
+    this.file.delete();
+  }
+
+  /**
+   * Deletes the file and its lock file.
+   *
+   * @exception  Exception
+   *               if an error occurs
+   */
+  protected void tearDown() throws Exception {
+    this.file.delete();
+    new File(this.file.getPath() + ".lock").delete();
+    super.tearDown();
+  }
+
+  /**
+   * Tests that identifiers survive into a new {@link MetadataStore} on the
+   * same file, and that removed ones do not.
+   */
+  public void testRoundTrip() {
+    final MetadataStore store = new MetadataStore(this.file);
+    store.putProjectID("SFUtils", "12345");
+    store.putPackageID("12345", "core", "678");
+    store.putPackageID("12345", "docs", "679");
+    store.removePackageID("12345", "docs");
+    assertTrue(this.file.isFile());
+
+    final MetadataStore reread = new MetadataStore(this.file);
+    assertEquals("12345", reread.getProjectID(" sfutils "));
+    assertEquals("678", reread.getPackageID("12345", "core"));
+    assertNull(reread.getPackageID("12345", "docs"));
+    assertNull(reread.getProjectID("other"));
+  }
+
+  /**
+   * Tests that two {@link MetadataStore}s on the same file keep each other's
+   * entries when they write.
+   */
+  public void testMerge() {
+    final MetadataStore first = new MetadataStore(this.file);
+    final MetadataStore second = new MetadataStore(this.file);
+    assertNull(first.getProjectID("a"));
+    assertNull(second.getProjectID("b"));
+    first.putProjectID("a", "1");
+    second.putProjectID("b", "2");
+    final MetadataStore reread = new MetadataStore(this.file);
+    assertEquals("1", reread.getProjectID("a"));
+    assertEquals("2", reread.getProjectID("b"));
+  }
+
+  /**
+   * Tests that two {@link MetadataStore}s on the same file, written to by
+   * concurrent threads, take turns on the file lock and keep every entry.
+   *
+   * @exception  InterruptedException
+   *               if the test is interrupted
+   */
+  public void testConcurrentWriters() throws InterruptedException {
+    final MetadataStore[] stores = new MetadataStore[] {
+      new MetadataStore(this.file),
+      new MetadataStore(new File(this.file.getParentFile(),
+                                 "." + File.separator + this.file.getName()))
+    };
+    final int count = 50;
+    final Throwable[] failures = new Throwable[stores.length];
+    final Thread[] threads = new Thread[stores.length];
+    for (int i = 0; i < threads.length; i++) {
+      final int index = i;
+      threads[i] = new Thread() {
+          public void run() {
+            try {
+              for (int j = 0; j < count; j++) {
+                stores[index].putProjectID(index + "-" + j, String.valueOf(j));
+              }
+            } catch (final Throwable kaboom) {
+              failures[index] = kaboom;
+            }
+          }
+        };
+      threads[i].start();
+    }
+    for (int i = 0; i < threads.length; i++) {
+      threads[i].join();
+      assertNull(String.valueOf(failures[i]), failures[i]);
+    }
+    final MetadataStore reread = new MetadataStore(this.file);
+    for (int i = 0; i < stores.length; i++) {
+      for (int j = 0; j < count; j++) {
+        assertEquals(String.valueOf(j), reread.getProjectID(i + "-" + j));
+      }
+    }
+  }
+
+  /**
+   * Tests that a file of another format version is ignored.
+   *
+   * @exception  IOException
+   *               if the file could not be rewritten
+   */
+  public void testVersionMismatch() throws IOException {
+    new MetadataStore(this.file).putProjectID("a", "1");
+    final Properties properties = this.load();
+    properties.setProperty(MetadataStore.VERSION_KEY,
+                           String.valueOf(MetadataStore.FORMAT_VERSION + 1));
+    this.store(properties);
+    assertNull(new MetadataStore(this.file).getProjectID("a"));
+  }
+
+  /**
+   * Tests that a file whose entries do not match its checksum is ignored,
+   * and that the next write replaces it.
+   *
+   * @exception  IOException
+   *               if the file could not be rewritten
+   */
+  public void testBadChecksum() throws IOException {
+    new MetadataStore(this.file).putProjectID("a", "1");
+    final Properties properties = this.load();
+    properties.setProperty("project.a", "2");
+    this.store(properties);
+    final MetadataStore store = new MetadataStore(this.file);
+    assertNull(store.getProjectID("a"));
+    store.putProjectID("b", "3");
+    assertEquals("3", new MetadataStore(this.file).getProjectID("b"));
+  }
+
+  /**
+   * Tests that a {@link MetadataStore} without a file works in memory.
+   */
+  public void testMemoryOnly() {
+    final MetadataStore store = new MetadataStore(null);
+    assertNull(store.getFile());
+    store.putProjectID("a", "1");
+    assertEquals("1", store.getProjectID("a"));
+    store.removeProjectID("a");
+    assertNull(store.getProjectID("a"));
+  }
+
+  private Properties load() throws IOException {
+    final Properties properties = new Properties();
+    final InputStream stream = new FileInputStream(this.file);
+    try {
+      properties.load(stream);
+    } finally {
+      stream.close();
+    }
+    return properties;
+  }
+
+  private void store(final Properties properties) throws IOException {
+    final OutputStream stream = new FileOutputStream(this.file);
+    try {
+      properties.store(stream, null);
+    } finally {
+      stream.close();
+    }
+  }
+
+}
@@ -113,4 +113,42 @@ public class TestCaseProject extends TestCase {
     assertEquals(projectA.toString(), projectB.toString());
   }
 
+  /**
+   * Tests that {@linkplain Project#freeze() freezing} a {@link Project}
+   * freezes its {@link Administrator} too, makes both refuse changes, and
+   * keeps the hashcode equal to that of an unfrozen equal {@link Project}.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testFreeze() throws Exception {
+    final Project project =
+      new Project("The Foo Project", "foo", new Administrator("oog", "blah"));
+    project.setID("A");
+    final Project copy =
+      new Project("The Foo Project", "foo", new Administrator("oog", "blah"));
+    copy.setID("A");
+    project.freeze();
+    assertTrue(project.isFrozen());
+    assertTrue(project.getAdministrator().isFrozen());
+    assertEquals(copy, project);
+    assertEquals(copy.hashCode(), project.hashCode());
+    final Map map = new HashMap();
+    map.put(project, "A");
+    assertEquals("A", map.get(copy));
+    try {
+      project.setID("B");
+      fail("Expected an IllegalStateException");
+    } catch (final IllegalStateException expected) {
+      assertNotNull(expected);
+    }
+    try {
+      project.getAdministrator().setPassword("other");
+      fail("Expected an IllegalStateException");
+    } catch (final IllegalStateException expected) {
+      assertNotNull(expected);
+    }
+    assertEquals("A", project.getID());
+  }
+
 }
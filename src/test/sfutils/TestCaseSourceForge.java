@@ -27,6 +27,9 @@
  */
 package sfutils;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 import junit.framework.TestCase;
 
 /**
@@ -62,4 +65,22 @@ public class TestCaseSourceForge extends TestCase {
     assertEquals("1", SourceForge.getProjectID("alexandria"));
   }
 
+  /**
+   * Tests the {@link SourceForge#getProjectIDs(Collection, int)} method.
+   *
+   * @exception  Exception
+   *               if the test fails
+   * @see        SourceForge#getProjectIDs(Collection, int)
+   */
+  public void testGetProjectIDs() throws Exception {
+    final ProjectIDResolution resolution =
+      SourceForge.getProjectIDs(Arrays.asList(new String[] {
+        "alexandria", "Alexandria", "nosuchprojectatall"
+      }), 2);
+    assertEquals("1", resolution.getProjectID("alexandria"));
+    assertEquals("1", resolution.getProjectID("Alexandria"));
+    assertTrue(resolution.getFailure("nosuchprojectatall") instanceof NoSuchProjectException);
+    assertFalse(resolution.isComplete());
+  }
+
 }
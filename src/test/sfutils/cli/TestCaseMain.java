@@ -0,0 +1,302 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.cli;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import sfutils.Administrator;
+import sfutils.Project;
+
+import sfutils.frs.FileRelease;
+import sfutils.frs.FileSpecification;
+import sfutils.frs.Package;
+import sfutils.frs.ReleaseManifest;
+
+/**
+ * A {@link TestCase} that exercises the command line publisher without
+ * publishing anything: argument parsing, checking releases, and resident
+ * mode.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCaseMain extends TestCase {
+
+  /**
+   * A released file.
+   */
+  private File file;
+
+  /**
+   * A manifest describing one release of {@link #file}.
+   */
+  private File manifest;
+
+  /**
+   * Creates a new {@link TestCaseMain}.
+   *
+   * @param      name
+   *               the name of the test to run; supplied by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will not be
+   *               <code>null</code>
+   */
+  public TestCaseMain(final String name) {
+    super(name);
+  }
+
+  /**
+   * Writes a released file and a JSON manifest describing it.
+   *
+   * @exception  Exception
+   *               if either could not be written
+   */
+  protected void setUp() throws Exception {
+    this.file = File.createTempFile("TEST-main", ".txt");
+    OutputStream out = new FileOutputStream(this.file);
+    try {
+      out.write("Some content for this file".getBytes());
+    } finally {
+      out.close();
+    }
+    final Administrator admin = new Administrator();
+    admin.setName("username");
+    final Project project = new Project("My Project", "myproj", admin);
+    final FileRelease release =
+      new FileRelease(new Package(project, "core"), "core-1.0");
+    release.setFileSpecifications(new FileSpecification[] {
+      new FileSpecification(this.file)
+    });
+    this.manifest = File.createTempFile("TEST-main", ".json");
+    out = new FileOutputStream(this.manifest);
+    try {
+      ReleaseManifest.write(Collections.singletonList(release), out,
+                            ReleaseManifest.JSON);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Deletes the released file and the manifest.
+   */
+  protected void tearDown() {
+    this.file.delete();
+    this.manifest.delete();
+  }
+
+  /**
+   * Runs a {@link Main} with the supplied arguments.
+   *
+   * @param      args
+   *               the arguments; must not be <code>null</code>
+   * @param      out
+   *               receives the standard output; must not be
+   *               <code>null</code>
+   * @param      err
+   *               receives the standard error; must not be
+   *               <code>null</code>
+   * @return     the exit status
+   */
+  private static int run(final String[] args,
+                         final ByteArrayOutputStream out,
+                         final ByteArrayOutputStream err) {
+    final Main main = new Main();
+    try {
+      return main.run(args, System.currentTimeMillis(),
+                      new ByteArrayInputStream(new byte[0]),
+                      new PrintStream(out, true), new PrintStream(err, true));
+    } finally {
+      main.close();
+    }
+  }
+
+  /**
+   * Ensures that job lines are split at whitespace, honouring quotes.
+   */
+  public void testTokenize() {
+    assertEquals(Arrays.asList(new String[] {
+      "--release", "my release", "a\"b", "", "c"
+    }), Arrays.asList(Main.tokenize("  --release \"my release\"  \"a\\\"b\" \"\" c ")));
+    assertEquals(0, Main.tokenize("   ").length);
+    try {
+      Main.tokenize("\"open");
+      fail("Accepted an unclosed quote");
+    } catch (final IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  /**
+   * Ensures that malformed arguments are rejected with the usage summary.
+   */
+  public void testUsage() {
+    final String[][] bad = {
+      {},
+      { "--threads", "0", "x.json" },
+      { "--release", "r", "--project", "p", "a.txt" },
+      { "--bogus", "x.json" },
+      { "--plan", "--check", "x.json" },
+      { "--manifest" }
+    };
+    for (int i = 0; i < bad.length; i++) {
+      final ByteArrayOutputStream err = new ByteArrayOutputStream();
+      assertEquals(Main.EXIT_USAGE,
+                   run(bad[i], new ByteArrayOutputStream(), err));
+      assertTrue(err.toString().indexOf("usage:") >= 0);
+    }
+  }
+
+  /**
+   * Ensures that releases from manifests and from arguments can be checked
+   * without any network access.
+   */
+  public void testCheck() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ByteArrayOutputStream err = new ByteArrayOutputStream();
+    assertEquals(Main.EXIT_OK,
+                 run(new String[] {
+                   "--check", "--timing", this.manifest.getPath(),
+                   "--user", "other", "--project", "otherproj",
+                   "--package", "docs", "--release", "docs-1.0",
+                   this.file.getPath()
+                 }, out, err));
+    assertTrue(out.toString(), out.toString().indexOf("Checked 2 releases, 2 files") >= 0);
+    assertTrue(err.toString(), err.toString().startsWith("Timing: "));
+
+    out = new ByteArrayOutputStream();
+    assertEquals(Main.EXIT_FAILED,
+                 run(new String[] {
+                   "--check", "--project", "otherproj",
+                   "--package", "docs", "--release", "docs-1.0",
+                   this.file.getPath()
+                 }, out, new ByteArrayOutputStream()));
+    assertTrue(out.toString(), out.toString().startsWith("ERROR No user"));
+  }
+
+  /**
+   * Ensures that a resident {@link Main} answers every job line.
+   */
+  public void testResident() throws IOException {
+    final StringWriter out = new StringWriter();
+    final Main main = new Main();
+    try {
+      main.serve(new StringReader("--check " + this.manifest.getPath() + "\n" +
+                                  "\n" +
+                                  "--check --timing \"" +
+                                  this.manifest.getPath() + "\"\n" +
+                                  "--check /no/such/manifest.json\n" +
+                                  "--bogus\n" +
+                                  "quit\n" +
+                                  "--check " + this.manifest.getPath() + "\n"),
+                 out);
+    } finally {
+      main.close();
+    }
+    final String[] lines = out.toString().split("\r?\n");
+    assertEquals(Arrays.asList(new String[] {
+      "Checked core-1.0 (package core): 1 files",
+      "Checked 1 releases, 1 files",
+      "OK",
+      "Checked core-1.0 (package core): 1 files",
+      "Checked 1 releases, 1 files",
+      lines[5],
+      "OK",
+      lines[7],
+      "FAILED",
+      "ERROR Unknown option: --bogus"
+    }), Arrays.asList(lines));
+    assertTrue(lines[5], lines[5].startsWith("Timing: job to first request "));
+    assertTrue(lines[7], lines[7].startsWith("ERROR "));
+  }
+
+  /**
+   * Ensures that a {@link Main} shares sessions only between jobs run with
+   * the same credentials.
+   */
+  public void testSessionsScopedByCredentials() {
+    final FileRelease[] releases = new FileRelease[] {
+      this.createRelease("username", "secret"),
+      this.createRelease("username", "secret"),
+      this.createRelease("username", "other"),
+      this.createRelease("otheruser", "secret")
+    };
+    final String[] credentials = new String[releases.length];
+    for (int i = 0; i < releases.length; i++) {
+      credentials[i] = Job.getCredentials(new FileRelease[] { releases[i] });
+    }
+    final Main main = new Main();
+    try {
+      assertSame(main.getSharedSessions(credentials[0]),
+                 main.getSharedSessions(credentials[1]));
+      assertNotSame(main.getSharedSessions(credentials[0]),
+                    main.getSharedSessions(credentials[2]));
+      assertNotSame(main.getSharedSessions(credentials[0]),
+                    main.getSharedSessions(credentials[3]));
+    } finally {
+      main.close();
+    }
+    assertEquals(Job.getCredentials(new FileRelease[] {
+                   releases[3], releases[0], releases[1]
+                 }),
+                 Job.getCredentials(new FileRelease[] {
+                   releases[0], releases[3]
+                 }));
+  }
+
+  /**
+   * Returns a {@link FileRelease} of a project administered by a user with
+   * the supplied credentials.  This method never returns <code>null</code>.
+   *
+   * @param      userName
+   *               the user name; must not be <code>null</code>
+   * @param      password
+   *               the password; must not be <code>null</code>
+   * @return     a {@link FileRelease}; never <code>null</code>
+   */
+  private FileRelease createRelease(final String userName,
+                                    final String password) {
+    final Project project =
+      new Project("My Project", "myproj",
+                  new Administrator(userName, password));
+    return new FileRelease(new Package(project, "core"), "core-1.0");
+  }
+
+}
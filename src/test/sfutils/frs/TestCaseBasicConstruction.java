@@ -33,6 +33,9 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 
+import java.util.Arrays;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 import sfutils.Administrator;
@@ -132,4 +135,109 @@ public class TestCaseBasicConstruction extends TestCase {
     release.setFileSpecifications(new FileSpecification[] { fileOne, fileTwo });
   }
 
+  /**
+   * Tests that a {@link FileRelease}'s read-only views are reused until its
+   * {@link FileSpecification}s change, agree with its array accessors, and
+   * that its {@link FileRelease.Visitor} support stops when asked.
+   *
+   * @exception  IOException
+   *               if the {@link File}s could not be created
+   */
+  public void testViews() throws IOException {
+    final FileRelease release = new FileRelease();
+    final FileSpecification fileOne = new FileSpecification(this.createTempFile());
+    final FileSpecification fileTwo = new FileSpecification(this.createTempFile());
+    release.setFileSpecifications(new FileSpecification[] { fileOne });
+    final List specs = release.getFileSpecificationList();
+    assertSame(specs, release.getFileSpecificationList());
+    assertSame(release.getSortedShortFileNames(),
+               release.getSortedShortFileNames());
+    assertEquals(Arrays.asList(release.getFileSpecifications()), specs);
+    try {
+      specs.clear();
+      fail("Expected an UnsupportedOperationException");
+    } catch (final UnsupportedOperationException expected) {
+      assertNotNull(expected);
+    }
+
+    release.setFileSpecifications(new FileSpecification[] { fileTwo });
+    assertNotSame(specs, release.getFileSpecificationList());
+    assertEquals(2, release.getFileSpecificationCount());
+    assertEquals(Arrays.asList(release.getFiles()), release.getFileList());
+    assertEquals(Arrays.asList(release.getShortFileNames()),
+                 release.getShortFileNameList());
+    assertEquals(2, release.getSortedShortFileNames().size());
+
+    final int[] visits = new int[1];
+    assertFalse(release.accept(new FileRelease.Visitor() {
+        public boolean visit(final FileSpecification spec) {
+          visits[0]++;
+          return false;
+        }
+      }));
+    assertEquals(1, visits[0]);
+  }
+
+  /**
+   * Ensures that the secondary indexes and bulk operations of a {@link
+   * FileRelease} answer queries correctly and notice changes.
+   *
+   * @exception  IOException
+   *               if a temporary {@link File} could not be created
+   */
+  public void testIndexes() throws IOException {
+    final FileRelease release = new FileRelease(null, "1.0", 3);
+    final FileSpecification fileOne = new FileSpecification(this.createTempFile());
+    final FileSpecification fileTwo = new FileSpecification(this.createTempFile());
+    final FileSpecification fileThree = new FileSpecification(this.createTempFile());
+    fileTwo.setProcessorType(FileSpecification.I386_PROCESSOR);
+    release.addFileSpecifications(Arrays.asList(new FileSpecification[] {
+      fileOne, fileTwo, fileThree
+    }));
+    assertEquals(3, release.getFileSpecificationCount());
+
+    final List texts =
+      release.getFileSpecificationsByFileType(FileSpecification.TEXT_FILE);
+    assertEquals(Arrays.asList(new FileSpecification[] {
+      fileOne, fileTwo, fileThree
+    }), texts);
+    assertSame(texts,
+               release.getFileSpecificationsByFileType(FileSpecification.TEXT_FILE));
+    // Changing a specification outside the release leaves its indexes be.
+    new FileSpecification(this.createTempFile()).setFileType(FileSpecification.PDF_FILE);
+    assertSame(texts,
+               release.getFileSpecificationsByFileType(FileSpecification.TEXT_FILE));
+    assertTrue(release.getFileSpecificationsByFileType(FileSpecification.PDF_FILE).isEmpty());
+    assertEquals(1,
+                 release.getFileSpecificationsByProcessorType(FileSpecification.I386_PROCESSOR).size());
+    assertEquals(3,
+                 release.getFileSpecificationsInDirectory(fileOne.getFile().getParentFile()).size());
+    final long length = fileOne.getFile().length();
+    assertEquals(3, release.getFileSpecificationsByLength(length, length).size());
+    assertTrue(release.getFileSpecificationsByLength(0L, length - 1L).isEmpty());
+
+    fileThree.setFileType(FileSpecification.SOURCE_PATCH_OR_DIFF_FILE);
+    assertEquals(2,
+                 release.getFileSpecificationsByFileType(FileSpecification.TEXT_FILE).size());
+
+    assertEquals(2, release.removeFileSpecifications(Arrays.asList(new String[] {
+      fileOne.getFile().getName(), fileTwo.getFile().getName(), "missing"
+    })));
+    assertEquals(1,
+                 release.getFileSpecificationsInDirectory(fileOne.getFile().getParentFile()).size());
+    assertSame(fileThree,
+               release.removeFileSpecification(fileThree.getFile().getName()));
+    assertEquals(0, release.getFileSpecificationCount());
+
+    try {
+      release.addFileSpecifications(Arrays.asList(new FileSpecification[] {
+        fileOne, null
+      }));
+      fail("Expected an IllegalArgumentException");
+    } catch (final IllegalArgumentException expected) {
+      assertNotNull(expected);
+    }
+    assertEquals(0, release.getFileSpecificationCount());
+  }
+
 }
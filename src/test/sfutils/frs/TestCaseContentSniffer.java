@@ -0,0 +1,257 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * A {@link TestCase} that exercises the {@link ContentSniffer}.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCaseContentSniffer extends TestCase {
+
+  /**
+   * The {@link ContentSniffer} under test.
+   */
+  private ContentSniffer sniffer;
+
+  /**
+   * Creates a new {@link TestCaseContentSniffer}.
+   *
+   * @param      name
+   *               the name of the test to run; supplied by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will not be
+   *               <code>null</code>
+   */
+  public TestCaseContentSniffer(final String name) {
+    super(name);
+  }
+
+  /**
+   * Creates a new {@link ContentSniffer}.
+   */
+  protected void setUp() {
+    this.sniffer = new ContentSniffer();
+  }
+
+  /**
+   * Creates an empty temporary {@link File} with the supplied suffix that
+   * will be deleted when the virtual machine exits.  This method never
+   * returns <code>null</code>.
+   *
+   * @param      suffix
+   *               the suffix; must not be <code>null</code>
+   * @return     the new {@link File}; never <code>null</code>
+   * @exception  IOException
+   *               if the {@link File} could not be created
+   */
+  private File createTempFile(final String suffix) throws IOException {
+    final File file = File.createTempFile("TEST", suffix);
+    assertNotNull(file);
+    file.deleteOnExit();
+    return file;
+  }
+
+  /**
+   * Creates a temporary {@link File} holding the supplied bytes.
+   *
+   * @param      suffix
+   *               the suffix; must not be <code>null</code>
+   * @param      bytes
+   *               the contents; must not be <code>null</code>
+   * @return     the new {@link File}; never <code>null</code>
+   * @exception  IOException
+   *               if the {@link File} could not be written
+   */
+  private File createTempFile(final String suffix, final byte[] bytes)
+    throws IOException {
+    final File file = this.createTempFile(suffix);
+    final OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(bytes);
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  /**
+   * Ensures that archives and compressed streams are recognized whatever
+   * they are named.
+   */
+  public void testArchives() throws IOException {
+    final File zip = this.createTempFile("");
+    final ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(zip));
+    zipOut.putNextEntry(new ZipEntry("README"));
+    zipOut.write("hello".getBytes());
+    zipOut.close();
+    assertEquals(FileSpecification.BINARY_ZIP_FILE, this.sniffer.sniff(zip));
+
+    final File jar = this.createTempFile(".bin");
+    new JarOutputStream(new FileOutputStream(jar), new Manifest()).close();
+    assertEquals(FileSpecification.JAR_FILE, this.sniffer.sniff(jar));
+
+    final File gzip = this.createTempFile(".dat");
+    final GZIPOutputStream gzipOut =
+      new GZIPOutputStream(new FileOutputStream(gzip));
+    gzipOut.write("hello".getBytes());
+    gzipOut.close();
+    assertEquals(FileSpecification.BINARY_GZIP_FILE, this.sniffer.sniff(gzip));
+
+    assertEquals(FileSpecification.BINARY_BZIP2_FILE,
+                 this.sniffer.sniff(this.createTempFile("", "BZh91AY&SY".getBytes())));
+    assertEquals(FileSpecification.PDF_FILE,
+                 this.sniffer.sniff(this.createTempFile("", "%PDF-1.4\n".getBytes())));
+  }
+
+  /**
+   * Ensures that binary and source RPMs, executables and ISO images are
+   * told apart.
+   */
+  public void testPackagesAndImages() throws IOException {
+    final byte[] rpm = new byte[96];
+    rpm[0] = (byte)0xED;
+    rpm[1] = (byte)0xAB;
+    rpm[2] = (byte)0xEE;
+    rpm[3] = (byte)0xDB;
+    rpm[4] = 3;
+    assertEquals(FileSpecification.BINARY_REDHAT_PACKAGE_FILE,
+                 this.sniffer.sniff(this.createTempFile(".rpm", rpm)));
+    rpm[7] = 1;
+    assertEquals(FileSpecification.SOURCE_REDHAT_PACKAGE_FILE,
+                 this.sniffer.sniff(this.createTempFile(".rpm", rpm)));
+
+    final byte[] exe = new byte[256];
+    exe[0] = 'M';
+    exe[1] = 'Z';
+    assertEquals(FileSpecification.DOS_EXE_FILE,
+                 this.sniffer.sniff(this.createTempFile("", exe)));
+    exe[0x3C] = (byte)0x80;
+    exe[0x80] = 'P';
+    exe[0x81] = 'E';
+    assertEquals(FileSpecification.WINDOWS_32_BIT_EXE_FILE,
+                 this.sniffer.sniff(this.createTempFile("", exe)));
+
+    final File iso = this.createTempFile("");
+    final RandomAccessFile isoOut = new RandomAccessFile(iso, "rw");
+    try {
+      isoOut.seek(32769L);
+      isoOut.write("CD001".getBytes());
+      isoOut.setLength(34816L);
+    } finally {
+      isoOut.close();
+    }
+    assertEquals(FileSpecification.ISO_FILE, this.sniffer.sniff(iso));
+  }
+
+  /**
+   * Ensures that text is recognized and binary noise is not.
+   */
+  public void testText() throws IOException {
+    assertEquals(FileSpecification.TEXT_FILE,
+                 this.sniffer.sniff(this.createTempFile("", "Release notes\n".getBytes())));
+    assertEquals(FileSpecification.HTML_FILE,
+                 this.sniffer.sniff(this.createTempFile("", "\n<HTML><body/>".getBytes())));
+    assertEquals(FileSpecification.SOURCE_PATCH_OR_DIFF_FILE,
+                 this.sniffer.sniff(this.createTempFile("", "--- a\n+++ b\n".getBytes())));
+    assertEquals(TypeRegistry.UNKNOWN,
+                 this.sniffer.sniff(this.createTempFile("", new byte[] { 1, 0, 2 })));
+    assertEquals(TypeRegistry.UNKNOWN,
+                 this.sniffer.sniff(this.createTempFile("")));
+    assertEquals(TypeRegistry.UNKNOWN, this.sniffer.sniff(null));
+  }
+
+  /**
+   * Ensures that results are cached until a {@link File} is seen to have
+   * changed.
+   */
+  public void testCaching() throws IOException {
+    final File file = this.createTempFile("", "plain".getBytes());
+    assertEquals(FileSpecification.TEXT_FILE, this.sniffer.sniff(file));
+    assertEquals(FileSpecification.TEXT_FILE, this.sniffer.sniff(file));
+    assertEquals(1L, this.sniffer.getStatistics().getHitCount());
+    final OutputStream out = new FileOutputStream(file);
+    try {
+      out.write("%PDF-1.4 and then some".getBytes());
+    } finally {
+      out.close();
+    }
+    FileAttributeCache.getShared().invalidate(file);
+    assertEquals(FileSpecification.PDF_FILE, this.sniffer.sniff(file));
+    assertEquals(1L, this.sniffer.getStatistics().getHitCount());
+  }
+
+  /**
+   * Ensures that contents only override a name's type when they disagree
+   * about what kind of {@link File} it is, and that {@link
+   * FileSpecification#computeFileType(File)} uses an installed {@link
+   * ContentSniffer}.
+   */
+  public void testRefine() throws IOException {
+    final byte[] gzip = { 0x1F, (byte)0x8B, 8, 0 };
+    final File tarball = this.createTempFile("-src.tar.gz", gzip);
+    final File renamed = this.createTempFile(".txt", gzip);
+    final File bare = this.createTempFile("", gzip);
+    final File notes = this.createTempFile(".html", "notes".getBytes());
+    assertEquals(FileSpecification.SOURCE_GZIP_FILE,
+                 this.sniffer.refine(FileSpecification.SOURCE_GZIP_FILE, tarball));
+    assertEquals(FileSpecification.HTML_FILE,
+                 this.sniffer.refine(FileSpecification.HTML_FILE, notes));
+
+    assertEquals(FileSpecification.TEXT_FILE,
+                 FileSpecification.computeFileType(renamed));
+    FileSpecification.setContentSniffer(this.sniffer);
+    try {
+      assertSame(this.sniffer, FileSpecification.getContentSniffer());
+      assertEquals(FileSpecification.SOURCE_GZIP_FILE,
+                   FileSpecification.computeFileType(tarball));
+      assertEquals(FileSpecification.BINARY_GZIP_FILE,
+                   FileSpecification.computeFileType(renamed));
+      assertEquals(FileSpecification.BINARY_GZIP_FILE,
+                   FileSpecification.computeFileType(bare));
+    } finally {
+      FileSpecification.setContentSniffer(null);
+    }
+  }
+
+}
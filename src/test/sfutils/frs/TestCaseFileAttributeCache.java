@@ -0,0 +1,128 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * A {@link TestCase} that exercises the {@link FileAttributeCache}.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCaseFileAttributeCache extends TestCase {
+
+  /**
+   * Creates a new {@link TestCaseFileAttributeCache}.
+   *
+   * @param      name
+   *               the name of the test to run; supplied by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will not be
+   *               <code>null</code>
+   */
+  public TestCaseFileAttributeCache(final String name) {
+    super(name);
+  }
+
+  /**
+   * Writes the supplied text to the supplied {@link File}.
+   *
+   * @param      file
+   *               the {@link File}; must not be <code>null</code>
+   * @param      text
+   *               the text; must not be <code>null</code>
+   * @exception  IOException
+   *               if the {@link File} could not be written
+   */
+  private static void write(final File file, final String text)
+    throws IOException {
+    final OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(text.getBytes());
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Ensures that attributes are read once and served from the cache until
+   * invalidated.
+   */
+  public void testCaching() throws IOException {
+    final File file = File.createTempFile("TEST", ".txt");
+    file.deleteOnExit();
+    write(file, "short");
+    final FileAttributeCache cache = new FileAttributeCache(16, 60000L);
+    final FileAttributeCache.Attributes attributes = cache.get(file);
+    assertTrue(attributes.isReadable());
+    assertTrue(attributes.isFile());
+    assertEquals(5L, attributes.getLength());
+    assertEquals(file.lastModified(), attributes.getLastModified());
+    write(file, "rather longer");
+    assertSame(attributes, cache.get(new File(file.getAbsolutePath())));
+    assertEquals(1L, cache.getStatistics().getHitCount());
+    cache.invalidate(file);
+    assertEquals(13L, cache.get(file).getLength());
+  }
+
+  /**
+   * Ensures that a time to live of <code>0</code> turns caching off.
+   */
+  public void testDisabled() throws IOException {
+    final File file = File.createTempFile("TEST", ".txt");
+    file.deleteOnExit();
+    write(file, "short");
+    final FileAttributeCache cache = new FileAttributeCache(16, 0L);
+    assertEquals(5L, cache.get(file).getLength());
+    write(file, "rather longer");
+    assertEquals(13L, cache.get(file).getLength());
+    assertNull(cache.getStatistics());
+  }
+
+  /**
+   * Ensures that missing {@link File}s and directories are reported as
+   * such.
+   */
+  public void testMissing() throws IOException {
+    final File file = File.createTempFile("TEST", ".txt");
+    assertTrue(file.delete());
+    final FileAttributeCache cache = new FileAttributeCache(16, 60000L);
+    final FileAttributeCache.Attributes attributes = cache.get(file);
+    assertFalse(attributes.isReadable());
+    assertFalse(attributes.isFile());
+    assertEquals(0L, attributes.getLength());
+    assertFalse(cache.get(file.getParentFile()).isFile());
+    assertTrue(cache.get(file.getParentFile()).isReadable());
+  }
+
+}
@@ -0,0 +1,276 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+/**
+ * A {@link TestCase} that exercises the {@link FileReleaseBuilder}.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCaseFileReleaseBuilder extends TestCase {
+
+  /**
+   * The temporary root directory.
+   */
+  private File root;
+
+  /**
+   * Creates a new {@link TestCaseFileReleaseBuilder}.
+   *
+   * @param      name
+   *               the name of the test to run; supplied by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will not be
+   *               <code>null</code>
+   */
+  public TestCaseFileReleaseBuilder(final String name) {
+    super(name);
+  }
+
+  /**
+   * Creates an empty temporary root directory.
+   *
+   * @exception  IOException
+   *               if the directory could not be created
+   */
+  protected void setUp() throws IOException {
+    this.root = File.createTempFile("TEST", "");
+    assertTrue(this.root.delete());
+    assertTrue(this.root.mkdir());
+  }
+
+  /**
+   * Deletes the temporary root directory.
+   */
+  protected void tearDown() {
+    delete(this.root);
+  }
+
+  /**
+   * Deletes the supplied {@link File} and everything beneath it.
+   *
+   * @param      file
+   *               the {@link File}; must not be <code>null</code>
+   */
+  private static void delete(final File file) {
+    // Symbolic links are deleted, not followed.
+    final File[] children = isLink(file) ? null : file.listFiles();
+    if (children != null) {
+      for (int i = 0; i < children.length; i++) {
+        delete(children[i]);
+      }
+    }
+    file.delete();
+  }
+
+  /**
+   * Returns <code>true</code> if the supplied {@link File} is a symbolic
+   * link.
+   *
+   * @param      file
+   *               the {@link File}; must not be <code>null</code>
+   * @return     <code>true</code> if the {@link File} is a symbolic link
+   */
+  private static boolean isLink(final File file) {
+    try {
+      final File path = new File(file.getParentFile().getCanonicalFile(),
+                                 file.getName());
+      return !path.getCanonicalFile().equals(path);
+    } catch (final IOException kaboom) {
+      return false;
+    }
+  }
+
+  /**
+   * Creates a symbolic link at the supplied path beneath the root, or
+   * returns <code>false</code> if the platform cannot.
+   *
+   * @param      path
+   *               the relative path of the link; must not be
+   *               <code>null</code>
+   * @param      target
+   *               the link's target; must not be <code>null</code>
+   * @return     <code>true</code> if the link was created
+   * @exception  InterruptedException
+   *               if interrupted while waiting for the link to be created
+   */
+  private boolean link(final String path, final String target)
+    throws InterruptedException {
+    final File link = new File(this.root, path);
+    try {
+      final Process process = Runtime.getRuntime().exec(new String[] {
+        "ln", "-s", target, link.getPath()
+      });
+      return process.waitFor() == 0 && isLink(link);
+    } catch (final IOException noLn) {
+      return false;
+    }
+  }
+
+  /**
+   * Creates a {@link File} with some content at the supplied path beneath
+   * the root.
+   *
+   * @param      path
+   *               the relative path; must not be <code>null</code>
+   * @return     the new {@link File}; never <code>null</code>
+   * @exception  IOException
+   *               if the {@link File} could not be written
+   */
+  private File create(final String path) throws IOException {
+    final File file = new File(this.root, path);
+    file.getParentFile().mkdirs();
+    final OutputStream out = new FileOutputStream(file);
+    try {
+      out.write("Some content for this file".getBytes());
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  /**
+   * Ensures that globs translate into the expected regular expressions.
+   */
+  public void testGlobs() {
+    assertTrue(Pattern.matches(FileReleaseBuilder.toRegularExpression("**/*.jar"),
+                               "lib/sfutils.jar"));
+    assertTrue(Pattern.matches(FileReleaseBuilder.toRegularExpression("**/*.jar"),
+                               "sfutils.jar"));
+    assertFalse(Pattern.matches(FileReleaseBuilder.toRegularExpression("*.jar"),
+                                "lib/sfutils.jar"));
+    assertTrue(Pattern.matches(FileReleaseBuilder.toRegularExpression("**/CVS/"),
+                               "a/b/CVS/"));
+    assertTrue(Pattern.matches(FileReleaseBuilder.toRegularExpression("sfutils-?.?.zip"),
+                               "sfutils-1.0.zip"));
+    assertFalse(Pattern.matches(FileReleaseBuilder.toRegularExpression("sfutils-?.?.zip"),
+                                "sfutils-1x0.zip"));
+  }
+
+  /**
+   * Ensures that include and exclude rules select the expected {@link
+   * File}s, that excluded directories are skipped, and that the result is
+   * ordered by relative path.
+   */
+  public void testRules() throws IOException {
+    this.create("dist/sfutils-1.0.zip");
+    this.create("dist/sfutils-1.0-src.tar.gz");
+    this.create("dist/docs/README.txt");
+    this.create("dist/CVS/Entries");
+    this.create("dist/ignore.tmp");
+    final FileReleaseBuilder builder = new FileReleaseBuilder();
+    builder.addRoot(this.root);
+    builder.addInclude("dist/");
+    builder.addExclude("**/CVS/");
+    builder.addExclude(Pattern.compile(".*\\.tmp"));
+    builder.setProcessorType(FileSpecification.PLATFORM_INDEPENDENT_PROCESSOR);
+    final FileRelease release = builder.build(new Package("sfutils"), "1.0");
+    assertNotNull(release);
+    final String[] names = release.getShortFileNames();
+    assertEquals(3, names.length);
+    assertEquals("README.txt", names[0]);
+    assertEquals("sfutils-1.0-src.tar.gz", names[1]);
+    assertEquals("sfutils-1.0.zip", names[2]);
+    final FileSpecification tarball =
+      release.getFileSpecification("sfutils-1.0-src.tar.gz");
+    assertEquals(FileSpecification.SOURCE_GZIP_FILE, tarball.getFileType());
+    assertEquals(FileSpecification.PLATFORM_INDEPENDENT_PROCESSOR,
+                 tarball.getProcessorType());
+  }
+
+  /**
+   * Ensures that a large tree is scanned completely by several threads.
+   */
+  public void testParallelScan() throws IOException {
+    for (int d = 0; d < 10; d++) {
+      for (int f = 0; f < 60; f++) {
+        this.create("d" + d + "/sub/f" + d + "_" + f + ".txt");
+      }
+    }
+    final FileReleaseBuilder builder = new FileReleaseBuilder();
+    builder.addRoot(this.root);
+    builder.setParallelism(4);
+    final FileSpecification[] specs = builder.scan();
+    assertEquals(600, specs.length);
+    assertEquals("f0_0.txt", specs[0].getFile().getName());
+  }
+
+  /**
+   * Ensures that invalid and duplicate {@link File} names are rejected.
+   */
+  public void testInvalidFiles() throws IOException {
+    this.create("a/sfutils.jar");
+    this.create("b/sfutils.jar");
+    final FileReleaseBuilder builder = new FileReleaseBuilder();
+    builder.addRoot(this.root);
+    try {
+      builder.scan();
+      fail("Duplicate names accepted");
+    } catch (final IllegalArgumentException expected) {
+      // expected
+    }
+    this.create("c/bad name.txt");
+    builder.addExclude("b/");
+    try {
+      builder.scan();
+      fail("Invalid name accepted");
+    } catch (final IllegalArgumentException expected) {
+      assertTrue(expected.getMessage().indexOf("bad name.txt") >= 0);
+    }
+  }
+
+  /**
+   * Ensures that symbolic links to directories are not followed, so that a
+   * link cycle neither loops nor takes the same {@link File}s twice.
+   */
+  public void testSymbolicLinks() throws IOException, InterruptedException {
+    this.create("1.0/sfutils-1.0.zip");
+    this.create("a/README.txt");
+    if (!this.link("a/loop", "..") || !this.link("latest", "1.0")) {
+      // This platform has no symbolic links.
+      return;
+    }
+    final FileReleaseBuilder builder = new FileReleaseBuilder();
+    builder.addRoot(this.root);
+    builder.setParallelism(2);
+    final FileSpecification[] specs = builder.scan();
+    assertEquals(2, specs.length);
+    assertEquals("sfutils-1.0.zip", specs[0].getFile().getName());
+    assertEquals("README.txt", specs[1].getFile().getName());
+  }
+
+}
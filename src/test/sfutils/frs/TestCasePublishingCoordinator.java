@@ -0,0 +1,454 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import sfutils.Administrator;
+import sfutils.Project;
+
+import sfutils.frs.web.FrsSimulator;
+import sfutils.frs.web.HttpUnitPublisher;
+import sfutils.frs.web.SharedSessions;
+
+/**
+ * A {@link TestCase} that publishes many {@link FileRelease}s at once through
+ * a {@link PublishingCoordinator} to a {@link FrsSimulator}.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCasePublishingCoordinator extends TestCase {
+
+  /**
+   * The {@link FrsSimulator} to publish to.
+   */
+  private FrsSimulator simulator;
+
+  /**
+   * The names of the projects being published at the moment.  Guarded by
+   * itself.
+   */
+  private final Set inFlight = new HashSet();
+
+  /**
+   * The largest number of publishes seen running at once.  Guarded by {@link
+   * #inFlight}.
+   */
+  private int peak;
+
+  /**
+   * Set if two publishes for the same project were seen running at once.
+   * Guarded by {@link #inFlight}.
+   */
+  private String overlap;
+
+  /**
+   * Creates a new {@link TestCasePublishingCoordinator}.
+   *
+   * @param      name
+   *               the name of the test to run; supplied by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will not be
+   *               <code>null</code>
+   */
+  public TestCasePublishingCoordinator(final String name) {
+    super(name);
+  }
+
+  public void setUp() throws Exception {
+    this.simulator = new FrsSimulator();
+  }
+
+  public void tearDown() throws Exception {
+    this.simulator.shutDown();
+  }
+
+  private FileRelease createRelease(final Project project,
+                                    final String name)
+    throws IOException {
+    final Package pkg = new Package();
+    pkg.setName("core");
+    pkg.setProject(project);
+    final FileRelease release = new FileRelease();
+    release.setName(name);
+    release.setPackage(pkg);
+    release.setReleaseDate(new Date());
+    release.setReleaseNotes("Notes for " + name);
+    final File file = File.createTempFile(project.getShortName(), ".txt");
+    file.deleteOnExit();
+    final PrintWriter writer =
+      new PrintWriter(new BufferedWriter(new FileWriter(file)));
+    try {
+      writer.println("Contents of " + file.getName());
+    } finally {
+      writer.close();
+    }
+    final FileSpecification spec = new FileSpecification();
+    spec.setFile(file);
+    spec.setProcessorType(FileSpecification.PLATFORM_INDEPENDENT_PROCESSOR);
+    release.setFileSpecifications(new FileSpecification[] { spec });
+    return release;
+  }
+
+  /**
+   * Tests that two releases for each of several projects are all published,
+   * that no more publishes than the cap ever run at once, and that two
+   * publishes for one project never overlap.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testPublishAll() throws Exception {
+    final int projectCount = 12;
+    final FileRelease[] releases = new FileRelease[projectCount * 2];
+    Project project;
+    for (int i = 0; i < projectCount; i++) {
+      project = new Project();
+      project.setName("coordinated" + i);
+      project.setShortName("coordinated" + i);
+      project.setID(this.simulator.addProject("coordinated" + i,
+                                              "admin" + i, "secret"));
+      project.setAdministrator(new Administrator("admin" + i, "secret"));
+      releases[i] = this.createRelease(project, "1.0");
+      releases[projectCount + i] = this.createRelease(project, "1.1");
+    }
+
+    final Publisher target = this.simulator.newPublisher();
+    final Publisher tracker = new Publisher() {
+        public void publish(final FileRelease release)
+          throws PublishingException {
+          final String name =
+            release.getPackage().getProject().getShortName();
+          synchronized (inFlight) {
+            if (!inFlight.add(name)) {
+              overlap = name;
+            }
+            peak = Math.max(peak, inFlight.size());
+          }
+          try {
+            target.publish(release);
+          } finally {
+            synchronized (inFlight) {
+              inFlight.remove(name);
+            }
+          }
+        }
+      };
+
+    final PublishingCoordinator coordinator =
+      new PublishingCoordinator(tracker, 4, 8);
+    assertEquals(8, coordinator.getStripeCount());
+    final PublishingException[] failures;
+    try {
+      failures = coordinator.publishAll(releases);
+    } finally {
+      assertTrue(coordinator.shutDown(10000L));
+    }
+    assertEquals(Arrays.asList(new PublishingException[releases.length]),
+                 Arrays.asList(failures));
+    assertNull(this.overlap, this.overlap);
+    assertTrue(String.valueOf(this.peak), this.peak <= 4);
+    assertEquals(0, coordinator.getActiveCount());
+
+    String groupID;
+    for (int i = 0; i < projectCount; i++) {
+      groupID = releases[i].getPackage().getProject().getID();
+      assertEquals(2, this.simulator.getReleaseNames(groupID, "core").length);
+    }
+  }
+
+  /**
+   * Tests that a failed publish is reported without stopping the others.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testFailureIsolation() throws Exception {
+    final Project good = new Project();
+    good.setName("good");
+    good.setShortName("good");
+    good.setID(this.simulator.addProject("good", "gooduser", "secret"));
+    good.setAdministrator(new Administrator("gooduser", "secret"));
+    final Project bad = new Project();
+    bad.setName("bad");
+    bad.setShortName("bad");
+    bad.setID(this.simulator.addProject("bad", "baduser", "secret"));
+    bad.setAdministrator(new Administrator("baduser", "wrong"));
+
+    final PublishingCoordinator coordinator =
+      new PublishingCoordinator(this.simulator.newPublisher(), 2);
+    try {
+      final PublishingException[] failures =
+        coordinator.publishAll(new FileRelease[] {
+          this.createRelease(bad, "1.0"),
+          this.createRelease(good, "1.0")
+        });
+      assertNotNull(failures[0]);
+      assertNull(failures[1]);
+      try {
+        coordinator.publish(this.createRelease(bad, "2.0"));
+        fail("Published with bad credentials");
+      } catch (final PublishingException expected) {
+        // expected
+      }
+    } finally {
+      coordinator.shutDown(10000L);
+    }
+    assertEquals(1, this.simulator.getReleaseNames(good.getID(), "core").length);
+  }
+
+  /**
+   * Tests that releases of one project published concurrently through a
+   * publisher with {@link SharedSessions} log in only once.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testSharedLogin() throws Exception {
+    final Project project = new Project();
+    project.setName("shared");
+    project.setShortName("shared");
+    project.setID(this.simulator.addProject("shared", "shareduser", "secret"));
+    project.setAdministrator(new Administrator("shareduser", "secret"));
+    final FileRelease[] releases = new FileRelease[] {
+      this.createRelease(project, "1.0"),
+      this.createRelease(project, "1.1"),
+      this.createRelease(project, "1.2")
+    };
+
+    final HttpUnitPublisher publisher = this.simulator.newPublisher();
+    final SharedSessions sessions = new SharedSessions();
+    publisher.setSharedSessions(sessions);
+    final PublishingCoordinator coordinator =
+      new PublishingCoordinator(publisher, 3);
+    try {
+      final PublishingException[] failures = coordinator.publishAll(releases);
+      assertEquals(Arrays.asList(new PublishingException[releases.length]),
+                   Arrays.asList(failures));
+    } finally {
+      coordinator.shutDown(10000L);
+      sessions.close();
+    }
+    assertEquals(1, sessions.getLoginCount());
+    assertEquals(3, this.simulator.getReleaseNames(project.getID(), "core").length);
+  }
+
+  /**
+   * Tests that a login shared by {@link SharedSessions} is not reused by a
+   * publish that supplies the same user name with a different password.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testSharedLoginChecksPassword() throws Exception {
+    final Project project = new Project();
+    project.setName("guarded");
+    project.setShortName("guarded");
+    project.setID(this.simulator.addProject("guarded", "guardeduser", "secret"));
+    project.setAdministrator(new Administrator("guardeduser", "secret"));
+    final HttpUnitPublisher publisher = this.simulator.newPublisher();
+    final SharedSessions sessions = new SharedSessions();
+    publisher.setSharedSessions(sessions);
+    try {
+      publisher.publish(this.createRelease(project, "1.0"));
+      project.setAdministrator(new Administrator("guardeduser", "wrong"));
+      try {
+        publisher.publish(this.createRelease(project, "1.1"));
+        fail("Published with the wrong password");
+      } catch (final PublishingException expected) {
+        // expected
+      }
+    } finally {
+      sessions.close();
+    }
+    assertEquals(1, this.simulator.getReleaseNames(project.getID(), "core").length);
+  }
+
+  /**
+   * Tests that a login shared by {@link SharedSessions} that the site has
+   * ended is forgotten and established again.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testSharedLoginExpiredBySite() throws Exception {
+    final Project project = new Project();
+    project.setName("expired");
+    project.setShortName("expired");
+    project.setID(this.simulator.addProject("expired", "expireduser", "secret"));
+    project.setAdministrator(new Administrator("expireduser", "secret"));
+    final HttpUnitPublisher publisher = this.simulator.newPublisher();
+    final SharedSessions sessions = new SharedSessions();
+    publisher.setSharedSessions(sessions);
+    try {
+      publisher.publish(this.createRelease(project, "1.0"));
+      this.simulator.expireSessions();
+      publisher.publish(this.createRelease(project, "1.1"));
+    } finally {
+      sessions.close();
+    }
+    assertEquals(2, sessions.getLoginCount());
+    assertEquals(2, this.simulator.getReleaseNames(project.getID(), "core").length);
+  }
+
+  /**
+   * Tests that a login shared by {@link SharedSessions} is established again
+   * once its {@linkplain SharedSessions#getLoginTimeToLive() time to live}
+   * has passed.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testSharedLoginTimeToLive() throws Exception {
+    final Project project = new Project();
+    project.setName("shortlived");
+    project.setShortName("shortlived");
+    project.setID(this.simulator.addProject("shortlived", "shortuser", "secret"));
+    project.setAdministrator(new Administrator("shortuser", "secret"));
+    final HttpUnitPublisher publisher = this.simulator.newPublisher();
+    final SharedSessions sessions = new SharedSessions(1L);
+    publisher.setSharedSessions(sessions);
+    try {
+      publisher.publish(this.createRelease(project, "1.0"));
+      Thread.sleep(20L);
+      publisher.publish(this.createRelease(project, "1.1"));
+    } finally {
+      sessions.close();
+    }
+    assertEquals(2, sessions.getLoginCount());
+  }
+
+  /**
+   * Tests that a coordinator that is not {@linkplain
+   * PublishingCoordinator#isProjectExclusive() exclusive per project} runs
+   * two releases of one project at once.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testReleaseExclusion() throws Exception {
+    final Project project = new Project();
+    project.setName("parallel");
+    project.setShortName("parallel");
+    project.setAdministrator(new Administrator("user", "secret"));
+    final CountDownLatch bothRunning = new CountDownLatch(2);
+    final Publisher rendezvous = new Publisher() {
+        public void publish(final FileRelease release)
+          throws PublishingException {
+          bothRunning.countDown();
+          try {
+            if (!bothRunning.await(10L, TimeUnit.SECONDS)) {
+              throw new PublishingException("Publishes were serialized");
+            }
+          } catch (final InterruptedException kaboom) {
+            throw new PublishingException(kaboom);
+          }
+        }
+      };
+    final PublishingCoordinator coordinator =
+      new PublishingCoordinator(rendezvous, 2,
+                                PublishingCoordinator.DEFAULT_STRIPE_COUNT,
+                                false);
+    assertFalse(coordinator.isProjectExclusive());
+    try {
+      final PublishingException[] failures =
+        coordinator.publishAll(new FileRelease[] {
+          this.createRelease(project, "1.0"),
+          this.createRelease(project, "1.1")
+        });
+      assertNull(failures[0]);
+      assertNull(failures[1]);
+    } finally {
+      coordinator.shutDown(10000L);
+    }
+  }
+
+  /**
+   * Tests that publishes waiting for a busy {@link Project} do not occupy
+   * the worker threads that a publish for another {@link Project} needs.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testStripeQueueing() throws Exception {
+    final Project busy = new Project();
+    busy.setName("busy");
+    busy.setShortName("busy");
+    busy.setAdministrator(new Administrator("user", "secret"));
+    final Project other = new Project();
+    other.setName("other");
+    other.setShortName("other");
+    other.setAdministrator(new Administrator("user", "secret"));
+    final CountDownLatch unblock = new CountDownLatch(1);
+    final Publisher blocking = new Publisher() {
+        public void publish(final FileRelease release)
+          throws PublishingException {
+          if (release.getPackage().getProject() == busy) {
+            try {
+              unblock.await(10L, TimeUnit.SECONDS);
+            } catch (final InterruptedException kaboom) {
+              throw new PublishingException(kaboom);
+            }
+          }
+        }
+      };
+    final PublishingCoordinator coordinator =
+      new PublishingCoordinator(blocking, 2);
+    try {
+      final Future first =
+        coordinator.submit(this.createRelease(busy, "1.0"));
+      final Future second =
+        coordinator.submit(this.createRelease(busy, "1.1"));
+      coordinator.submit(this.createRelease(other, "1.0")).get(5L, TimeUnit.SECONDS);
+      assertFalse(first.isDone());
+      assertFalse(second.isDone());
+      unblock.countDown();
+      first.get(10L, TimeUnit.SECONDS);
+      second.get(10L, TimeUnit.SECONDS);
+    } finally {
+      unblock.countDown();
+      coordinator.shutDown(10000L);
+    }
+  }
+
+}
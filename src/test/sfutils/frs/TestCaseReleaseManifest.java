@@ -0,0 +1,325 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import sfutils.Administrator;
+import sfutils.Project;
+
+/**
+ * A {@link TestCase} that exercises the {@link ReleaseManifest}.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCaseReleaseManifest extends TestCase {
+
+  /**
+   * The temporary directory holding the released files.
+   */
+  private File root;
+
+  /**
+   * Creates a new {@link TestCaseReleaseManifest}.
+   *
+   * @param      name
+   *               the name of the test to run; supplied by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will not be
+   *               <code>null</code>
+   */
+  public TestCaseReleaseManifest(final String name) {
+    super(name);
+  }
+
+  /**
+   * Creates an empty temporary directory.
+   *
+   * @exception  IOException
+   *               if the directory could not be created
+   */
+  protected void setUp() throws IOException {
+    this.root = File.createTempFile("TEST", "");
+    assertTrue(this.root.delete());
+    assertTrue(this.root.mkdir());
+  }
+
+  /**
+   * Deletes the temporary directory.
+   */
+  protected void tearDown() {
+    final File[] children = this.root.listFiles();
+    if (children != null) {
+      for (int i = 0; i < children.length; i++) {
+        children[i].delete();
+      }
+    }
+    this.root.delete();
+  }
+
+  /**
+   * Creates a {@link File} with some content in the temporary directory.
+   *
+   * @param      name
+   *               the name; must not be <code>null</code>
+   * @return     the new {@link File}; never <code>null</code>
+   * @exception  IOException
+   *               if the {@link File} could not be written
+   */
+  private File create(final String name) throws IOException {
+    final File file = new File(this.root, name);
+    final OutputStream out = new FileOutputStream(file);
+    try {
+      out.write("Some content for this file".getBytes());
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  /**
+   * Returns two {@link FileRelease}s in one {@link Package} and a third in
+   * another, all of one {@link Project}.
+   *
+   * @return     a {@link List} of {@link FileRelease}s; never
+   *               <code>null</code>
+   * @exception  IOException
+   *               if the released {@link File}s could not be written
+   */
+  private List createReleases() throws IOException {
+    final Administrator admin = new Administrator();
+    admin.setName("username");
+    admin.setPassword("password");
+    final Project project = new Project("My Project", "myproj", admin);
+    final Package core = new Package(project, "core");
+    final Package docs = new Package(project, "docs");
+    docs.setHidden(true);
+
+    final List releases = new ArrayList();
+    FileRelease release = new FileRelease(core, "core-1.0");
+    release.setReleaseDate(new Date(1057000000000L));
+    release.setReleaseNotes("Line one\nLine \"two\" \u00e9\u20ac");
+    release.setChangeLogFile(this.create("ChangeLog"));
+    FileSpecification spec = new FileSpecification(this.create("core-1.0.jar"));
+    spec.setProcessorType(FileSpecification.PLATFORM_INDEPENDENT_PROCESSOR);
+    release.setFileSpecifications(new FileSpecification[] {
+      spec,
+      new FileSpecification(this.create("core-1.0-src.tar.gz"))
+    });
+    releases.add(release);
+
+    release = new FileRelease(core, "core-1.1");
+    release.setNotifyOthers(false);
+    spec = new FileSpecification(this.create("core-1.1.txt"));
+    spec.setFileType(FileSpecification.OTHER_FILE);
+    release.setFileSpecifications(new FileSpecification[] { spec });
+    releases.add(release);
+
+    release = new FileRelease(docs, "docs-1.0");
+    release.setHidden(true);
+    release.setPreserveFormattedText(false);
+    releases.add(release);
+    return releases;
+  }
+
+  /**
+   * Writes the supplied {@link FileRelease}s in the supplied format and
+   * reads them back.
+   *
+   * @param      releases
+   *               the {@link FileRelease}s; must not be <code>null</code>
+   * @param      format
+   *               the format
+   * @return     the {@link FileRelease}s read; never <code>null</code>
+   * @exception  PublishingException
+   *               if the manifest could not be written or read
+   */
+  private static List roundTrip(final List releases, final int format)
+    throws PublishingException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ReleaseManifest.write(releases, out, format);
+    return ReleaseManifest.readAll(new ByteArrayInputStream(out.toByteArray()));
+  }
+
+  /**
+   * Ensures that the supplied {@link FileRelease}s survived a round trip.
+   *
+   * @param      expected
+   *               the {@link FileRelease}s written; must not be
+   *               <code>null</code>
+   * @param      actual
+   *               the {@link FileRelease}s read; must not be
+   *               <code>null</code>
+   */
+  private static void assertSame(final List expected, final List actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      final FileRelease one = (FileRelease)expected.get(i);
+      final FileRelease two = (FileRelease)actual.get(i);
+      assertEquals(one.getName(), two.getName());
+      assertEquals(one.isHidden(), two.isHidden());
+      assertEquals(one.getReleaseDate(), two.getReleaseDate());
+      assertEquals(one.getNotifyOthers(), two.getNotifyOthers());
+      assertEquals(one.getPreserveFormattedText(),
+                   two.getPreserveFormattedText());
+      assertEquals(one.getReleaseNotes(), two.getReleaseNotes());
+      assertEquals(one.getChangeLogFile(), two.getChangeLogFile());
+      assertEquals(one.getPackage().getName(), two.getPackage().getName());
+      assertEquals(one.getPackage().isHidden(), two.getPackage().isHidden());
+      assertEquals(one.getPackage().getProject().getShortName(),
+                   two.getPackage().getProject().getShortName());
+      assertEquals(one.getPackage().getProject().getAdministrator().getName(),
+                   two.getPackage().getProject().getAdministrator().getName());
+      assertEquals(one.getFileSpecificationCount(),
+                   two.getFileSpecificationCount());
+      final FileSpecification[] specs = one.getFileSpecifications();
+      for (int j = 0; j < specs.length; j++) {
+        final FileSpecification spec =
+          two.getFileSpecification(specs[j].getFile().getName());
+        assertNotNull(spec);
+        assertEquals(specs[j].getFile(), spec.getFile());
+        assertEquals(specs[j].getFileType(), spec.getFileType());
+        assertEquals(specs[j].getProcessorType(), spec.getProcessorType());
+        assertEquals(specs[j].getReleaseDate(), spec.getReleaseDate());
+      }
+    }
+    final FileRelease first = (FileRelease)actual.get(0);
+    final FileRelease second = (FileRelease)actual.get(1);
+    final FileRelease third = (FileRelease)actual.get(2);
+    assertTrue(first.getPackage() == second.getPackage());
+    assertTrue(first.getPackage() != third.getPackage());
+    assertTrue(first.getPackage().getProject() ==
+               third.getPackage().getProject());
+  }
+
+  /**
+   * Ensures that {@link FileRelease}s survive a round trip through a JSON
+   * manifest.
+   *
+   * @exception  Exception
+   *               if an error occurs
+   */
+  public void testJsonRoundTrip() throws Exception {
+    final List releases = this.createReleases();
+    assertSame(releases, roundTrip(releases, ReleaseManifest.JSON));
+  }
+
+  /**
+   * Ensures that {@link FileRelease}s survive a round trip through a binary
+   * manifest, which is the smaller.
+   *
+   * @exception  Exception
+   *               if an error occurs
+   */
+  public void testBinaryRoundTrip() throws Exception {
+    final List releases = this.createReleases();
+    assertSame(releases, roundTrip(releases, ReleaseManifest.BINARY));
+    final ByteArrayOutputStream json = new ByteArrayOutputStream();
+    ReleaseManifest.write(releases, json, ReleaseManifest.JSON);
+    final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+    ReleaseManifest.write(releases, binary, ReleaseManifest.BINARY);
+    assertTrue(binary.size() < json.size() / 2);
+  }
+
+  /**
+   * Ensures that a hand-written JSON manifest is read, that types may be
+   * named loosely or inferred, and that a {@link ReleaseManifest.Handler}
+   * may stop reading early.
+   *
+   * @exception  Exception
+   *               if an error occurs
+   */
+  public void testHandWritten() throws Exception {
+    final File file = this.create("hand-src.zip");
+    final String json =
+      "{ \"projects\": [ { \"name\": \"P\", \"unknown\": [1, {\"a\": null}],\n" +
+      "  \"administrator\": { \"name\": \"u\", \"password\": \"p\" },\n" +
+      "  \"packages\": [ { \"name\": \"pkg\", \"releases\": [\n" +
+      "   { \"name\": \"r1\", \"files\": [ { \"file\": \"" +
+      file.getPath().replace("\\", "\\\\") + "\" } ] },\n" +
+      "   { \"name\": \"r2\", \"files\": [ { \"file\": \"" +
+      file.getPath().replace("\\", "\\\\") + "\",\n" +
+      "      \"fileType\": \"text file\", \"processorType\": 8500 } ] },\n" +
+      "   { \"name\": \"r3\" } ] } ] } ] }";
+    final List releases = new ArrayList();
+    final int count =
+      ReleaseManifest.read(new ByteArrayInputStream(json.getBytes("UTF-8")),
+                           new ReleaseManifest.Handler() {
+                             public boolean handle(final FileRelease release) {
+                               releases.add(release);
+                               return releases.size() < 2;
+                             }
+                           });
+    assertEquals(2, count);
+    final FileRelease r1 = (FileRelease)releases.get(0);
+    assertEquals("p", r1.getPackage().getProject().getAdministrator().getPassword());
+    assertEquals(FileSpecification.SOURCE_ZIP_FILE,
+                 r1.getFileSpecification("hand-src.zip").getFileType());
+    final FileRelease r2 = (FileRelease)releases.get(1);
+    final FileSpecification spec = r2.getFileSpecification("hand-src.zip");
+    assertEquals(FileSpecification.TEXT_FILE, spec.getFileType());
+    assertEquals(FileSpecification.PLATFORM_INDEPENDENT_PROCESSOR,
+                 spec.getProcessorType());
+  }
+
+  /**
+   * Ensures that malformed manifests and missing files are reported.
+   */
+  public void testMalformed() {
+    final String[] manifests = new String[] {
+      "{\"projects\":[{\"packages\":[{\"releases\":[{\"name\":\"r\"]}]}]}",
+      "{\"projects\":[{\"packages\":[{\"releases\":[{\"files\":[{}]}]}]}]}",
+      "{\"projects\":[{\"packages\":[{\"releases\":[{\"files\":" +
+      "[{\"file\":\"/no/such/file.zip\"}]}]}]}]}",
+      "{\"projects\":[{\"packages\":[{\"releases\":[{\"files\":" +
+      "[{\"file\":\"x\",\"fileType\":\"NO_SUCH_TYPE\"}]}]}]}]}",
+      "{\"projects\":[",
+      "SFRM\u0001\u0003"
+    };
+    for (int i = 0; i < manifests.length; i++) {
+      try {
+        ReleaseManifest.readAll(new ByteArrayInputStream(manifests[i].getBytes()));
+        fail("Read " + manifests[i]);
+      } catch (final PublishingException expected) {
+        // expected
+      }
+    }
+  }
+
+}
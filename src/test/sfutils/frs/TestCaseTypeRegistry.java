@@ -0,0 +1,218 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * A {@link TestCase} that exercises the {@link TypeRegistry}.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCaseTypeRegistry extends TestCase {
+
+  /**
+   * Creates a new {@link TestCaseTypeRegistry}.
+   *
+   * @param      name
+   *               the name of the test to run; supplied by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will not be
+   *               <code>null</code>
+   */
+  public TestCaseTypeRegistry(final String name) {
+    super(name);
+  }
+
+  /**
+   * Creates an empty temporary {@link File} with the supplied suffix that
+   * will be deleted when the virtual machine exits.  This method never
+   * returns <code>null</code>.
+   *
+   * @param      suffix
+   *               the suffix; must not be <code>null</code>
+   * @return     the new {@link File}; never <code>null</code>
+   * @exception  IOException
+   *               if the {@link File} could not be created
+   */
+  private File createTempFile(final String suffix) throws IOException {
+    final File file = File.createTempFile("TEST", suffix);
+    assertNotNull(file);
+    file.deleteOnExit();
+    return file;
+  }
+
+  /**
+   * Ensures that type names resolve regardless of case, surrounding
+   * whitespace, spaces in place of underscores and the presence of the
+   * constant's suffix.
+   */
+  public void testNames() {
+    assertEquals(FileSpecification.BINARY_ZIP_FILE,
+                 TypeRegistry.getFileType("binary zip"));
+    assertEquals(FileSpecification.BINARY_ZIP_FILE,
+                 TypeRegistry.getFileType(" BINARY_ZIP_FILE "));
+    assertEquals(FileSpecification.OTHER_FILE,
+                 TypeRegistry.getFileType("Other"));
+    assertEquals(FileSpecification.I386_PROCESSOR,
+                 TypeRegistry.getProcessorType("i386"));
+    assertEquals(FileSpecification.PLATFORM_INDEPENDENT_PROCESSOR,
+                 TypeRegistry.getProcessorType("platform independent"));
+    assertEquals(TypeRegistry.UNKNOWN, TypeRegistry.getFileType("i386"));
+    assertEquals(TypeRegistry.UNKNOWN, TypeRegistry.getFileType("binary"));
+    assertEquals(TypeRegistry.UNKNOWN, TypeRegistry.getFileType("  "));
+    assertEquals(TypeRegistry.UNKNOWN, TypeRegistry.getProcessorType(null));
+    assertEquals("BINARY_ZIP_FILE",
+                 TypeRegistry.getFileTypeName(FileSpecification.BINARY_ZIP_FILE));
+    assertEquals("I386_PROCESSOR",
+                 TypeRegistry.getProcessorTypeName(FileSpecification.I386_PROCESSOR));
+    assertNull(TypeRegistry.getFileTypeName(-1));
+  }
+
+  /**
+   * Ensures that codes are validated against the constants declared by
+   * {@link FileSpecification}.
+   */
+  public void testCodes() {
+    assertTrue(TypeRegistry.isFileType(FileSpecification.MACBINARY_FILE));
+    assertTrue(TypeRegistry.isFileType(FileSpecification.OTHER_FILE));
+    assertFalse(TypeRegistry.isFileType(TypeRegistry.UNKNOWN));
+    assertFalse(TypeRegistry.isFileType(4));
+    assertTrue(TypeRegistry.isProcessorType(FileSpecification.ANY_PROCESSOR));
+    assertFalse(TypeRegistry.isProcessorType(FileSpecification.OTHER_FILE));
+  }
+
+  /**
+   * Ensures that filename suffixes map to {@link File} types regardless of
+   * case, and that {@link FileSpecification} uses them.
+   */
+  public void testSuffixes() throws IOException {
+    assertEquals(FileSpecification.BINARY_GZIP_FILE,
+                 TypeRegistry.getFileTypeForName("sfutils-1.0.TGZ"));
+    assertEquals(FileSpecification.SOURCE_Z_FILE,
+                 TypeRegistry.getFileTypeForName("sfutils.Z"));
+    assertEquals(TypeRegistry.UNKNOWN,
+                 TypeRegistry.getFileTypeForName("README"));
+    assertEquals(TypeRegistry.UNKNOWN,
+                 TypeRegistry.getFileTypeForName("sfutils."));
+    assertEquals(TypeRegistry.UNKNOWN,
+                 TypeRegistry.getFileTypeForName("sfutils.tar.xz"));
+    assertEquals(FileSpecification.JAR_FILE,
+                 FileSpecification.computeFileType(createTempFile(".JAR")));
+    assertEquals(FileSpecification.OTHER_FILE,
+                 FileSpecification.computeFileType(createTempFile(".xz")));
+    assertEquals(new Integer(FileSpecification.DEBIAN_PACKAGE_FILE),
+                 FileSpecification.SUFFIX_TO_FILE_TYPE_MAP.get(".deb"));
+  }
+
+  /**
+   * Ensures that the longest compound suffix a filename ends with wins.
+   */
+  public void testCompoundSuffixes() {
+    assertEquals(FileSpecification.SOURCE_GZIP_FILE,
+                 TypeRegistry.getFileTypeForName("foo-src.tar.gz"));
+    assertEquals(FileSpecification.SOURCE_BZ2_FILE,
+                 TypeRegistry.getFileTypeForName("foo.tar.bz2"));
+    assertEquals(FileSpecification.SOURCE_ZIP_FILE,
+                 TypeRegistry.getFileTypeForName("foo-SRC.zip"));
+    assertEquals(FileSpecification.BINARY_ZIP_FILE,
+                 TypeRegistry.getFileTypeForName("foo-bin.zip"));
+    assertEquals(FileSpecification.SOURCE_REDHAT_PACKAGE_FILE,
+                 TypeRegistry.getFileTypeForName("foo-1.0.src.rpm"));
+    assertEquals(FileSpecification.BINARY_REDHAT_PACKAGE_FILE,
+                 TypeRegistry.getFileTypeForName("foo-1.0.i386.rpm"));
+    assertEquals(FileSpecification.SOURCE_Z_FILE,
+                 TypeRegistry.getFileTypeForName("foo.tar.Z"));
+    assertEquals(FileSpecification.BINARY_GZIP_FILE,
+                 TypeRegistry.getFileTypeForName("foo.gz"));
+    assertEquals(FileSpecification.BINARY_GZIP_FILE,
+                 TypeRegistry.getFileTypeForName("footar.gz"));
+  }
+
+  /**
+   * Ensures that a configured {@link SuffixClassifier} replaces and can be
+   * restored to the default.
+   */
+  public void testSuffixClassifier() {
+    final SuffixClassifier defaults =
+      TypeRegistry.getDefaultSuffixClassifier();
+    assertSame(defaults, TypeRegistry.getSuffixClassifier());
+    final Map suffixes = defaults.toMap();
+    assertEquals(defaults.size(), suffixes.size());
+    suffixes.put(".TAR.XZ", new Integer(FileSpecification.OTHER_SOURCE_FILE));
+    suffixes.put("-docs.zip", new Integer(FileSpecification.HTML_FILE));
+    TypeRegistry.setSuffixClassifier(new SuffixClassifier(suffixes));
+    try {
+      assertEquals(FileSpecification.OTHER_SOURCE_FILE,
+                   TypeRegistry.getFileTypeForName("foo.tar.xz"));
+      assertEquals(FileSpecification.HTML_FILE,
+                   TypeRegistry.getFileTypeForName("foo-docs.zip"));
+      assertEquals(FileSpecification.SOURCE_GZIP_FILE,
+                   TypeRegistry.getFileTypeForName("foo.tar.gz"));
+    } finally {
+      TypeRegistry.setSuffixClassifier(null);
+    }
+    assertSame(defaults, TypeRegistry.getSuffixClassifier());
+    assertEquals(TypeRegistry.UNKNOWN,
+                 TypeRegistry.getFileTypeForName("foo.tar.xz"));
+    try {
+      suffixes.put("", new Integer(FileSpecification.OTHER_FILE));
+      new SuffixClassifier(suffixes);
+      fail("Empty suffix accepted");
+    } catch (final IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  /**
+   * Ensures that {@link FileSpecification#setFileTypeString(String)} and
+   * {@link FileSpecification#setProcessorTypeString(String)} resolve through
+   * the registry and reject unknown names.
+   */
+  public void testFileSpecification() {
+    final FileSpecification spec = new FileSpecification();
+    spec.setFileTypeString("source gzip");
+    assertEquals(FileSpecification.SOURCE_GZIP_FILE, spec.getFileType());
+    spec.setProcessorTypeString("sparc");
+    assertEquals(FileSpecification.SPARC_PROCESSOR, spec.getProcessorType());
+    spec.setProcessorType(12345);
+    assertEquals(FileSpecification.ANY_PROCESSOR, spec.getProcessorType());
+    try {
+      spec.setFileTypeString("no such");
+      fail("Unknown file type accepted");
+    } catch (final IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,1904 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs.web;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import sfutils.MetadataStore;
+
+import sfutils.frs.FileRelease;
+import sfutils.frs.FileSpecification;
+
+/**
+ * An in-process simulator of the <a
+ * href="http://sourceforge.net/">SourceForge</a> file release system.  A
+ * {@link FrsSimulator} listens on a local port and serves stateful versions of
+ * the login, "edit packages", "edit releases" (including the four "steps" of
+ * the "edit release" page) and "new release" pages that the {@link
+ * HttpUnitPublisher} drives, and keeps an upload area on the local disk that
+ * stands in for the SFTP server.  Every connection is handled on its own
+ * thread and every simulated project is guarded by its own lock, so hundreds
+ * of projects may be published to one {@link FrsSimulator} concurrently.
+ *
+ * <p>A {@link FrsSimulator} also counts the requests it serves, so tests can
+ * make assertions about how many round trips a publishing operation cost,
+ * and remembers the {@linkplain #getFirstError() first error} it ran into
+ * while serving them, so tests can check that there was none.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class FrsSimulator {
+
+  /**
+   * The name of the cookie that carries a logged-in user's session.
+   */
+  public static final String SESSION_COOKIE = "session_ser";
+
+  /**
+   * The {@link Logger} used by this class.  This field is never
+   * <code>null</code>.
+   */
+  private static final Logger LOGGER =
+    Logger.getLogger(FrsSimulator.class.getName());
+
+  /**
+   * The {@link FileSpecification} file type assigned to files that have been
+   * added to a release but not yet edited.
+   */
+  public static final int DEFAULT_FILE_TYPE = FileSpecification.OTHER_FILE;
+
+  /**
+   * The {@link FileSpecification} processor type assigned to files that have
+   * been added to a release but not yet edited.
+   */
+  public static final int DEFAULT_PROCESSOR_TYPE =
+    FileSpecification.ANY_PROCESSOR;
+
+  /**
+   * The value of the <code>status_id</code> parameter that denotes an active
+   * package or release.
+   */
+  private static final String ACTIVE = "1";
+
+  /**
+   * The value of the <code>status_id</code> parameter that denotes a hidden
+   * package or release.
+   */
+  private static final String HIDDEN = "3";
+
+  /**
+   * The path of the login page.
+   */
+  private static final String LOGIN = "/account/login.php";
+
+  /**
+   * The path of the "edit packages" page.
+   */
+  private static final String EDIT_PACKAGES = "/project/admin/editpackages.php";
+
+  /**
+   * The path of the "edit releases" and "edit release" pages.
+   */
+  private static final String EDIT_RELEASES = "/project/admin/editreleases.php";
+
+  /**
+   * The path of the "new release" page.
+   */
+  private static final String NEW_RELEASE = "/project/admin/newrelease.php";
+
+  /**
+   * The character encoding used to read requests and write responses.
+   */
+  private static final String ENCODING = "ISO-8859-1";
+
+  /**
+   * The sorted values of all the file type constants declared by {@link
+   * FileSpecification}.  This field is never <code>null</code>.
+   */
+  private static final int[] FILE_TYPES;
+
+  /**
+   * The sorted values of all the processor type constants declared by {@link
+   * FileSpecification}.  This field is never <code>null</code>.
+   */
+  private static final int[] PROCESSOR_TYPES;
+
+  /**
+   * Static initializer; collects the file and processor type constants
+   * declared by {@link FileSpecification} so that the "edit release" page can
+   * offer them.
+   */
+  static {
+    final List fileTypes = new ArrayList();
+    final List processorTypes = new ArrayList();
+    final Field[] fields = FileSpecification.class.getFields();
+    Field field;
+    int modifiers;
+    for (int i = 0; i < fields.length; i++) {
+      field = fields[i];
+      modifiers = field.getModifiers();
+      if (Modifier.isStatic(modifiers) && field.getType() == Integer.TYPE) {
+        try {
+          if (field.getName().endsWith("_PROCESSOR")) {
+            processorTypes.add(field.get(null));
+          } else if (field.getName().endsWith("_FILE")) {
+            fileTypes.add(field.get(null));
+          }
+        } catch (final IllegalAccessException cannotHappen) {
+          throw new IllegalStateException(cannotHappen.toString());
+        }
+      }
+    }
+    FILE_TYPES = toSortedArray(fileTypes);
+    PROCESSOR_TYPES = toSortedArray(processorTypes);
+  }
+
+  /**
+   * The {@link ServerSocket} on which this {@link FrsSimulator} accepts
+   * connections.  This field is never <code>null</code>.
+   */
+  private final ServerSocket serverSocket;
+
+  /**
+   * The directory that stands in for the root of the SFTP upload area.  This
+   * field is never <code>null</code>.
+   */
+  private final File uploadRoot;
+
+  /**
+   * The memory-only {@link MetadataStore} handed to {@linkplain
+   * #newPublisher() new publishers}, so that tests neither read nor write the
+   * user's real one.  This field is never <code>null</code>.
+   */
+  private final MetadataStore metadataStore = new MetadataStore(null);
+
+  /**
+   * A synchronized {@link Map} of {@link ProjectState}s indexed by their
+   * group identifiers.  This field is never <code>null</code>.
+   */
+  private final Map projects;
+
+  /**
+   * A synchronized {@link Map} of user names indexed by session identifiers.
+   * This field is never <code>null</code>.
+   */
+  private final Map sessions;
+
+  /**
+   * The source of session identifiers.  This field is never
+   * <code>null</code> and must be synchronized on before use.
+   */
+  private final Random random;
+
+  /**
+   * The next identifier to hand out to a project, package, release or file.
+   * Guarded by <code>this</code>.
+   */
+  private int nextID;
+
+  /**
+   * The number of <code>GET</code> requests served.  Guarded by
+   * <code>this</code>.
+   */
+  private int getCount;
+
+  /**
+   * The number of <code>POST</code> requests served.  Guarded by
+   * <code>this</code>.
+   */
+  private int postCount;
+
+  /**
+   * Whether this {@link FrsSimulator} is still accepting connections.
+   */
+  private volatile boolean active;
+
+  /**
+   * The first error this {@link FrsSimulator} ran into while accepting or
+   * serving a connection, or <code>null</code> if there has been none.
+   * Guarded by <code>this</code>.
+   */
+  private Throwable firstError;
+
+  /**
+   * Creates a new {@link FrsSimulator} listening on an ephemeral port of the
+   * loopback interface, with a fresh, empty upload area in the system's
+   * temporary directory.
+   *
+   * @exception  IOException
+   *               if the server socket or upload area could not be created
+   */
+  public FrsSimulator() throws IOException {
+    super();
+    final File marker = File.createTempFile("FrsSimulator_", ".root");
+    if (!marker.delete() || !marker.mkdirs()) {
+      throw new IOException("Could not create " + marker);
+    }
+    this.uploadRoot = marker;
+    this.projects = Collections.synchronizedMap(new HashMap());
+    this.sessions = Collections.synchronizedMap(new HashMap());
+    this.random = new Random();
+    this.nextID = 1000;
+    this.serverSocket =
+      new ServerSocket(0, 256, InetAddress.getByName("127.0.0.1"));
+    this.active = true;
+    final Thread acceptor = new Thread("FrsSimulator acceptor") {
+        public void run() {
+          accept();
+        }
+      };
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  /**
+   * Returns the base URL of this {@link FrsSimulator}, suitable for passing to
+   * {@link HttpUnitPublisher#setSiteURL(String)}.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     the base URL, without a trailing slash; never
+   *               <code>null</code>
+   */
+  public String getSiteURL() {
+    return "http://127.0.0.1:" + this.serverSocket.getLocalPort();
+  }
+
+  /**
+   * Returns the directory that stands in for the root of the SFTP upload
+   * area.  This method never returns <code>null</code>.
+   *
+   * @return     the upload root; never <code>null</code>
+   */
+  public File getUploadRoot() {
+    return this.uploadRoot;
+  }
+
+  /**
+   * Registers a new project with this {@link FrsSimulator} and returns its
+   * group identifier.
+   *
+   * @param      name
+   *               the name of the project; used, lowercased, to lay out its
+   *               upload area; must not be <code>null</code>
+   * @param      userName
+   *               the name of the project's administrator; must not be
+   *               <code>null</code>
+   * @param      password
+   *               the administrator's password; must not be <code>null</code>
+   * @return     the new project's group identifier; never <code>null</code>
+   */
+  public String addProject(final String name,
+                           final String userName,
+                           final String password) {
+    if (name == null || userName == null || password == null) {
+      throw new IllegalArgumentException("null argument");
+    }
+    final ProjectState project =
+      new ProjectState(this.newID(), name, userName, password);
+    this.projects.put(project.groupID, project);
+    return project.groupID;
+  }
+
+  /**
+   * Returns <code>true</code> if the supplied user name and password belong
+   * to the administrator of any registered project.
+   *
+   * @param      userName
+   *               the user name; may be <code>null</code>
+   * @param      password
+   *               the password; may be <code>null</code>
+   * @return     <code>true</code> if the credentials are valid
+   */
+  public boolean authenticate(final String userName, final String password) {
+    if (userName == null || password == null) {
+      return false;
+    }
+    synchronized (this.projects) {
+      final Iterator iterator = this.projects.values().iterator();
+      ProjectState project;
+      while (iterator.hasNext()) {
+        project = (ProjectState)iterator.next();
+        if (userName.equals(project.userName) &&
+            password.equals(project.password)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the directory in the simulated upload area into which the files
+   * of the named release of the project with the supplied group identifier
+   * are uploaded.  The layout matches {@link
+   * HttpUnitPublisher#getUploadPath(FileRelease)}.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      groupID
+   *               the project's group identifier; must not be
+   *               <code>null</code>
+   * @param      releaseName
+   *               the release name; must not be <code>null</code>
+   * @return     the upload directory; never <code>null</code>
+   */
+  public File getUploadDirectory(final String groupID,
+                                 final String releaseName) {
+    final String name = this.project(groupID).name.toLowerCase();
+    final StringBuffer path = new StringBuffer();
+    path.append(name.substring(0, 1));
+    path.append("/");
+    path.append(name.substring(0, Math.min(2, name.length())));
+    path.append("/");
+    path.append(name);
+    path.append("/");
+    path.append(name);
+    path.append("/");
+    path.append(releaseName);
+    return new File(this.uploadRoot, path.toString());
+  }
+
+  /**
+   * Returns the {@link MetadataStore} that {@linkplain #newPublisher() new
+   * publishers} record identifiers in.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     the {@link MetadataStore}; never <code>null</code>
+   */
+  public MetadataStore getMetadataStore() {
+    return this.metadataStore;
+  }
+
+  /**
+   * Returns a new {@link HttpUnitPublisher} that publishes to this {@link
+   * FrsSimulator}.  The publisher has its {@linkplain
+   * HttpUnitPublisher#isWebStepsEnabled() web steps enabled}, and its SFTP
+   * upload is replaced by a local copy into the {@linkplain #getUploadRoot()
+   * upload area}, after the credentials have been {@linkplain
+   * #authenticate(String, String) checked}.  This method never returns
+   * <code>null</code>.
+   *
+   * @return     a new {@link HttpUnitPublisher}; never <code>null</code>
+   */
+  public HttpUnitPublisher newPublisher() {
+    final HttpUnitPublisher publisher = new HttpUnitPublisher() {
+        public void uploadSFTP(final FileRelease release,
+                               final File[] files,
+                               final String userName,
+                               final String password)
+          throws IOException {
+          if (!authenticate(userName, password)) {
+            throw new IOException("Authentication failed.");
+          }
+          final File directory = new File(this.getUploadDirectory(release));
+          if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+          }
+          for (int i = 0; i < files.length; i++) {
+            copy(files[i], new File(directory, files[i].getName()));
+          }
+        }
+      };
+    publisher.setSiteURL(this.getSiteURL());
+    publisher.setUploadRoot(this.uploadRoot.getAbsolutePath());
+    publisher.setWebStepsEnabled(true);
+    publisher.setMetadataStore(this.metadataStore);
+    return publisher;
+  }
+
+  /**
+   * Returns the total number of requests served so far.
+   *
+   * @return     the number of requests served
+   */
+  public synchronized int getRequestCount() {
+    return this.getCount + this.postCount;
+  }
+
+  /**
+   * Returns the number of <code>GET</code> requests served so far.
+   *
+   * @return     the number of <code>GET</code> requests served
+   */
+  public synchronized int getGetCount() {
+    return this.getCount;
+  }
+
+  /**
+   * Returns the number of <code>POST</code> requests served so far.
+   *
+   * @return     the number of <code>POST</code> requests served
+   */
+  public synchronized int getPostCount() {
+    return this.postCount;
+  }
+
+  /**
+   * Resets all request counters to <code>0</code>.
+   */
+  public synchronized void resetCounts() {
+    this.getCount = 0;
+    this.postCount = 0;
+  }
+
+  /**
+   * Ends every login session, as the site does with idle ones, so that
+   * requests carrying an old session cookie are denied.
+   */
+  public void expireSessions() {
+    this.sessions.clear();
+  }
+
+  /**
+   * Returns the names of the packages of the project with the supplied group
+   * identifier, in creation order.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      groupID
+   *               the project's group identifier; must not be
+   *               <code>null</code>
+   * @return     the package names; never <code>null</code>
+   */
+  public String[] getPackageNames(final String groupID) {
+    final ProjectState project = this.project(groupID);
+    synchronized (project) {
+      final String[] names = new String[project.packages.size()];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = ((PackageState)project.packages.get(i)).name;
+      }
+      return names;
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if the named package is hidden.
+   *
+   * @param      groupID
+   *               the project's group identifier; must not be
+   *               <code>null</code>
+   * @param      packageName
+   *               the name of an existing package; must not be
+   *               <code>null</code>
+   * @return     <code>true</code> if the package is hidden
+   */
+  public boolean isPackageHidden(final String groupID,
+                                 final String packageName) {
+    final ProjectState project = this.project(groupID);
+    synchronized (project) {
+      return HIDDEN.equals(this.pkg(project, packageName).status);
+    }
+  }
+
+  /**
+   * Returns the names of the releases of the named package, in creation
+   * order.  This method never returns <code>null</code>.
+   *
+   * @param      groupID
+   *               the project's group identifier; must not be
+   *               <code>null</code>
+   * @param      packageName
+   *               the name of an existing package; must not be
+   *               <code>null</code>
+   * @return     the release names; never <code>null</code>
+   */
+  public String[] getReleaseNames(final String groupID,
+                                  final String packageName) {
+    final ProjectState project = this.project(groupID);
+    synchronized (project) {
+      final PackageState pkg = this.pkg(project, packageName);
+      final String[] names = new String[pkg.releases.size()];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = ((ReleaseState)pkg.releases.get(i)).name;
+      }
+      return names;
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if the named release is hidden.
+   *
+   * @param      groupID
+   *               the project's group identifier; must not be
+   *               <code>null</code>
+   * @param      packageName
+   *               the name of an existing package; must not be
+   *               <code>null</code>
+   * @param      releaseName
+   *               the name of an existing release; must not be
+   *               <code>null</code>
+   * @return     <code>true</code> if the release is hidden
+   */
+  public boolean isReleaseHidden(final String groupID,
+                                 final String packageName,
+                                 final String releaseName) {
+    final ProjectState project = this.project(groupID);
+    synchronized (project) {
+      return
+        HIDDEN.equals(this.release(project, packageName, releaseName).status);
+    }
+  }
+
+  /**
+   * Returns the date of the named release as last submitted on step 1 of the
+   * "edit release" page.  This method may return <code>null</code>.
+   *
+   * @param      groupID
+   *               the project's group identifier; must not be
+   *               <code>null</code>
+   * @param      packageName
+   *               the name of an existing package; must not be
+   *               <code>null</code>
+   * @param      releaseName
+   *               the name of an existing release; must not be
+   *               <code>null</code>
+   * @return     the release date, or <code>null</code>
+   */
+  public String getReleaseDate(final String groupID,
+                               final String packageName,
+                               final String releaseName) {
+    final ProjectState project = this.project(groupID);
+    synchronized (project) {
+      return this.release(project, packageName, releaseName).date;
+    }
+  }
+
+  /**
+   * Returns the release notes of the named release.  This method may return
+   * <code>null</code>.
+   *
+   * @param      groupID
+   *               the project's group identifier; must not be
+   *               <code>null</code>
+   * @param      packageName
+   *               the name of an existing package; must not be
+   *               <code>null</code>
+   * @param      releaseName
+   *               the name of an existing release; must not be
+   *               <code>null</code>
+   * @return     the release notes, or <code>null</code>
+   */
+  public String getReleaseNotes(final String groupID,
+                                final String packageName,
+                                final String releaseName) {
+    final ProjectState project = this.project(groupID);
+    synchronized (project) {
+      return this.release(project, packageName, releaseName).notes;
+    }
+  }
+
+  /**
+   * Returns the change log of the named release.  This method may return
+   * <code>null</code>.
+   *
+   * @param      groupID
+   *               the project's group identifier; must not be
+   *               <code>null</code>
+   * @param      packageName
+   *               the name of an existing package; must not be
+   *               <code>null</code>
+   * @param      releaseName
+   *               the name of an existing release; must not be
+   *               <code>null</code>
+   * @return     the change log, or <code>null</code>
+   */
+  public String getChangeLog(final String groupID,
+                             final String packageName,
+                             final String releaseName) {
+    final ProjectState project = this.project(groupID);
+    synchronized (project) {
+      return this.release(project, packageName, releaseName).changes;
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if the named release preserves the formatting
+   * of its notes and change log.
+   *
+   * @param      groupID
+   *               the project's group identifier; must not be
+   *               <code>null</code>
+   * @param      packageName
+   *               the name of an existing package; must not be
+   *               <code>null</code>
+   * @param      releaseName
+   *               the name of an existing release; must not be
+   *               <code>null</code>
+   * @return     <code>true</code> if formatting is preserved
+   */
+  public boolean isPreformatted(final String groupID,
+                                final String packageName,
+                                final String releaseName) {
+    final ProjectState project = this.project(groupID);
+    synchronized (project) {
+      return this.release(project, packageName, releaseName).preformatted;
+    }
+  }
+
+  /**
+   * Returns the names of the files attached to the named release, in the
+   * order in which they were attached.  This method never returns
+   * <code>null</code>.
+   *
+   * @param      groupID
+   *               the project's group identifier; must not be
+   *               <code>null</code>
+   * @param      packageName
+   *               the name of an existing package; must not be
+   *               <code>null</code>
+   * @param      releaseName
+   *               the name of an existing release; must not be
+   *               <code>null</code>
+   * @return     the file names; never <code>null</code>
+   */
+  public String[] getFileNames(final String groupID,
+                               final String packageName,
+                               final String releaseName) {
+    final ProjectState project = this.project(groupID);
+    synchronized (project) {
+      final ReleaseState release =
+        this.release(project, packageName, releaseName);
+      final String[] names = new String[release.files.size()];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = ((FileState)release.files.get(i)).name;
+      }
+      return names;
+    }
+  }
+
+  /**
+   * Returns the {@link FileSpecification} file type of the named file.
+   *
+   * @param      groupID
+   *               the project's group identifier; must not be
+   *               <code>null</code>
+   * @param      packageName
+   *               the name of an existing package; must not be
+   *               <code>null</code>
+   * @param      releaseName
+   *               the name of an existing release; must not be
+   *               <code>null</code>
+   * @param      fileName
+   *               the name of an attached file; must not be <code>null</code>
+   * @return     the file type
+   */
+  public int getFileType(final String groupID,
+                         final String packageName,
+                         final String releaseName,
+                         final String fileName) {
+    final ProjectState project = this.project(groupID);
+    synchronized (project) {
+      return this.file(this.release(project, packageName, releaseName),
+                       fileName).type;
+    }
+  }
+
+  /**
+   * Returns the {@link FileSpecification} processor type of the named file.
+   *
+   * @param      groupID
+   *               the project's group identifier; must not be
+   *               <code>null</code>
+   * @param      packageName
+   *               the name of an existing package; must not be
+   *               <code>null</code>
+   * @param      releaseName
+   *               the name of an existing release; must not be
+   *               <code>null</code>
+   * @param      fileName
+   *               the name of an attached file; must not be <code>null</code>
+   * @return     the processor type
+   */
+  public int getProcessorType(final String groupID,
+                              final String packageName,
+                              final String releaseName,
+                              final String fileName) {
+    final ProjectState project = this.project(groupID);
+    synchronized (project) {
+      return this.file(this.release(project, packageName, releaseName),
+                       fileName).processor;
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if step 4 of the "edit release" page (notifying
+   * monitoring users) has been submitted for the named release.
+   *
+   * @param      groupID
+   *               the project's group identifier; must not be
+   *               <code>null</code>
+   * @param      packageName
+   *               the name of an existing package; must not be
+   *               <code>null</code>
+   * @param      releaseName
+   *               the name of an existing release; must not be
+   *               <code>null</code>
+   * @return     <code>true</code> if users were notified
+   */
+  public boolean isNotified(final String groupID,
+                            final String packageName,
+                            final String releaseName) {
+    final ProjectState project = this.project(groupID);
+    synchronized (project) {
+      return this.release(project, packageName, releaseName).notified;
+    }
+  }
+
+  /**
+   * Returns the first error this {@link FrsSimulator} ran into while
+   * accepting or serving a connection, or <code>null</code> if there has been
+   * none.  Errors are also logged as they happen.
+   *
+   * @return     the first error, or <code>null</code>
+   */
+  public synchronized Throwable getFirstError() {
+    return this.firstError;
+  }
+
+  /**
+   * Logs the supplied error and remembers it if it is the first.
+   *
+   * @param      error
+   *               the error; must not be <code>null</code>
+   */
+  private void recordError(final Throwable error) {
+    LOGGER.log(Level.WARNING, "Simulator error", error);
+    synchronized (this) {
+      if (this.firstError == null) {
+        this.firstError = error;
+      }
+    }
+  }
+
+  /**
+   * Stops accepting connections.  Connections already in progress are allowed
+   * to finish.  The upload area is left in place.
+   */
+  public void shutDown() {
+    this.active = false;
+    try {
+      this.serverSocket.close();
+    } catch (final IOException ignore) {
+      // ignore
+    }
+  }
+
+  /**
+   * Accepts connections until this {@link FrsSimulator} is {@linkplain
+   * #shutDown() shut down}, handing each to a new daemon thread.
+   */
+  private void accept() {
+    while (this.active) {
+      final Socket socket;
+      try {
+        socket = this.serverSocket.accept();
+      } catch (final IOException kaboom) {
+        if (this.active) {
+          this.recordError(kaboom);
+        }
+        return;
+      }
+      final Thread handler = new Thread("FrsSimulator handler") {
+          public void run() {
+            serve(socket);
+          }
+        };
+      handler.setDaemon(true);
+      handler.start();
+    }
+  }
+
+  /**
+   * Reads one request from the supplied {@link Socket}, answers it and closes
+   * the {@link Socket}.
+   *
+   * @param      socket
+   *               the {@link Socket} to serve; must not be <code>null</code>
+   */
+  private void serve(final Socket socket) {
+    try {
+      final InputStream in = new BufferedInputStream(socket.getInputStream());
+      final Request request = this.readRequest(in);
+      Response response;
+      if (request == null) {
+        response = null;
+      } else {
+        try {
+          response = this.dispatch(request);
+        } catch (final RuntimeException kaboom) {
+          this.recordError(kaboom);
+          response = new Response(500, page("Error", escape(kaboom.toString())));
+        }
+      }
+      if (response != null) {
+        this.writeResponse(socket.getOutputStream(), response);
+      }
+    } catch (final IOException kaboom) {
+      this.recordError(kaboom);
+    } finally {
+      try {
+        socket.close();
+      } catch (final IOException ignore) {
+        // ignore
+      }
+    }
+  }
+
+  /**
+   * Routes the supplied {@link Request} to the page that handles it.
+   *
+   * @param      request
+   *               the {@link Request}; must not be <code>null</code>
+   * @return     the {@link Response}; never <code>null</code>
+   */
+  private Response dispatch(final Request request) {
+    synchronized (this) {
+      if (request.post) {
+        this.postCount++;
+      } else {
+        this.getCount++;
+      }
+    }
+    if (LOGIN.equals(request.path)) {
+      return this.login(request);
+    }
+    if (!EDIT_PACKAGES.equals(request.path) &&
+        !EDIT_RELEASES.equals(request.path) &&
+        !NEW_RELEASE.equals(request.path)) {
+      return new Response(404, page("Not Found", escape(request.path)));
+    }
+    final ProjectState project =
+      (ProjectState)this.projects.get(request.get("group_id"));
+    if (project == null) {
+      return new Response(200, page("Error", "Invalid Group"));
+    }
+    final String user = (String)this.sessions.get(request.cookie(SESSION_COOKIE));
+    if (user == null || !user.equals(project.userName)) {
+      return new Response(200, page("Permission Denied",
+                                    "Permission Denied"));
+    }
+    synchronized (project) {
+      if (EDIT_PACKAGES.equals(request.path)) {
+        return this.editPackages(project, request);
+      } else if (NEW_RELEASE.equals(request.path)) {
+        return this.newRelease(project, request);
+      } else if (request.get("release_id") == null) {
+        return this.listReleases(project, request);
+      } else {
+        return this.editRelease(project, request);
+      }
+    }
+  }
+
+  /**
+   * Serves the login page and handles login form submissions.
+   *
+   * @param      request
+   *               the {@link Request}; must not be <code>null</code>
+   * @return     the {@link Response}; never <code>null</code>
+   */
+  private Response login(final Request request) {
+    if (!request.post) {
+      final StringBuffer body = new StringBuffer();
+      body.append("<form method=\"post\" action=\"");
+      body.append(this.getSiteURL()).append(LOGIN).append("\">");
+      body.append("Login Name: <input type=\"text\" name=\"form_loginname\">");
+      body.append("Password: <input type=\"password\" name=\"form_pw\">");
+      body.append("<input type=\"submit\" name=\"login\" value=\"Login\">");
+      body.append("</form>");
+      return new Response(200, page("SourceForge.net: Login", body.toString()));
+    }
+    final String userName = request.get("form_loginname");
+    if (!this.authenticate(userName, request.get("form_pw"))) {
+      return new Response(200, page("SourceForge.net: Login",
+                                    "Invalid Password or User Name"));
+    }
+    final String session;
+    synchronized (this.random) {
+      session = Long.toHexString(this.random.nextLong());
+    }
+    this.sessions.put(session, userName);
+    final Response response =
+      new Response(200, page("SourceForge.net: My Page",
+                             "Welcome, " + escape(userName)));
+    response.cookie = SESSION_COOKIE + "=" + session + "; path=/";
+    return response;
+  }
+
+  /**
+   * Serves the "edit packages" page and handles package creation and update
+   * submissions.
+   *
+   * @param      project
+   *               the {@link ProjectState}, already locked; must not be
+   *               <code>null</code>
+   * @param      request
+   *               the {@link Request}; must not be <code>null</code>
+   * @return     the {@link Response}; never <code>null</code>
+   */
+  private Response editPackages(final ProjectState project,
+                                final Request request) {
+    if (request.post) {
+      final String func = request.get("func");
+      final String name = request.get("package_name");
+      if ("add_package".equals(func)) {
+        // Like the real site, this adds a package even if one of the same
+        // name exists.
+        if (name != null && name.length() > 0) {
+          project.packages.add(new PackageState(this.newID(), name));
+        }
+      } else if ("update_package".equals(func)) {
+        final PackageState pkg =
+          this.findPackageByID(project, request.get("package_id"));
+        if (pkg != null) {
+          if (name != null && name.length() > 0) {
+            pkg.name = name;
+          }
+          pkg.status = status(request.get("status_id"), pkg.status);
+        }
+      }
+    }
+    final StringBuffer body = new StringBuffer();
+    PackageState pkg;
+    for (int i = 0; i < project.packages.size(); i++) {
+      pkg = (PackageState)project.packages.get(i);
+      body.append("<form method=\"post\" action=\"").append(EDIT_PACKAGES);
+      body.append("\">");
+      hidden(body, "group_id", project.groupID);
+      hidden(body, "func", "update_package");
+      hidden(body, "package_id", pkg.id);
+      body.append("<a href=\"newrelease.php?package_id=").append(pkg.id);
+      body.append("&amp;group_id=").append(project.groupID);
+      body.append("\">[Add Release]</a> ");
+      body.append("<a href=\"editreleases.php?package_id=").append(pkg.id);
+      body.append("&amp;group_id=").append(project.groupID);
+      body.append("\">[Edit Releases]</a> ");
+      body.append("<input type=\"text\" name=\"package_name\" value=\"");
+      body.append(escape(pkg.name)).append("\">");
+      statusSelect(body, pkg.status);
+      body.append("<input type=\"submit\" name=\"submit\" value=\"Update\">");
+      body.append("</form>");
+    }
+    body.append("<form method=\"post\" action=\"").append(EDIT_PACKAGES);
+    body.append("\">");
+    hidden(body, "group_id", project.groupID);
+    hidden(body, "func", "add_package");
+    body.append("New Package Name: ");
+    body.append("<input type=\"text\" name=\"package_name\" value=\"\">");
+    body.append("<input type=\"submit\" name=\"submit\" ");
+    body.append("value=\"Create This Package\">");
+    body.append("</form>");
+    return new Response(200, page("SourceForge.net: Project Filerelease " +
+                                  "Administration", body.toString()));
+  }
+
+  /**
+   * Serves the "edit releases" page, which lists the releases of a package.
+   *
+   * @param      project
+   *               the {@link ProjectState}, already locked; must not be
+   *               <code>null</code>
+   * @param      request
+   *               the {@link Request}; must not be <code>null</code>
+   * @return     the {@link Response}; never <code>null</code>
+   */
+  private Response listReleases(final ProjectState project,
+                                final Request request) {
+    final PackageState pkg =
+      this.findPackageByID(project, request.get("package_id"));
+    if (pkg == null) {
+      return new Response(200, page("Error", "Invalid Package"));
+    }
+    final StringBuffer body = new StringBuffer();
+    if (pkg.releases.isEmpty()) {
+      body.append("You Have No Releases Of This Package Defined");
+    } else {
+      body.append("<table><tr><td>Release Name</td><td>Status</td></tr>");
+      ReleaseState release;
+      for (int i = 0; i < pkg.releases.size(); i++) {
+        release = (ReleaseState)pkg.releases.get(i);
+        body.append("<tr><td>").append(escape(release.name));
+        body.append(" <a href=\"editreleases.php?package_id=").append(pkg.id);
+        body.append("&amp;release_id=").append(release.id);
+        body.append("&amp;group_id=").append(project.groupID);
+        body.append("\">[Edit This Release]</a></td><td>");
+        body.append(HIDDEN.equals(release.status) ? "Hidden" : "Active");
+        body.append("</td></tr>");
+      }
+      body.append("</table>");
+    }
+    return new Response(200, page("SourceForge.net: FRS: Releases",
+                                  body.toString()));
+  }
+
+  /**
+   * Serves the "new release" page and handles release creation submissions,
+   * answering the latter with the "edit release" page of the new release.
+   *
+   * @param      project
+   *               the {@link ProjectState}, already locked; must not be
+   *               <code>null</code>
+   * @param      request
+   *               the {@link Request}; must not be <code>null</code>
+   * @return     the {@link Response}; never <code>null</code>
+   */
+  private Response newRelease(final ProjectState project,
+                              final Request request) {
+    final PackageState pkg =
+      this.findPackageByID(project, request.get("package_id"));
+    if (pkg == null) {
+      return new Response(200, page("Error", "Invalid Package"));
+    }
+    if (request.post) {
+      final String name = request.get("release_name");
+      if (name == null || name.length() <= 0) {
+        return new Response(200, page("Error", "Release name is required"));
+      }
+      ReleaseState release = this.findRelease(pkg, name);
+      if (release == null) {
+        release = new ReleaseState(this.newID(), name);
+        pkg.releases.add(release);
+      }
+      return this.renderEditRelease(project, pkg, release);
+    }
+    final StringBuffer body = new StringBuffer();
+    body.append("<form method=\"post\" action=\"").append(NEW_RELEASE);
+    body.append("\">");
+    hidden(body, "group_id", project.groupID);
+    body.append("New release name: ");
+    body.append("<input type=\"text\" name=\"release_name\" value=\"\">");
+    body.append("Of which package: <select name=\"package_id\">");
+    PackageState candidate;
+    for (int i = 0; i < project.packages.size(); i++) {
+      candidate = (PackageState)project.packages.get(i);
+      option(body, candidate.id, candidate.name, candidate == pkg);
+    }
+    body.append("</select>");
+    body.append("<input type=\"submit\" name=\"submit\" ");
+    body.append("value=\"Create This Release\">");
+    body.append("</form>");
+    return new Response(200, page("SourceForge.net: FRS: Create New Release",
+                                  body.toString()));
+  }
+
+  /**
+   * Handles submissions of the four step forms of the "edit release" page and
+   * serves the page itself.
+   *
+   * @param      project
+   *               the {@link ProjectState}, already locked; must not be
+   *               <code>null</code>
+   * @param      request
+   *               the {@link Request}; must not be <code>null</code>
+   * @return     the {@link Response}; never <code>null</code>
+   */
+  private Response editRelease(final ProjectState project,
+                               final Request request) {
+    final PackageState pkg =
+      this.findPackageByID(project, request.get("package_id"));
+    final ReleaseState release = pkg == null ?
+      null : this.findReleaseByID(pkg, request.get("release_id"));
+    if (release == null) {
+      return new Response(200, page("Error", "Invalid Release"));
+    }
+    if (request.post) {
+      if (request.get("step1") != null) {
+        release.date = request.get("release_date");
+        release.status = status(request.get("status_id"), release.status);
+        release.preformatted = "1".equals(request.get("preformatted"));
+        release.notes =
+          textOrUpload(request, "release_notes", "uploaded_notes");
+        release.changes =
+          textOrUpload(request, "release_changes", "uploaded_changes");
+      } else if (request.get("step2") != null) {
+        final List names = request.getAll("file_list[]");
+        final File directory =
+          this.getUploadDirectory(project.groupID, release.name);
+        String name;
+        for (int i = 0; i < names.size(); i++) {
+          name = (String)names.get(i);
+          if (new File(directory, name).isFile() &&
+              this.findFile(release, name) == null) {
+            release.files.add(new FileState(this.newID(), name));
+          }
+        }
+      } else if (request.get("step3") != null) {
+        final FileState file =
+          this.findFileByID(release, request.get("file_id"));
+        if (file != null) {
+          if ("1".equals(request.get("im_sure"))) {
+            release.files.remove(file);
+          } else {
+            file.processor =
+              parseInt(request.get("processor_id"), file.processor);
+            file.type = parseInt(request.get("type_id"), file.type);
+          }
+        }
+      } else if (request.get("step4") != null) {
+        release.notified = true;
+      }
+    }
+    return this.renderEditRelease(project, pkg, release);
+  }
+
+  /**
+   * Renders the "edit release" page for the supplied release.
+   *
+   * @param      project
+   *               the {@link ProjectState}, already locked; must not be
+   *               <code>null</code>
+   * @param      pkg
+   *               the {@link PackageState}; must not be <code>null</code>
+   * @param      release
+   *               the {@link ReleaseState}; must not be <code>null</code>
+   * @return     the {@link Response}; never <code>null</code>
+   */
+  private Response renderEditRelease(final ProjectState project,
+                                     final PackageState pkg,
+                                     final ReleaseState release) {
+    final StringBuffer body = new StringBuffer();
+
+    // Step 1: release attributes.
+    body.append("<h3>Step 1: Edit Existing Release</h3>");
+    this.startStepForm(body, project, pkg, release, 1, true);
+    body.append("Release Date: <input type=\"text\" name=\"release_date\" ");
+    body.append("value=\"").append(escape(release.date)).append("\">");
+    statusSelect(body, release.status);
+    body.append("Upload Release Notes: ");
+    body.append("<input type=\"file\" name=\"uploaded_notes\">");
+    body.append("Upload Change Log: ");
+    body.append("<input type=\"file\" name=\"uploaded_changes\">");
+    body.append("<textarea name=\"release_notes\">");
+    body.append(escape(release.notes)).append("</textarea>");
+    body.append("<textarea name=\"release_changes\">");
+    body.append(escape(release.changes)).append("</textarea>");
+    body.append("<input type=\"checkbox\" name=\"preformatted\" value=\"1\"");
+    body.append(release.preformatted ? " checked>" : ">");
+    body.append("Preserve my pre-formatted text.");
+    body.append("<input type=\"submit\" name=\"submit\" ");
+    body.append("value=\"Submit/Refresh\"></form>");
+
+    // Step 2: files in the upload area not yet attached to this release.
+    body.append("<h3>Step 2: Add Files To This Release</h3>");
+    this.startStepForm(body, project, pkg, release, 2, false);
+    final String[] uploaded =
+      this.getUploadDirectory(project.groupID, release.name).list();
+    if (uploaded != null) {
+      Arrays.sort(uploaded);
+      for (int i = 0; i < uploaded.length; i++) {
+        if (this.findFile(release, uploaded[i]) == null) {
+          body.append("<input type=\"checkbox\" name=\"file_list[]\" ");
+          body.append("value=\"").append(escape(uploaded[i])).append("\">");
+          body.append(escape(uploaded[i]));
+        }
+      }
+    }
+    body.append("<input type=\"submit\" name=\"submit\" ");
+    body.append("value=\"Add Files and/or Refresh View\"></form>");
+
+    // Step 3: one update form and one delete form per attached file.
+    body.append("<h3>Step 3: Edit Files In This Release</h3>");
+    body.append("<table><tr><td>Filename</td><td>Processor</td>");
+    body.append("<td>File Type</td></tr>");
+    FileState file;
+    for (int i = 0; i < release.files.size(); i++) {
+      file = (FileState)release.files.get(i);
+      body.append("<tr><td>").append(escape(file.name)).append("</td>");
+      body.append("<td colspan=\"2\">");
+      this.startStepForm(body, project, pkg, release, 3, false);
+      hidden(body, "file_id", file.id);
+      typeSelect(body, "processor_id", PROCESSOR_TYPES, file.processor);
+      typeSelect(body, "type_id", FILE_TYPES, file.type);
+      body.append("<input type=\"submit\" name=\"submit\" ");
+      body.append("value=\"Update/Refresh\"></form></td></tr>");
+      body.append("<tr><td colspan=\"3\">");
+      this.startStepForm(body, project, pkg, release, 3, false);
+      hidden(body, "file_id", file.id);
+      body.append("<input type=\"checkbox\" name=\"im_sure\" value=\"1\">");
+      body.append("I'm Sure <input type=\"submit\" name=\"submit\" ");
+      body.append("value=\"Delete File\"></form></td></tr>");
+      // HttpUnit drops rows without text, so the spacer row needs some.
+      body.append("<tr><td colspan=\"3\">Downloads: 0</td></tr>");
+    }
+    body.append("</table>");
+
+    // Step 4: notification of monitoring users.
+    body.append("<h3>Step 4: Email Release Notice</h3>");
+    this.startStepForm(body, project, pkg, release, 4, false);
+    body.append("<input type=\"checkbox\" name=\"sure\" value=\"1\">");
+    body.append("I'm sure. <input type=\"submit\" name=\"submit\" ");
+    body.append("value=\"Send Notice\"></form>");
+
+    return new Response(200, page("SourceForge.net: FRS: Edit Release",
+                                  body.toString()));
+  }
+
+  /**
+   * Appends the opening tag and common hidden inputs of one of the step forms
+   * of the "edit release" page to the supplied {@link StringBuffer}.
+   *
+   * @param      body
+   *               the {@link StringBuffer} to append to; must not be
+   *               <code>null</code>
+   * @param      project
+   *               the {@link ProjectState}; must not be <code>null</code>
+   * @param      pkg
+   *               the {@link PackageState}; must not be <code>null</code>
+   * @param      release
+   *               the {@link ReleaseState}; must not be <code>null</code>
+   * @param      step
+   *               the step number
+   * @param      multipart
+   *               whether the form submits <code>multipart/form-data</code>
+   */
+  private void startStepForm(final StringBuffer body,
+                             final ProjectState project,
+                             final PackageState pkg,
+                             final ReleaseState release,
+                             final int step,
+                             final boolean multipart) {
+    body.append("<form method=\"post\" action=\"").append(EDIT_RELEASES);
+    body.append("\"");
+    if (multipart) {
+      body.append(" enctype=\"multipart/form-data\"");
+    }
+    body.append(">");
+    hidden(body, "group_id", project.groupID);
+    hidden(body, "package_id", pkg.id);
+    hidden(body, "release_id", release.id);
+    hidden(body, "step" + step, "1");
+  }
+
+  /**
+   * Returns a fresh identifier.
+   *
+   * @return     a fresh identifier; never <code>null</code>
+   */
+  private synchronized String newID() {
+    return String.valueOf(this.nextID++);
+  }
+
+  /**
+   * Returns the {@link ProjectState} with the supplied group identifier.
+   *
+   * @param      groupID
+   *               the group identifier
+   * @return     the {@link ProjectState}; never <code>null</code>
+   * @exception  IllegalArgumentException
+   *               if there is no such project
+   */
+  private ProjectState project(final String groupID) {
+    final ProjectState project = (ProjectState)this.projects.get(groupID);
+    if (project == null) {
+      throw new IllegalArgumentException("No such project: " + groupID);
+    }
+    return project;
+  }
+
+  private PackageState pkg(final ProjectState project, final String name) {
+    final PackageState pkg = this.findPackage(project, name);
+    if (pkg == null) {
+      throw new IllegalArgumentException("No such package: " + name);
+    }
+    return pkg;
+  }
+
+  private ReleaseState release(final ProjectState project,
+                               final String packageName,
+                               final String releaseName) {
+    final ReleaseState release =
+      this.findRelease(this.pkg(project, packageName), releaseName);
+    if (release == null) {
+      throw new IllegalArgumentException("No such release: " + releaseName);
+    }
+    return release;
+  }
+
+  private FileState file(final ReleaseState release, final String name) {
+    final FileState file = this.findFile(release, name);
+    if (file == null) {
+      throw new IllegalArgumentException("No such file: " + name);
+    }
+    return file;
+  }
+
+  private PackageState findPackage(final ProjectState project,
+                                   final String name) {
+    PackageState pkg;
+    for (int i = 0; i < project.packages.size(); i++) {
+      pkg = (PackageState)project.packages.get(i);
+      if (pkg.name.equals(name)) {
+        return pkg;
+      }
+    }
+    return null;
+  }
+
+  private PackageState findPackageByID(final ProjectState project,
+                                       final String id) {
+    PackageState pkg;
+    for (int i = 0; i < project.packages.size(); i++) {
+      pkg = (PackageState)project.packages.get(i);
+      if (pkg.id.equals(id)) {
+        return pkg;
+      }
+    }
+    return null;
+  }
+
+  private ReleaseState findRelease(final PackageState pkg, final String name) {
+    ReleaseState release;
+    for (int i = 0; i < pkg.releases.size(); i++) {
+      release = (ReleaseState)pkg.releases.get(i);
+      if (release.name.equals(name)) {
+        return release;
+      }
+    }
+    return null;
+  }
+
+  private ReleaseState findReleaseByID(final PackageState pkg,
+                                       final String id) {
+    ReleaseState release;
+    for (int i = 0; i < pkg.releases.size(); i++) {
+      release = (ReleaseState)pkg.releases.get(i);
+      if (release.id.equals(id)) {
+        return release;
+      }
+    }
+    return null;
+  }
+
+  private FileState findFile(final ReleaseState release, final String name) {
+    FileState file;
+    for (int i = 0; i < release.files.size(); i++) {
+      file = (FileState)release.files.get(i);
+      if (file.name.equals(name)) {
+        return file;
+      }
+    }
+    return null;
+  }
+
+  private FileState findFileByID(final ReleaseState release, final String id) {
+    FileState file;
+    for (int i = 0; i < release.files.size(); i++) {
+      file = (FileState)release.files.get(i);
+      if (file.id.equals(id)) {
+        return file;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Parses one HTTP request from the supplied {@link InputStream}.
+   *
+   * @param      in
+   *               the {@link InputStream}; must not be <code>null</code>
+   * @return     the {@link Request}, or <code>null</code> if the connection
+   *               was closed before a request line arrived
+   * @exception  IOException
+   *               if the request could not be read
+   */
+  private Request readRequest(final InputStream in) throws IOException {
+    final String requestLine = readLine(in);
+    if (requestLine == null || requestLine.length() <= 0) {
+      return null;
+    }
+    final String[] parts = requestLine.split(" ");
+    if (parts.length < 2) {
+      throw new IOException("Bad request line: " + requestLine);
+    }
+    final Request request = new Request();
+    request.post = "POST".equalsIgnoreCase(parts[0]);
+    String uri = parts[1];
+    final int schemeIndex = uri.indexOf("://");
+    if (schemeIndex >= 0) {
+      final int pathIndex = uri.indexOf('/', schemeIndex + 3);
+      uri = pathIndex < 0 ? "/" : uri.substring(pathIndex);
+    }
+    final int queryIndex = uri.indexOf('?');
+    if (queryIndex >= 0) {
+      request.path = uri.substring(0, queryIndex);
+      parseURLEncoded(uri.substring(queryIndex + 1), request.parameters);
+    } else {
+      request.path = uri;
+    }
+    String line;
+    int colonIndex;
+    while ((line = readLine(in)) != null && line.length() > 0) {
+      colonIndex = line.indexOf(':');
+      if (colonIndex > 0) {
+        request.headers.put(line.substring(0, colonIndex).trim().toLowerCase(),
+                            line.substring(colonIndex + 1).trim());
+      }
+    }
+    final String contentLength = (String)request.headers.get("content-length");
+    if (contentLength != null) {
+      final byte[] body = new byte[Integer.parseInt(contentLength)];
+      int offset = 0;
+      int read;
+      while (offset < body.length &&
+             (read = in.read(body, offset, body.length - offset)) >= 0) {
+        offset += read;
+      }
+      final String contentType = (String)request.headers.get("content-type");
+      final String text = new String(body, 0, offset, ENCODING);
+      if (contentType != null &&
+          contentType.startsWith("multipart/form-data")) {
+        parseMultipart(text, contentType, request.parameters);
+      } else {
+        parseURLEncoded(text, request.parameters);
+      }
+    }
+    return request;
+  }
+
+  /**
+   * Writes the supplied {@link Response} to the supplied {@link
+   * OutputStream}.
+   *
+   * @param      out
+   *               the {@link OutputStream}; must not be <code>null</code>
+   * @param      response
+   *               the {@link Response}; must not be <code>null</code>
+   * @exception  IOException
+   *               if the response could not be written
+   */
+  private void writeResponse(final OutputStream out, final Response response)
+    throws IOException {
+    final byte[] body = response.body.getBytes(ENCODING);
+    final StringBuffer head = new StringBuffer();
+    head.append("HTTP/1.0 ").append(response.status);
+    head.append(response.status == 200 ? " OK" : " Error").append("\r\n");
+    head.append("Content-Type: text/html; charset=").append(ENCODING);
+    head.append("\r\n");
+    head.append("Content-Length: ").append(body.length).append("\r\n");
+    head.append("Connection: close\r\n");
+    if (response.cookie != null) {
+      head.append("Set-Cookie: ").append(response.cookie).append("\r\n");
+    }
+    head.append("\r\n");
+    out.write(head.toString().getBytes(ENCODING));
+    out.write(body);
+    out.flush();
+  }
+
+  private static String readLine(final InputStream in) throws IOException {
+    final ByteArrayOutputStream line = new ByteArrayOutputStream(80);
+    int c;
+    while ((c = in.read()) >= 0) {
+      if (c == '\n') {
+        break;
+      } else if (c != '\r') {
+        line.write(c);
+      }
+    }
+    if (c < 0 && line.size() == 0) {
+      return null;
+    }
+    return line.toString(ENCODING);
+  }
+
+  private static void parseURLEncoded(final String text, final Map parameters)
+    throws IOException {
+    if (text == null || text.length() <= 0) {
+      return;
+    }
+    final String[] pairs = text.split("&");
+    int equalsIndex;
+    for (int i = 0; i < pairs.length; i++) {
+      equalsIndex = pairs[i].indexOf('=');
+      if (equalsIndex > 0) {
+        add(parameters,
+            URLDecoder.decode(pairs[i].substring(0, equalsIndex), ENCODING),
+            URLDecoder.decode(pairs[i].substring(equalsIndex + 1), ENCODING));
+      }
+    }
+  }
+
+  private static void parseMultipart(final String text,
+                                     final String contentType,
+                                     final Map parameters) {
+    final int boundaryIndex = contentType.indexOf("boundary=");
+    if (boundaryIndex < 0) {
+      return;
+    }
+    String boundary = contentType.substring(boundaryIndex + 9).trim();
+    if (boundary.startsWith("\"") && boundary.endsWith("\"")) {
+      boundary = boundary.substring(1, boundary.length() - 1);
+    }
+    final String delimiter = "--" + boundary;
+    int start = text.indexOf(delimiter);
+    int end;
+    String part;
+    int headerEnd;
+    String headers;
+    int nameIndex;
+    String name;
+    String value;
+    while (start >= 0) {
+      start += delimiter.length();
+      end = text.indexOf(delimiter, start);
+      if (end < 0) {
+        break;
+      }
+      part = text.substring(start, end);
+      headerEnd = part.indexOf("\r\n\r\n");
+      if (headerEnd >= 0) {
+        headers = part.substring(0, headerEnd);
+        nameIndex = headers.indexOf("name=\"");
+        if (nameIndex >= 0) {
+          name = headers.substring(nameIndex + 6,
+                                   headers.indexOf('"', nameIndex + 6));
+          value = part.substring(headerEnd + 4);
+          if (value.endsWith("\r\n")) {
+            value = value.substring(0, value.length() - 2);
+          }
+          add(parameters, name, value);
+        }
+      }
+      start = end;
+    }
+  }
+
+  private static void add(final Map parameters,
+                          final String name,
+                          final String value) {
+    List values = (List)parameters.get(name);
+    if (values == null) {
+      values = new ArrayList(1);
+      parameters.put(name, values);
+    }
+    values.add(value);
+  }
+
+  private static String textOrUpload(final Request request,
+                                     final String textName,
+                                     final String uploadName) {
+    final String upload = request.get(uploadName);
+    if (upload != null && upload.length() > 0) {
+      return upload;
+    }
+    return request.get(textName);
+  }
+
+  private static String status(final String value, final String fallback) {
+    if (ACTIVE.equals(value) || HIDDEN.equals(value)) {
+      return value;
+    }
+    return fallback;
+  }
+
+  private static int parseInt(final String value, final int fallback) {
+    if (value == null) {
+      return fallback;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (final NumberFormatException badValue) {
+      return fallback;
+    }
+  }
+
+  private static int[] toSortedArray(final List integers) {
+    final int[] values = new int[integers.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = ((Integer)integers.get(i)).intValue();
+    }
+    Arrays.sort(values);
+    return values;
+  }
+
+  private static void copy(final File source, final File target)
+    throws IOException {
+    final InputStream in = new FileInputStream(source);
+    try {
+      final OutputStream out = new FileOutputStream(target);
+      try {
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+          out.write(buffer, 0, read);
+        }
+      } finally {
+        out.close();
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  private static String page(final String title, final String body) {
+    return
+      "<html><head><title>" + escape(title) + "</title></head><body>" +
+      body + "</body></html>";
+  }
+
+  private static void hidden(final StringBuffer body,
+                             final String name,
+                             final String value) {
+    body.append("<input type=\"hidden\" name=\"").append(name);
+    body.append("\" value=\"").append(escape(value)).append("\">");
+  }
+
+  private static void option(final StringBuffer body,
+                             final String value,
+                             final String label,
+                             final boolean selected) {
+    body.append("<option value=\"").append(escape(value)).append("\"");
+    body.append(selected ? " selected>" : ">");
+    body.append(escape(label)).append("</option>");
+  }
+
+  private static void statusSelect(final StringBuffer body,
+                                   final String status) {
+    body.append("<select name=\"status_id\">");
+    option(body, ACTIVE, "Active", ACTIVE.equals(status));
+    option(body, HIDDEN, "Hidden", HIDDEN.equals(status));
+    body.append("</select>");
+  }
+
+  private static void typeSelect(final StringBuffer body,
+                                 final String name,
+                                 final int[] values,
+                                 final int selected) {
+    body.append("<select name=\"").append(name).append("\">");
+    String value;
+    for (int i = 0; i < values.length; i++) {
+      value = String.valueOf(values[i]);
+      option(body, value, value, values[i] == selected);
+    }
+    body.append("</select>");
+  }
+
+  private static String escape(final String text) {
+    if (text == null) {
+      return "";
+    }
+    final StringBuffer escaped = new StringBuffer(text.length());
+    char c;
+    for (int i = 0; i < text.length(); i++) {
+      c = text.charAt(i);
+      switch (c) {
+      case '<':
+        escaped.append("&lt;");
+        break;
+      case '>':
+        escaped.append("&gt;");
+        break;
+      case '&':
+        escaped.append("&amp;");
+        break;
+      case '"':
+        escaped.append("&quot;");
+        break;
+      default:
+        escaped.append(c);
+        break;
+      }
+    }
+    return escaped.toString();
+  }
+
+  /**
+   * A parsed HTTP request.
+   */
+  private static final class Request {
+
+    private boolean post;
+
+    private String path;
+
+    private final Map headers = new HashMap();
+
+    private final Map parameters = new HashMap();
+
+    private String get(final String name) {
+      final List values = (List)this.parameters.get(name);
+      if (values == null || values.isEmpty()) {
+        return null;
+      }
+      return (String)values.get(0);
+    }
+
+    private List getAll(final String name) {
+      final List values = (List)this.parameters.get(name);
+      if (values == null) {
+        return Collections.EMPTY_LIST;
+      }
+      return values;
+    }
+
+    private String cookie(final String name) {
+      final String header = (String)this.headers.get("cookie");
+      if (header == null) {
+        return null;
+      }
+      final String[] cookies = header.split(";");
+      String cookie;
+      for (int i = 0; i < cookies.length; i++) {
+        cookie = cookies[i].trim();
+        if (cookie.startsWith(name + "=")) {
+          return cookie.substring(name.length() + 1);
+        }
+      }
+      return null;
+    }
+
+  }
+
+  /**
+   * An HTTP response.
+   */
+  private static final class Response {
+
+    private final int status;
+
+    private final String body;
+
+    private String cookie;
+
+    private Response(final int status, final String body) {
+      super();
+      this.status = status;
+      this.body = body;
+    }
+
+  }
+
+  /**
+   * The simulated state of one project.  Instances are locked while a request
+   * for the project is being handled.
+   */
+  private static final class ProjectState {
+
+    private final String groupID;
+
+    private final String name;
+
+    private final String userName;
+
+    private final String password;
+
+    private final List packages = new ArrayList();
+
+    private ProjectState(final String groupID,
+                         final String name,
+                         final String userName,
+                         final String password) {
+      super();
+      this.groupID = groupID;
+      this.name = name;
+      this.userName = userName;
+      this.password = password;
+    }
+
+  }
+
+  /**
+   * The simulated state of one package.
+   */
+  private static final class PackageState {
+
+    private final String id;
+
+    private String name;
+
+    private String status = ACTIVE;
+
+    private final List releases = new ArrayList();
+
+    private PackageState(final String id, final String name) {
+      super();
+      this.id = id;
+      this.name = name;
+    }
+
+  }
+
+  /**
+   * The simulated state of one file release.
+   */
+  private static final class ReleaseState {
+
+    private final String id;
+
+    private final String name;
+
+    private String status = ACTIVE;
+
+    private String date;
+
+    private String notes;
+
+    private String changes;
+
+    private boolean preformatted;
+
+    private boolean notified;
+
+    private final List files = new ArrayList();
+
+    private ReleaseState(final String id, final String name) {
+      super();
+      this.id = id;
+      this.name = name;
+    }
+
+  }
+
+  /**
+   * The simulated state of one file attached to a release.
+   */
+  private static final class FileState {
+
+    private final String id;
+
+    private final String name;
+
+    private int type = DEFAULT_FILE_TYPE;
+
+    private int processor = DEFAULT_PROCESSOR_TYPE;
+
+    private FileState(final String id, final String name) {
+      super();
+      this.id = id;
+      this.name = name;
+    }
+
+  }
+
+}
@@ -0,0 +1,314 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs.web;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.AssertionFailedError;
+import junit.framework.TestCase;
+
+import sfutils.AdaptiveLimiter;
+import sfutils.Administrator;
+import sfutils.MetadataStore;
+import sfutils.Project;
+
+import sfutils.frs.FileRelease;
+import sfutils.frs.FileSpecification;
+import sfutils.frs.Package;
+import sfutils.frs.PublishingException;
+
+/**
+ * A {@link TestCase} that publishes {@link FileRelease}s to a {@link
+ * FrsSimulator} with an {@link HttpUnitPublisher}, without touching the real
+ * <a href="http://sourceforge.net/">SourceForge</a> website.
+ *
+ * <p>The number of projects published concurrently by {@link
+ * #testConcurrentPublish()} may be set with the
+ * <code>sfutils.simulator.projects</code> system property.</p>
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCaseFrsSimulator extends TestCase {
+
+  /**
+   * The {@link FrsSimulator} under test.
+   */
+  private FrsSimulator simulator;
+
+  /**
+   * Creates a new {@link TestCaseFrsSimulator}.
+   *
+   * @param      name
+   *               the name of the test case to run; passed by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will never
+   *               be <code>null</code>
+   */
+  public TestCaseFrsSimulator(final String name) {
+    super(name);
+  }
+
+  public void setUp() throws Exception {
+    this.simulator = new FrsSimulator();
+  }
+
+  public void tearDown() throws Exception {
+    this.simulator.shutDown();
+    final Throwable error = this.simulator.getFirstError();
+    if (error != null) {
+      final AssertionFailedError failure =
+        new AssertionFailedError("Simulator error: " + error);
+      failure.initCause(error);
+      throw failure;
+    }
+  }
+
+  /**
+   * Builds a {@link FileRelease} with two text files for a new project
+   * registered with the {@link FrsSimulator}.
+   *
+   * @param      projectName
+   *               the name of the project to register
+   * @return     a new {@link FileRelease}; never <code>null</code>
+   * @exception  IOException
+   *               if the release files could not be written
+   */
+  private FileRelease createRelease(final String projectName)
+    throws IOException {
+    final String groupID =
+      this.simulator.addProject(projectName, projectName + "_admin", "secret");
+    final Project project = new Project();
+    project.setName(projectName);
+    project.setShortName(projectName);
+    project.setID(groupID);
+    project.setAdministrator(new Administrator(projectName + "_admin",
+                                               "secret"));
+    final Package pkg = new Package();
+    pkg.setName("core");
+    pkg.setHidden(true);
+    pkg.setProject(project);
+    final FileRelease release = new FileRelease();
+    release.setName("1.0");
+    release.setPackage(pkg);
+    release.setReleaseDate(new Date());
+    release.setReleaseNotes("Notes for " + projectName);
+    release.setChangeLog("Changes for " + projectName);
+    release.setPreserveFormattedText(true);
+    release.setNotifyOthers(true);
+    final FileSpecification text = new FileSpecification();
+    text.setFile(this.createFile(projectName + "-README", ".txt"));
+    text.setProcessorType(FileSpecification.PLATFORM_INDEPENDENT_PROCESSOR);
+    final FileSpecification html = new FileSpecification();
+    html.setFile(this.createFile(projectName + "-index", ".html"));
+    html.setProcessorType(FileSpecification.PLATFORM_INDEPENDENT_PROCESSOR);
+    release.setFileSpecifications(new FileSpecification[] { text, html });
+    return release;
+  }
+
+  private File createFile(final String prefix, final String suffix)
+    throws IOException {
+    final File file = File.createTempFile(prefix, suffix);
+    file.deleteOnExit();
+    final PrintWriter writer =
+      new PrintWriter(new BufferedWriter(new FileWriter(file)));
+    try {
+      writer.println("Contents of " + file.getName());
+    } finally {
+      writer.close();
+    }
+    return file;
+  }
+
+  /**
+   * Asserts that the {@link FrsSimulator} holds exactly what the supplied
+   * {@link FileRelease} describes.
+   *
+   * @param      release
+   *               the published {@link FileRelease}
+   */
+  private void assertPublished(final FileRelease release) {
+    final String groupID = release.getPackage().getProject().getID();
+    final String pkg = release.getPackage().getName();
+    final String name = release.getName();
+    assertEquals(1, this.simulator.getPackageNames(groupID).length);
+    assertEquals(pkg, this.simulator.getPackageNames(groupID)[0]);
+    assertTrue(this.simulator.isPackageHidden(groupID, pkg));
+    assertEquals(1, this.simulator.getReleaseNames(groupID, pkg).length);
+    assertFalse(this.simulator.isReleaseHidden(groupID, pkg, name));
+    assertEquals(release.getReleaseNotes(),
+                 this.simulator.getReleaseNotes(groupID, pkg, name));
+    assertEquals(release.getChangeLog(),
+                 this.simulator.getChangeLog(groupID, pkg, name));
+    assertTrue(this.simulator.isPreformatted(groupID, pkg, name));
+    assertNotNull(this.simulator.getReleaseDate(groupID, pkg, name));
+    assertTrue(this.simulator.isNotified(groupID, pkg, name));
+    final String[] fileNames = this.simulator.getFileNames(groupID, pkg, name);
+    assertEquals(2, fileNames.length);
+    FileSpecification spec;
+    for (int i = 0; i < fileNames.length; i++) {
+      spec = release.getFileSpecification(fileNames[i]);
+      assertNotNull(spec);
+      assertEquals(spec.getFileType(),
+                   this.simulator.getFileType(groupID, pkg, name,
+                                              fileNames[i]));
+      assertEquals(spec.getProcessorType(),
+                   this.simulator.getProcessorType(groupID, pkg, name,
+                                                   fileNames[i]));
+      assertTrue(new File(this.simulator.getUploadDirectory(groupID, name),
+                          fileNames[i]).isFile());
+    }
+  }
+
+  /**
+   * Tests that a new package and release are created and fully described by
+   * a single {@link HttpUnitPublisher#publish(FileRelease)} call.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testPublish() throws Exception {
+    final FileRelease release = this.createRelease("simproject");
+    final HttpUnitPublisher publisher = this.simulator.newPublisher();
+    final AdaptiveLimiter limiter = new AdaptiveLimiter();
+    publisher.setLimiter(limiter);
+    publisher.publish(release);
+    this.assertPublished(release);
+    assertTrue(this.simulator.getRequestCount() > 0);
+    // Every request went through the limiter.
+    assertEquals(this.simulator.getRequestCount(), limiter.getSuccessCount());
+    assertEquals(0, limiter.getInFlight());
+    // SFTP sessions are governed apart from HTTP requests.
+    assertNotSame(limiter, publisher.getSftpLimiter());
+    assertNotSame(AdaptiveLimiter.getShared(),
+                  new HttpUnitPublisher().getSftpLimiter());
+  }
+
+  /**
+   * Tests that bad credentials are rejected.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testBadCredentials() throws Exception {
+    final FileRelease release = this.createRelease("badcreds");
+    release.getPackage().getProject().setAdministrator(
+      new Administrator("badcreds_admin", "wrong"));
+    try {
+      this.simulator.newPublisher().publish(release);
+      fail("Published with bad credentials");
+    } catch (final PublishingException expected) {
+      // expected
+    }
+  }
+
+  /**
+   * Tests that many projects can be published to one {@link FrsSimulator}
+   * concurrently.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testConcurrentPublish() throws Exception {
+    final int projectCount =
+      Integer.getInteger("sfutils.simulator.projects", 25).intValue();
+    final FileRelease[] releases = new FileRelease[projectCount];
+    for (int i = 0; i < projectCount; i++) {
+      releases[i] = this.createRelease("concurrent" + i);
+    }
+    final List errors = Collections.synchronizedList(new ArrayList());
+    final Thread[] threads = new Thread[projectCount];
+    for (int i = 0; i < projectCount; i++) {
+      final FileRelease release = releases[i];
+      threads[i] = new Thread() {
+          public void run() {
+            try {
+              simulator.newPublisher().publish(release);
+            } catch (final Throwable kaboom) {
+              errors.add(kaboom);
+            }
+          }
+        };
+      threads[i].start();
+    }
+    for (int i = 0; i < projectCount; i++) {
+      threads[i].join();
+    }
+    assertTrue(errors.toString(), errors.isEmpty());
+    for (int i = 0; i < projectCount; i++) {
+      this.assertPublished(releases[i]);
+    }
+  }
+
+  /**
+   * Tests that an {@link IncrementalPublisher} with web steps enabled
+   * uploads a file again when its contents change under the same name, and
+   * only that file.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testChangedContentsUploadedAgain() throws Exception {
+    final FileRelease release = this.createRelease("changed");
+    final IncrementalPublisher publisher =
+      new IncrementalPublisher(this.simulator.newPublisher(),
+                               new MetadataStore(null),
+                               false);
+    assertEquals(IncrementalPublisher.FULL, publisher.publishIfChanged(release));
+    final String groupID = release.getPackage().getProject().getID();
+    final File changed = release.getFiles()[0];
+    final File unchanged = release.getFiles()[1];
+    final File uploadDirectory =
+      this.simulator.getUploadDirectory(groupID, release.getName());
+    final File unchangedCopy = new File(uploadDirectory, unchanged.getName());
+    assertTrue(unchangedCopy.setLastModified(0L));
+
+    final PrintWriter writer =
+      new PrintWriter(new BufferedWriter(new FileWriter(changed)));
+    try {
+      writer.println("New and longer contents of " + changed.getName());
+    } finally {
+      writer.close();
+    }
+    assertEquals(IncrementalPublisher.FULL, publisher.publishIfChanged(release));
+    assertEquals(changed.length(),
+                 new File(uploadDirectory, changed.getName()).length());
+    assertEquals(0L, unchangedCopy.lastModified());
+    assertEquals(IncrementalPublisher.UP_TO_DATE,
+                 publisher.publishIfChanged(release));
+  }
+
+}
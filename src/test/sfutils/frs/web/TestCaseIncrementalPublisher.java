@@ -0,0 +1,341 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs.web;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import com.meterware.httpunit.WebConversation;
+
+import junit.framework.TestCase;
+
+import sfutils.Administrator;
+import sfutils.MetadataStore;
+import sfutils.Project;
+
+import sfutils.frs.FileRelease;
+import sfutils.frs.FileSpecification;
+import sfutils.frs.Package;
+import sfutils.frs.PublishingException;
+import sfutils.frs.ReleaseFingerprint;
+
+/**
+ * A {@link TestCase} that exercises the {@link IncrementalPublisher} and the
+ * {@link ReleaseFingerprint}s it records, against an {@link
+ * HttpUnitPublisher} that only notes what it is asked to do.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCaseIncrementalPublisher extends TestCase {
+
+  /**
+   * The temporary directory holding the released files.
+   */
+  private File root;
+
+  /**
+   * The number of full publishes made.
+   */
+  private int publishCount;
+
+  /**
+   * The names of the {@link File}s uploaded by partial publishes.
+   */
+  private List uploaded;
+
+  /**
+   * The {@link HttpUnitPublisher} that notes what it is asked to do.
+   */
+  private HttpUnitPublisher publisher;
+
+  /**
+   * The memory-only {@link MetadataStore} in which fingerprints are
+   * recorded.
+   */
+  private MetadataStore store;
+
+  /**
+   * The {@link FileRelease} being published.
+   */
+  private FileRelease release;
+
+  /**
+   * Creates a new {@link TestCaseIncrementalPublisher}.
+   *
+   * @param      name
+   *               the name of the test to run; supplied by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will not be
+   *               <code>null</code>
+   */
+  public TestCaseIncrementalPublisher(final String name) {
+    super(name);
+  }
+
+  /**
+   * Creates a temporary directory, a {@link FileRelease} of two {@link
+   * File}s in it, and a recording {@link HttpUnitPublisher}.
+   *
+   * @exception  IOException
+   *               if the {@link File}s could not be written
+   */
+  protected void setUp() throws IOException {
+    this.root = File.createTempFile("TEST", "");
+    assertTrue(this.root.delete());
+    assertTrue(this.root.mkdir());
+    this.uploaded = new ArrayList();
+    this.publisher = new HttpUnitPublisher() {
+        public void publish(final FileRelease release,
+                            final Collection changedFileNames) {
+          publishCount++;
+        }
+        public void uploadSFTP(final FileRelease release,
+                               final File[] files,
+                               final String username,
+                               final String password) {
+          for (int i = 0; i < files.length; i++) {
+            uploaded.add(files[i].getName());
+          }
+        }
+      };
+    this.store = new MetadataStore(null);
+
+    final Administrator admin = new Administrator();
+    admin.setName("username");
+    admin.setPassword("password");
+    final Project project = new Project("My Project", "myproj", admin);
+    this.release = new FileRelease(new Package(project, "core"), "core-1.0");
+    this.release.setReleaseNotes("First release");
+    this.release.setFileSpecifications(new FileSpecification[] {
+      new FileSpecification(this.write("core-1.0.jar", "classes")),
+      new FileSpecification(this.write("core-1.0.tar.gz", "sources"))
+    });
+  }
+
+  /**
+   * Deletes the temporary directory.
+   */
+  protected void tearDown() {
+    final File[] children = this.root.listFiles();
+    if (children != null) {
+      for (int i = 0; i < children.length; i++) {
+        children[i].delete();
+      }
+    }
+    this.root.delete();
+  }
+
+  /**
+   * Writes the supplied text to a {@link File} in the temporary directory.
+   *
+   * @param      name
+   *               the name of the {@link File}; must not be
+   *               <code>null</code>
+   * @param      text
+   *               the text; must not be <code>null</code>
+   * @return     the {@link File}; never <code>null</code>
+   * @exception  IOException
+   *               if the {@link File} could not be written
+   */
+  private File write(final String name, final String text)
+    throws IOException {
+    final File file = new File(this.root, name);
+    final OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(text.getBytes());
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  /**
+   * Publishes the {@link FileRelease} incrementally.
+   *
+   * @return     the outcome
+   * @exception  PublishingException
+   *               if publishing failed
+   */
+  private int publish() throws PublishingException {
+    return new IncrementalPublisher(this.publisher, this.store, false)
+      .publishIfChanged(this.release);
+  }
+
+  /**
+   * Ensures that an unchanged {@link FileRelease} is published only once,
+   * even if its {@link File}s are touched.
+   */
+  public void testUpToDate() throws IOException, PublishingException {
+    assertEquals(IncrementalPublisher.FULL, this.publish());
+    assertEquals(IncrementalPublisher.UP_TO_DATE, this.publish());
+    final File jar = new File(this.root, "core-1.0.jar");
+    assertTrue(jar.setLastModified(jar.lastModified() - 60000L));
+    assertEquals(IncrementalPublisher.UP_TO_DATE, this.publish());
+    assertEquals(1, this.publishCount);
+    assertEquals(0, this.uploaded.size());
+  }
+
+  /**
+   * Ensures that only changed and added {@link File}s are uploaded when
+   * nothing else has changed.
+   */
+  public void testPartial() throws IOException, PublishingException {
+    assertEquals(IncrementalPublisher.FULL, this.publish());
+    this.write("core-1.0.jar", "more classes");
+    assertEquals(IncrementalPublisher.PARTIAL, this.publish());
+    assertEquals(Arrays.asList(new String[] { "core-1.0.jar" }),
+                 this.uploaded);
+
+    this.uploaded.clear();
+    final List specs = new ArrayList(this.release.getFileSpecificationList());
+    specs.add(new FileSpecification(this.write("core-1.0.zip", "archive")));
+    this.release.setFileSpecifications((FileSpecification[])specs.toArray(new FileSpecification[specs.size()]));
+    assertEquals(IncrementalPublisher.PARTIAL, this.publish());
+    assertEquals(Arrays.asList(new String[] { "core-1.0.zip" }),
+                 this.uploaded);
+    assertEquals(IncrementalPublisher.UP_TO_DATE, this.publish());
+    assertEquals(1, this.publishCount);
+  }
+
+  /**
+   * Ensures that changed attributes, removed {@link File}s, web steps and
+   * forcing all lead to a full publish.
+   */
+  public void testFull() throws IOException, PublishingException {
+    assertEquals(IncrementalPublisher.FULL, this.publish());
+    this.release.setReleaseNotes("First release, corrected");
+    assertEquals(IncrementalPublisher.FULL, this.publish());
+
+    this.release.removeFileSpecification("core-1.0.tar.gz");
+    assertEquals(IncrementalPublisher.FULL, this.publish());
+
+    this.publisher.setWebStepsEnabled(true);
+    this.write("core-1.0.jar", "more classes");
+    assertEquals(IncrementalPublisher.FULL, this.publish());
+
+    assertEquals(IncrementalPublisher.FULL,
+                 new IncrementalPublisher(this.publisher, this.store, true)
+                 .publishIfChanged(this.release));
+    assertEquals(5, this.publishCount);
+    assertEquals(0, this.uploaded.size());
+  }
+
+  /**
+   * Ensures that a {@link FileRelease} uploaded with the web steps disabled
+   * is published in full once they are enabled, since the package and
+   * release have yet to be created on the web side.
+   */
+  public void testWebStepsEnabledLater() throws PublishingException {
+    assertFalse(this.publisher.isWebStepsEnabled());
+    assertEquals(IncrementalPublisher.FULL, this.publish());
+    assertEquals(IncrementalPublisher.UP_TO_DATE, this.publish());
+    this.publisher.setWebStepsEnabled(true);
+    assertEquals(IncrementalPublisher.FULL, this.publish());
+    assertEquals(IncrementalPublisher.UP_TO_DATE, this.publish());
+    assertEquals(2, this.publishCount);
+    assertEquals(0, this.uploaded.size());
+  }
+
+  /**
+   * Ensures that nothing is recorded for a {@link FileRelease} that could
+   * not be published.
+   */
+  public void testFailure() throws PublishingException {
+    final HttpUnitPublisher failing = new HttpUnitPublisher() {
+        public void publish(final FileRelease release,
+                            final Collection changedFileNames)
+          throws PublishingException {
+          throw new PublishingException("failed");
+        }
+      };
+    try {
+      new IncrementalPublisher(failing, this.store, false)
+        .publishIfChanged(this.release);
+      fail("Publishing did not fail");
+    } catch (final PublishingException expected) {
+      // expected
+    }
+    assertNull(this.store.getFingerprint(IncrementalPublisher.getFingerprintKey(this.release)));
+    assertEquals(IncrementalPublisher.FULL, this.publish());
+  }
+
+  /**
+   * Ensures that a full publish with the web steps disabled uploads by SFTP
+   * without creating a {@link WebConversation}, and so without loading the
+   * HTML and JavaScript stack.
+   */
+  public void testSftpOnly() throws PublishingException {
+    final HttpUnitPublisher sftpOnly = new HttpUnitPublisher() {
+        protected WebConversation createConversation() {
+          fail("A conversation was created for an SFTP-only publish");
+          return null;
+        }
+        public void uploadSFTP(final FileRelease release,
+                               final File[] files,
+                               final String username,
+                               final String password) {
+          for (int i = 0; i < files.length; i++) {
+            uploaded.add(files[i].getName());
+          }
+        }
+      };
+    assertFalse(sftpOnly.isWebStepsEnabled());
+    sftpOnly.publish(this.release);
+    assertEquals(Arrays.asList(new String[] { "core-1.0.jar", "core-1.0.tar.gz" }),
+                 this.uploaded);
+  }
+
+  /**
+   * Ensures that a {@link ReleaseFingerprint} survives being written out and
+   * parsed, and that malformed fingerprints are ignored.
+   */
+  public void testFingerprintString() throws IOException {
+    final List specs = new ArrayList(this.release.getFileSpecificationList());
+    specs.add(new FileSpecification(this.write("odd:name.txt", "text")));
+    this.release.setFileSpecifications((FileSpecification[])specs.toArray(new FileSpecification[specs.size()]));
+    final ReleaseFingerprint fingerprint =
+      ReleaseFingerprint.compute(this.release, "target", null);
+    final ReleaseFingerprint parsed =
+      ReleaseFingerprint.parse(fingerprint.toString());
+    assertEquals(fingerprint, parsed);
+    assertTrue(parsed.getFileNames().contains("odd:name.txt"));
+    assertTrue(fingerprint.isUpToDate(parsed));
+    assertFalse(fingerprint.hasSameAttributes(ReleaseFingerprint.compute(this.release, "elsewhere", null)));
+    assertNull(ReleaseFingerprint.parse(null));
+    assertNull(ReleaseFingerprint.parse("2/abc"));
+    assertNull(ReleaseFingerprint.parse("1/abc/x:1:2:3:d:name"));
+  }
+
+}
@@ -0,0 +1,394 @@
+/* -*- mode: JDE; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2003 Laird Jarrett Nelson.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package sfutils.frs.web;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import java.util.Date;
+import java.util.List;
+
+import com.meterware.httpunit.WebConversation;
+
+import junit.framework.TestCase;
+
+import sfutils.Administrator;
+import sfutils.Project;
+
+import sfutils.frs.FileRelease;
+import sfutils.frs.FileSpecification;
+import sfutils.frs.Package;
+
+/**
+ * A {@link TestCase} that tests the {@link Reconciler} class against a {@link
+ * FrsSimulator}.
+ *
+ * @version    $Revision$ $Date$
+ * @since      October 19, 2026
+ */
+public class TestCaseReconciler extends TestCase {
+
+  /**
+   * The {@link FrsSimulator} to publish to.
+   */
+  private FrsSimulator simulator;
+
+  /**
+   * The {@link HttpUnitPublisher} that publishes to the {@link
+   * FrsSimulator}.
+   */
+  private HttpUnitPublisher publisher;
+
+  /**
+   * The {@link FileRelease} under test; published once by {@link #setUp()}.
+   */
+  private FileRelease release;
+
+  /**
+   * Creates a new {@link TestCaseReconciler}.
+   *
+   * @param      name
+   *               the name of the test case to run; passed by the <a
+   *               href="http://www.junit.org/">JUnit</a> framework; will never
+   *               be <code>null</code>
+   */
+  public TestCaseReconciler(final String name) {
+    super(name);
+  }
+
+  public void setUp() throws Exception {
+    this.simulator = new FrsSimulator();
+    this.publisher = this.simulator.newPublisher();
+    final String groupID =
+      this.simulator.addProject("reconciled", "reconciled_admin", "secret");
+    final Project project = new Project();
+    project.setName("reconciled");
+    project.setShortName("reconciled");
+    project.setID(groupID);
+    project.setAdministrator(new Administrator("reconciled_admin", "secret"));
+    final Package pkg = new Package();
+    pkg.setName("core");
+    pkg.setHidden(true);
+    pkg.setProject(project);
+    this.release = new FileRelease();
+    this.release.setName("1.0");
+    this.release.setPackage(pkg);
+    this.release.setReleaseDate(new Date());
+    this.release.setReleaseNotes("Notes");
+    this.release.setChangeLog("Changes");
+    this.release.setPreserveFormattedText(true);
+    this.release.setNotifyOthers(true);
+    this.release.setFileSpecifications(new FileSpecification[] {
+      this.createSpecification("README", ".txt"),
+      this.createSpecification("index", ".html")
+    });
+    this.publisher.publish(this.release);
+    this.simulator.resetCounts();
+  }
+
+  public void tearDown() throws Exception {
+    this.simulator.shutDown();
+  }
+
+  private FileSpecification createSpecification(final String prefix,
+                                                final String suffix)
+    throws IOException {
+    final File file = File.createTempFile(prefix, suffix);
+    file.deleteOnExit();
+    final PrintWriter writer =
+      new PrintWriter(new BufferedWriter(new FileWriter(file)));
+    try {
+      writer.println("Contents of " + file.getName());
+    } finally {
+      writer.close();
+    }
+    final FileSpecification spec = new FileSpecification();
+    spec.setFile(file);
+    spec.setProcessorType(FileSpecification.PLATFORM_INDEPENDENT_PROCESSOR);
+    return spec;
+  }
+
+  /**
+   * Returns a new {@link FileRelease} with one file in the named package of
+   * the supplied {@link Project}.
+   */
+  private FileRelease createRelease(final Project project,
+                                    final String packageName,
+                                    final String name)
+    throws IOException {
+    final Package pkg = new Package();
+    pkg.setName(packageName);
+    pkg.setProject(project);
+    final FileRelease created = new FileRelease();
+    created.setName(name);
+    created.setPackage(pkg);
+    created.setReleaseDate(new Date());
+    created.setReleaseNotes("Notes for " + name);
+    created.setFileSpecifications(new FileSpecification[] {
+      this.createSpecification(packageName, ".txt")
+    });
+    return created;
+  }
+
+  /**
+   * Reads the remote state of the {@link FileRelease} under test and returns
+   * the {@link Mutation}s needed to bring it up to date.
+   */
+  private List diff() throws Exception {
+    final WebConversation conversation = new WebConversation();
+    this.publisher.login(conversation, this.release.getPackage().getProject());
+    final Reconciler reconciler = new Reconciler(this.publisher);
+    return reconciler.diff(reconciler.read(conversation, this.release),
+                           this.release);
+  }
+
+  private static void assertKinds(final int[] kinds, final List mutations) {
+    assertEquals(mutations.toString(), kinds.length, mutations.size());
+    for (int i = 0; i < kinds.length; i++) {
+      assertEquals(mutations.toString(),
+                   kinds[i], ((Mutation)mutations.get(i)).getKind());
+    }
+  }
+
+  /**
+   * Tests that publishing an up-to-date {@link FileRelease} makes no changes:
+   * the only <code>POST</code> is the login.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testNoOpPublish() throws Exception {
+    assertTrue(this.diff().isEmpty());
+    this.simulator.resetCounts();
+    this.publisher.publish(this.release);
+    assertEquals(1, this.simulator.getPostCount());
+    assertEquals(2, this.simulator.getFileNames(this.release.getPackage().getProject().getID(), "core", "1.0").length);
+    assertEquals(this.release.getPackage().getID(),
+                 this.simulator.getMetadataStore().getPackageID(this.release.getPackage().getProject().getID(), "core"));
+  }
+
+  /**
+   * Tests that a {@linkplain FileRelease#freeze() frozen} {@link FileRelease}
+   * can be published, and that publishing leaves it untouched.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testFrozenPublish() throws Exception {
+    this.release.freeze();
+    assertTrue(this.release.getPackage().getProject().isFrozen());
+    assertTrue(this.release.getFileSpecifications()[0].isFrozen());
+    final int hashCode = this.release.getPackage().hashCode();
+    this.publisher.publish(this.release);
+    assertEquals(1, this.simulator.getPostCount());
+    assertEquals(hashCode, this.release.getPackage().hashCode());
+  }
+
+  /**
+   * Tests that changing the processor type of one file yields exactly one
+   * file type edit.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testFileTypeChange() throws Exception {
+    final FileSpecification spec = this.release.getFileSpecifications()[0];
+    spec.setProcessorType(FileSpecification.I386_PROCESSOR);
+    assertKinds(new int[] { Mutation.UPDATE_FILE_TYPE }, this.diff());
+    this.publisher.publish(this.release);
+    assertEquals(FileSpecification.I386_PROCESSOR,
+                 this.simulator.getProcessorType(this.release.getPackage().getProject().getID(),
+                                                 "core", "1.0",
+                                                 spec.getFile().getName()));
+    assertTrue(this.diff().isEmpty());
+  }
+
+  /**
+   * Tests that changing the status of the package yields exactly one status
+   * change.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testPackageStatusChange() throws Exception {
+    this.release.getPackage().setHidden(false);
+    assertKinds(new int[] { Mutation.UPDATE_PACKAGE_STATUS }, this.diff());
+    this.publisher.publish(this.release);
+    assertFalse(this.simulator.isPackageHidden(this.release.getPackage().getProject().getID(), "core"));
+    assertTrue(this.diff().isEmpty());
+  }
+
+  /**
+   * Tests that adding a file to the {@link FileRelease} uploads and attaches
+   * only that file.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testAddFile() throws Exception {
+    final FileSpecification[] oldSpecs = this.release.getFileSpecifications();
+    final FileSpecification added = this.createSpecification("extra", ".txt");
+    this.release.setFileSpecifications(new FileSpecification[] {
+      oldSpecs[0], oldSpecs[1], added
+    });
+    final List mutations = this.diff();
+    assertKinds(new int[] {
+      Mutation.UPLOAD_FILE,
+      Mutation.ADD_FILE,
+      Mutation.UPDATE_FILE_TYPE,
+      Mutation.NOTIFY_OTHERS
+    }, mutations);
+    assertEquals(added.getFile(), ((Mutation)mutations.get(0)).getFile());
+    this.publisher.publish(this.release);
+    assertEquals(3, this.simulator.getFileNames(this.release.getPackage().getProject().getID(), "core", "1.0").length);
+    assertTrue(this.diff().isEmpty());
+  }
+
+  /**
+   * Tests that creating a package that was created by someone else after the
+   * packages page was read does not create it again.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testStalePackagesPage() throws Exception {
+    final Project project = this.release.getPackage().getProject();
+    final FileRelease stale = this.createRelease(project, "extras", "2.0");
+    final WebConversation conversation = new WebConversation();
+    this.publisher.login(conversation, project);
+    final Reconciler reconciler = new Reconciler(this.publisher);
+    final RemoteState remote = reconciler.read(conversation, stale);
+    final List mutations = reconciler.diff(remote, stale);
+    assertEquals(Mutation.CREATE_PACKAGE,
+                 ((Mutation)mutations.get(0)).getKind());
+
+    this.publisher.publish(this.createRelease(project, "extras", "1.0"));
+    reconciler.apply(conversation, remote, stale, mutations);
+    int count = 0;
+    final String[] names = this.simulator.getPackageNames(project.getID());
+    for (int i = 0; i < names.length; i++) {
+      if ("extras".equals(names[i])) {
+        count++;
+      }
+    }
+    assertEquals(1, count);
+    assertEquals(2, this.simulator.getReleaseNames(project.getID(), "extras").length);
+  }
+
+  /**
+   * Tests that a {@link Plan} lists the changes a publish would make without
+   * making them, and that its request estimate matches what the publish then
+   * does.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testPlan() throws Exception {
+    final FileSpecification[] oldSpecs = this.release.getFileSpecifications();
+    final FileSpecification added = this.createSpecification("planned", ".txt");
+    this.release.setFileSpecifications(new FileSpecification[] {
+      oldSpecs[0], oldSpecs[1], added
+    });
+    this.release.getPackage().setHidden(false);
+    final String groupID = this.release.getPackage().getProject().getID();
+
+    final Plan plan = this.publisher.plan(this.release);
+    assertFalse(plan.isEmpty());
+    assertEquals(1, plan.getMutations(Mutation.UPDATE_PACKAGE_STATUS).size());
+    assertEquals(1, plan.getMutations(Mutation.UPLOAD_FILE).size());
+    assertEquals(added.getFile().length(), plan.getUploadByteCount());
+    assertEquals(0, plan.getMutations(Mutation.CREATE_RELEASE).size());
+    assertTrue(plan.toString().indexOf(added.getFile().getName()) >= 0);
+
+    // Nothing but the login was posted, and nothing changed.
+    assertEquals(1, this.simulator.getPostCount());
+    assertEquals(plan.getReadRequestCount(),
+                 this.simulator.getRequestCount());
+    assertTrue(this.simulator.isPackageHidden(groupID, "core"));
+    assertEquals(2, this.simulator.getFileNames(groupID, "core", "1.0").length);
+
+    this.simulator.resetCounts();
+    this.publisher.publish(this.release);
+    assertEquals(plan.getEstimatedRequestCount(),
+                 this.simulator.getRequestCount());
+    assertTrue(this.publisher.plan(this.release).isEmpty());
+  }
+
+  /**
+   * Tests that a plan made while a {@linkplain SharedSessions shared} login
+   * is held does not count the login among its reads.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testSharedLoginPlan() throws Exception {
+    final SharedSessions sessions = new SharedSessions();
+    this.publisher.setSharedSessions(sessions);
+    try {
+      this.simulator.resetCounts();
+      final Plan first = this.publisher.plan(this.release);
+      assertEquals(first.getReadRequestCount(),
+                   this.simulator.getRequestCount());
+      this.simulator.resetCounts();
+      final Plan second = this.publisher.plan(this.release);
+      assertEquals(first.getReadRequestCount() - Reconciler.LOGIN_REQUESTS,
+                   second.getReadRequestCount());
+      assertEquals(second.getReadRequestCount(),
+                   this.simulator.getRequestCount());
+    } finally {
+      sessions.close();
+    }
+  }
+
+  /**
+   * Tests that a plan made with the web steps disabled lists only the
+   * uploads an SFTP-only publish would make, without requesting anything.
+   *
+   * @exception  Exception
+   *               if the test fails
+   */
+  public void testSftpOnlyPlan() throws Exception {
+    this.publisher.setWebStepsEnabled(false);
+    this.simulator.resetCounts();
+    final Plan plan = this.publisher.plan(this.release);
+    final FileSpecification[] specs = this.release.getFileSpecifications();
+    assertEquals(specs.length, plan.getMutations().size());
+    assertEquals(specs.length, plan.getMutations(Mutation.UPLOAD_FILE).size());
+    long uploadBytes = 0L;
+    for (int i = 0; i < specs.length; i++) {
+      uploadBytes += specs[i].getFile().length();
+    }
+    assertEquals(uploadBytes, plan.getUploadByteCount());
+    assertEquals(0, plan.getEstimatedRequestCount());
+    assertEquals(0, this.simulator.getRequestCount());
+  }
+
+}